@@ -100,6 +100,12 @@ controllersModule.controller('SettingsCtrl',
             return disableSyncButton($scope.model.company.employeesSynced);
         };
 
+        $scope.disableAllSyncButton = function () {
+            return disableSyncButton($scope.model.company.employeesSynced &&
+                $scope.model.company.customersSynced &&
+                $scope.model.company.serviceItemsSynced);
+        };
+
             $scope.disableViewEmployeesInQBOButton = function () {
                 return disableViewInQBOButton($scope.model.company.employeesSynced);
             };
@@ -127,6 +133,11 @@ controllersModule.controller('SettingsCtrl',
             $scope.busyModal = BusyModalSvc.openBusyModal();
         };
 
+        $scope.syncAll = function () {
+            SyncRequestSvc.sendAllSyncRequest(self.syncCompleted);
+            $scope.busyModal = BusyModalSvc.openBusyModal();
+        };
+
         this.syncCompleted = function (data, status, headers, config) {
             CompanySvc.initializeModel();
             BusyModalSvc.closeBusyModal($scope.busyModal);
@@ -244,6 +255,9 @@ controllersModule.controller('InvoiceCtrl', ['$scope', "$window", 'ModelSvc', 'I
                 invoice.showServiceItemSummaries = !invoice.showServiceItemSummaries;
             } else {
                 invoice.showServiceItemSummaries = true;
+                if (!invoice.timeActivities) {
+                    InvoiceSvc.getTimeActivities(invoice);
+                }
             }
 
         };
@@ -258,8 +272,12 @@ controllersModule.controller('InvoiceCtrl', ['$scope', "$window", 'ModelSvc', 'I
         };
 
         this.showSuccessfulAlert = function (result) {
-            $scope.alertMessage = "Invoice successfully created and pushed to QBO (QBO ID = " + result.qboId + ")";
-            TrackingSvc.trackPage('invoices_success');
+            if (result.status === 'Failed') {
+                $scope.alertMessage = "Invoice could not be pushed to QBO: " + result.submissionError;
+            } else {
+                $scope.alertMessage = "Invoice successfully created and pushed to QBO (QBO ID = " + result.qboId + ")";
+                TrackingSvc.trackPage('invoices_success');
+            }
             $scope.showAlert = true;
             BusyModalSvc.closeBusyModal($scope.busyModal);
         };
@@ -189,8 +189,22 @@ timetrackingServices.factory('EmployeeSvc', ['$resource', '$rootScope', 'RootUrl
         }
     }]);
 
-timetrackingServices.factory('SyncRequestSvc', ['$http', '$rootScope', 'RootUrlSvc', 'ModelSvc',
-    function ($http, $rootScope, RootUrlSvc, ModelSvc) {
+timetrackingServices.factory('SyncRequestSvc', ['$http', '$timeout', '$rootScope', 'RootUrlSvc', 'ModelSvc',
+    function ($http, $timeout, $rootScope, RootUrlSvc, ModelSvc) {
+
+        //sync requests are processed in the background, poll the sync job until it is done
+        var waitForSyncJob = function (jobId, successCallback) {
+            $http.get(RootUrlSvc.rootUrls.syncRequest + "/" + jobId, {headers: {Accept: "application/json"}})
+                .success(function (job, status, headers, config) {
+                    if (job.status === 'Completed' || job.status === 'Failed') {
+                        successCallback(job, status, headers, config);
+                    } else {
+                        $timeout(function () {
+                            waitForSyncJob(jobId, successCallback);
+                        }, 1000);
+                    }
+                });
+        };
 
         var sendSyncRequest = function (entityType, successCallback, errorCallback) {
             $http.post(RootUrlSvc.rootUrls.syncRequest, {type: entityType, companyId: ModelSvc.model.company.id},
@@ -198,7 +212,13 @@ timetrackingServices.factory('SyncRequestSvc', ['$http', '$rootScope', 'RootUrlS
                     Accept: "application/json",
                     "Content-Type": "application/json"
                 }})
-                .success(successCallback);
+                .success(function (syncRequest, status, headers, config) {
+                    if (syncRequest.successful && syncRequest.jobId) {
+                        waitForSyncJob(syncRequest.jobId, successCallback);
+                    } else {
+                        successCallback(syncRequest, status, headers, config);
+                    }
+                });
         };
 
         return {
@@ -210,6 +230,9 @@ timetrackingServices.factory('SyncRequestSvc', ['$http', '$rootScope', 'RootUrlS
             },
             sendEmployeeSyncRequest: function (callback) {
                 sendSyncRequest('Employee', callback)
+            },
+            sendAllSyncRequest: function (callback) {
+                sendSyncRequest('All', callback)
             }
         }
     }]);
@@ -262,17 +285,19 @@ timetrackingServices.factory('TimeActivitySvc', ['$resource', '$rootScope', 'Roo
         }
     }]);
 
-timetrackingServices.factory('InvoiceSvc', ['$resource', '$rootScope', 'RootUrlSvc', 'ModelSvc',
-    function ($resource, $rootScope, RootUrlSvc, ModelSvc) {
+timetrackingServices.factory('InvoiceSvc', ['$resource', '$timeout', '$rootScope', 'RootUrlSvc', 'ModelSvc',
+    function ($resource, $timeout, $rootScope, RootUrlSvc, ModelSvc) {
 
         var Invoice;
 
         var initializeModel = function () {
             Invoice = $resource(RootUrlSvc.rootUrls.invoices + "/:invoiceId", {},
                 {
+                    //fetches the invoices with their customers in one query, see InvoiceRepository
                     query: {
-                        url: ModelSvc.model.company._links.invoices.href,
+                        url: RootUrlSvc.rootUrls.invoices + "/search/findSummariesByCompany",
                         params: {
+                            companyId: ModelSvc.model.company.id,
                             projection: 'summary'
                         },
                         isArray: false
@@ -290,7 +315,8 @@ timetrackingServices.factory('InvoiceSvc', ['$resource', '$rootScope', 'RootUrlS
                     ModelSvc.model.company.billedInvoices = [];
 
                     angular.forEach(data._embedded.invoices, function (invoice) {
-                        if (invoice.summary.status === 'Pending') {
+                        //failed invoices can be submitted again
+                        if (invoice.summary.status === 'Pending' || invoice.summary.status === 'Failed') {
                             ModelSvc.model.company.pendingInvoices.push(invoice);
                         } else {
                             ModelSvc.model.company.billedInvoices.push(invoice);
@@ -312,24 +338,69 @@ timetrackingServices.factory('InvoiceSvc', ['$resource', '$rootScope', 'RootUrlS
             }
         };
 
+        //invoices are submitted to QBO in the background, poll the invoice until it is billed or failed
+        var waitForSubmission = function (invoiceId, callback) {
+            Invoice.get({invoiceId: invoiceId}, function (invoice) {
+                if (invoice.status === 'Submitting' || invoice.status === 'ReadyToBeBilled') {
+                    $timeout(function () {
+                        waitForSubmission(invoiceId, callback);
+                    }, 1000);
+                } else {
+                    callback(invoice);
+                }
+            });
+        };
+
         var submitInvoiceForBilling = function (invoiceSummary, callback) {
+            var submitted = function (updatedInvoice) {
+                if (updatedInvoice.status !== 'Failed') {
+                    var index = ModelSvc.model.company.pendingInvoices.indexOf(invoiceSummary);
+                    ModelSvc.model.company.pendingInvoices.splice(index, 1);
+                    ModelSvc.model.company.billedInvoices.push(invoiceSummary);
+                    invoiceSummary.qboId = updatedInvoice.qboId;
+                }
+                callback(updatedInvoice);
+            };
+
             Invoice.get({invoiceId: invoiceSummary.id}, function (invoice) {
                 invoice.status = 'ReadyToBeBilled';
                 invoice.$update({invoiceId: invoiceSummary.id},
                     function (updatedInvoice) {
-
-                        var index = ModelSvc.model.company.pendingInvoices.indexOf(invoiceSummary);
-                        ModelSvc.model.company.pendingInvoices.splice(index, 1);
-                        ModelSvc.model.company.billedInvoices.push(invoiceSummary);
-                        invoiceSummary.qboId = updatedInvoice.qboId;
-                        callback(updatedInvoice);
+                        if (updatedInvoice.status === 'Submitting') {
+                            waitForSubmission(invoiceSummary.id, submitted);
+                        } else {
+                            submitted(updatedInvoice);
+                        }
                     });
             })
         };
 
+        //the invoice list only has the totals of the invoices, the time activities of an invoice are fetched when it is expanded
+        var getTimeActivities = function (invoice) {
+            var timeActivityResource = $resource(RootUrlSvc.rootUrls.timeActivities + "/search/findByInvoice", {},
+                {
+                    query: {
+                        params: {
+                            invoiceId: invoice.id,
+                            projection: 'summary'
+                        },
+                        isArray: false
+                    }
+                });
+
+            timeActivityResource.query(function (data) {
+                if (data._embedded) {
+                    invoice.timeActivities = data._embedded.timeActivities;
+                } else {
+                    invoice.timeActivities = [];
+                }
+            });
+        };
+
         return {
             initializeModel: initializeModel,
             getInvoices: getInvoices,
+            getTimeActivities: getTimeActivities,
             submitInvoiceForBilling: submitInvoiceForBilling
         }
     }
@@ -449,13 +449,22 @@ describe("Unit: Controllers", function () {
         it('should have a expandServiceItemSummary function', function () {
             expect(scope.expandServiceItemSummary).toBeDefined();
 
+            spyOn(InvoiceSvc, 'getTimeActivities');
+
             var invoice = {};
             scope.expandServiceItemSummary(invoice);
             expect(invoice.showServiceItemSummaries).toBeTruthy();
+            expect(InvoiceSvc.getTimeActivities).toHaveBeenCalledWith(invoice);
 
             invoice = {showServiceItemSummaries: true};
             scope.expandServiceItemSummary(invoice);
             expect(invoice.showServiceItemSummaries).toBeFalsy();
+
+            //the time activities are only fetched the first time the invoice is expanded
+            invoice = {timeActivities: []};
+            scope.expandServiceItemSummary(invoice);
+            expect(invoice.showServiceItemSummaries).toBeTruthy();
+            expect(InvoiceSvc.getTimeActivities.callCount).toEqual(1);
         });
 
         it('should have a showSuccessfulAlert function', function () {
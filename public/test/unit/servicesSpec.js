@@ -584,6 +584,7 @@ describe('Unit: Services', function () {
         var $httpBackend, $rootScope, InvoiceSvc, ModelSvc, RootUrlSvc;
 
         var invoiceRootResource = "http://localhost:9001/invoices";
+        var timeActivityRootResource = "http://localhost:9001/timeActivities";
         var companyId = '1234';
         var companyInvoicesUrl = "http://localhost:9001/companies/" + companyId + "/invoices";
 
@@ -595,7 +596,8 @@ describe('Unit: Services', function () {
             RootUrlSvc = _RootUrlSvc_;
 
             RootUrlSvc.rootUrls = {
-                invoices: invoiceRootResource
+                invoices: invoiceRootResource,
+                timeActivities: timeActivityRootResource
             };
 
             ModelSvc.model.company.id = companyId;
@@ -640,7 +642,7 @@ describe('Unit: Services', function () {
 
             expect(InvoiceSvc.getInvoices).toBeDefined();
 
-            var expectedURL = companyInvoicesUrl + "?projection=summary";
+            var expectedURL = invoiceRootResource + "/search/findSummariesByCompany?companyId=" + companyId + "&projection=summary";
 
             $httpBackend.whenGET(expectedURL).respond(response);
 
@@ -656,6 +658,25 @@ describe('Unit: Services', function () {
 
         });
 
+        it('should have a getTimeActivities function', function () {
+            var timeActivity = {foo: "bar"};
+            var invoice = {id: 42};
+
+            expect(InvoiceSvc.getTimeActivities).toBeDefined();
+
+            var expectedURL = timeActivityRootResource + "/search/findByInvoice?invoiceId=42&projection=summary";
+
+            $httpBackend.whenGET(expectedURL).respond({_embedded: {timeActivities: [timeActivity]}});
+
+            $httpBackend.expectGET(expectedURL);
+
+            InvoiceSvc.getTimeActivities(invoice);
+
+            $httpBackend.flush();
+
+            expect(invoice.timeActivities).toEqual([timeActivity]);
+        });
+
         it('should have a submitInvoiceForBilling function', function () {
             expect(InvoiceSvc.submitInvoiceForBilling).toBeDefined();
 
@@ -681,6 +702,33 @@ describe('Unit: Services', function () {
 
         });
 
+        it('should poll a submitted invoice until it is billed', inject(function ($timeout) {
+            var invoiceId = 3333;
+            var invoiceSummary = {id: invoiceId};
+            var callback = jasmine.createSpy();
+
+            ModelSvc.model.company.pendingInvoices = [invoiceSummary];
+
+            var invoiceUrl = invoiceRootResource + "/" + invoiceId;
+            $httpBackend.expectGET(invoiceUrl).respond({status: 'Pending'});
+            $httpBackend.expectPUT(invoiceUrl).respond({status: 'Submitting'});
+            $httpBackend.expectGET(invoiceUrl).respond({status: 'Submitting'});
+
+            InvoiceSvc.initializeModel();
+            InvoiceSvc.submitInvoiceForBilling(invoiceSummary, callback);
+
+            $httpBackend.flush();
+            expect(callback).not.toHaveBeenCalled();
+
+            $httpBackend.expectGET(invoiceUrl).respond({status: 'Billed', qboId: '42'});
+            $timeout.flush();
+            $httpBackend.flush();
+
+            expect(callback).toHaveBeenCalled();
+            expect(invoiceSummary.qboId).toEqual('42');
+            expect(ModelSvc.model.company.billedInvoices).toEqual([invoiceSummary]);
+        }));
+
 
     });
 
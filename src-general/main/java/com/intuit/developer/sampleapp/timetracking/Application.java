@@ -10,10 +10,23 @@ import com.intuit.developer.sampleapp.timetracking.oauth.OAuthInfoProvider;
 import com.intuit.developer.sampleapp.timetracking.oauth.controllers.OAuthInfoProviderImpl;
 import com.intuit.developer.sampleapp.timetracking.qbo.DataServiceFactory;
 import com.intuit.developer.sampleapp.timetracking.qbo.QBOGateway;
+import com.intuit.developer.sampleapp.timetracking.qbo.QBOCircuitBreaker;
+import com.intuit.developer.sampleapp.timetracking.qbo.QBOMetrics;
+import com.intuit.developer.sampleapp.timetracking.qbo.QBORateLimiter;
+import com.intuit.developer.sampleapp.timetracking.qbo.QBORequestExecutor;
+import com.intuit.developer.sampleapp.timetracking.qbo.QBORetryPolicy;
+import com.intuit.developer.sampleapp.timetracking.qbo.QBOWireFormat;
+import com.intuit.developer.sampleapp.timetracking.qbo.ReferenceDataCache;
+import com.intuit.developer.sampleapp.timetracking.qbo.simulator.QBOSimulator;
+import com.intuit.developer.sampleapp.timetracking.repository.LegacyColumnMigration;
 import com.intuit.developer.sampleapp.timetracking.serializers.LocalDateDeserializer;
 import com.intuit.developer.sampleapp.timetracking.serializers.LocalDateSerializer;
 import com.intuit.developer.sampleapp.timetracking.serializers.MoneyDeserializer;
 import com.intuit.developer.sampleapp.timetracking.serializers.MoneySerializer;
+import com.intuit.developer.sampleapp.timetracking.sync.InvoiceSubmissionExecutor;
+import com.intuit.developer.sampleapp.timetracking.sync.OutboxDispatcher;
+import com.intuit.developer.sampleapp.timetracking.sync.PullSyncScheduler;
+import com.intuit.developer.sampleapp.timetracking.sync.SyncJobExecutor;
 import org.joda.money.Money;
 import org.joda.time.LocalDate;
 import org.springframework.boot.SpringApplication;
@@ -122,4 +135,69 @@ public class Application extends RepositoryRestMvcConfiguration {
     DataServiceFactory dataServiceFactory() {
         return new DataServiceFactory();
     }
+
+    @Bean
+    QBORateLimiter qboRateLimiter() {
+        return new QBORateLimiter();
+    }
+
+    @Bean
+    QBORetryPolicy qboRetryPolicy() {
+        return new QBORetryPolicy();
+    }
+
+    @Bean
+    QBOCircuitBreaker qboCircuitBreaker() {
+        return new QBOCircuitBreaker();
+    }
+
+    @Bean
+    QBORequestExecutor qboRequestExecutor() {
+        return new QBORequestExecutor();
+    }
+
+    @Bean
+    QBOWireFormat qboWireFormat() {
+        return new QBOWireFormat();
+    }
+
+    @Bean
+    QBOMetrics qboMetrics() {
+        return new QBOMetrics();
+    }
+
+    @Bean
+    ReferenceDataCache referenceDataCache() {
+        return new ReferenceDataCache();
+    }
+
+    @Bean
+    SyncJobExecutor syncJobExecutor() {
+        return new SyncJobExecutor();
+    }
+
+    @Bean
+    OutboxDispatcher outboxDispatcher() {
+        return new OutboxDispatcher();
+    }
+
+    @Bean
+    InvoiceSubmissionExecutor invoiceSubmissionExecutor() {
+        return new InvoiceSubmissionExecutor();
+    }
+
+    @Bean
+    PullSyncScheduler pullSyncScheduler() {
+        return new PullSyncScheduler();
+    }
+
+    @Bean
+    QBOSimulator qboSimulator() {
+        return new QBOSimulator();
+    }
+
+    @Bean
+    LegacyColumnMigration legacyColumnMigration() {
+        return new LegacyColumnMigration();
+    }
 }
@@ -14,13 +14,18 @@ public class SyncRequest {
     public enum EntityType {
         Employee,
         Customer,
-        ServiceItem
+        ServiceItem,
+        /**
+         * Employees, customers and service items in parallel, followed by the time activities that are not in QBO yet
+         */
+        All
     }
 
     private EntityType type;
     private String companyId;
     private boolean successful;
     private String message;
+    private Long jobId;
 
     public SyncRequest() {
 
@@ -57,4 +62,15 @@ public class SyncRequest {
     public void setMessage(String message) {
         this.message = message;
     }
+
+    /**
+     * @return the id of the SyncJob that was queued for this request, its progress can be polled at /syncrequest/{jobId}
+     */
+    public Long getJobId() {
+        return jobId;
+    }
+
+    public void setJobId(Long jobId) {
+        this.jobId = jobId;
+    }
 }
@@ -1,68 +1,68 @@
 package com.intuit.developer.sampleapp.timetracking.controllers;
 
-import com.intuit.developer.sampleapp.timetracking.domain.Company;
-import com.intuit.developer.sampleapp.timetracking.domain.Customer;
-import com.intuit.developer.sampleapp.timetracking.domain.Employee;
-import com.intuit.developer.sampleapp.timetracking.domain.ServiceItem;
-import com.intuit.developer.sampleapp.timetracking.qbo.QBOGateway;
-import com.intuit.developer.sampleapp.timetracking.repository.CompanyRepository;
+import com.intuit.developer.sampleapp.timetracking.domain.SyncJob;
+import com.intuit.developer.sampleapp.timetracking.domain.SyncJobStatus;
+import com.intuit.developer.sampleapp.timetracking.repository.SyncJobRepository;
+import com.intuit.developer.sampleapp.timetracking.sync.SyncJobExecutor;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.annotation.*;
 
 /**
  * A REST controller that is triggered by the sample app UI and initiates syncing between the sample app and QBO
+ * <p/>
+ * Syncing runs in the background: a POST queues a sync job and returns its id right away, the job's progress can then
+ * be polled with a GET.
+ * <p/>
  * User: russellb337
  * Date: 8/22/14
  * Time: 4:47 PM
  */
 @RestController
-@RequestMapping(value = "/syncrequest", consumes = "application/json", produces = "application/json", headers = "Content-Type=application/json")
+@RequestMapping(value = "/syncrequest")
 public class SyncRequestController {
 
     @Autowired
-    private CompanyRepository companyRepository;
+    private SyncJobExecutor syncJobExecutor;
 
     @Autowired
-    private QBOGateway qboGateway;
+    private SyncJobRepository syncJobRepository;
 
     @RequestMapping(method = RequestMethod.POST, consumes = "application/json", produces = "application/json", headers = "Content-Type=application/json")
     @ResponseBody
     public SyncRequest createSyncRequest(@RequestBody final SyncRequest syncRequest) {
 
-        final Company company = companyRepository.findOne(Long.parseLong(syncRequest.getCompanyId()));
+        final SyncJob job = syncJobExecutor.submit(Long.parseLong(syncRequest.getCompanyId()), syncRequest.getType());
 
-        int successfulSyncs = 0;
+        syncRequest.setJobId(job.getId());
 
-        switch (syncRequest.getType()) {
-            case Employee:
-                for (Employee employee : company.getEmployees()) {
-                    qboGateway.createEmployeeInQBO(employee);
-                    successfulSyncs++;
-                }
-                company.setEmployeesSynced(true);
-                break;
-            case Customer:
-                for (Customer customer : company.getCustomers()) {
-                    qboGateway.createCustomerInQBO(customer);
-                    successfulSyncs++;
-                }
-                company.setCustomersSynced(true);
-                break;
-            case ServiceItem:
-                for (ServiceItem serviceItem : company.getServiceItems()) {
-                    qboGateway.createItemInQBO(serviceItem);
-                    successfulSyncs++;
-                }
-                company.setServiceItemsSynced(true);
-                break;
+        if (job.getStatus() == SyncJobStatus.Failed) {
+            syncRequest.setMessage(job.getMessage());
+            syncRequest.setSuccessful(false);
+        } else {
+            syncRequest.setMessage("Queued sync of " + syncRequest.getType().name() + " objects to QBO");
+            syncRequest.setSuccessful(true);
         }
 
-        companyRepository.save(company);
+        return syncRequest;
+    }
 
-        syncRequest.setMessage("Synced " + successfulSyncs + " " + syncRequest.getType().name() + " objects to QBO");
-        syncRequest.setSuccessful(true);
+    @RequestMapping(value = "/{jobId}", method = RequestMethod.GET, produces = "application/json")
+    @ResponseBody
+    public SyncJob getSyncJob(@PathVariable("jobId") long jobId) {
+        final SyncJob job = syncJobRepository.findOne(jobId);
 
-        return syncRequest;
+        if (job == null) {
+            throw new SyncJobNotFoundException(jobId);
+        }
+
+        return job;
     }
 
+    @ResponseStatus(HttpStatus.NOT_FOUND)
+    public static class SyncJobNotFoundException extends RuntimeException {
+        public SyncJobNotFoundException(long jobId) {
+            super("Could not find a sync job with an id of " + jobId);
+        }
+    }
 }
@@ -0,0 +1,25 @@
+package com.intuit.developer.sampleapp.timetracking.converters;
+
+import org.joda.time.LocalDate;
+
+import javax.persistence.AttributeConverter;
+import javax.persistence.Converter;
+import java.sql.Date;
+
+/**
+ * A class that knows how to convert Joda LocalDate objects to and from a SQL date, so that they are stored in a DATE
+ * column that can be indexed and sorted instead of being serialized.
+ * Used in ORM deserialization/serialization
+ */
+@Converter
+public class LocalDateConverter implements AttributeConverter<LocalDate, Date> {
+    @Override
+    public Date convertToDatabaseColumn(LocalDate localDate) {
+        return localDate == null ? null : new Date(localDate.toDate().getTime());
+    }
+
+    @Override
+    public LocalDate convertToEntityAttribute(Date date) {
+        return date == null ? null : LocalDate.fromDateFields(date);
+    }
+}
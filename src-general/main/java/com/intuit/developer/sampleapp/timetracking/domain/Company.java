@@ -14,6 +14,8 @@ import java.util.List;
  */
 @Entity
 @DynamicUpdate
+//qbo_id is indexed by its unique constraint, the request token is looked up by the OAuth callback
+@Table(indexes = @Index(name = "idx_company_request_token", columnList = "request_token"))
 public class Company {
 
     @Id
@@ -27,6 +29,8 @@ public class Company {
     private boolean customersSynced;
     private boolean serviceItemsSynced;
 
+    private InvoiceLineAggregation invoiceLineAggregation = InvoiceLineAggregation.PerTimeActivity;
+
     @Column(unique = true)
     private String qboId;
 
@@ -150,6 +154,18 @@ public class Company {
         this.serviceItemsSynced = serviceItemsSynced;
     }
 
+    /**
+     * @return how time activities are turned into lines of the invoices that are created in QBO
+     */
+    public InvoiceLineAggregation getInvoiceLineAggregation() {
+        //companies stored before the aggregation could be chosen have none
+        return invoiceLineAggregation != null ? invoiceLineAggregation : InvoiceLineAggregation.PerTimeActivity;
+    }
+
+    public void setInvoiceLineAggregation(InvoiceLineAggregation invoiceLineAggregation) {
+        this.invoiceLineAggregation = invoiceLineAggregation;
+    }
+
     public void addEmployee(Employee employee) {
         this.employees.add(employee);
         employee.setCompany(this);
@@ -1,7 +1,10 @@
 package com.intuit.developer.sampleapp.timetracking.domain;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
 import javax.persistence.*;
 
+
 /**
  * Created with IntelliJ IDEA.
  * User: russellb337
@@ -9,6 +12,8 @@ import javax.persistence.*;
  * Time: 3:57 PM
  */
 @Entity
+//changes pulled from QBO are applied by QBO id, and sync reads the ones without one
+@Table(indexes = @Index(name = "idx_customer_company_qbo_id", columnList = "company_fk, qbo_id"))
 public class Customer {
 
     @Id
@@ -17,6 +22,8 @@ public class Customer {
 
     private String qboId;
 
+    private String qboRequestId;
+
     private String firstName;
     private String lastName;
     private String emailAddress;
@@ -77,6 +84,16 @@ public class Customer {
         this.qboId = qboId;
     }
 
+    @JsonIgnore
+    public String getQboRequestId() {
+        return qboRequestId;
+    }
+
+    @JsonIgnore
+    public void setQboRequestId(String qboRequestId) {
+        this.qboRequestId = qboRequestId;
+    }
+
     public void setCompany(Company company) {
         this.company = company;
     }
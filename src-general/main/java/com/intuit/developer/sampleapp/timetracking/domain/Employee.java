@@ -1,7 +1,10 @@
 package com.intuit.developer.sampleapp.timetracking.domain;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
 import javax.persistence.*;
 
+
 /**
  * Created with IntelliJ IDEA.
  * User: russellb337
@@ -9,6 +12,8 @@ import javax.persistence.*;
  * Time: 3:36 PM
  */
 @Entity
+//changes pulled from QBO are applied by QBO id, and sync reads the ones without one
+@Table(indexes = @Index(name = "idx_employee_company_qbo_id", columnList = "company_fk, qbo_id"))
 public class Employee {
 
     @Id
@@ -17,6 +22,8 @@ public class Employee {
 
     private String qboId;
 
+    private String qboRequestId;
+
     private String firstName;
     private String lastName;
     private String emailAddress;
@@ -45,6 +52,16 @@ public class Employee {
         this.qboId = qboId;
     }
 
+    @JsonIgnore
+    public String getQboRequestId() {
+        return qboRequestId;
+    }
+
+    @JsonIgnore
+    public void setQboRequestId(String qboRequestId) {
+        this.qboRequestId = qboRequestId;
+    }
+
     public String getFirstName() {
         return firstName;
     }
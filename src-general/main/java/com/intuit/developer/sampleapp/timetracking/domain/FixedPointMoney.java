@@ -0,0 +1,39 @@
+package com.intuit.developer.sampleapp.timetracking.domain;
+
+import org.joda.money.CurrencyUnit;
+import org.joda.money.Money;
+
+/**
+ * Arithmetic on amounts of money held as a long in minor units (cents for USD) next to a currency code, which is how
+ * service item rates are stored. It runs for every time activity that is listed, summarized or invoiced, so it works on
+ * primitives and allocates nothing; Joda Money is only used at the edges, for JSON and QBO.
+ */
+public final class FixedPointMoney {
+
+    private static final int MINUTES_PER_HOUR = 60;
+
+    private FixedPointMoney() {
+    }
+
+    /**
+     * The amount for a number of minutes at an hourly rate, rounded half up to a minor unit. The rate is multiplied by
+     * the minutes before dividing by 60, so the result is exact up to that one rounding, whatever the minutes.
+     */
+    public static long amountForMinutes(long hourlyRateMinor, int minutes) {
+        if (minutes != 0 && Math.abs(hourlyRateMinor) > Long.MAX_VALUE / Math.abs(minutes)) {
+            throw new ArithmeticException("Amount of " + minutes + " minutes at " + hourlyRateMinor + " per hour overflows");
+        }
+
+        final long product = hourlyRateMinor * minutes;
+        final long half = MINUTES_PER_HOUR / 2;
+        return product >= 0 ? (product + half) / MINUTES_PER_HOUR : -((-product + half) / MINUTES_PER_HOUR);
+    }
+
+    public static long toMinor(Money money) {
+        return money.getAmountMinorLong();
+    }
+
+    public static Money toMoney(String currencyCode, long amountMinor) {
+        return Money.ofMinor(CurrencyUnit.of(currencyCode), amountMinor);
+    }
+}
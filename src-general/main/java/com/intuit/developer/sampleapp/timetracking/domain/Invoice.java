@@ -1,10 +1,18 @@
 package com.intuit.developer.sampleapp.timetracking.domain;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.intuit.developer.sampleapp.timetracking.converters.LocalDateConverter;
+import org.hibernate.annotations.Fetch;
+import org.hibernate.annotations.FetchMode;
+import org.joda.money.CurrencyUnit;
+import org.joda.money.Money;
+import org.joda.time.LocalDate;
+
 import javax.persistence.*;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
-import java.util.TreeSet;
 
 /**
  * Created with IntelliJ IDEA.
@@ -13,15 +21,61 @@ import java.util.TreeSet;
  * Time: 10:05 AM
  */
 @Entity
+//a customer's pending invoice is looked up for every time activity that is entered, see TimeActivityEventHandler,
+//and the invoice list reads a company's invoices by status
+@Table(indexes = {
+        @Index(name = "idx_invoice_customer_status", columnList = "customer_fk, status"),
+        @Index(name = "idx_invoice_company_status", columnList = "company_fk, status")
+})
 public class Invoice {
+
+    private static final Comparator<TimeActivity> INVOICE_ORDER = new Comparator<TimeActivity>() {
+        @Override
+        public int compare(TimeActivity o1, TimeActivity o2) {
+            int result = o1.getDate().compareTo(o2.getDate());
+
+            if (result != 0) {
+                return result;
+            }
+
+            result = o1.getEmployee().getLastName().compareTo(o2.getEmployee().getLastName());
+
+            if (result != 0) {
+                return result;
+            }
+
+            result = o1.getEmployee().getFirstName().compareTo(o2.getEmployee().getFirstName());
+
+            if (result != 0) {
+                return result;
+            }
+
+            return o1.getServiceItem().getName().compareTo(o2.getServiceItem().getName());
+        }
+    };
+
     @Id
     @GeneratedValue(strategy = GenerationType.AUTO)
     private long id;
 
     private String qboId;
 
+    //ids of the QBO invoices that an invoice with too many lines was split into, in line order
+    @ElementCollection(fetch = FetchType.EAGER)
+    @Fetch(FetchMode.SUBSELECT)
+    @CollectionTable(name = "invoice_qbo_part", joinColumns = @JoinColumn(name = "invoice_fk", referencedColumnName = "id"))
+    @OrderColumn(name = "part")
+    @Column(name = "qbo_id")
+    private List<String> qboPartIds = new ArrayList<>();
+
+    //the request ids of the parts of a split invoice are derived from it, so retrying a part never creates it twice
+    private String qboRequestId;
+
     private InvoiceStatus status = InvoiceStatus.Pending;
 
+    @Column(length = 4000)
+    private String submissionError;
+
     @ManyToOne(optional = false)
     @JoinColumn(name = "customer_fk", referencedColumnName = "id")
     private Customer customer;
@@ -30,15 +84,153 @@ public class Invoice {
     @JoinColumn(name = "company_fk", referencedColumnName = "id")
     private Company company;
 
-    @OneToMany(fetch = FetchType.EAGER, mappedBy = "invoice")
+    //fetched by the queries that need them, see InvoiceRepository.findSummariesByCompany and findOneForSubmission
+    @OneToMany(fetch = FetchType.LAZY, mappedBy = "invoice")
     private List<TimeActivity> timeActivities;
 
+    //timeActivities in invoice order, sorted on first use and then kept sorted by addTimeActivity
+    @Transient
+    private List<TimeActivity> sortedTimeActivities;
+
+    @Transient
+    private List<TimeActivity> sortedTimeActivitiesView;
+
+    //totals of the time activities, kept up to date as they are added, changed and removed so that the summary is
+    //read from the invoice row. Null for invoices saved before they were added, those are recalculated on first use
+    private Long totalAmountMinor;
+
+    //the currency of the rates the time activities were billed at, null while none of them has a rate
+    @Column(name = "total_amount_currency", length = 3)
+    private String totalAmountCurrency;
+
+    private Integer timeActivityCount;
+
+    private Long totalMinutes;
+
+    @Convert(converter = LocalDateConverter.class)
+    @Column(name = "min_activity_date")
+    private LocalDate minDate;
+
+    @Convert(converter = LocalDateConverter.class)
+    @Column(name = "max_activity_date")
+    private LocalDate maxDate;
+
+    //the dates as they were stored before they had DATE columns, serialized, only read to move them over, see
+    //LegacyColumnMigration
+    @Column(name = "min_date", insertable = false, updatable = false)
+    private LocalDate legacyMinDate;
+
+    @Column(name = "max_date", insertable = false, updatable = false)
+    private LocalDate legacyMaxDate;
+
+    @PostLoad
+    void moveLegacyDates() {
+        if (minDate == null && legacyMinDate != null) {
+            minDate = legacyMinDate;
+            maxDate = legacyMaxDate;
+        }
+    }
+
     public void addTimeActivity(TimeActivity timeActivity) {
+        ensureTotals();
+
         if (this.timeActivities == null) {
             this.timeActivities = new ArrayList<>();
         }
         this.timeActivities.add(timeActivity);
         timeActivity.setInvoice(this);
+        timeActivity.snapshotRate();
+        addToTotals(timeActivity);
+
+        if (sortedTimeActivities != null) {
+            //after the time activities that sort the same, so they stay in the order they were added
+            int index = sortedTimeActivities.size();
+            while (index > 0 && INVOICE_ORDER.compare(sortedTimeActivities.get(index - 1), timeActivity) > 0) {
+                index--;
+            }
+            sortedTimeActivities.add(index, timeActivity);
+        }
+    }
+
+    public void removeTimeActivity(TimeActivity timeActivity) {
+        ensureTotals();
+
+        if (this.timeActivities == null || !this.timeActivities.remove(timeActivity)) {
+            return;
+        }
+        timeActivity.setInvoice(null);
+
+        if (sortedTimeActivities != null) {
+            sortedTimeActivities.remove(timeActivity);
+        }
+
+        totalAmountMinor -= amountMinor(timeActivity);
+        timeActivityCount--;
+        totalMinutes -= timeActivity.getMinutes();
+
+        //the remaining time activities are only walked when the first or last date may have gone
+        final LocalDate date = timeActivity.getDate();
+        if (date != null && (date.equals(minDate) || date.equals(maxDate))) {
+            minDate = null;
+            maxDate = null;
+            for (TimeActivity remaining : this.timeActivities) {
+                addToDates(remaining.getDate());
+            }
+        }
+    }
+
+    /**
+     * Recalculate the totals from the time activities, after one of them was changed
+     */
+    public void recalculateTotals() {
+        totalAmountMinor = 0L;
+        totalAmountCurrency = null;
+        timeActivityCount = 0;
+        totalMinutes = 0L;
+        minDate = null;
+        maxDate = null;
+
+        if (timeActivities != null) {
+            for (TimeActivity timeActivity : timeActivities) {
+                addToTotals(timeActivity);
+            }
+        }
+    }
+
+    private void ensureTotals() {
+        if (timeActivityCount == null) {
+            recalculateTotals();
+        }
+    }
+
+    private void addToTotals(TimeActivity timeActivity) {
+        totalAmountMinor += amountMinor(timeActivity);
+        if (totalAmountCurrency == null && timeActivity.getServiceItem() != null) {
+            final Money rate = timeActivity.getRate();
+            if (rate != null) {
+                totalAmountCurrency = rate.getCurrencyUnit().getCode();
+            }
+        }
+        timeActivityCount++;
+        totalMinutes += timeActivity.getMinutes();
+        addToDates(timeActivity.getDate());
+    }
+
+    private void addToDates(LocalDate date) {
+        if (date == null) {
+            return;
+        }
+        if (minDate == null || date.isBefore(minDate)) {
+            minDate = date;
+        }
+        if (maxDate == null || date.isAfter(maxDate)) {
+            maxDate = date;
+        }
+    }
+
+    private static long amountMinor(TimeActivity timeActivity) {
+        //a time activity that is still being entered may not have a service item yet
+        return timeActivity.getServiceItem() != null ? timeActivity.getAmountMinor() : 0;
     }
 
     public Long getId() {
@@ -53,6 +245,30 @@ public class Invoice {
         this.qboId = qboId;
     }
 
+    /**
+     * @return the ids of the QBO invoices this invoice was split into, empty if it was created as a single QBO invoice
+     */
+    public List<String> getQboPartIds() {
+        return qboPartIds;
+    }
+
+    public void addQboPartId(String qboPartId) {
+        if (this.qboPartIds == null) {
+            this.qboPartIds = new ArrayList<>();
+        }
+        this.qboPartIds.add(qboPartId);
+    }
+
+    @JsonIgnore
+    public String getQboRequestId() {
+        return qboRequestId;
+    }
+
+    @JsonIgnore
+    public void setQboRequestId(String qboRequestId) {
+        this.qboRequestId = qboRequestId;
+    }
+
     public InvoiceStatus getStatus() {
         return status;
     }
@@ -61,6 +277,17 @@ public class Invoice {
         this.status = status;
     }
 
+    /**
+     * @return why the last submission to QBO failed, if it did
+     */
+    public String getSubmissionError() {
+        return submissionError;
+    }
+
+    public void setSubmissionError(String submissionError) {
+        this.submissionError = submissionError != null && submissionError.length() > 4000 ? submissionError.substring(0, 4000) : submissionError;
+    }
+
     public Customer getCustomer() {
         return customer;
     }
@@ -73,6 +300,34 @@ public class Invoice {
         return company;
     }
 
+    //the totals are read through the summary, they are not properties of the invoice resource
+    Money getTotalAmount() {
+        ensureTotals();
+        //an invoice without billed time has nothing to take the currency from, its zero total is shown in USD
+        final CurrencyUnit currency = totalAmountCurrency != null ? CurrencyUnit.of(totalAmountCurrency) : CurrencyUnit.USD;
+        return Money.ofMinor(currency, totalAmountMinor);
+    }
+
+    int getTimeActivityCount() {
+        ensureTotals();
+        return timeActivityCount;
+    }
+
+    long getTotalMinutes() {
+        ensureTotals();
+        return totalMinutes;
+    }
+
+    LocalDate getMinDate() {
+        ensureTotals();
+        return minDate;
+    }
+
+    LocalDate getMaxDate() {
+        ensureTotals();
+        return maxDate;
+    }
+
     /**
      * A function that returns an invoice summary used in the InvoiceSummaryProjection
      *
@@ -83,37 +338,23 @@ public class Invoice {
     }
 
 
+    /**
+     * @return the time activities ordered by date, employee and service item, as they appear on the invoice
+     */
     public List<TimeActivity> getTimeActivities() {
-        TreeSet<TimeActivity> sortedSet = new TreeSet<>(new Comparator<TimeActivity>() {
-            @Override
-            public int compare(TimeActivity o1, TimeActivity o2) {
-                int result = o1.getDate().compareTo(o2.getDate());
-
-                if (result != 0) {
-                    return result;
-                }
-
-                result = o1.getEmployee().getLastName().compareTo(o2.getEmployee().getLastName());
-
-                if (result != 0) {
-                    return result;
-                }
-
-                result = o1.getEmployee().getFirstName().compareTo(o2.getEmployee().getFirstName());
-
-                if (result != 0) {
-                    return result;
-                }
-
-                result = o1.getServiceItem().getName().compareTo(o2.getServiceItem().getName());
-
-                return result;
-            }
-        });
+        if (timeActivities == null) {
+            return Collections.emptyList();
+        }
 
-        sortedSet.addAll(this.timeActivities);
+        //rebuilt if the collection was changed without addTimeActivity, e.g. when it was loaded
+        if (sortedTimeActivities == null || sortedTimeActivities.size() != timeActivities.size()) {
+            final List<TimeActivity> sorted = new ArrayList<>(timeActivities);
+            Collections.sort(sorted, INVOICE_ORDER);
+            sortedTimeActivities = sorted;
+            sortedTimeActivitiesView = Collections.unmodifiableList(sorted);
+        }
 
-        return new ArrayList<>(sortedSet);
+        return sortedTimeActivitiesView;
     }
 
     public void setCompany(Company company) {
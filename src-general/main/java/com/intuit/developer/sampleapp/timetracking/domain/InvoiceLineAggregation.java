@@ -0,0 +1,18 @@
+package com.intuit.developer.sampleapp.timetracking.domain;
+
+/**
+ * How the time activities of an invoice are turned into invoice lines in QBO. Every mode other than PerTimeActivity
+ * adds up the time activities that share a line, which keeps invoices with thousands of time activities small.
+ * <p/>
+ * The aggregation is persisted by ordinal, new modes must be added at the end.
+ */
+public enum InvoiceLineAggregation {
+    //a line per time activity
+    PerTimeActivity,
+    //a line per service item
+    PerServiceItem,
+    //a line per employee and service item
+    PerEmployeeAndServiceItem,
+    //a line per day and service item
+    PerDayAndServiceItem
+}
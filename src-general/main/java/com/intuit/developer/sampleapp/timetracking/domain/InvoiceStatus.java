@@ -5,9 +5,16 @@ package com.intuit.developer.sampleapp.timetracking.domain;
  * User: russellb337
  * Date: 9/10/14
  * Time: 5:56 PM
+ * <p/>
+ * An invoice that is ReadyToBeBilled is queued for submission to QBO, it is Submitting while being pushed and ends
+ * up Billed or Failed. A Failed invoice can be set to ReadyToBeBilled again.
+ * <p/>
+ * The status is persisted by ordinal, new statuses must be added at the end.
  */
 public enum InvoiceStatus {
     Pending,
     ReadyToBeBilled,
-    Billed
+    Billed,
+    Submitting,
+    Failed
 }
@@ -1,6 +1,6 @@
 package com.intuit.developer.sampleapp.timetracking.domain;
 
-import org.joda.money.CurrencyUnit;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import org.joda.money.Money;
 import org.joda.time.LocalDate;
 
@@ -16,40 +16,33 @@ import java.util.List;
 public class InvoiceSummary {
 
     private Invoice invoice;
-    private Money totalAmount = Money.zero(CurrencyUnit.USD);
+    private Money totalAmount;
+    private int timeActivityCount;
+    private long totalMinutes;
     private LocalDate minDate;
     private LocalDate maxDate;
     private InvoiceStatus status;
-    private List<TimeActivitySummary> timeActivities = new ArrayList<>();
+    private List<TimeActivitySummary> timeActivities;
 
+    /**
+     * The totals and dates are the ones the invoice keeps, the time activities are only walked if they are asked for.
+     * They are left out of the JSON so that listing invoices never loads them, the invoice list fetches the time
+     * activities of an invoice when it is expanded (TimeActivityRepository.findByInvoice).
+     */
     public InvoiceSummary(Invoice invoice) {
         this.invoice = invoice;
         this.status = invoice.getStatus();
-        createTimeActivitySummaries();
+        this.totalAmount = invoice.getTotalAmount();
+        this.timeActivityCount = invoice.getTimeActivityCount();
+        this.totalMinutes = invoice.getTotalMinutes();
+        this.minDate = invoice.getMinDate();
+        this.maxDate = invoice.getMaxDate();
     }
 
     private void createTimeActivitySummaries() {
-
+        timeActivities = new ArrayList<>();
         for (TimeActivity timeActivity : invoice.getTimeActivities()) {
             timeActivities.add(new TimeActivitySummary(timeActivity));
-            totalAmount = totalAmount.plus(timeActivity.getAmount());
-            recomputeMinAndMaxDates(timeActivity);
-
-        }
-    }
-
-    private void recomputeMinAndMaxDates(TimeActivity timeActivity) {
-        final LocalDate timeActivityDate = timeActivity.getDate();
-        if (minDate == null) {
-            minDate = timeActivityDate;
-        } else if (timeActivityDate.isBefore(minDate)) {
-            minDate = timeActivityDate;
-        }
-
-        if (maxDate == null) {
-            maxDate = timeActivityDate;
-        } else if (timeActivityDate.isAfter(maxDate)) {
-            maxDate = timeActivityDate;
         }
     }
 
@@ -65,11 +58,23 @@ public class InvoiceSummary {
         return totalAmount;
     }
 
+    public int getTimeActivityCount() {
+        return timeActivityCount;
+    }
+
+    public long getTotalMinutes() {
+        return totalMinutes;
+    }
+
     public InvoiceStatus getStatus() {
         return status;
     }
 
+    @JsonIgnore
     public List<TimeActivitySummary> getTimeActivities() {
+        if (timeActivities == null) {
+            createTimeActivitySummaries();
+        }
         return timeActivities;
     }
 }
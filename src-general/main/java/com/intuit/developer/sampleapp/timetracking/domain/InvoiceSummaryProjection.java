@@ -2,6 +2,8 @@ package com.intuit.developer.sampleapp.timetracking.domain;
 
 import org.springframework.data.rest.core.config.Projection;
 
+import java.util.List;
+
 /**
  * Created with IntelliJ IDEA.
  * User: russellb337
@@ -14,6 +16,8 @@ public interface InvoiceSummaryProjection {
 
     String getQboId();
 
+    List<String> getQboPartIds();
+
     Customer getCustomer();
 
     InvoiceSummary getSummary();
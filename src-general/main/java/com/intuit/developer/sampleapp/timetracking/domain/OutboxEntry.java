@@ -0,0 +1,91 @@
+package com.intuit.developer.sampleapp.timetracking.domain;
+
+import javax.persistence.*;
+import java.util.Date;
+
+/**
+ * An entity that still has to be pushed to QBO, written in the same transaction as the entity itself so that no
+ * push is lost when QBO or the app goes down in between.
+ * <p/>
+ * Entries are drained in the background by the OutboxDispatcher and deleted once the entity is in QBO.
+ */
+@Entity
+public class OutboxEntry {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.AUTO)
+    private long id;
+
+    private long companyId;
+
+    private String entityType;
+
+    private long entityId;
+
+    private int attempts;
+
+    @Column(length = 4000)
+    private String lastError;
+
+    @Temporal(TemporalType.TIMESTAMP)
+    private Date createdDate;
+
+    @Temporal(TemporalType.TIMESTAMP)
+    private Date nextAttemptDate;
+
+    public OutboxEntry() {
+
+    }
+
+    public OutboxEntry(long companyId, String entityType, long entityId) {
+        this.companyId = companyId;
+        this.entityType = entityType;
+        this.entityId = entityId;
+        this.createdDate = new Date();
+        this.nextAttemptDate = this.createdDate;
+    }
+
+    /**
+     * Record a failed push and when to try again
+     */
+    public void retryLater(String error, Date nextAttemptDate) {
+        this.attempts++;
+        this.lastError = error != null && error.length() > 4000 ? error.substring(0, 4000) : error;
+        this.nextAttemptDate = nextAttemptDate;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public long getCompanyId() {
+        return companyId;
+    }
+
+    public String getEntityType() {
+        return entityType;
+    }
+
+    public long getEntityId() {
+        return entityId;
+    }
+
+    /**
+     * @return the number of failed pushes so far
+     */
+    public int getAttempts() {
+        return attempts;
+    }
+
+    public String getLastError() {
+        return lastError;
+    }
+
+    public Date getCreatedDate() {
+        return createdDate;
+    }
+
+    public Date getNextAttemptDate() {
+        return nextAttemptDate;
+    }
+}
@@ -0,0 +1,71 @@
+package com.intuit.developer.sampleapp.timetracking.domain;
+
+import javax.persistence.*;
+import java.util.Date;
+
+/**
+ * How far changes made in QBO have been pulled into a company, changes since changedSince are pulled on the next run.
+ * <p/>
+ * Kept apart from Company so that saving a company elsewhere can't overwrite the watermark with a stale one.
+ */
+@Entity
+public class PullSyncWatermark {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.AUTO)
+    private long id;
+
+    @Column(unique = true)
+    private long companyId;
+
+    @Temporal(TemporalType.TIMESTAMP)
+    private Date changedSince;
+
+    @Temporal(TemporalType.TIMESTAMP)
+    private Date lastPulledDate;
+
+    @Column(length = 4000)
+    private String lastError;
+
+    public PullSyncWatermark() {
+
+    }
+
+    public PullSyncWatermark(long companyId, Date changedSince) {
+        this.companyId = companyId;
+        this.changedSince = changedSince;
+    }
+
+    /**
+     * Record a successful pull of the changes made before pullStarted
+     */
+    public void advance(Date pullStarted) {
+        this.changedSince = pullStarted;
+        this.lastPulledDate = new Date();
+        this.lastError = null;
+    }
+
+    public void fail(String error) {
+        this.lastError = error != null && error.length() > 4000 ? error.substring(0, 4000) : error;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public long getCompanyId() {
+        return companyId;
+    }
+
+    public Date getChangedSince() {
+        return changedSince;
+    }
+
+    public Date getLastPulledDate() {
+        return lastPulledDate;
+    }
+
+    public String getLastError() {
+        return lastError;
+    }
+}
@@ -1,10 +1,12 @@
 package com.intuit.developer.sampleapp.timetracking.domain;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.intuit.developer.sampleapp.timetracking.converters.MoneyConverter;
 import org.joda.money.Money;
 
 import javax.persistence.*;
 
+
 /**
  * Created with IntelliJ IDEA.
  * User: russellb337
@@ -12,6 +14,8 @@ import javax.persistence.*;
  * Time: 4:08 PM
  */
 @Entity
+//changes pulled from QBO are applied by QBO id, and sync reads the ones without one
+@Table(indexes = @Index(name = "idx_service_item_company_qbo_id", columnList = "company_fk, qbo_id"))
 public class ServiceItem {
     @Id
     @GeneratedValue(strategy = GenerationType.AUTO)
@@ -20,12 +24,27 @@ public class ServiceItem {
 
     private String qboId;
 
+    private String qboRequestId;
+
     @Column(unique = true)
     private String name;
 
     private String description;
 
+    //the hourly rate in minor units of its currency, see FixedPointMoney
+    @Column(name = "rate_minor")
+    private Long rateMinor;
+
+    @Column(name = "rate_currency", length = 3)
+    private String rateCurrency;
+
+    //the rate as it was stored before it was split into rateMinor and rateCurrency, only read to move it over, see
+    //LegacyColumnMigration
     @Convert(converter = MoneyConverter.class)
+    @Column(name = "rate", insertable = false, updatable = false)
+    private Money legacyRate;
+
+    @Transient
     private Money rate;
 
     @ManyToOne(optional = false)
@@ -39,7 +58,14 @@ public class ServiceItem {
     public ServiceItem(String name, String description, Money rate) {
         this.name = name;
         this.description = description;
-        this.rate = rate;
+        setRate(rate);
+    }
+
+    @PostLoad
+    void moveLegacyRate() {
+        if (rateCurrency == null && legacyRate != null) {
+            setRate(legacyRate);
+        }
     }
 
     public String getQboId() {
@@ -50,6 +76,16 @@ public class ServiceItem {
         this.qboId = qboId;
     }
 
+    @JsonIgnore
+    public String getQboRequestId() {
+        return qboRequestId;
+    }
+
+    @JsonIgnore
+    public void setQboRequestId(String qboRequestId) {
+        this.qboRequestId = qboRequestId;
+    }
+
     public String getName() {
         return name;
     }
@@ -67,11 +103,27 @@ public class ServiceItem {
     }
 
     public Money getRate() {
+        if (rate == null && rateCurrency != null) {
+            rate = FixedPointMoney.toMoney(rateCurrency, rateMinor);
+        }
         return rate;
     }
 
     public void setRate(Money rate) {
         this.rate = rate;
+        this.rateMinor = rate != null ? FixedPointMoney.toMinor(rate) : null;
+        this.rateCurrency = rate != null ? rate.getCurrencyUnit().getCode() : null;
+    }
+
+    /**
+     * @return null if the service item has no rate
+     */
+    Long getRateMinor() {
+        return rateMinor;
+    }
+
+    String getRateCurrency() {
+        return rateCurrency;
     }
 
     public void setCompany(Company company) {
@@ -0,0 +1,147 @@
+package com.intuit.developer.sampleapp.timetracking.domain;
+
+import javax.persistence.*;
+import java.util.Date;
+
+/**
+ * A sync of a company's entities to QBO that runs in the background, either of one type of entity (e.g. all customers
+ * of a company) or, for the All entity type, of employees, customers, service items and time activities together.
+ * <p/>
+ * Jobs are persisted so that their progress can be polled, and so that jobs which were queued or running when the
+ * app was stopped are picked up again on the next start.
+ */
+@Entity
+public class SyncJob {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.AUTO)
+    private long id;
+
+    private long companyId;
+
+    private String entityType;
+
+    private SyncJobStatus status = SyncJobStatus.Queued;
+
+    private int total;
+    private int processed;
+    private int failed;
+
+    @Column(length = 4000)
+    private String message;
+
+    @Temporal(TemporalType.TIMESTAMP)
+    private Date createdDate;
+
+    @Temporal(TemporalType.TIMESTAMP)
+    private Date startedDate;
+
+    @Temporal(TemporalType.TIMESTAMP)
+    private Date finishedDate;
+
+    public SyncJob() {
+
+    }
+
+    public SyncJob(long companyId, String entityType) {
+        this.companyId = companyId;
+        this.entityType = entityType;
+        this.createdDate = new Date();
+    }
+
+    public void start(int total) {
+        this.status = SyncJobStatus.Running;
+        this.total = total;
+        this.processed = 0;
+        this.failed = 0;
+        this.startedDate = new Date();
+        this.finishedDate = null;
+    }
+
+    public void updateProgress(int processed, int failed) {
+        this.processed = processed;
+        this.failed = failed;
+    }
+
+    public void complete(String message) {
+        this.status = SyncJobStatus.Completed;
+        this.message = message;
+        this.finishedDate = new Date();
+    }
+
+    public void fail(String message) {
+        this.status = SyncJobStatus.Failed;
+        this.message = message;
+        this.finishedDate = new Date();
+    }
+
+    /**
+     * Put a job that was interrupted (e.g. by a restart) back in the queue
+     */
+    public void requeue() {
+        this.status = SyncJobStatus.Queued;
+        this.startedDate = null;
+        this.finishedDate = null;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public long getCompanyId() {
+        return companyId;
+    }
+
+    public String getEntityType() {
+        return entityType;
+    }
+
+    public SyncJobStatus getStatus() {
+        return status;
+    }
+
+    public int getTotal() {
+        return total;
+    }
+
+    /**
+     * @return the number of entities that have been attempted so far, including the ones that failed
+     */
+    public int getProcessed() {
+        return processed;
+    }
+
+    public int getFailed() {
+        return failed;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public Date getCreatedDate() {
+        return createdDate;
+    }
+
+    public Date getStartedDate() {
+        return startedDate;
+    }
+
+    public Date getFinishedDate() {
+        return finishedDate;
+    }
+
+    /**
+     * @return processed entities per second since the job was started
+     */
+    public double getThroughput() {
+        if (startedDate == null) {
+            return 0;
+        }
+
+        final long end = finishedDate != null ? finishedDate.getTime() : System.currentTimeMillis();
+        final double seconds = (end - startedDate.getTime()) / 1000.0;
+
+        return seconds <= 0 ? 0 : processed / seconds;
+    }
+}
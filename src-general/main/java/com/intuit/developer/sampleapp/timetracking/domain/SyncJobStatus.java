@@ -0,0 +1,11 @@
+package com.intuit.developer.sampleapp.timetracking.domain;
+
+/**
+ * The lifecycle of a SyncJob
+ */
+public enum SyncJobStatus {
+    Queued,
+    Running,
+    Completed,
+    Failed
+}
@@ -1,11 +1,12 @@
 package com.intuit.developer.sampleapp.timetracking.domain;
 
+import com.intuit.developer.sampleapp.timetracking.converters.LocalDateConverter;
 import org.joda.money.Money;
 import org.joda.time.LocalDate;
 
 import javax.persistence.*;
 import java.math.BigDecimal;
-import java.math.RoundingMode;
+import java.math.MathContext;
 
 /**
  * Created with IntelliJ IDEA.
@@ -14,7 +15,16 @@ import java.math.RoundingMode;
  * Time: 10:49 AM
  */
 @Entity
+//invoice_fk is indexed explicitly, not every database indexes foreign keys. company_fk, qbo_id is for the time
+//activities that still have to be pushed to QBO, see TimeActivityRepository.findUnsyncedPage
+@Table(indexes = {
+        @Index(name = "idx_time_activity_company_activity_date", columnList = "company_fk, activity_date"),
+        @Index(name = "idx_time_activity_invoice", columnList = "invoice_fk"),
+        @Index(name = "idx_time_activity_company_qbo_id", columnList = "company_fk, qbo_id")
+})
 public class TimeActivity {
+    private static final BigDecimal MINUTES_PER_HOUR = BigDecimal.valueOf(60);
+
     @Id
     @GeneratedValue(strategy = GenerationType.AUTO)
     private long id;
@@ -23,8 +33,15 @@ public class TimeActivity {
 
     private int minutes;
 
+    @Convert(converter = LocalDateConverter.class)
+    @Column(name = "activity_date")
     private LocalDate date;
 
+    //the date as it was stored before it had a DATE column, serialized, only read to move it over, see
+    //LegacyColumnMigration
+    @Column(name = "date", insertable = false, updatable = false)
+    private LocalDate legacyDate;
+
     private String description;
 
     @ManyToOne(optional = false)
@@ -47,6 +64,29 @@ public class TimeActivity {
     @JoinColumn(name = "invoice_fk", referencedColumnName = "id")
     private Invoice invoice;
 
+    //the service item's rate when the time activity was entered and the amount at that rate, so that changing the rate
+    //later doesn't change what was already entered or billed. Taken when the time activity is saved, time activities
+    //entered before are billed at the service item's current rate until they are saved again
+    @Column(name = "rate_minor")
+    private Long rateMinor;
+
+    @Column(name = "rate_currency", length = 3)
+    private String rateCurrency;
+
+    @Column(name = "amount_minor")
+    private Long amountMinor;
+
+    @PostLoad
+    void moveLegacyDate() {
+        if (date == null && legacyDate != null) {
+            date = legacyDate;
+        }
+    }
+
+    public long getId() {
+        return id;
+    }
+
     public String getQboId() {
         return qboId;
     }
@@ -61,6 +101,9 @@ public class TimeActivity {
 
     public void setMinutes(int minutes) {
         this.minutes = minutes;
+        if (rateCurrency != null) {
+            amountMinor = FixedPointMoney.amountForMinutes(rateMinor, minutes);
+        }
     }
 
     public LocalDate getDate() {
@@ -83,7 +126,15 @@ public class TimeActivity {
         return serviceItem;
     }
 
+    /**
+     * A different service item is billed at its own rate, which is taken when the time activity is saved
+     */
     public void setServiceItem(ServiceItem serviceItem) {
+        if (this.serviceItem != null && this.serviceItem != serviceItem) {
+            rateMinor = null;
+            rateCurrency = null;
+            amountMinor = null;
+        }
         this.serviceItem = serviceItem;
     }
 
@@ -120,18 +171,48 @@ public class TimeActivity {
         this.invoice = invoice;
     }
 
+    /**
+     * Store the service item's current rate and the amount at that rate on this time activity, unless it already has
+     * them. Called when the time activity is added to an invoice and before it is saved, never when it is only read.
+     */
+    @PrePersist
+    @PreUpdate
+    public void snapshotRate() {
+        if (rateCurrency == null && serviceItem != null && serviceItem.getRateCurrency() != null) {
+            rateMinor = serviceItem.getRateMinor();
+            rateCurrency = serviceItem.getRateCurrency();
+            amountMinor = FixedPointMoney.amountForMinutes(rateMinor, minutes);
+        }
+    }
+
+    /**
+     * @return the hourly rate this time activity is billed at, null if there is none yet
+     */
+    public Money getRate() {
+        if (rateCurrency != null) {
+            return FixedPointMoney.toMoney(rateCurrency, rateMinor);
+        }
+        return serviceItem != null ? serviceItem.getRate() : null;
+    }
+
     public Money getAmount() {
-        final Money serviceItemRatePerHour = getServiceItem().getRate();
+        final Money rate = getRate();
+        return rate != null ? FixedPointMoney.toMoney(rate.getCurrencyUnit().getCode(), getAmountMinor()) : null;
+    }
 
-        final Money amount = serviceItemRatePerHour.multipliedBy(getHours(), RoundingMode.HALF_UP);
+    /**
+     * @return the amount in minor units of the rate's currency, the minutes at the rate
+     */
+    public long getAmountMinor() {
+        if (rateCurrency != null) {
+            return amountMinor;
+        }
 
-        return amount;
+        final Long serviceItemRateMinor = serviceItem != null ? serviceItem.getRateMinor() : null;
+        return serviceItemRateMinor != null ? FixedPointMoney.amountForMinutes(serviceItemRateMinor, minutes) : 0;
     }
 
     public BigDecimal getHours() {
-        BigDecimal hours = new BigDecimal((double) minutes / 60);
-        hours.setScale(2);
-
-        return hours;
+        return BigDecimal.valueOf(minutes).divide(MINUTES_PER_HOUR, MathContext.DECIMAL64);
     }
 }
@@ -27,7 +27,7 @@ public class TimeActivitySummary {
         hours = timeActivity.getHours();
         amount = timeActivity.getAmount();
         serviceItemName = timeActivity.getServiceItem().getName();
-        serviceItemRate = timeActivity.getServiceItem().getRate();
+        serviceItemRate = timeActivity.getRate();
     }
 
     public String getEmployeeName() {
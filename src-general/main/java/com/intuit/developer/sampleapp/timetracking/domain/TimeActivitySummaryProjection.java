@@ -24,6 +24,8 @@ public interface TimeActivitySummaryProjection {
 
     BigDecimal getHours();
 
+    Money getRate();
+
     Money getAmount();
 
     String getQboId();
@@ -2,7 +2,7 @@ package com.intuit.developer.sampleapp.timetracking.handlers;
 
 import com.intuit.developer.sampleapp.timetracking.domain.Invoice;
 import com.intuit.developer.sampleapp.timetracking.domain.InvoiceStatus;
-import com.intuit.developer.sampleapp.timetracking.qbo.QBOGateway;
+import com.intuit.developer.sampleapp.timetracking.sync.InvoiceSubmissionExecutor;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.rest.core.annotation.HandleAfterSave;
 import org.springframework.data.rest.core.annotation.RepositoryEventHandler;
@@ -18,12 +18,16 @@ import org.springframework.data.rest.core.annotation.RepositoryEventHandler;
 public class InvoiceEventHandler {
 
     @Autowired
-    private QBOGateway qboGateway;
+    private InvoiceSubmissionExecutor invoiceSubmissionExecutor;
 
+    /**
+     * Queue the invoice for submission to QBO, the response shows it as Submitting and the client polls the invoice
+     * until it is Billed or Failed
+     */
     @HandleAfterSave
     public void handleAfterSave(Invoice invoice) {
         if (invoice.getStatus() == InvoiceStatus.ReadyToBeBilled) {
-            qboGateway.createInvoiceInQBO(invoice);
+            invoiceSubmissionExecutor.submit(invoice);
         }
     }
 }
@@ -3,11 +3,13 @@ package com.intuit.developer.sampleapp.timetracking.handlers;
 import com.intuit.developer.sampleapp.timetracking.domain.Invoice;
 import com.intuit.developer.sampleapp.timetracking.domain.InvoiceStatus;
 import com.intuit.developer.sampleapp.timetracking.domain.TimeActivity;
-import com.intuit.developer.sampleapp.timetracking.qbo.QBOGateway;
 import com.intuit.developer.sampleapp.timetracking.repository.InvoiceRepository;
+import com.intuit.developer.sampleapp.timetracking.sync.OutboxDispatcher;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.rest.core.annotation.HandleAfterCreate;
+import org.springframework.data.rest.core.annotation.HandleAfterSave;
 import org.springframework.data.rest.core.annotation.HandleBeforeCreate;
+import org.springframework.data.rest.core.annotation.HandleBeforeDelete;
 import org.springframework.data.rest.core.annotation.RepositoryEventHandler;
 
 import java.util.List;
@@ -24,7 +26,7 @@ import java.util.List;
 public class TimeActivityEventHandler {
 
     @Autowired
-    private QBOGateway qboGateway;
+    private OutboxDispatcher outboxDispatcher;
 
     @Autowired
     private InvoiceRepository invoiceRepository;
@@ -54,10 +56,38 @@ public class TimeActivityEventHandler {
         invoiceRepository.save(pendingInvoice);
     }
 
+    /**
+     * The time activity was saved with an outbox entry, it is pushed to QBO in the background so that time entry
+     * doesn't wait on (or fail with) QBO
+     */
     @HandleAfterCreate
     public void handleAfterCreate(TimeActivity p) {
-        qboGateway.createTimeActivityInQBO(p);
+        outboxDispatcher.dispatchSoon();
     }
 
+    /**
+     * The time activity was edited, its invoice's totals are recalculated from the time activities as they are now
+     */
+    @HandleAfterSave
+    public void handleAfterSave(TimeActivity timeActivity) {
+        if (timeActivity.getInvoice() == null) {
+            return;
+        }
+
+        final Invoice invoice = invoiceRepository.findOneForSubmission(timeActivity.getInvoice().getId());
+        if (invoice != null) {
+            invoice.recalculateTotals();
+            invoiceRepository.save(invoice);
+        }
+    }
+
+    @HandleBeforeDelete
+    public void handleBeforeDelete(TimeActivity timeActivity) {
+        final Invoice invoice = timeActivity.getInvoice();
+        if (invoice != null) {
+            invoice.removeTimeActivity(timeActivity);
+            invoiceRepository.save(invoice);
+        }
+    }
 
 }
\ No newline at end of file
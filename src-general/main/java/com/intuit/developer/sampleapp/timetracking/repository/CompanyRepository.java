@@ -6,6 +6,7 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.PagingAndSortingRepository;
 import org.springframework.data.repository.query.Param;
 import org.springframework.data.rest.core.annotation.RepositoryRestResource;
+import org.springframework.data.rest.core.annotation.RestResource;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
@@ -24,6 +25,9 @@ public interface CompanyRepository extends PagingAndSortingRepository<Company, L
 
     Company findByRequestToken(@Param("requestToken") String requestToken);
 
+    @RestResource(exported = false)
+    List<Company> findByConnectedToQboTrue();
+
     /*
     Used in End To End Tests
      */
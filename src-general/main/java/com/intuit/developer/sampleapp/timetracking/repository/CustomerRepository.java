@@ -1,8 +1,14 @@
 package com.intuit.developer.sampleapp.timetracking.repository;
 
 import com.intuit.developer.sampleapp.timetracking.domain.Customer;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.PagingAndSortingRepository;
+import org.springframework.data.repository.query.Param;
 import org.springframework.data.rest.core.annotation.RepositoryRestResource;
+import org.springframework.data.rest.core.annotation.RestResource;
+
+import java.util.List;
 
 /**
  * Created with IntelliJ IDEA.
@@ -13,4 +19,21 @@ import org.springframework.data.rest.core.annotation.RepositoryRestResource;
 @RepositoryRestResource
 public interface CustomerRepository extends PagingAndSortingRepository<Customer, Long> {
 
+    /**
+     * Used to apply changes pulled from QBO
+     */
+    @RestResource(exported = false)
+    Customer findByCompany_IdAndQboId(Long companyId, String qboId);
+
+    /**
+     * A page of the company's customers that are not in QBO yet, in id order after afterId,
+     * see SyncJobExecutor
+     */
+    @RestResource(exported = false)
+    @Query("select c from Customer c where c.company.id = :companyId and c.qboId is null and c.id > :afterId order by c.id")
+    List<Customer> findUnsyncedPage(@Param("companyId") Long companyId, @Param("afterId") long afterId, Pageable pageable);
+
+    @RestResource(exported = false)
+    long countByCompany_IdAndQboIdIsNull(Long companyId);
+
 }
@@ -1,8 +1,14 @@
 package com.intuit.developer.sampleapp.timetracking.repository;
 
 import com.intuit.developer.sampleapp.timetracking.domain.Employee;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.PagingAndSortingRepository;
+import org.springframework.data.repository.query.Param;
 import org.springframework.data.rest.core.annotation.RepositoryRestResource;
+import org.springframework.data.rest.core.annotation.RestResource;
+
+import java.util.List;
 
 /**
  * Created with IntelliJ IDEA.
@@ -13,4 +19,21 @@ import org.springframework.data.rest.core.annotation.RepositoryRestResource;
 @RepositoryRestResource
 public interface EmployeeRepository extends PagingAndSortingRepository<Employee, Long> {
 
+    /**
+     * Used to apply changes pulled from QBO
+     */
+    @RestResource(exported = false)
+    Employee findByCompany_IdAndQboId(Long companyId, String qboId);
+
+    /**
+     * A page of the company's employees that are not in QBO yet, in id order after afterId,
+     * see SyncJobExecutor
+     */
+    @RestResource(exported = false)
+    @Query("select e from Employee e where e.company.id = :companyId and e.qboId is null and e.id > :afterId order by e.id")
+    List<Employee> findUnsyncedPage(@Param("companyId") Long companyId, @Param("afterId") long afterId, Pageable pageable);
+
+    @RestResource(exported = false)
+    long countByCompany_IdAndQboIdIsNull(Long companyId);
+
 }
@@ -2,10 +2,12 @@ package com.intuit.developer.sampleapp.timetracking.repository;
 
 import com.intuit.developer.sampleapp.timetracking.domain.Invoice;
 import com.intuit.developer.sampleapp.timetracking.domain.InvoiceStatus;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.PagingAndSortingRepository;
 import org.springframework.data.repository.query.Param;
 import org.springframework.data.rest.core.annotation.RestResource;
 
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -22,5 +24,27 @@ public interface InvoiceRepository extends PagingAndSortingRepository<Invoice, L
     @RestResource(path = "findByCompanyAndStatus", rel = "findByCompanyAndStatus        ")
     List<Invoice> findByCompany_IdAndStatus(@Param("companyId") Long comapnyId, @Param("status") InvoiceStatus status);
 
+    /**
+     * The invoices of a company with their customers fetched in the same query, used by the invoice list. The summaries
+     * only show the totals kept on the invoice row, the time activities are not loaded.
+     */
+    @Query("select i from Invoice i join fetch i.customer where i.company.id = :companyId order by i.id")
+    List<Invoice> findSummariesByCompany(@Param("companyId") Long companyId);
+
+    /**
+     * An invoice with everything that is mapped to the QBO invoice fetched in a single query, the invoice is submitted
+     * outside of a persistence context so nothing can be loaded lazily
+     */
+    @RestResource(exported = false)
+    @Query("select distinct i from Invoice i join fetch i.customer join fetch i.company left join fetch i.timeActivities ta " +
+            "left join fetch ta.employee left join fetch ta.serviceItem where i.id = :id")
+    Invoice findOneForSubmission(@Param("id") Long id);
+
+    /**
+     * Used to pick up invoice submissions that were interrupted by a restart
+     */
+    @RestResource(exported = false)
+    List<Invoice> findByStatusInOrderByIdAsc(Collection<InvoiceStatus> statuses);
+
 
 }
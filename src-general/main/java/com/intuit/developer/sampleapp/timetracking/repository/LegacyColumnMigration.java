@@ -0,0 +1,172 @@
+package com.intuit.developer.sampleapp.timetracking.repository;
+
+import com.intuit.developer.sampleapp.timetracking.converters.LocalDateConverter;
+import com.intuit.developer.sampleapp.timetracking.domain.ServiceItem;
+import org.joda.time.LocalDate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.Query;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Moves values that are still in a legacy column into the column that replaced it, once when the application context
+ * has started.
+ * <p/>
+ * The schema is generated with ddl-auto=update, which adds new columns but never changes existing ones, so the rows
+ * stored before a column was replaced only have the legacy value. The entities move it over when they are loaded; this
+ * moves it in the database for every such row, a page at a time, so that queries on the new columns see them too.
+ */
+public class LegacyColumnMigration implements ApplicationListener<ContextRefreshedEvent> {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(LegacyColumnMigration.class);
+
+    private static final int PAGE_SIZE = 500;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private final AtomicBoolean migrated = new AtomicBoolean();
+
+    @Override
+    public void onApplicationEvent(ContextRefreshedEvent event) {
+        if (migrated.compareAndSet(false, true)) {
+            migrate();
+        }
+    }
+
+    public void migrate() {
+        final int serviceItems = migrate(ServiceItem.class,
+                "select s from ServiceItem s where s.rateCurrency is null and s.legacyRate is not null and s.id > :afterId order by s.id");
+        if (serviceItems > 0) {
+            LOGGER.info("Moved the legacy rate of " + serviceItems + " service items");
+        }
+
+        final int timeActivities = migrateDates(
+                "select t.id, t.legacyDate from TimeActivity t where t.date is null and t.legacyDate is not null and t.id > :afterId order by t.id",
+                "update time_activity set activity_date = ? where id = ?");
+        if (timeActivities > 0) {
+            LOGGER.info("Moved the legacy date of " + timeActivities + " time activities");
+        }
+
+        final int invoices = migrateDates(
+                "select i.id, i.legacyMinDate, i.legacyMaxDate from Invoice i where i.minDate is null and i.legacyMinDate is not null and i.id > :afterId order by i.id",
+                "update invoice set min_activity_date = ?, max_activity_date = ? where id = ?");
+        if (invoices > 0) {
+            LOGGER.info("Moved the legacy dates of " + invoices + " invoices");
+        }
+
+        //totals kept before their currency was stored were all added up in the currency of the service item rates,
+        //after those have been moved to rate_currency above
+        final int invoiceCurrencies = update("update invoice set total_amount_currency = " +
+                "(select max(coalesce(t.rate_currency, s.rate_currency)) from time_activity t join service_item s on t.item_fk = s.id where t.invoice_fk = invoice.id) " +
+                "where total_amount_currency is null and total_amount_minor is not null and exists " +
+                "(select t.id from time_activity t join service_item s on t.item_fk = s.id where t.invoice_fk = invoice.id and coalesce(t.rate_currency, s.rate_currency) is not null)");
+        if (invoiceCurrencies > 0) {
+            LOGGER.info("Set the total currency of " + invoiceCurrencies + " invoices");
+        }
+    }
+
+    /**
+     * @param update a native update of the rows that still need it, they are all updated at once
+     * @return the number of rows that were updated
+     */
+    private int update(final String update) {
+        return new TransactionTemplate(transactionManager).execute(new TransactionCallback<Integer>() {
+            @Override
+            public Integer doInTransaction(TransactionStatus status) {
+                return entityManager.createNativeQuery(update).executeUpdate();
+            }
+        });
+    }
+
+    /**
+     * Serialized legacy dates can only be read through Hibernate, but the entities are not loaded to move them because
+     * saving a time activity takes the snapshot of its rate, see TimeActivity.snapshotRate. The dates are written with an
+     * update of just their columns instead.
+     *
+     * @param query  selects the id and the legacy dates of the rows that still need them with an id greater than
+     *               :afterId, in id order
+     * @param update sets the new date columns, with the dates as the first parameters and the id as the last one
+     * @return the number of rows that were migrated
+     */
+    private int migrateDates(final String query, final String update) {
+        final TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        final LocalDateConverter converter = new LocalDateConverter();
+
+        int migrated = 0;
+        long afterId = 0;
+        while (true) {
+            final long pageAfterId = afterId;
+            final List<Object[]> page = transactionTemplate.execute(new TransactionCallback<List<Object[]>>() {
+                @Override
+                public List<Object[]> doInTransaction(TransactionStatus status) {
+                    final List<Object[]> rows = entityManager.createQuery(query, Object[].class)
+                            .setParameter("afterId", pageAfterId)
+                            .setMaxResults(PAGE_SIZE)
+                            .getResultList();
+
+                    for (Object[] row : rows) {
+                        final Query rowUpdate = entityManager.createNativeQuery(update);
+                        for (int i = 1; i < row.length; i++) {
+                            rowUpdate.setParameter(i, converter.convertToDatabaseColumn((LocalDate) row[i]));
+                        }
+                        rowUpdate.setParameter(row.length, row[0]).executeUpdate();
+                    }
+                    return rows;
+                }
+            });
+
+            if (page.isEmpty()) {
+                return migrated;
+            }
+
+            migrated += page.size();
+            afterId = (Long) page.get(page.size() - 1)[0];
+        }
+    }
+
+    /**
+     * @param query selects the entities that still have a legacy value with an id greater than :afterId, in id order
+     * @return the number of entities that were migrated
+     */
+    private <T> int migrate(final Class<T> entityClass, final String query) {
+        final TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+
+        int migrated = 0;
+        long afterId = 0;
+        while (true) {
+            final long pageAfterId = afterId;
+            final List<T> page = transactionTemplate.execute(new TransactionCallback<List<T>>() {
+                @Override
+                public List<T> doInTransaction(TransactionStatus status) {
+                    //loading moves the legacy value, the change is flushed when the transaction commits
+                    return entityManager.createQuery(query, entityClass)
+                            .setParameter("afterId", pageAfterId)
+                            .setMaxResults(PAGE_SIZE)
+                            .getResultList();
+                }
+            });
+
+            if (page.isEmpty()) {
+                return migrated;
+            }
+
+            migrated += page.size();
+            afterId = (Long) entityManager.getEntityManagerFactory().getPersistenceUnitUtil().getIdentifier(page.get(page.size() - 1));
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package com.intuit.developer.sampleapp.timetracking.repository;
+
+import com.intuit.developer.sampleapp.timetracking.domain.OutboxEntry;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.PagingAndSortingRepository;
+import org.springframework.data.rest.core.annotation.RepositoryRestResource;
+
+import java.util.Date;
+import java.util.List;
+
+/**
+ * The outbox is internal to the QBO push pipeline and is not exposed through Spring Data REST
+ */
+@RepositoryRestResource(exported = false)
+public interface OutboxEntryRepository extends PagingAndSortingRepository<OutboxEntry, Long> {
+
+    @Query("select distinct e.companyId from OutboxEntry e")
+    List<Long> findCompanyIds();
+
+    List<OutboxEntry> findByCompanyId(long companyId);
+
+    /**
+     * Entries of a company that are due for a push, oldest first
+     */
+    List<OutboxEntry> findByCompanyIdAndNextAttemptDateLessThanEqualOrderByIdAsc(long companyId, Date now, Pageable pageable);
+
+}
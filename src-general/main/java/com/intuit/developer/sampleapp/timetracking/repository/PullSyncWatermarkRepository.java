@@ -0,0 +1,15 @@
+package com.intuit.developer.sampleapp.timetracking.repository;
+
+import com.intuit.developer.sampleapp.timetracking.domain.PullSyncWatermark;
+import org.springframework.data.repository.PagingAndSortingRepository;
+import org.springframework.data.rest.core.annotation.RepositoryRestResource;
+
+/**
+ * Watermarks are internal to the pull sync and are not exposed through Spring Data REST
+ */
+@RepositoryRestResource(exported = false)
+public interface PullSyncWatermarkRepository extends PagingAndSortingRepository<PullSyncWatermark, Long> {
+
+    PullSyncWatermark findByCompanyId(long companyId);
+
+}
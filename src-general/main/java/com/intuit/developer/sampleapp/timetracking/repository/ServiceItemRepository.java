@@ -1,8 +1,14 @@
 package com.intuit.developer.sampleapp.timetracking.repository;
 
 import com.intuit.developer.sampleapp.timetracking.domain.ServiceItem;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.PagingAndSortingRepository;
+import org.springframework.data.repository.query.Param;
 import org.springframework.data.rest.core.annotation.RepositoryRestResource;
+import org.springframework.data.rest.core.annotation.RestResource;
+
+import java.util.List;
 
 /**
  * Created with IntelliJ IDEA.
@@ -13,4 +19,21 @@ import org.springframework.data.rest.core.annotation.RepositoryRestResource;
 @RepositoryRestResource
 public interface ServiceItemRepository extends PagingAndSortingRepository<ServiceItem, Long> {
 
+    /**
+     * Used to apply changes pulled from QBO
+     */
+    @RestResource(exported = false)
+    ServiceItem findByCompany_IdAndQboId(Long companyId, String qboId);
+
+    /**
+     * A page of the company's service items that are not in QBO yet, in id order after afterId,
+     * see SyncJobExecutor
+     */
+    @RestResource(exported = false)
+    @Query("select s from ServiceItem s where s.company.id = :companyId and s.qboId is null and s.id > :afterId order by s.id")
+    List<ServiceItem> findUnsyncedPage(@Param("companyId") Long companyId, @Param("afterId") long afterId, Pageable pageable);
+
+    @RestResource(exported = false)
+    long countByCompany_IdAndQboIdIsNull(Long companyId);
+
 }
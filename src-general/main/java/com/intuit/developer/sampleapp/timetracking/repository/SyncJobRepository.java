@@ -0,0 +1,19 @@
+package com.intuit.developer.sampleapp.timetracking.repository;
+
+import com.intuit.developer.sampleapp.timetracking.domain.SyncJob;
+import com.intuit.developer.sampleapp.timetracking.domain.SyncJobStatus;
+import org.springframework.data.repository.PagingAndSortingRepository;
+import org.springframework.data.rest.core.annotation.RepositoryRestResource;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Sync jobs are exposed through the SyncRequestController, not through Spring Data REST
+ */
+@RepositoryRestResource(exported = false)
+public interface SyncJobRepository extends PagingAndSortingRepository<SyncJob, Long> {
+
+    List<SyncJob> findByStatusInOrderByIdAsc(Collection<SyncJobStatus> statuses);
+
+}
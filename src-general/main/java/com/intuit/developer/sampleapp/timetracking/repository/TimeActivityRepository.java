@@ -1,8 +1,14 @@
 package com.intuit.developer.sampleapp.timetracking.repository;
 
 import com.intuit.developer.sampleapp.timetracking.domain.TimeActivity;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.PagingAndSortingRepository;
+import org.springframework.data.repository.query.Param;
 import org.springframework.data.rest.core.annotation.RepositoryRestResource;
+import org.springframework.data.rest.core.annotation.RestResource;
+
+import java.util.List;
 
 /**
  * Created with IntelliJ IDEA.
@@ -11,6 +17,25 @@ import org.springframework.data.rest.core.annotation.RepositoryRestResource;
  * Time: 12:52 PM
  */
 @RepositoryRestResource
-public interface TimeActivityRepository extends PagingAndSortingRepository<TimeActivity, Long> {
+public interface TimeActivityRepository extends PagingAndSortingRepository<TimeActivity, Long>, TimeActivityRepositoryCustom {
+
+    /**
+     * The time activities of an invoice with their employees and service items, in the order they are invoiced, used
+     * when an invoice is expanded in the invoice list
+     */
+    @Query("select t from TimeActivity t join fetch t.employee e join fetch t.serviceItem s where t.invoice.id = :invoiceId " +
+            "order by t.date, e.lastName, e.firstName, s.name")
+    List<TimeActivity> findByInvoice(@Param("invoiceId") Long invoiceId);
+
+    /**
+     * A page of the company's time activities that are not in QBO yet, in id order after afterId,
+     * see SyncJobExecutor
+     */
+    @RestResource(exported = false)
+    @Query("select t from TimeActivity t where t.company.id = :companyId and t.qboId is null and t.id > :afterId order by t.id")
+    List<TimeActivity> findUnsyncedPage(@Param("companyId") Long companyId, @Param("afterId") long afterId, Pageable pageable);
+
+    @RestResource(exported = false)
+    long countByCompany_IdAndQboIdIsNull(Long companyId);
 
 }
@@ -0,0 +1,12 @@
+package com.intuit.developer.sampleapp.timetracking.repository;
+
+import com.intuit.developer.sampleapp.timetracking.domain.TimeActivity;
+
+/**
+ * Replaces the save of TimeActivityRepository, see TimeActivityRepositoryImpl
+ */
+public interface TimeActivityRepositoryCustom {
+
+    <S extends TimeActivity> S save(S timeActivity);
+
+}
@@ -0,0 +1,34 @@
+package com.intuit.developer.sampleapp.timetracking.repository;
+
+import com.intuit.developer.sampleapp.timetracking.domain.OutboxEntry;
+import com.intuit.developer.sampleapp.timetracking.domain.TimeActivity;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+
+/**
+ * Saving a new time activity also writes an OutboxEntry for it in the same transaction, the time activity is pushed to
+ * QBO from the outbox in the background instead of while the REST request waits.
+ */
+public class TimeActivityRepositoryImpl implements TimeActivityRepositoryCustom {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    @Transactional
+    public <S extends TimeActivity> S save(S timeActivity) {
+        if (timeActivity.getId() != 0) {
+            return entityManager.merge(timeActivity);
+        }
+
+        entityManager.persist(timeActivity);
+
+        if (timeActivity.getQboId() == null) {
+            entityManager.persist(new OutboxEntry(timeActivity.getCompany().getId(), "TimeActivity", timeActivity.getId()));
+        }
+
+        return timeActivity;
+    }
+}
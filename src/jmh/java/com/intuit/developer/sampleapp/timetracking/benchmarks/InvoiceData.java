@@ -0,0 +1,77 @@
+package com.intuit.developer.sampleapp.timetracking.benchmarks;
+
+import com.intuit.developer.sampleapp.timetracking.domain.Company;
+import com.intuit.developer.sampleapp.timetracking.domain.Customer;
+import com.intuit.developer.sampleapp.timetracking.domain.Employee;
+import com.intuit.developer.sampleapp.timetracking.domain.Invoice;
+import com.intuit.developer.sampleapp.timetracking.domain.ServiceItem;
+import com.intuit.developer.sampleapp.timetracking.domain.TimeActivity;
+import org.joda.money.Money;
+import org.joda.time.LocalDate;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * An invoice with the given number of lines, built once per trial. Every line is a distinct combination of date,
+ * employee and service item, the way time activities are entered, with 10 employees and 10 service items per day.
+ */
+@State(Scope.Benchmark)
+public class InvoiceData {
+
+    @Param({"10", "1000", "10000"})
+    public int lines;
+
+    public Invoice invoice;
+
+    public List<TimeActivity> timeActivities;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        final Company company = new Company("1234567", "accessToken", "accessTokenSecret");
+        company.setName("The Federalists");
+
+        final Customer customer = new Customer("Robert", "Oppenheimer", "jroppenheimer@manhatten.com", "916-123-4567");
+        customer.setQboId("1");
+        company.addCustomer(customer);
+
+        final List<Employee> employees = new ArrayList<>();
+        final List<ServiceItem> serviceItems = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            final Employee employee = new Employee("Employee", "Number " + i, "employee" + i + "@example.com", "916-222-3333");
+            employee.setQboId(String.valueOf(100 + i));
+            company.addEmployee(employee);
+            employees.add(employee);
+
+            final ServiceItem serviceItem = new ServiceItem("Service " + i, "Service number " + i, Money.parse("USD " + (50 + i) + ".25"));
+            serviceItem.setQboId(String.valueOf(200 + i));
+            company.addServiceItem(serviceItem);
+            serviceItems.add(serviceItem);
+        }
+
+        invoice = new Invoice();
+        invoice.setCompany(company);
+        invoice.setCustomer(customer);
+
+        timeActivities = new ArrayList<>();
+        final LocalDate firstDay = new LocalDate(2014, 1, 1);
+        for (int i = 0; i < lines; i++) {
+            final TimeActivity timeActivity = new TimeActivity();
+            timeActivity.setCompany(company);
+            timeActivity.setCustomer(customer);
+            timeActivity.setEmployee(employees.get(i % 10));
+            timeActivity.setServiceItem(serviceItems.get(i / 10 % 10));
+            timeActivity.setDate(firstDay.plusDays(i / 100));
+            timeActivity.setMinutes(15 + i % 480);
+            timeActivity.setDescription("Time activity " + i);
+
+            invoice.addTimeActivity(timeActivity);
+            timeActivities.add(timeActivity);
+        }
+    }
+}
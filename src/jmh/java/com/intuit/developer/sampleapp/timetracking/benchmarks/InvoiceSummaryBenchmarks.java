@@ -0,0 +1,45 @@
+package com.intuit.developer.sampleapp.timetracking.benchmarks;
+
+import com.intuit.developer.sampleapp.timetracking.domain.InvoiceSummary;
+import com.intuit.developer.sampleapp.timetracking.domain.TimeActivity;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Building invoice summaries, which happens for every invoice in the invoice list, and the amount and hours of time
+ * activities that they are built from.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class InvoiceSummaryBenchmarks {
+
+    @Benchmark
+    public InvoiceSummary invoiceSummary(InvoiceData data) {
+        return new InvoiceSummary(data.invoice);
+    }
+
+    @Benchmark
+    public void timeActivityAmount(InvoiceData data, Blackhole blackhole) {
+        for (TimeActivity timeActivity : data.timeActivities) {
+            blackhole.consume(timeActivity.getAmount());
+        }
+    }
+
+    @Benchmark
+    public void timeActivityHours(InvoiceData data, Blackhole blackhole) {
+        for (TimeActivity timeActivity : data.timeActivities) {
+            blackhole.consume(timeActivity.getHours());
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package com.intuit.developer.sampleapp.timetracking.benchmarks;
+
+import com.intuit.developer.sampleapp.timetracking.domain.TimeActivity;
+import com.intuit.developer.sampleapp.timetracking.mappers.InvoiceMapper;
+import com.intuit.developer.sampleapp.timetracking.mappers.TimeActivityMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mapping invoices and their time activities to QBO objects, the work done for every invoice that is submitted and
+ * every time activity that is pushed.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MapperBenchmarks {
+
+    @Benchmark
+    public com.intuit.ipp.data.Invoice invoiceMapper(InvoiceData data) {
+        return InvoiceMapper.buildQBOObject(data.invoice);
+    }
+
+    @Benchmark
+    public void timeActivityMapper(InvoiceData data, Blackhole blackhole) {
+        for (TimeActivity timeActivity : data.timeActivities) {
+            blackhole.consume(TimeActivityMapper.buildQBOObject(timeActivity));
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package com.intuit.developer.sampleapp.timetracking.benchmarks;
+
+import com.intuit.developer.sampleapp.timetracking.domain.FixedPointMoney;
+import com.intuit.developer.sampleapp.timetracking.domain.TimeActivity;
+import org.joda.money.CurrencyUnit;
+import org.joda.money.Money;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Adding up the amounts of an invoice's time activities with Joda Money, the way TimeActivity.getAmount used to
+ * compute them, against adding up their amounts in minor units with FixedPointMoney.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MoneyBenchmarks {
+
+    @Benchmark
+    public Money jodaMoneyTotal(InvoiceData data) {
+        Money total = Money.zero(CurrencyUnit.USD);
+        for (TimeActivity timeActivity : data.timeActivities) {
+            final BigDecimal hours = new BigDecimal((double) timeActivity.getMinutes() / 60);
+            total = total.plus(timeActivity.getServiceItem().getRate().multipliedBy(hours, RoundingMode.HALF_UP));
+        }
+        return total;
+    }
+
+    @Benchmark
+    public long fixedPointTotal(InvoiceData data) {
+        long totalMinor = 0;
+        for (TimeActivity timeActivity : data.timeActivities) {
+            totalMinor += timeActivity.getAmountMinor();
+        }
+        return totalMinor;
+    }
+
+    @Benchmark
+    public Money fixedPointTotalAsMoney(InvoiceData data) {
+        return FixedPointMoney.toMoney("USD", fixedPointTotal(data));
+    }
+}
@@ -0,0 +1,80 @@
+package com.intuit.developer.sampleapp.timetracking.benchmarks;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.intuit.developer.sampleapp.timetracking.converters.MoneyConverter;
+import com.intuit.developer.sampleapp.timetracking.domain.TimeActivity;
+import com.intuit.developer.sampleapp.timetracking.serializers.LocalDateSerializer;
+import com.intuit.developer.sampleapp.timetracking.serializers.MoneySerializer;
+import org.joda.money.Money;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Converting money to and from its database column, and writing the money and dates of an invoice's time activities
+ * as JSON, once for every line of the invoice.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SerializerBenchmarks {
+
+    private final MoneyConverter moneyConverter = new MoneyConverter();
+
+    private final MoneySerializer moneySerializer = new MoneySerializer();
+
+    private final LocalDateSerializer localDateSerializer = new LocalDateSerializer();
+
+    private final JsonFactory jsonFactory = new JsonFactory();
+
+    @Benchmark
+    public void moneyConverter(InvoiceData data, Blackhole blackhole) {
+        for (TimeActivity timeActivity : data.timeActivities) {
+            final String column = moneyConverter.convertToDatabaseColumn(timeActivity.getServiceItem().getRate());
+            blackhole.consume(moneyConverter.convertToEntityAttribute(column));
+        }
+    }
+
+    @Benchmark
+    public byte[] moneySerializer(InvoiceData data) throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final JsonGenerator jsonGenerator = jsonFactory.createGenerator(out);
+
+        jsonGenerator.writeStartArray();
+        for (TimeActivity timeActivity : data.timeActivities) {
+            final Money rate = timeActivity.getServiceItem().getRate();
+            moneySerializer.serialize(rate, jsonGenerator, null);
+        }
+        jsonGenerator.writeEndArray();
+        jsonGenerator.close();
+
+        return out.toByteArray();
+    }
+
+    @Benchmark
+    public byte[] localDateSerializer(InvoiceData data) throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final JsonGenerator jsonGenerator = jsonFactory.createGenerator(out);
+
+        jsonGenerator.writeStartArray();
+        for (TimeActivity timeActivity : data.timeActivities) {
+            localDateSerializer.serialize(timeActivity.getDate(), jsonGenerator, null);
+        }
+        jsonGenerator.writeEndArray();
+        jsonGenerator.close();
+
+        return out.toByteArray();
+    }
+}
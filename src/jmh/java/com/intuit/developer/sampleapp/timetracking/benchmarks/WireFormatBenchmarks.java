@@ -0,0 +1,166 @@
+package com.intuit.developer.sampleapp.timetracking.benchmarks;
+
+import com.intuit.developer.sampleapp.timetracking.mappers.InvoiceMapper;
+import com.intuit.developer.sampleapp.timetracking.qbo.simulator.QBOSimulator;
+import com.intuit.ipp.data.Invoice;
+import com.intuit.ipp.data.ObjectFactory;
+import org.codehaus.jackson.map.DeserializationConfig;
+import org.codehaus.jackson.map.ObjectMapper;
+import org.codehaus.jackson.map.annotate.JsonSerialize;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBException;
+import javax.xml.transform.stream.StreamSource;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Creating a 1000 line invoice in the QBOSimulator the way it crosses the wire to QBO: the request is serialized and
+ * compressed, the simulator reads it and creates the invoice, and its response is serialized and compressed and read
+ * back, once for every combination of the qbo.wire.serialization and qbo.wire.compression settings.
+ * <p/>
+ * XML is written with JAXB and JSON with Jackson, the libraries the SDK uses. The simulator adds no latency, so the
+ * time is that of the serialization, compression and the create itself. The requestBytes and responseBytes counters
+ * report the size of one request and one response.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WireFormatBenchmarks {
+
+    private static final String REALM_ID = "1234567";
+
+    @State(Scope.Benchmark)
+    public static class Payload {
+
+        @Param({"xml", "json"})
+        public String serialization;
+
+        @Param({"none", "gzip", "deflate"})
+        public String compression;
+
+        Invoice invoice;
+
+        QBOSimulator simulator;
+
+        JAXBContext jaxbContext;
+
+        ObjectMapper objectMapper;
+
+        @Setup(Level.Trial)
+        public void setUp() throws JAXBException {
+            final InvoiceData data = new InvoiceData();
+            data.lines = 1000;
+            data.setUp();
+            invoice = InvoiceMapper.buildQBOObject(data.invoice);
+
+            simulator = new QBOSimulator();
+
+            jaxbContext = JAXBContext.newInstance(ObjectFactory.class);
+
+            objectMapper = new ObjectMapper();
+            objectMapper.setSerializationInclusion(JsonSerialize.Inclusion.NON_NULL);
+            objectMapper.configure(DeserializationConfig.Feature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+        }
+
+        //every round trip creates an invoice, don't let the simulator's realm grow for the whole trial
+        @Setup(Level.Iteration)
+        public void resetSimulator() {
+            simulator.reset();
+        }
+    }
+
+    /**
+     * The counters are set rather than added to, so they are the size of a single request and response
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class WireBytes {
+        public long requestBytes;
+        public long responseBytes;
+    }
+
+    @Benchmark
+    public Invoice createInvoice(Payload payload, WireBytes wireBytes) throws Exception {
+        final byte[] request = write(payload, payload.invoice);
+        wireBytes.requestBytes = request.length;
+
+        final Invoice created = payload.simulator.add(REALM_ID, read(payload, request));
+
+        final byte[] response = write(payload, created);
+        wireBytes.responseBytes = response.length;
+
+        return read(payload, response);
+    }
+
+    private byte[] write(Payload payload, Invoice invoice) throws IOException, JAXBException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final OutputStream out = compress(payload.compression, bytes);
+
+        if ("xml".equals(payload.serialization)) {
+            payload.jaxbContext.createMarshaller().marshal(new ObjectFactory().createInvoice(invoice), out);
+        } else {
+            payload.objectMapper.writeValue(out, invoice);
+        }
+
+        out.close();
+        return bytes.toByteArray();
+    }
+
+    private Invoice read(Payload payload, byte[] bytes) throws IOException, JAXBException {
+        final InputStream in = decompress(payload.compression, new ByteArrayInputStream(bytes));
+        try {
+            if ("xml".equals(payload.serialization)) {
+                return payload.jaxbContext.createUnmarshaller().unmarshal(new StreamSource(in), Invoice.class).getValue();
+            }
+            return payload.objectMapper.readValue(in, Invoice.class);
+        } finally {
+            in.close();
+        }
+    }
+
+    private OutputStream compress(String compression, OutputStream out) throws IOException {
+        switch (compression) {
+            case "gzip":
+                return new GZIPOutputStream(out);
+            case "deflate":
+                return new DeflaterOutputStream(out);
+            default:
+                return out;
+        }
+    }
+
+    private InputStream decompress(String compression, InputStream in) throws IOException {
+        switch (compression) {
+            case "gzip":
+                return new GZIPInputStream(in);
+            case "deflate":
+                return new InflaterInputStream(in);
+            default:
+                return in;
+        }
+    }
+}
@@ -42,4 +42,14 @@ public class CustomerMapper {
         return qboCustomer;
 
     }
+
+    /**
+     * Copy the fields that are edited in QBO onto an existing Customer, used when pulling changes from QBO
+     */
+    public static void applyQBOObject(Customer customer, com.intuit.ipp.data.Customer qboCustomer) {
+        customer.setFirstName(qboCustomer.getGivenName());
+        customer.setLastName(qboCustomer.getFamilyName());
+        customer.setEmailAddress(qboCustomer.getPrimaryEmailAddr() == null ? null : qboCustomer.getPrimaryEmailAddr().getAddress());
+        customer.setPhoneNumber(qboCustomer.getPrimaryPhone() == null ? null : qboCustomer.getPrimaryPhone().getFreeFormNumber());
+    }
 }
@@ -42,4 +42,14 @@ public class EmployeeMapper {
         return qboEmployee;
 
     }
+
+    /**
+     * Copy the fields that are edited in QBO onto an existing Employee, used when pulling changes from QBO
+     */
+    public static void applyQBOObject(Employee employee, com.intuit.ipp.data.Employee qboEmployee) {
+        employee.setFirstName(qboEmployee.getGivenName());
+        employee.setLastName(qboEmployee.getFamilyName());
+        employee.setEmailAddress(qboEmployee.getPrimaryEmailAddr() == null ? null : qboEmployee.getPrimaryEmailAddr().getAddress());
+        employee.setPhoneNumber(qboEmployee.getPrimaryPhone() == null ? null : qboEmployee.getPrimaryPhone().getFreeFormNumber());
+    }
 }
@@ -1,6 +1,8 @@
 package com.intuit.developer.sampleapp.timetracking.mappers;
 
+import com.intuit.developer.sampleapp.timetracking.domain.FixedPointMoney;
 import com.intuit.developer.sampleapp.timetracking.domain.Invoice;
+import com.intuit.developer.sampleapp.timetracking.domain.InvoiceLineAggregation;
 import com.intuit.developer.sampleapp.timetracking.domain.ServiceItem;
 import com.intuit.developer.sampleapp.timetracking.domain.TimeActivity;
 import com.intuit.ipp.data.Line;
@@ -12,9 +14,17 @@ import ma.glasnost.orika.CustomMapper;
 import ma.glasnost.orika.MapperFactory;
 import ma.glasnost.orika.MappingContext;
 import ma.glasnost.orika.impl.DefaultMapperFactory;
+import org.joda.money.Money;
+import org.joda.time.LocalDate;
 
+import java.math.BigDecimal;
 import java.math.BigInteger;
+import java.math.MathContext;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Created with IntelliJ IDEA.
@@ -39,38 +49,31 @@ public class InvoiceMapper {
 
                         final List<Line> invoiceLines = b.getLine();
 
-                        int lineNum = 1;
+                        final InvoiceLineAggregation aggregation = a.getCompany() != null
+                                ? a.getCompany().getInvoiceLineAggregation()
+                                : InvoiceLineAggregation.PerTimeActivity;
+
+                        if (aggregation != InvoiceLineAggregation.PerTimeActivity) {
+                            for (AggregatedLine aggregatedLine : aggregate(a.getTimeActivities(), aggregation)) {
+                                addInvoiceLine(invoiceLines, aggregatedLine.getDescription(), aggregatedLine.getAmount(),
+                                        aggregatedLine.getHours(), aggregatedLine.getRate(), aggregatedLine.getServiceItem());
+
+                                final Money adjustment = aggregatedLine.getRoundingAdjustment();
+                                if (!adjustment.isZero()) {
+                                    addInvoiceLine(invoiceLines, "Rounding adjustment, " + aggregatedLine.getDescription(), adjustment,
+                                            BigDecimal.ONE, adjustment, aggregatedLine.getServiceItem());
+                                }
+                            }
+                            return;
+                        }
 
                         /* taking a simple route and adding an invoice line per time entry
-                            you could get creative here and aggregate invoice lines per service item or per employee
+                            the company's InvoiceLineAggregation can aggregate invoice lines per service item or per employee
                          */
                         final List<TimeActivity> timeActivities = a.getTimeActivities();
-                        timeActivities.size();
 
                         for (TimeActivity timeActivity : timeActivities) {
-                            Line invoiceLine = new Line();
-                            invoiceLines.add(invoiceLine);
-                            invoiceLine.setLineNum(BigInteger.valueOf(lineNum));
-                            lineNum++;
-
-                            invoiceLine.setAmount(timeActivity.getAmount().getAmount());
-                            StringBuilder description = new StringBuilder(timeActivity.getEmployee().getFullName())
-                                    .append(" on ")
-                                    .append(timeActivity.getDate().toString());
-
-                            invoiceLine.setDescription(description.toString());
-                            invoiceLine.setDetailType(LineDetailTypeEnum.SALES_ITEM_LINE_DETAIL);
-
-                            SalesItemLineDetail detail = new SalesItemLineDetail();
-                            invoiceLine.setSalesItemLineDetail(detail);
-
-                            final ServiceItem serviceItem = timeActivity.getServiceItem();
-                            detail.setUnitPrice(serviceItem.getRate().getAmount());
-                            detail.setQty(timeActivity.getHours());
-
-                            final ReferenceType itemRef = new ReferenceType();
-                            detail.setItemRef(itemRef);
-                            itemRef.setValue(serviceItem.getQboId());
+                            addInvoiceLine(invoiceLines, timeActivity);
                         }
                     }
                 })
@@ -80,6 +83,152 @@ public class InvoiceMapper {
         domainToQBOMapper = mapperFactory.getMapperFacade(Invoice.class, com.intuit.ipp.data.Invoice.class);
     }
 
+    private static void addInvoiceLine(List<Line> invoiceLines, TimeActivity timeActivity) {
+        StringBuilder description = new StringBuilder(timeActivity.getEmployee().getFullName())
+                .append(" on ")
+                .append(timeActivity.getDate().toString());
+
+        addInvoiceLine(invoiceLines, description.toString(), timeActivity.getAmount(),
+                timeActivity.getHours(), timeActivity.getRate(), timeActivity.getServiceItem());
+    }
+
+    /**
+     * @param rate the rate the time activities were entered at, which is not necessarily the service item's rate now
+     */
+    private static void addInvoiceLine(List<Line> invoiceLines, String description, Money amount, BigDecimal hours,
+                                       Money rate, ServiceItem serviceItem) {
+        Line invoiceLine = new Line();
+        invoiceLines.add(invoiceLine);
+        invoiceLine.setLineNum(BigInteger.valueOf(invoiceLines.size()));
+
+        invoiceLine.setAmount(amount.getAmount());
+        invoiceLine.setDescription(description);
+        invoiceLine.setDetailType(LineDetailTypeEnum.SALES_ITEM_LINE_DETAIL);
+
+        SalesItemLineDetail detail = new SalesItemLineDetail();
+        invoiceLine.setSalesItemLineDetail(detail);
+
+        detail.setUnitPrice(rate.getAmount());
+        detail.setQty(hours);
+
+        final ReferenceType itemRef = new ReferenceType();
+        detail.setItemRef(itemRef);
+        itemRef.setValue(serviceItem.getQboId());
+    }
+
+    /**
+     * Add up the time activities that share an invoice line, lines are in the order of their first time activity.
+     * Every key contains the service item and the rate it was entered at, so all time activities of a line have the same
+     * rate.
+     */
+    private static Collection<AggregatedLine> aggregate(List<TimeActivity> timeActivities, InvoiceLineAggregation aggregation) {
+        final Map<List<Object>, AggregatedLine> lines = new LinkedHashMap<>();
+
+        for (TimeActivity timeActivity : timeActivities) {
+            final List<Object> key;
+            switch (aggregation) {
+                case PerServiceItem:
+                    key = Arrays.<Object>asList(timeActivity.getServiceItem(), timeActivity.getRate());
+                    break;
+                case PerEmployeeAndServiceItem:
+                    key = Arrays.<Object>asList(timeActivity.getEmployee(), timeActivity.getServiceItem(), timeActivity.getRate());
+                    break;
+                default:
+                    key = Arrays.<Object>asList(timeActivity.getDate(), timeActivity.getServiceItem(), timeActivity.getRate());
+                    break;
+            }
+
+            AggregatedLine line = lines.get(key);
+            if (line == null) {
+                final String label = aggregation == InvoiceLineAggregation.PerEmployeeAndServiceItem
+                        ? timeActivity.getEmployee().getFullName() + " - " + timeActivity.getServiceItem().getName()
+                        : timeActivity.getServiceItem().getName();
+                line = new AggregatedLine(label, timeActivity);
+                lines.put(key, line);
+            }
+            line.add(timeActivity);
+        }
+
+        return lines.values();
+    }
+
+    /**
+     * The sum of the time activities on one invoice line. Minutes and amounts in minor units are added up exactly, the
+     * hours are only divided out and the amount only turned into Money at the end.
+     * <p/>
+     * Each time activity's amount is rounded to a minor unit on its own, so their sum can be off from the rate times
+     * the summed hours (3 times 20 minutes at $1.00 is 0.99, an hour is 1.00). QBO rejects a line whose amount isn't
+     * its unit price times its quantity, so the line is priced at the rate times the summed hours and the difference
+     * goes on a rounding adjustment line of its own, which keeps the invoice total in QBO the total of the invoice here.
+     */
+    private static class AggregatedLine {
+        private static final BigDecimal MINUTES_PER_HOUR = BigDecimal.valueOf(60);
+
+        private final String label;
+        private final ServiceItem serviceItem;
+        private final Money rate;
+        private long amountMinor;
+        private int minutes;
+        private LocalDate firstDate;
+        private LocalDate lastDate;
+
+        private AggregatedLine(String label, TimeActivity firstTimeActivity) {
+            this.label = label;
+            this.serviceItem = firstTimeActivity.getServiceItem();
+            this.rate = firstTimeActivity.getRate();
+        }
+
+        private void add(TimeActivity timeActivity) {
+            amountMinor += timeActivity.getAmountMinor();
+            minutes += timeActivity.getMinutes();
+
+            final LocalDate date = timeActivity.getDate();
+            if (firstDate == null || date.isBefore(firstDate)) {
+                firstDate = date;
+            }
+            if (lastDate == null || date.isAfter(lastDate)) {
+                lastDate = date;
+            }
+        }
+
+        private long lineAmountMinor() {
+            return FixedPointMoney.amountForMinutes(FixedPointMoney.toMinor(rate), minutes);
+        }
+
+        private String getDescription() {
+            if (firstDate.equals(lastDate)) {
+                return label + " on " + firstDate;
+            }
+            return label + ", " + firstDate + " to " + lastDate;
+        }
+
+        /**
+         * @return the rate times the summed hours
+         */
+        private Money getAmount() {
+            return Money.ofMinor(rate.getCurrencyUnit(), lineAmountMinor());
+        }
+
+        /**
+         * @return what the time activities add up to minus the line's amount, zero if they agree
+         */
+        private Money getRoundingAdjustment() {
+            return Money.ofMinor(rate.getCurrencyUnit(), amountMinor - lineAmountMinor());
+        }
+
+        private Money getRate() {
+            return rate;
+        }
+
+        private BigDecimal getHours() {
+            return BigDecimal.valueOf(minutes).divide(MINUTES_PER_HOUR, MathContext.DECIMAL64);
+        }
+
+        private ServiceItem getServiceItem() {
+            return serviceItem;
+        }
+    }
+
     public static com.intuit.ipp.data.Invoice buildQBOObject(Invoice invoice) {
         if (invoice == null) {
             return null;
@@ -4,6 +4,10 @@ import com.intuit.developer.sampleapp.timetracking.domain.ServiceItem;
 import ma.glasnost.orika.BoundMapperFacade;
 import ma.glasnost.orika.MapperFactory;
 import ma.glasnost.orika.impl.DefaultMapperFactory;
+import org.joda.money.CurrencyUnit;
+import org.joda.money.Money;
+
+import java.math.RoundingMode;
 
 /**
  * Created with IntelliJ IDEA.
@@ -38,4 +42,17 @@ public class ServiceItemMapper {
         return qboServiceItem;
 
     }
+
+    /**
+     * Copy the fields that are edited in QBO onto an existing ServiceItem, used when pulling changes from QBO. The rate
+     * keeps its currency.
+     */
+    public static void applyQBOObject(ServiceItem serviceItem, com.intuit.ipp.data.Item qboItem) {
+        serviceItem.setName(qboItem.getName());
+        serviceItem.setDescription(qboItem.getDescription());
+        if (qboItem.getUnitPrice() != null) {
+            final CurrencyUnit currency = serviceItem.getRate() != null ? serviceItem.getRate().getCurrencyUnit() : CurrencyUnit.USD;
+            serviceItem.setRate(Money.of(currency, qboItem.getUnitPrice(), RoundingMode.HALF_UP));
+        }
+    }
 }
@@ -4,6 +4,8 @@ import com.intuit.developer.sampleapp.timetracking.domain.Company;
 import com.intuit.developer.sampleapp.timetracking.oauth.CompanyRequestTokenSecret;
 import com.intuit.developer.sampleapp.timetracking.oauth.OAuthException;
 import com.intuit.developer.sampleapp.timetracking.oauth.OAuthInfoProvider;
+import com.intuit.developer.sampleapp.timetracking.qbo.DataServiceFactory;
+import com.intuit.developer.sampleapp.timetracking.qbo.ReferenceDataCache;
 import com.intuit.developer.sampleapp.timetracking.repository.AppInfoRepository;
 import com.intuit.developer.sampleapp.timetracking.repository.CompanyRepository;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -22,6 +24,12 @@ public class OAuthInfoProviderImpl implements OAuthInfoProvider {
     @Autowired
     private CompanyRepository companyRepository;
 
+    @Autowired
+    private DataServiceFactory dataServiceFactory;
+
+    @Autowired
+    private ReferenceDataCache referenceDataCache;
+
     @Override
     public String getAppToken() {
         return appInfoRepository.getFirst().getAppToken();
@@ -72,6 +80,11 @@ public class OAuthInfoProviderImpl implements OAuthInfoProvider {
             throw new OAuthException("Could not find a company with an id of " + appCompanyId);
         }
 
+        //the tokens are being rotated, make sure no cached DataService keeps using the old ones
+        dataServiceFactory.invalidate(company.getQboId());
+        dataServiceFactory.invalidate(realmId);
+        referenceDataCache.invalidate(realmId);
+
         company.setQboId(realmId);
         company.setAccessToken(accessToken);
         company.setAccessTokenSecret(accessTokenSecret);
@@ -0,0 +1,15 @@
+package com.intuit.developer.sampleapp.timetracking.qbo;
+
+/**
+ * Notified while a batch sync is in progress, e.g. to report the progress of a long running sync job
+ */
+public interface BatchSyncListener {
+
+    /**
+     * Called every time another group of entities has been synced (or has failed to sync)
+     *
+     * @param resultSoFar the counts accumulated so far, the final counts are in the BatchSyncResult that is returned
+     *                    once the sync is done
+     */
+    void progress(BatchSyncResult resultSoFar);
+}
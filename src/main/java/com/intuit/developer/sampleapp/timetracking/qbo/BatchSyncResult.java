@@ -0,0 +1,58 @@
+package com.intuit.developer.sampleapp.timetracking.qbo;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The outcome of syncing a set of entities to QBO through batch requests.
+ * <p/>
+ * A batch can partially fail, so alongside the number of entities that were synced this keeps a failure reason
+ * for every entity that was not.
+ */
+public class BatchSyncResult {
+
+    private int syncedCount;
+
+    private final Map<String, String> failures = new LinkedHashMap<>();
+
+    /**
+     * @return a result with the counts and failures of all the given results
+     */
+    public static BatchSyncResult combine(Collection<BatchSyncResult> results) {
+        final BatchSyncResult combined = new BatchSyncResult();
+        for (BatchSyncResult result : results) {
+            combined.syncedCount += result.syncedCount;
+            combined.failures.putAll(result.failures);
+        }
+        return combined;
+    }
+
+    void recordSuccess() {
+        syncedCount++;
+    }
+
+    void recordFailure(String entityDescription, String reason) {
+        failures.put(entityDescription, reason);
+    }
+
+    public int getSyncedCount() {
+        return syncedCount;
+    }
+
+    public int getFailedCount() {
+        return failures.size();
+    }
+
+    public boolean hasFailures() {
+        return !failures.isEmpty();
+    }
+
+    /**
+     * @return failure reasons keyed by a human readable description of the entity that failed
+     */
+    public Map<String, String> getFailures() {
+        return Collections.unmodifiableMap(failures);
+    }
+}
@@ -2,30 +2,131 @@ package com.intuit.developer.sampleapp.timetracking.qbo;
 
 import com.intuit.developer.sampleapp.timetracking.domain.AppInfo;
 import com.intuit.developer.sampleapp.timetracking.domain.Company;
+import com.intuit.developer.sampleapp.timetracking.qbo.simulator.QBOSimulator;
+import com.intuit.developer.sampleapp.timetracking.qbo.simulator.SimulatedDataService;
 import com.intuit.developer.sampleapp.timetracking.repository.AppInfoRepository;
 import com.intuit.ipp.core.Context;
 import com.intuit.ipp.core.ServiceType;
 import com.intuit.ipp.exception.FMSException;
 import com.intuit.ipp.security.IAuthorizer;
 import com.intuit.ipp.security.OAuthAuthorizer;
-import com.intuit.ipp.services.DataService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Created with IntelliJ IDEA.
  * User: russellb337
  * Date: 8/21/14
  * Time: 5:59 PM
+ * <p/>
+ * DataService instances are cached per realm so that a sync of a few thousand entities does not build a new
+ * OAuthAuthorizer, Context and DataService for every single entity. A cached entry is only reused while the
+ * company's access token matches the token it was built with, and the least recently used realm is evicted once
+ * the cache is full.
+ * <p/>
+ * The DataServices are QBODataServices, which send their requests through the QBORequestExecutor in the configured
+ * QBOWireFormat. When the QBOSimulator is enabled they are SimulatedDataServices, which never call QBO and need no
+ * app or OAuth keys.
  */
 public class DataServiceFactory {
 
     @Autowired
     private AppInfoRepository appInfoRepository;
 
-    public DataService getDataService(Company domainCompany) {
+    @Autowired
+    private QBORequestExecutor requestExecutor;
+
+    @Autowired
+    private QBOSimulator simulator;
+
+    @Autowired
+    private QBOWireFormat wireFormat;
+
+    @Value("${qbo.dataServiceCache.maxSize:100}")
+    private int maxCacheSize = 100;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    //access ordered so that iteration order is least recently used first
+    private final Map<String, CachedDataService> cache = new LinkedHashMap<String, CachedDataService>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, CachedDataService> eldest) {
+            if (size() > maxCacheSize) {
+                evictions.incrementAndGet();
+                return true;
+            }
+            return false;
+        }
+    };
+
+    public QBODataService getDataService(Company domainCompany) {
         verifyCompanyConnectedToQBO(domainCompany);
 
-        final AppInfo appInfo = appInfoRepository.getFirst();
+        final String realmId = domainCompany.getQboId();
+
+        synchronized (cache) {
+            final CachedDataService cached = cache.get(realmId);
+            if (cached != null && cached.isFor(domainCompany)) {
+                hits.incrementAndGet();
+                return cached.getDataService();
+            }
+        }
+
+        misses.incrementAndGet();
+        final CachedDataService created = new CachedDataService(domainCompany, createDataService(domainCompany));
+
+        synchronized (cache) {
+            cache.put(realmId, created);
+        }
+
+        return created.getDataService();
+    }
+
+    /**
+     * Drop the cached DataService for a realm, e.g. after its OAuth tokens have been rotated
+     */
+    public void invalidate(String realmId) {
+        if (realmId == null) {
+            return;
+        }
+
+        synchronized (cache) {
+            cache.remove(realmId);
+        }
+    }
+
+    public void invalidateAll() {
+        synchronized (cache) {
+            cache.clear();
+        }
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public long getEvictions() {
+        return evictions.get();
+    }
+
+    public int getSize() {
+        synchronized (cache) {
+            return cache.size();
+        }
+    }
+
+    private QBODataService createDataService(Company domainCompany) {
+        final AppInfo appInfo = simulator.isEnabled() ? new AppInfo("simulator", "simulator", "simulator") : appInfoRepository.getFirst();
 
         IAuthorizer authorizer = new OAuthAuthorizer(appInfo.getConsumerKey(),
                 appInfo.getConsumerSecret(),
@@ -39,7 +140,10 @@ public class DataServiceFactory {
             throw new RuntimeException("Could not initialize Intuit context object", e);
         }
 
-        return new DataService(context);
+        if (simulator.isEnabled()) {
+            return new SimulatedDataService(context, domainCompany.getQboId(), requestExecutor, simulator);
+        }
+        return new QBODataService(context, domainCompany.getQboId(), requestExecutor, wireFormat);
     }
 
     private void verifyCompanyConnectedToQBO(Company company) {
@@ -47,4 +151,32 @@ public class DataServiceFactory {
             throw new RuntimeException("Company is not connected to QBO: " + company.getName());
         }
     }
+
+    /**
+     * A DataService along with the token values it was built with. The token pair acts as the "version" of the
+     * cache entry; a company with different tokens never gets a stale DataService back.
+     */
+    private static class CachedDataService {
+        private final String accessToken;
+        private final String accessTokenSecret;
+        private final QBODataService dataService;
+
+        private CachedDataService(Company company, QBODataService dataService) {
+            this.accessToken = company.getAccessToken();
+            this.accessTokenSecret = company.getAccessTokenSecret();
+            this.dataService = dataService;
+        }
+
+        private boolean isFor(Company company) {
+            return equal(accessToken, company.getAccessToken()) && equal(accessTokenSecret, company.getAccessTokenSecret());
+        }
+
+        private static boolean equal(String a, String b) {
+            return a == null ? b == null : a.equals(b);
+        }
+
+        private QBODataService getDataService() {
+            return dataService;
+        }
+    }
 }
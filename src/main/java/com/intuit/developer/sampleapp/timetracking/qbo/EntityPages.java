@@ -0,0 +1,14 @@
+package com.intuit.developer.sampleapp.timetracking.qbo;
+
+import java.util.List;
+
+/**
+ * The entities to sync one page at a time, so that a sync never holds all of a company's entities in memory
+ */
+public interface EntityPages<D> {
+
+    /**
+     * @return the next page of entities, empty once there are no more
+     */
+    List<D> next();
+}
@@ -0,0 +1,49 @@
+package com.intuit.developer.sampleapp.timetracking.qbo;
+
+import com.intuit.ipp.data.IntuitEntity;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * An in memory index of the active entities of one type in a QBO realm, keyed by name.
+ * <p/>
+ * Built from a handful of paged queries, it lets a whole sync be checked for already existing entities locally
+ * instead of with one query per entity. Names are compared case insensitively and ignoring surrounding whitespace,
+ * which is how QBO itself decides whether a name is a duplicate.
+ */
+public class ExistingEntityIndex {
+
+    private static final String KEY_SEPARATOR = "|";
+
+    private final Map<String, IntuitEntity> entitiesByName = new HashMap<>();
+
+    public static String key(String... nameParts) {
+        StringBuilder key = new StringBuilder();
+        for (String namePart : nameParts) {
+            if (key.length() > 0) {
+                key.append(KEY_SEPARATOR);
+            }
+            key.append(namePart == null ? "" : namePart.trim().toLowerCase(Locale.ENGLISH));
+        }
+        return key.toString();
+    }
+
+    /**
+     * Add an entity to the index, the first entity added for a name wins
+     */
+    public void add(String key, IntuitEntity entity) {
+        if (!entitiesByName.containsKey(key)) {
+            entitiesByName.put(key, entity);
+        }
+    }
+
+    public IntuitEntity find(String key) {
+        return entitiesByName.get(key);
+    }
+
+    public int size() {
+        return entitiesByName.size();
+    }
+}
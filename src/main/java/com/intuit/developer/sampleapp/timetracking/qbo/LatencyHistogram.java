@@ -0,0 +1,93 @@
+package com.intuit.developer.sampleapp.timetracking.qbo;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Counts latencies into fixed buckets, from a few milliseconds for cached or simulated requests to tens of seconds for
+ * QBO requests that were throttled and retried. Recording is lock free, percentiles are estimated as the upper bound
+ * of the bucket they fall into.
+ */
+public class LatencyHistogram {
+
+    //upper bounds of the buckets in milliseconds, the last bucket has no upper bound
+    static final long[] BUCKET_MILLIS = {5, 10, 25, 50, 100, 250, 500, 1000, 2500, 5000, 10000, 30000};
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_MILLIS.length + 1);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong totalNanos = new AtomicLong();
+    private final AtomicLong maxNanos = new AtomicLong();
+
+    public void record(long nanos) {
+        final long millis = TimeUnit.NANOSECONDS.toMillis(nanos);
+
+        int bucket = 0;
+        while (bucket < BUCKET_MILLIS.length && millis > BUCKET_MILLIS[bucket]) {
+            bucket++;
+        }
+        buckets.incrementAndGet(bucket);
+
+        count.incrementAndGet();
+        totalNanos.addAndGet(nanos);
+
+        long max = maxNanos.get();
+        while (nanos > max && !maxNanos.compareAndSet(max, nanos)) {
+            max = maxNanos.get();
+        }
+    }
+
+    public long getCount() {
+        return count.get();
+    }
+
+    public double getMeanMillis() {
+        final long n = count.get();
+        return n == 0 ? 0 : totalNanos.get() / (double) n / TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    public double getMaxMillis() {
+        return maxNanos.get() / (double) TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    /**
+     * @return the upper bound in milliseconds of the bucket the percentile falls into, or the maximum for the last
+     * bucket
+     */
+    public double getPercentileMillis(double percentile) {
+        final long n = count.get();
+        if (n == 0) {
+            return 0;
+        }
+
+        final long rank = (long) Math.ceil(n * percentile / 100);
+        long seen = 0;
+        for (int bucket = 0; bucket < BUCKET_MILLIS.length; bucket++) {
+            seen += buckets.get(bucket);
+            if (seen >= rank) {
+                return Math.min(BUCKET_MILLIS[bucket], getMaxMillis());
+            }
+        }
+        return getMaxMillis();
+    }
+
+    public Map<String, Object> getStatistics() {
+        final Map<String, Object> statistics = new LinkedHashMap<>();
+        statistics.put("count", getCount());
+        statistics.put("meanMillis", getMeanMillis());
+        statistics.put("p50Millis", getPercentileMillis(50));
+        statistics.put("p95Millis", getPercentileMillis(95));
+        statistics.put("p99Millis", getPercentileMillis(99));
+        statistics.put("maxMillis", getMaxMillis());
+
+        final Map<String, Long> histogram = new LinkedHashMap<>();
+        for (int bucket = 0; bucket < BUCKET_MILLIS.length; bucket++) {
+            histogram.put("le" + BUCKET_MILLIS[bucket], buckets.get(bucket));
+        }
+        histogram.put("gt" + BUCKET_MILLIS[BUCKET_MILLIS.length - 1], buckets.get(BUCKET_MILLIS.length));
+        statistics.put("buckets", histogram);
+        return statistics;
+    }
+}
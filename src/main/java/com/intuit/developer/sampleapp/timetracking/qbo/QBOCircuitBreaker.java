@@ -0,0 +1,211 @@
+package com.intuit.developer.sampleapp.timetracking.qbo;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A circuit breaker per realm that stops sending requests to QBO while most of them fail.
+ * <p/>
+ * The outcomes of the last windowSize requests of a realm are kept. Once at least minimumRequests of them are known
+ * and failureRatePercent of them failed the breaker opens and requests are rejected right away. After openMillis one
+ * trial request is let through (half open): if it succeeds the breaker closes again, otherwise it stays open for
+ * another openMillis.
+ * <p/>
+ * Only transient failures count, a validation error shows that QBO is up.
+ */
+public class QBOCircuitBreaker {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(QBOCircuitBreaker.class);
+
+    public enum State {
+        Closed,
+        Open,
+        HalfOpen
+    }
+
+    @Value("${qbo.circuitBreaker.windowSize:20}")
+    private int windowSize = 20;
+
+    @Value("${qbo.circuitBreaker.minimumRequests:10}")
+    private int minimumRequests = 10;
+
+    @Value("${qbo.circuitBreaker.failureRatePercent:50}")
+    private int failureRatePercent = 50;
+
+    @Value("${qbo.circuitBreaker.openMillis:30000}")
+    private long openMillis = 30000;
+
+    private final ConcurrentHashMap<String, RealmBreaker> breakers = new ConcurrentHashMap<>();
+
+    private final AtomicLong opened = new AtomicLong();
+    private final AtomicLong closed = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+
+    /**
+     * @return false if the request must not be sent because the breaker is open
+     */
+    public boolean allowRequest(String realmId) {
+        final boolean allowed = breaker(realmId).allowRequest();
+        if (!allowed) {
+            rejected.incrementAndGet();
+        }
+        return allowed;
+    }
+
+    public void recordSuccess(String realmId) {
+        breaker(realmId).record(true);
+    }
+
+    public void recordFailure(String realmId) {
+        breaker(realmId).record(false);
+    }
+
+    public State getState(String realmId) {
+        return breaker(realmId).getState();
+    }
+
+    public long getOpened() {
+        return opened.get();
+    }
+
+    public long getClosed() {
+        return closed.get();
+    }
+
+    public long getRejected() {
+        return rejected.get();
+    }
+
+    /**
+     * @return state and recent failure rate of every realm's breaker, keyed by realm id
+     */
+    public Map<String, Map<String, Object>> getBreakerStatistics() {
+        final Map<String, Map<String, Object>> statistics = new TreeMap<>();
+        for (Map.Entry<String, RealmBreaker> breaker : breakers.entrySet()) {
+            statistics.put(breaker.getKey(), breaker.getValue().statistics());
+        }
+        return statistics;
+    }
+
+    private RealmBreaker breaker(String realmId) {
+        final String key = String.valueOf(realmId);
+        RealmBreaker breaker = breakers.get(key);
+        if (breaker == null) {
+            final RealmBreaker newBreaker = new RealmBreaker(key);
+            breaker = breakers.putIfAbsent(key, newBreaker);
+            if (breaker == null) {
+                breaker = newBreaker;
+            }
+        }
+        return breaker;
+    }
+
+    private class RealmBreaker {
+        private final String realmId;
+
+        //a ring buffer of the latest outcomes, true for a failure
+        private final boolean[] failures = new boolean[windowSize];
+        private int recorded;
+        private int next;
+        private int failureCount;
+
+        private State state = State.Closed;
+        private long openedAtNanos;
+        private boolean trialInFlight;
+
+        private RealmBreaker(String realmId) {
+            this.realmId = realmId;
+        }
+
+        private synchronized boolean allowRequest() {
+            if (state == State.Open && System.nanoTime() - openedAtNanos >= TimeUnit.MILLISECONDS.toNanos(openMillis)) {
+                transition(State.HalfOpen);
+            }
+
+            switch (state) {
+                case Closed:
+                    return true;
+                case HalfOpen:
+                    if (trialInFlight) {
+                        return false;
+                    }
+                    trialInFlight = true;
+                    return true;
+                default:
+                    return false;
+            }
+        }
+
+        private synchronized void record(boolean success) {
+            if (state == State.HalfOpen) {
+                trialInFlight = false;
+                if (success) {
+                    resetWindow();
+                    transition(State.Closed);
+                    closed.incrementAndGet();
+                } else {
+                    open();
+                }
+                return;
+            }
+
+            if (state == State.Open) {
+                //a request that was let through before the breaker opened
+                return;
+            }
+
+            if (recorded == failures.length && failures[next]) {
+                failureCount--;
+            }
+            failures[next] = !success;
+            if (!success) {
+                failureCount++;
+            }
+            next = (next + 1) % failures.length;
+            recorded = Math.min(recorded + 1, failures.length);
+
+            if (recorded >= minimumRequests && failureCount * 100 >= failureRatePercent * recorded) {
+                open();
+            }
+        }
+
+        private void open() {
+            openedAtNanos = System.nanoTime();
+            transition(State.Open);
+            opened.incrementAndGet();
+        }
+
+        private void resetWindow() {
+            recorded = 0;
+            next = 0;
+            failureCount = 0;
+        }
+
+        private void transition(State newState) {
+            if (state != newState) {
+                LOGGER.warn("QBO circuit breaker for realm " + realmId + " changed from " + state + " to " + newState);
+                state = newState;
+            }
+        }
+
+        private synchronized State getState() {
+            return state;
+        }
+
+        private synchronized Map<String, Object> statistics() {
+            final Map<String, Object> statistics = new LinkedHashMap<>();
+            statistics.put("state", state);
+            statistics.put("recentRequests", recorded);
+            statistics.put("recentFailures", failureCount);
+            return statistics;
+        }
+    }
+}
@@ -0,0 +1,209 @@
+package com.intuit.developer.sampleapp.timetracking.qbo;
+
+import com.intuit.ipp.core.Context;
+import com.intuit.ipp.core.IEntity;
+import com.intuit.ipp.exception.FMSException;
+import com.intuit.ipp.services.BatchOperation;
+import com.intuit.ipp.services.CDCQueryResult;
+import com.intuit.ipp.services.DataService;
+import com.intuit.ipp.services.QueryResult;
+
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A DataService for one realm that sends every request the app makes through the QBORequestExecutor (rate limiting,
+ * circuit breaker and retries), so no caller of the DataService can get around it.
+ * <p/>
+ * Queries, including change data capture queries, are idempotent. Creates, and the batches of creates the gateway sends, are not,
+ * unless the create carries a request id: QBO answers a repeated request id with the entity it created the first time.
+ * <p/>
+ * The send methods make the actual call to QBO, in the QBOWireFormat if there is one, a subclass can override them to
+ * answer the requests somewhere else.
+ */
+public class QBODataService extends DataService {
+
+    private static final Pattern QUERY_ENTITY_TYPE = Pattern.compile("\\bfrom\\s+(\\w+)", Pattern.CASE_INSENSITIVE);
+
+    private final Context context;
+
+    private final String realmId;
+
+    private final QBORequestExecutor requestExecutor;
+
+    private final QBOWireFormat wireFormat;
+
+    public QBODataService(Context context, String realmId, QBORequestExecutor requestExecutor) {
+        this(context, realmId, requestExecutor, null);
+    }
+
+    /**
+     * @param wireFormat the format of the requests, null to use the SDK's defaults from intuit-config.xml
+     */
+    public QBODataService(Context context, String realmId, QBORequestExecutor requestExecutor, QBOWireFormat wireFormat) {
+        super(context);
+        this.context = context;
+        this.realmId = realmId;
+        this.requestExecutor = requestExecutor;
+        this.wireFormat = wireFormat;
+    }
+
+    public String getRealmId() {
+        return realmId;
+    }
+
+    @Override
+    public <T extends IEntity> T add(final T entity) throws FMSException {
+        return requestExecutor.execute(realmId, "add", entityType(entity), null, false, new QBORequestExecutor.Request<T>() {
+            @Override
+            public T execute() throws FMSException {
+                return sendAdd(entity);
+            }
+        });
+    }
+
+    /**
+     * Create the entity with a request id, which makes retrying the create safe
+     */
+    public <T extends IEntity> T add(final T entity, final String requestId) throws FMSException {
+        return requestExecutor.execute(realmId, "add", entityType(entity), null, true, new QBORequestExecutor.Request<T>() {
+            @Override
+            public T execute() throws FMSException {
+                return sendAdd(entity, requestId);
+            }
+        });
+    }
+
+    @Override
+    public QueryResult executeQuery(final String query) throws FMSException {
+        return requestExecutor.execute(realmId, "executeQuery", queryEntityType(query), query, true, new QBORequestExecutor.Request<QueryResult>() {
+            @Override
+            public QueryResult execute() throws FMSException {
+                return sendQuery(query);
+            }
+        });
+    }
+
+    @Override
+    public <T extends IEntity> List<T> findAll(final T entity) throws FMSException {
+        return requestExecutor.execute(realmId, "findAll", entityType(entity), null, true, new QBORequestExecutor.Request<List<T>>() {
+            @Override
+            public List<T> execute() throws FMSException {
+                return sendFindAll(entity);
+            }
+        });
+    }
+
+    @Override
+    public List<CDCQueryResult> executeCDCQuery(final List<? extends IEntity> entities, final String changedSince) throws FMSException {
+        return requestExecutor.execute(realmId, "executeCDCQuery", entityTypes(entities), "changedSince=" + changedSince, true, new QBORequestExecutor.Request<List<CDCQueryResult>>() {
+            @Override
+            public List<CDCQueryResult> execute() throws FMSException {
+                return sendCDCQuery(entities, changedSince);
+            }
+        });
+    }
+
+    @Override
+    public void executeBatch(final BatchOperation batchOperation) throws FMSException {
+        requestExecutor.execute(realmId, "executeBatch", "Batch", null, false, new QBORequestExecutor.Request<Void>() {
+            @Override
+            public Void execute() throws FMSException {
+                sendBatch(batchOperation);
+                return null;
+            }
+        });
+    }
+
+    /**
+     * Execute the batch with a request id, which makes retrying the batch safe
+     */
+    public void executeBatch(final BatchOperation batchOperation, final String requestId) throws FMSException {
+        requestExecutor.execute(realmId, "executeBatch", "Batch", null, true, new QBORequestExecutor.Request<Void>() {
+            @Override
+            public Void execute() throws FMSException {
+                sendBatch(batchOperation, requestId);
+                return null;
+            }
+        });
+    }
+
+    protected <T extends IEntity> T sendAdd(T entity) throws FMSException {
+        applyWireFormat();
+        return super.add(entity);
+    }
+
+    protected <T extends IEntity> T sendAdd(T entity, String requestId) throws FMSException {
+        applyWireFormat();
+        return new DataService(requestContext(requestId)).add(entity);
+    }
+
+    protected QueryResult sendQuery(String query) throws FMSException {
+        applyWireFormat();
+        return super.executeQuery(query);
+    }
+
+    protected <T extends IEntity> List<T> sendFindAll(T entity) throws FMSException {
+        applyWireFormat();
+        return super.findAll(entity);
+    }
+
+    protected List<CDCQueryResult> sendCDCQuery(List<? extends IEntity> entities, String changedSince) throws FMSException {
+        applyWireFormat();
+        return super.executeCDCQuery(entities, changedSince);
+    }
+
+    protected void sendBatch(BatchOperation batchOperation) throws FMSException {
+        applyWireFormat();
+        super.executeBatch(batchOperation);
+    }
+
+    protected void sendBatch(BatchOperation batchOperation, String requestId) throws FMSException {
+        applyWireFormat();
+        new DataService(requestContext(requestId)).executeBatch(batchOperation);
+    }
+
+    /**
+     * The request id is kept by the Context, so a request with a request id gets a Context of its own rather than
+     * changing the one that is shared by all requests to the realm
+     */
+    private Context requestContext(String requestId) throws FMSException {
+        final Context requestContext = new Context(context.getAuthorizer(), context.getIntuitServiceType(), context.getRealmID());
+        requestContext.setRequestID(requestId);
+        return requestContext;
+    }
+
+    private static String entityType(IEntity entity) {
+        return entity.getClass().getSimpleName();
+    }
+
+    private static String entityTypes(List<? extends IEntity> entities) {
+        final StringBuilder entityTypes = new StringBuilder();
+        for (IEntity entity : entities) {
+            if (entityTypes.length() > 0) {
+                entityTypes.append(",");
+            }
+            entityTypes.append(entityType(entity));
+        }
+        return entityTypes.toString();
+    }
+
+    /**
+     * @return the entity type a query selects from, capitalized like the entity classes, e.g. "Customer"
+     */
+    private static String queryEntityType(String query) {
+        final Matcher matcher = QUERY_ENTITY_TYPE.matcher(query);
+        if (!matcher.find()) {
+            return null;
+        }
+        final String entityType = matcher.group(1);
+        return Character.toUpperCase(entityType.charAt(0)) + entityType.substring(1);
+    }
+
+    private void applyWireFormat() {
+        if (wireFormat != null) {
+            wireFormat.apply();
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package com.intuit.developer.sampleapp.timetracking.qbo;
 
+import com.intuit.developer.sampleapp.timetracking.domain.Company;
 import com.intuit.developer.sampleapp.timetracking.domain.Customer;
 import com.intuit.developer.sampleapp.timetracking.domain.Employee;
 import com.intuit.developer.sampleapp.timetracking.domain.Invoice;
@@ -10,14 +11,24 @@ import com.intuit.developer.sampleapp.timetracking.repository.*;
 import com.intuit.ipp.core.IEntity;
 import com.intuit.ipp.data.*;
 import com.intuit.ipp.exception.FMSException;
+import com.intuit.ipp.services.BatchOperation;
+import com.intuit.ipp.services.CDCQueryResult;
 import com.intuit.ipp.services.DataService;
 import com.intuit.ipp.services.QueryResult;
+import org.joda.time.format.ISODateTimeFormat;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 
 import java.lang.Class;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
 import java.util.List;
+import java.util.UUID;
 
 /**
  * Created with IntelliJ IDEA.
@@ -47,86 +58,701 @@ public class QBOGateway {
     @Autowired
     private InvoiceRepository invoiceRepository;
 
+    @Autowired
+    private ReferenceDataCache referenceDataCache;
+
+    @Autowired
+    private QBOMetrics metrics;
+
+    //match entities against the ones that already exist in QBO before they are created, see createEmployeeInQBO and
+    //syncInBatches
+    @Value("${qbo.sync.reconcile:false}")
+    private boolean reconcile = false;
+
+    //the most lines a single QBO invoice is created with, see createInvoiceInQBO
+    @Value("${qbo.invoice.maxLines:500}")
+    private int invoiceMaxLines = 500;
+
     public void createEmployeeInQBO(Employee employee) {
+        final QBOMetrics.Timer timer = metrics.startGatewayOperation("createEmployeeInQBO", "Employee", realmId(employee.getCompany()));
+        try {
+            QBODataService dataService = dataServiceFactory.getDataService(employee.getCompany());
 
-        DataService dataService = dataServiceFactory.getDataService(employee.getCompany());
+            /* The create carries the employee's request id, so when a sync is retried QBO returns the employee it already
+               created rather than creating it again.
 
-        /* In order to prevent syncing the same data into QBO more than once, query to see if the entity already exists.
-           This solution is only meant to provide a better sample app experience (e.g. if you wipe out your database,
-           we don't want the sample app to keep creating the same data over and over in QBO).
+               Entities that already exist in QBO but are unknown to the app (e.g. if you wipe out your database) are only
+               found when reconciliation is switched on (qbo.sync.reconcile), at the cost of a query before every create.
 
-           In a production app keeping data in two systems in sync is a difficult problem to solve; this code is not
-           meant to demonstrate production quality sync functionality.
+               In a production app keeping data in two systems in sync is a difficult problem to solve; this code is not
+               meant to demonstrate production quality sync functionality.
 
-         */
-        com.intuit.ipp.data.Employee returnedQBOObject = findExistingEmployee(dataService, employee);
-        if (returnedQBOObject == null) {
-            final com.intuit.ipp.data.Employee qboObject = EmployeeMapper.buildQBOObject(employee);
-            returnedQBOObject = createObjectInQBO(dataService, qboObject);
-        }
+             */
+            com.intuit.ipp.data.Employee returnedQBOObject = reconcile ? findExistingEmployee(dataService, employee) : null;
+            if (returnedQBOObject == null) {
+                if (employee.getQboRequestId() == null) {
+                    employee.setQboRequestId(UUID.randomUUID().toString());
+                    employeeRepository.save(employee);
+                }
 
-        employee.setQboId(returnedQBOObject.getId());
-        employeeRepository.save(employee);
+                final com.intuit.ipp.data.Employee qboObject = EmployeeMapper.buildQBOObject(employee);
+                returnedQBOObject = createObjectInQBO(dataService, qboObject, employee.getQboRequestId());
+            }
+
+            employee.setQboId(returnedQBOObject.getId());
+            employeeRepository.save(employee);
+        } catch (RuntimeException e) {
+            timer.failed();
+            throw e;
+        } finally {
+            timer.stop();
+        }
     }
 
 
     public void createCustomerInQBO(Customer customer) {
-        DataService dataService = dataServiceFactory.getDataService(customer.getCompany());
+        final QBOMetrics.Timer timer = metrics.startGatewayOperation("createCustomerInQBO", "Customer", realmId(customer.getCompany()));
+        try {
+            QBODataService dataService = dataServiceFactory.getDataService(customer.getCompany());
+
+            /* Retried creates are safe because of the customer's request id, see createEmployeeInQBO */
 
+            com.intuit.ipp.data.Customer returnedQBOObject = reconcile ? findExistingCustomer(dataService, customer) : null;
+            if (returnedQBOObject == null) {
+                if (customer.getQboRequestId() == null) {
+                    customer.setQboRequestId(UUID.randomUUID().toString());
+                    customerRepository.save(customer);
+                }
 
-        /* In order to prevent syncing the same data into QBO more than once, query to see if the entity already exists.
-           This solution is only meant to provide a better sample app experience (e.g. if you wipe out your database,
-           we don't want the sample app to keep creating the same data over and over in QBO).
+                final com.intuit.ipp.data.Customer qboObject = CustomerMapper.buildQBOObject(customer);
+                returnedQBOObject = createObjectInQBO(dataService, qboObject, customer.getQboRequestId());
+            }
 
-           In a production app keeping data in two systems in sync is a difficult problem to solve; this code is not
-           meant to demonstrate production quality sync functionality.
+            customer.setQboId(returnedQBOObject.getId());
+            customerRepository.save(customer);
+        } catch (RuntimeException e) {
+            timer.failed();
+            throw e;
+        } finally {
+            timer.stop();
+        }
+    }
 
-         */
 
-        com.intuit.ipp.data.Customer returnedQBOObject = findExistingCustomer(dataService, customer);
-        if (returnedQBOObject == null) {
-            final com.intuit.ipp.data.Customer qboObject = CustomerMapper.buildQBOObject(customer);
-            returnedQBOObject = createObjectInQBO(dataService, qboObject);
+    public void createItemInQBO(ServiceItem serviceItem) {
+        final QBOMetrics.Timer timer = metrics.startGatewayOperation("createItemInQBO", "Item", realmId(serviceItem.getCompany()));
+        try {
+            QBODataService dataService = dataServiceFactory.getDataService(serviceItem.getCompany());
+
+            /* Retried creates are safe because of the service item's request id, see createEmployeeInQBO */
+
+            com.intuit.ipp.data.Item returnedQBOObject = reconcile ? findExistingServiceItem(dataService, serviceItem) : null;
+            if (returnedQBOObject == null) {
+                if (serviceItem.getQboRequestId() == null) {
+                    serviceItem.setQboRequestId(UUID.randomUUID().toString());
+                    serviceItemRepository.save(serviceItem);
+                }
+
+                // copy SalesItem to QBO Item
+                Item qboItem = ServiceItemMapper.buildQBOObject(serviceItem);
+
+                // find an Income Account to associate with QBO item
+                ReferenceType accountRef = findAccountReference(dataService, serviceItem.getCompany(), AccountTypeEnum.INCOME, "ServiceFeeIncome");
+                qboItem.setIncomeAccountRef(accountRef);
+
+                // save the item in OBO
+                returnedQBOObject = createObjectInQBO(dataService, qboItem, serviceItem.getQboRequestId());
+            }
+
+            // update the SalesItem in app
+            serviceItem.setQboId(returnedQBOObject.getId());
+            serviceItemRepository.save(serviceItem);
+        } catch (RuntimeException e) {
+            timer.failed();
+            throw e;
+        } finally {
+            timer.stop();
         }
+    }
 
-        customer.setQboId(returnedQBOObject.getId());
-        customerRepository.save(customer);
+    /**
+     * The maximum number of operations QBO accepts in a single batch request
+     */
+    public static final int MAX_BATCH_SIZE = 30;
+
+    /**
+     * Sync a set of employees using batch requests, see syncInBatches
+     */
+    public BatchSyncResult createEmployeesInQBO(Company company, List<Employee> employees) {
+        return createEmployeesInQBO(company, employees, null);
     }
 
+    public BatchSyncResult createEmployeesInQBO(Company company, List<Employee> employees, BatchSyncListener listener) {
+        return createEmployeesInQBO(company, onePage(employees), listener);
+    }
 
-    public void createItemInQBO(ServiceItem serviceItem) {
-        DataService dataService = dataServiceFactory.getDataService(serviceItem.getCompany());
+    public BatchSyncResult createEmployeesInQBO(Company company, EntityPages<Employee> employees, BatchSyncListener listener) {
+        final QBOMetrics.Timer timer = metrics.startGatewayOperation("createEmployeesInQBO", "Employee", realmId(company));
+        try {
+            return syncInBatches(company, employees, listener, new BatchSyncHandler<Employee>() {
+                @Override
+                public String describe(Employee employee) {
+                    return "Employee " + employee.getFirstName() + " " + employee.getLastName();
+                }
 
+                @Override
+                public String activeEntitiesQuery() {
+                    return ACTIVE_EMPLOYEES_QUERY;
+                }
 
-        /* In order to prevent syncing the same data into QBO more than once, query to see if the entity already exists.
-           This solution is only meant to provide a better sample app experience (e.g. if you wipe out your database,
-           we don't want the sample app to keep creating the same data over and over in QBO).
+                @Override
+                public String indexKey(Employee employee) {
+                    return ExistingEntityIndex.key(employee.getFirstName(), employee.getLastName());
+                }
 
-           In a production app keeping data in two systems in sync is a difficult problem to solve; this code is not
-           meant to demonstrate production quality sync functionality.
+                @Override
+                public String indexKey(IntuitEntity qboObject) {
+                    final com.intuit.ipp.data.Employee qboEmployee = (com.intuit.ipp.data.Employee) qboObject;
+                    return ExistingEntityIndex.key(qboEmployee.getGivenName(), qboEmployee.getFamilyName());
+                }
 
-         */
+                @Override
+                public IEntity buildQBOObject(DataService dataService, Employee employee) {
+                    return EmployeeMapper.buildQBOObject(employee);
+                }
 
-        com.intuit.ipp.data.Item returnedQBOObject = findExistingServiceItem(dataService, serviceItem);
-        if (returnedQBOObject == null) {
-            // copy SalesItem to QBO Item
-            Item qboItem = ServiceItemMapper.buildQBOObject(serviceItem);
+                @Override
+                public void setQboId(Employee employee, String qboId) {
+                    employee.setQboId(qboId);
+                }
 
-            // find an Income Account to associate with QBO item
-            ReferenceType accountRef = findAccountReference(dataService, AccountTypeEnum.INCOME, "ServiceFeeIncome");
-            qboItem.setIncomeAccountRef(accountRef);
+                @Override
+                public String getQboRequestId(Employee employee) {
+                    return employee.getQboRequestId();
+                }
+
+                @Override
+                public void setQboRequestId(Employee employee, String qboRequestId) {
+                    employee.setQboRequestId(qboRequestId);
+                }
 
-            // save the item in OBO
-            returnedQBOObject = createObjectInQBO(dataService, qboItem);
+                @Override
+                public void saveAll(List<Employee> employees) {
+                    employeeRepository.save(employees);
+                }
+            });
+        } catch (RuntimeException e) {
+            timer.failed();
+            throw e;
+        } finally {
+            timer.stop();
         }
+    }
+
+    /**
+     * Sync a set of customers using batch requests, see syncInBatches
+     */
+    public BatchSyncResult createCustomersInQBO(Company company, List<Customer> customers) {
+        return createCustomersInQBO(company, customers, null);
+    }
 
-        // update the SalesItem in app
-        serviceItem.setQboId(returnedQBOObject.getId());
-        serviceItemRepository.save(serviceItem);
+    public BatchSyncResult createCustomersInQBO(Company company, List<Customer> customers, BatchSyncListener listener) {
+        return createCustomersInQBO(company, onePage(customers), listener);
+    }
+
+    public BatchSyncResult createCustomersInQBO(Company company, EntityPages<Customer> customers, BatchSyncListener listener) {
+        final QBOMetrics.Timer timer = metrics.startGatewayOperation("createCustomersInQBO", "Customer", realmId(company));
+        try {
+            return syncInBatches(company, customers, listener, new BatchSyncHandler<Customer>() {
+                @Override
+                public String describe(Customer customer) {
+                    return "Customer " + customer.getFirstName() + " " + customer.getLastName();
+                }
+
+                @Override
+                public String activeEntitiesQuery() {
+                    return ACTIVE_CUSTOMERS_QUERY;
+                }
+
+                @Override
+                public String indexKey(Customer customer) {
+                    return ExistingEntityIndex.key(customer.getFirstName(), customer.getLastName());
+                }
+
+                @Override
+                public String indexKey(IntuitEntity qboObject) {
+                    final com.intuit.ipp.data.Customer qboCustomer = (com.intuit.ipp.data.Customer) qboObject;
+                    return ExistingEntityIndex.key(qboCustomer.getGivenName(), qboCustomer.getFamilyName());
+                }
+
+                @Override
+                public IEntity buildQBOObject(DataService dataService, Customer customer) {
+                    return CustomerMapper.buildQBOObject(customer);
+                }
+
+                @Override
+                public void setQboId(Customer customer, String qboId) {
+                    customer.setQboId(qboId);
+                }
+
+                @Override
+                public String getQboRequestId(Customer customer) {
+                    return customer.getQboRequestId();
+                }
+
+                @Override
+                public void setQboRequestId(Customer customer, String qboRequestId) {
+                    customer.setQboRequestId(qboRequestId);
+                }
+
+                @Override
+                public void saveAll(List<Customer> customers) {
+                    customerRepository.save(customers);
+                }
+            });
+        } catch (RuntimeException e) {
+            timer.failed();
+            throw e;
+        } finally {
+            timer.stop();
+        }
+    }
+
+    /**
+     * Sync a set of service items using batch requests, see syncInBatches
+     */
+    public BatchSyncResult createItemsInQBO(Company company, List<ServiceItem> serviceItems) {
+        return createItemsInQBO(company, serviceItems, null);
+    }
+
+    public BatchSyncResult createItemsInQBO(Company company, List<ServiceItem> serviceItems, BatchSyncListener listener) {
+        return createItemsInQBO(company, onePage(serviceItems), listener);
+    }
+
+    public BatchSyncResult createItemsInQBO(Company company, EntityPages<ServiceItem> serviceItems, BatchSyncListener listener) {
+        final QBOMetrics.Timer timer = metrics.startGatewayOperation("createItemsInQBO", "Item", realmId(company));
+        try {
+            return syncInBatches(company, serviceItems, listener, new BatchSyncHandler<ServiceItem>() {
+
+                //only looked up once per sync, and only if an item actually needs to be created
+                private ReferenceType incomeAccountRef;
+
+                @Override
+                public String describe(ServiceItem serviceItem) {
+                    return "ServiceItem " + serviceItem.getName();
+                }
+
+                @Override
+                public String activeEntitiesQuery() {
+                    return ACTIVE_SERVICE_ITEMS_QUERY;
+                }
+
+                @Override
+                public String indexKey(ServiceItem serviceItem) {
+                    return ExistingEntityIndex.key(serviceItem.getName());
+                }
+
+                @Override
+                public String indexKey(IntuitEntity qboObject) {
+                    return ExistingEntityIndex.key(((Item) qboObject).getName());
+                }
+
+                @Override
+                public IEntity buildQBOObject(DataService dataService, ServiceItem serviceItem) {
+                    if (incomeAccountRef == null) {
+                        incomeAccountRef = findAccountReference(dataService, serviceItem.getCompany(), AccountTypeEnum.INCOME, "ServiceFeeIncome");
+                    }
+
+                    Item qboItem = ServiceItemMapper.buildQBOObject(serviceItem);
+                    qboItem.setIncomeAccountRef(incomeAccountRef);
+                    return qboItem;
+                }
+
+                @Override
+                public void setQboId(ServiceItem serviceItem, String qboId) {
+                    serviceItem.setQboId(qboId);
+                }
+
+                @Override
+                public String getQboRequestId(ServiceItem serviceItem) {
+                    return serviceItem.getQboRequestId();
+                }
+
+                @Override
+                public void setQboRequestId(ServiceItem serviceItem, String qboRequestId) {
+                    serviceItem.setQboRequestId(qboRequestId);
+                }
+
+                @Override
+                public void saveAll(List<ServiceItem> serviceItems) {
+                    serviceItemRepository.save(serviceItems);
+                }
+            });
+        } catch (RuntimeException e) {
+            timer.failed();
+            throw e;
+        } finally {
+            timer.stop();
+        }
+    }
+
+    /**
+     * Sync entities to QBO using batch creates.
+     * <p/>
+     * The entities are created in chunks of MAX_BATCH_SIZE, one batch request per chunk. Every batch carries a request
+     * id derived from the request ids of its entities (see chunkRequestId), so QBO answers a chunk that is sent again
+     * with the entities it already created.
+     * <p/>
+     * Only when reconciliation is switched on (qbo.sync.reconcile) are entities that already exist in QBO but are
+     * unknown to the app matched first: an index of them is built with one paged query per ACTIVE_ENTITIES_PAGE_SIZE
+     * entities in QBO (see loadExistingEntityIndex), and every entity to sync is checked against it locally.
+     * <p/>
+     * A fault on a single batch item only fails that entity, a failure of a whole batch request fails the entities in
+     * that chunk; either way the remaining chunks are still synced and the failures are reported in the returned
+     * BatchSyncResult.
+     * <p/>
+     * The entities are synced a page at a time, as they are read from the EntityPages.
+     */
+    private <D> BatchSyncResult syncInBatches(Company company, EntityPages<D> pages, BatchSyncListener listener, BatchSyncHandler<D> handler) {
+        final BatchSyncResult result = new BatchSyncResult();
+
+        List<D> page = pages.next();
+        if (page.isEmpty()) {
+            return result;
+        }
+
+        QBODataService dataService = dataServiceFactory.getDataService(company);
+
+        final ExistingEntityIndex existingEntities;
+        if (!reconcile) {
+            existingEntities = new ExistingEntityIndex();
+        } else {
+            try {
+                existingEntities = loadExistingEntityIndex(dataService, handler);
+            } catch (RuntimeException e) {
+                LOGGER.error("Failed to load existing entities from QBO", e);
+                for (; !page.isEmpty(); page = pages.next()) {
+                    for (D entity : page) {
+                        result.recordFailure(handler.describe(entity), e.getMessage());
+                    }
+                }
+                return result;
+            }
+        }
+
+        //the index is loaded once, every page is matched against it
+        for (; !page.isEmpty(); page = pages.next()) {
+            syncPage(dataService, page, existingEntities, listener, handler, result);
+        }
+
+        return result;
+    }
+
+    private <D> void syncPage(QBODataService dataService, List<D> entities, ExistingEntityIndex existingEntities,
+                              BatchSyncListener listener, BatchSyncHandler<D> handler, BatchSyncResult result) {
+        final List<D> existing = new ArrayList<>();
+        final List<D> toCreate = new ArrayList<>();
+
+        for (D entity : entities) {
+            final IntuitEntity existingQBOObject = existingEntities.find(handler.indexKey(entity));
+            if (existingQBOObject != null) {
+                handler.setQboId(entity, existingQBOObject.getId());
+                existing.add(entity);
+            } else {
+                toCreate.add(entity);
+            }
+        }
+
+        saveSynced(existing, handler, result);
+        notifyProgress(listener, result);
+
+        for (int from = 0; from < toCreate.size(); from += MAX_BATCH_SIZE) {
+            final List<D> chunk = toCreate.subList(from, Math.min(from + MAX_BATCH_SIZE, toCreate.size()));
+            createChunk(dataService, chunk, handler, chunkRequestId(chunk, handler), result);
+            notifyProgress(listener, result);
+        }
+    }
+
+    /**
+     * Give the entities of the chunk that have no request id yet one and save it, then derive the chunk's request id
+     * from them. A chunk that is sent again after its batch request failed has the same entities and so the same
+     * request id.
+     */
+    private <D> String chunkRequestId(List<D> chunk, BatchSyncHandler<D> handler) {
+        final List<D> assigned = new ArrayList<>();
+        final StringBuilder requestIds = new StringBuilder();
+
+        for (D entity : chunk) {
+            if (handler.getQboRequestId(entity) == null) {
+                handler.setQboRequestId(entity, UUID.randomUUID().toString());
+                assigned.add(entity);
+            }
+            requestIds.append(handler.getQboRequestId(entity)).append(',');
+        }
+
+        if (!assigned.isEmpty()) {
+            handler.saveAll(assigned);
+        }
+
+        return UUID.nameUUIDFromBytes(requestIds.toString().getBytes(StandardCharsets.UTF_8)).toString();
+    }
+
+    private static <D> EntityPages<D> onePage(final List<D> entities) {
+        return new EntityPages<D>() {
+            private boolean returned;
+
+            @Override
+            public List<D> next() {
+                if (returned) {
+                    return Collections.emptyList();
+                }
+                returned = true;
+                return entities;
+            }
+        };
+    }
+
+    /**
+     * QBO returns at most 1000 entities per query
+     */
+    public static final int ACTIVE_ENTITIES_PAGE_SIZE = 1000;
+
+    public static final String ACTIVE_EMPLOYEES_QUERY = "select * from employee where active = true startposition %d maxresults %d";
+    public static final String ACTIVE_CUSTOMERS_QUERY = "select * from customer where active = true startposition %d maxresults %d";
+    public static final String ACTIVE_SERVICE_ITEMS_QUERY = "select * from item where active = true startposition %d maxresults %d";
+
+    /**
+     * Page through all active entities of the handler's type and index them by name
+     */
+    private <D> ExistingEntityIndex loadExistingEntityIndex(DataService dataService, BatchSyncHandler<D> handler) {
+        final ExistingEntityIndex index = new ExistingEntityIndex();
+
+        int startPosition = 1;
+        while (true) {
+            final String query = String.format(handler.activeEntitiesQuery(), startPosition, ACTIVE_ENTITIES_PAGE_SIZE);
+            final List<? extends IEntity> page = executeQueryForAll(dataService, query);
+
+            for (IEntity entity : page) {
+                final IntuitEntity qboObject = (IntuitEntity) entity;
+                index.add(handler.indexKey(qboObject), qboObject);
+            }
+
+            if (page.size() < ACTIVE_ENTITIES_PAGE_SIZE) {
+                return index;
+            }
+            startPosition += ACTIVE_ENTITIES_PAGE_SIZE;
+        }
+    }
+
+    /**
+     * @param requestId the request id of the batch, null to send it without one
+     */
+    private <D> void createChunk(QBODataService dataService, List<D> chunk, BatchCreateHandler<D> handler, String requestId,
+                                 BatchSyncResult result) {
+        final List<D> synced = new ArrayList<>();
+
+        try {
+            final BatchOperation createBatch = new BatchOperation();
+            for (int i = 0; i < chunk.size(); i++) {
+                createBatch.addEntity(handler.buildQBOObject(dataService, chunk.get(i)), OperationEnum.CREATE, "create" + i);
+            }
+
+            executeBatch(dataService, createBatch, requestId);
+
+            for (int i = 0; i < chunk.size(); i++) {
+                final D entity = chunk.get(i);
+                final String bId = "create" + i;
+
+                if (createBatch.isFault(bId)) {
+                    result.recordFailure(handler.describe(entity), faultMessage(createBatch.getFault(bId)));
+                } else {
+                    handler.setQboId(entity, ((IntuitEntity) createBatch.getEntity(bId)).getId());
+                    synced.add(entity);
+                }
+            }
+
+        } catch (RuntimeException e) {
+            LOGGER.error("Batch create request failed", e);
+            for (D entity : chunk) {
+                result.recordFailure(handler.describe(entity), e.getMessage());
+            }
+        }
+
+        saveSynced(synced, handler, result);
+    }
+
+    private void notifyProgress(BatchSyncListener listener, BatchSyncResult result) {
+        if (listener != null) {
+            listener.progress(result);
+        }
+    }
+
+    private <D> void saveSynced(List<D> synced, BatchCreateHandler<D> handler, BatchSyncResult result) {
+        if (synced.isEmpty()) {
+            return;
+        }
+
+        handler.saveAll(synced);
+        for (int i = 0; i < synced.size(); i++) {
+            result.recordSuccess();
+        }
+    }
+
+    private void executeBatch(QBODataService dataService, BatchOperation batchOperation, String requestId) {
+        try {
+            if (requestId != null) {
+                dataService.executeBatch(batchOperation, requestId);
+            } else {
+                dataService.executeBatch(batchOperation);
+            }
+        } catch (FMSException e) {
+            throw new RuntimeException("Failed to execute a batch request", e);
+        }
+    }
+
+    private String faultMessage(Fault fault) {
+        if (fault == null || fault.getError() == null || fault.getError().isEmpty()) {
+            return "Unknown fault";
+        }
+
+        StringBuilder message = new StringBuilder();
+        for (com.intuit.ipp.data.Error error : fault.getError()) {
+            if (message.length() > 0) {
+                message.append("; ");
+            }
+            message.append(error.getMessage());
+            if (error.getDetail() != null) {
+                message.append(": ").append(error.getDetail());
+            }
+        }
+        return message.toString();
+    }
+
+    /**
+     * Entity specific pieces of a batch create
+     */
+    private interface BatchCreateHandler<D> {
+        String describe(D entity);
+
+        IEntity buildQBOObject(DataService dataService, D entity);
+
+        void setQboId(D entity, String qboId);
+
+        void saveAll(List<D> entities);
+    }
+
+    /**
+     * Entity specific pieces of the batch sync, which also matches entities that already exist in QBO
+     */
+    private interface BatchSyncHandler<D> extends BatchCreateHandler<D> {
+        /**
+         * A query for all active entities of this type, with placeholders for STARTPOSITION and MAXRESULTS
+         */
+        String activeEntitiesQuery();
+
+        String indexKey(D entity);
+
+        String indexKey(IntuitEntity qboObject);
+
+        String getQboRequestId(D entity);
+
+        void setQboRequestId(D entity, String qboRequestId);
     }
 
     public void createTimeActivityInQBO(TimeActivity timeActivity) {
-        DataService dataService = dataServiceFactory.getDataService(timeActivity.getCompany());
+        final QBOMetrics.Timer timer = metrics.startGatewayOperation("createTimeActivityInQBO", "TimeActivity", realmId(timeActivity.getCompany()));
+        try {
+            DataService dataService = dataServiceFactory.getDataService(timeActivity.getCompany());
+            final com.intuit.ipp.data.TimeActivity qboObject = buildQBOTimeActivity(timeActivity);
+
+            final com.intuit.ipp.data.TimeActivity returnedQboObject = createObjectInQBO(dataService, qboObject);
+
+            timeActivity.setQboId(returnedQboObject.getId());
+            timeActivityRepository.save(timeActivity);
+        } catch (RuntimeException e) {
+            timer.failed();
+            throw e;
+        } finally {
+            timer.stop();
+        }
+    }
+
+    /**
+     * Push time activities that are not in QBO yet using batch requests.
+     * <p/>
+     * Time activities are never matched against existing QBO entities, they only exist in QBO if this app created them.
+     * A time activity whose employee, customer or service item is not in QBO yet can't be pushed and is reported as a failure, it
+     * stays pending until the next push.
+     */
+    public BatchSyncResult createTimeActivitiesInQBO(Company company, List<TimeActivity> timeActivities, BatchSyncListener listener) {
+        return createTimeActivitiesInQBO(company, onePage(timeActivities), listener);
+    }
+
+    public BatchSyncResult createTimeActivitiesInQBO(Company company, EntityPages<TimeActivity> timeActivities, BatchSyncListener listener) {
+        final QBOMetrics.Timer timer = metrics.startGatewayOperation("createTimeActivitiesInQBO", "TimeActivity", realmId(company));
+        try {
+            final BatchCreateHandler<TimeActivity> handler = new BatchCreateHandler<TimeActivity>() {
+                @Override
+                public String describe(TimeActivity timeActivity) {
+                    return QBOGateway.this.describe(timeActivity);
+                }
+
+                @Override
+                public IEntity buildQBOObject(DataService dataService, TimeActivity timeActivity) {
+                    return buildQBOTimeActivity(timeActivity);
+                }
+
+                @Override
+                public void setQboId(TimeActivity timeActivity, String qboId) {
+                    timeActivity.setQboId(qboId);
+                }
+
+                @Override
+                public void saveAll(List<TimeActivity> timeActivities) {
+                    timeActivityRepository.save(timeActivities);
+                }
+            };
+
+            final BatchSyncResult result = new BatchSyncResult();
+            QBODataService dataService = null;
+
+            for (List<TimeActivity> page = timeActivities.next(); !page.isEmpty(); page = timeActivities.next()) {
+                final List<TimeActivity> toCreate = new ArrayList<>();
+
+                for (TimeActivity timeActivity : page) {
+                    if (timeActivity.getEmployee().getQboId() == null || timeActivity.getCustomer().getQboId() == null
+                            || timeActivity.getServiceItem().getQboId() == null) {
+                        result.recordFailure(describe(timeActivity), "The employee, customer or service item has not been synced to QBO");
+                    } else {
+                        toCreate.add(timeActivity);
+                    }
+                }
+
+                if (toCreate.isEmpty()) {
+                    continue;
+                }
+
+                if (dataService == null) {
+                    dataService = dataServiceFactory.getDataService(company);
+                }
+
+                for (int from = 0; from < toCreate.size(); from += MAX_BATCH_SIZE) {
+                    final List<TimeActivity> chunk = toCreate.subList(from, Math.min(from + MAX_BATCH_SIZE, toCreate.size()));
+                    createChunk(dataService, chunk, handler, null, result);
+                    notifyProgress(listener, result);
+                }
+            }
+
+            return result;
+        } catch (RuntimeException e) {
+            timer.failed();
+            throw e;
+        } finally {
+            timer.stop();
+        }
+    }
+
+    private com.intuit.ipp.data.TimeActivity buildQBOTimeActivity(TimeActivity timeActivity) {
         final com.intuit.ipp.data.TimeActivity qboObject = TimeActivityMapper.buildQBOObject(timeActivity);
 
         /* I'm setting to Not Billable because I don't want this time time activity to show up on the QBO Create Invoice
@@ -134,37 +760,158 @@ public class QBOGateway {
          */
         qboObject.setBillableStatus(BillableStatusEnum.NOT_BILLABLE);
         qboObject.setNameOf(TimeActivityTypeEnum.EMPLOYEE);
+        return qboObject;
+    }
 
-        final com.intuit.ipp.data.TimeActivity returnedQboObject = createObjectInQBO(dataService, qboObject);
+    private static String realmId(Company company) {
+        return company != null ? company.getQboId() : null;
+    }
 
-        timeActivity.setQboId(returnedQboObject.getId());
-        timeActivityRepository.save(timeActivity);
+    private String describe(TimeActivity timeActivity) {
+        return "TimeActivity of " + timeActivity.getEmployee().getFirstName() + " " + timeActivity.getEmployee().getLastName()
+                + " on " + timeActivity.getDate() + " for " + timeActivity.getMinutes() + " minutes";
     }
 
     public void createInvoiceInQBO(Invoice invoice) {
-        DataService dataService = dataServiceFactory.getDataService(invoice.getCompany());
-        final com.intuit.ipp.data.Invoice qboObject = InvoiceMapper.buildQBOObject(invoice);
+        final QBOMetrics.Timer timer = metrics.startGatewayOperation("createInvoiceInQBO", "Invoice", realmId(invoice.getCompany()));
+        try {
+            QBODataService dataService = dataServiceFactory.getDataService(invoice.getCompany());
+            final com.intuit.ipp.data.Invoice qboObject = InvoiceMapper.buildQBOObject(invoice);
+
+            //find a net 30 term, should exist by default
+            ReferenceType termsRef = findTermsReference(dataService, invoice.getCompany(), "STANDARD", 30);
+            qboObject.setSalesTermRef(termsRef);
+
+            if (invoice.getQboRequestId() == null) {
+                invoice.setQboRequestId(UUID.randomUUID().toString());
+                invoiceRepository.save(invoice);
+            }
+
+            if (qboObject.getLine().size() > invoiceMaxLines) {
+                createInvoiceInQBOInParts(dataService, invoice, qboObject);
+                return;
+            }
 
-        //find a net 30 term, should exist by default
-        ReferenceType termsRef = findTermsReference(dataService, "STANDARD", 30);
-        qboObject.setSalesTermRef(termsRef);
+            //an invoice whose submission was interrupted after the create is sent again with the same request id, so
+            //QBO doesn't create it twice
+            final com.intuit.ipp.data.Invoice returnedQBOObject = createObjectInQBO(dataService, qboObject, invoice.getQboRequestId());
 
-        final com.intuit.ipp.data.Invoice returnedQBOObject = createObjectInQBO(dataService, qboObject);
+            invoice.setQboId(returnedQBOObject.getId());
+            invoice.setStatus(InvoiceStatus.Billed);
+            invoiceRepository.save(invoice);
+        } catch (RuntimeException e) {
+            timer.failed();
+            throw e;
+        } finally {
+            timer.stop();
+        }
+    }
 
-        invoice.setQboId(returnedQBOObject.getId());
+    /**
+     * Create an invoice that has more lines than invoiceMaxLines as several QBO invoices, the lines are split in order.
+     * <p/>
+     * The id of every part is saved as soon as the part is created and every part has its own request id, so when the
+     * submission is interrupted and retried it continues with the first part that is missing. The invoice's qboId is
+     * the id of the first part and is only set once all parts are created.
+     */
+    private void createInvoiceInQBOInParts(QBODataService dataService, Invoice invoice, com.intuit.ipp.data.Invoice qboObject) {
+        final List<Line> lines = qboObject.getLine();
+        final int parts = (lines.size() + invoiceMaxLines - 1) / invoiceMaxLines;
+
+        for (int part = invoice.getQboPartIds().size(); part < parts; part++) {
+            final com.intuit.ipp.data.Invoice qboPart = new com.intuit.ipp.data.Invoice();
+            qboPart.setCustomerRef(qboObject.getCustomerRef());
+            qboPart.setSalesTermRef(qboObject.getSalesTermRef());
+            qboPart.setPrivateNote("Part " + (part + 1) + " of " + parts);
+
+            final int from = part * invoiceMaxLines;
+            for (Line line : lines.subList(from, Math.min(from + invoiceMaxLines, lines.size()))) {
+                qboPart.getLine().add(line);
+                line.setLineNum(BigInteger.valueOf(qboPart.getLine().size()));
+            }
+
+            final com.intuit.ipp.data.Invoice returnedQBOObject = createObjectInQBO(dataService, qboPart,
+                    invoice.getQboRequestId() + "-" + part);
+
+            invoice.addQboPartId(returnedQBOObject.getId());
+            invoiceRepository.save(invoice);
+        }
+
+        invoice.setQboId(invoice.getQboPartIds().get(0));
         invoice.setStatus(InvoiceStatus.Billed);
         invoiceRepository.save(invoice);
     }
 
+    public static final int MAX_CHANGED_ENTITIES_PER_TYPE = 1000;
+
+    /**
+     * Query the customers, employees and items that were changed in QBO since the given time, including deleted ones,
+     * through the ChangeDataCapture endpoint. QBO only keeps changes for the last 30 days and returns at most
+     * MAX_CHANGED_ENTITIES_PER_TYPE changed entities of each type.
+     */
+    public List<IntuitEntity> findChangedEntities(Company company, Date changedSince) {
+        final QBOMetrics.Timer timer = metrics.startGatewayOperation("findChangedEntities", "Customer,Employee,Item", realmId(company));
+        try {
+            DataService dataService = dataServiceFactory.getDataService(company);
+
+            final List<IEntity> entityTypes = new ArrayList<>();
+            entityTypes.add(new com.intuit.ipp.data.Customer());
+            entityTypes.add(new com.intuit.ipp.data.Employee());
+            entityTypes.add(new Item());
+
+            final String changedSinceParameter = ISODateTimeFormat.dateTimeNoMillis().print(changedSince.getTime());
+
+            final List<IntuitEntity> changedEntities = new ArrayList<>();
+            try {
+                final List<CDCQueryResult> cdcQueryResults = dataService.executeCDCQuery(entityTypes, changedSinceParameter);
+                if (cdcQueryResults == null) {
+                    return changedEntities;
+                }
+
+                for (CDCQueryResult cdcQueryResult : cdcQueryResults) {
+                    if (cdcQueryResult.getQueryResults() == null) {
+                        continue;
+                    }
+
+                    for (QueryResult queryResult : cdcQueryResult.getQueryResults().values()) {
+                        if (queryResult.getEntities() != null) {
+                            for (IEntity entity : queryResult.getEntities()) {
+                                changedEntities.add((IntuitEntity) entity);
+                            }
+                        }
+                    }
+                }
+            } catch (FMSException e) {
+                throw new RuntimeException("Failed to query changes since " + changedSinceParameter + " in QBO", e);
+            }
+
+            return changedEntities;
+        } catch (RuntimeException e) {
+            timer.failed();
+            throw e;
+        } finally {
+            timer.stop();
+        }
+    }
+
     /**
      * Get a ReferenceType wrapper for a QBO Account
      * <p/>
-     * ReferenceType values are used to associate different QBO entities to each other.
+     * ReferenceType values are used to associate different QBO entities to each other. The account id is cached per
+     * realm, see ReferenceDataCache.
      */
-    private ReferenceType findAccountReference(DataService dataService, AccountTypeEnum accountType, String accountSubType) {
-        Account account = findAccount(dataService, accountType, accountSubType);
+    private ReferenceType findAccountReference(final DataService dataService, Company company,
+                                               final AccountTypeEnum accountType, final String accountSubType) {
+        final String accountId = referenceDataCache.get(company.getQboId(), "account:" + accountType.value() + ":" + accountSubType,
+                new ReferenceDataCache.Loader() {
+                    @Override
+                    public String load() {
+                        return findAccount(dataService, accountType, accountSubType).getId();
+                    }
+                });
+
         ReferenceType referenceType = new ReferenceType();
-        referenceType.setValue(account.getId());
+        referenceType.setValue(accountId);
         return referenceType;
     }
 
@@ -191,12 +938,20 @@ public class QBOGateway {
     /**
      * Get a ReferenceType wrapper for a QBO Term
      * <p/>
-     * ReferenceType values are used to associate different QBO entities to each other.
+     * ReferenceType values are used to associate different QBO entities to each other. The term id is cached per
+     * realm, see ReferenceDataCache.
      */
-    private ReferenceType findTermsReference(DataService dataService, String type, int dueDays) {
-        final Term term = findTerm(dataService, type, dueDays);
+    private ReferenceType findTermsReference(final DataService dataService, Company company, final String type, final int dueDays) {
+        final String termId = referenceDataCache.get(company.getQboId(), "term:" + type + ":" + dueDays,
+                new ReferenceDataCache.Loader() {
+                    @Override
+                    public String load() {
+                        return findTerm(dataService, type, dueDays).getId();
+                    }
+                });
+
         ReferenceType referenceType = new ReferenceType();
-        referenceType.setValue(term.getId());
+        referenceType.setValue(termId);
         return referenceType;
     }
 
@@ -222,6 +977,19 @@ public class QBOGateway {
         throw new RuntimeException("Could not find a term of type " + type + " and DueDays = " + dueDays);
     }
 
+    /**
+     * The request id is generated once per entity and persisted with it, QBO answers a create that is sent again with
+     * the same request id with the entity it already created, so retrying a create never creates the entity twice. It
+     * is internal to the app and not exposed through the REST API.
+     */
+    private <T extends IEntity> T createObjectInQBO(QBODataService dataService, T qboObject, String requestId) {
+        try {
+            return dataService.add(qboObject, requestId);
+        } catch (FMSException e) {
+            throw new RuntimeException("Failed create an " + qboObject.getClass().getName() + " in QBO", e);
+        }
+    }
+
     private <T extends IEntity> T createObjectInQBO(DataService dataService, T qboObject) {
         try {
             final T createdObject = dataService.add(qboObject);
@@ -238,20 +1006,40 @@ public class QBOGateway {
     public static final String EXISTING_SERVICE_ITEM_QUERY = "select * from item where active = true and name = '%s'";
 
     private com.intuit.ipp.data.Employee findExistingEmployee(DataService dataService, Employee employee) {
-        String query = String.format(EXISTING_EMPLOYEE_QUERY, employee.getFirstName(), employee.getLastName());
+        String query = String.format(EXISTING_EMPLOYEE_QUERY, escapeQueryValue(employee.getFirstName()), escapeQueryValue(employee.getLastName()));
         return executeQuery(dataService, query, com.intuit.ipp.data.Employee.class);
     }
 
     private com.intuit.ipp.data.Customer findExistingCustomer(DataService dataService, Customer customer) {
-        String query = String.format(EXISTING_CUSTOMER_QUERY, customer.getFirstName(), customer.getLastName());
+        String query = String.format(EXISTING_CUSTOMER_QUERY, escapeQueryValue(customer.getFirstName()), escapeQueryValue(customer.getLastName()));
         return executeQuery(dataService, query, com.intuit.ipp.data.Customer.class);
     }
 
     private com.intuit.ipp.data.Item findExistingServiceItem(DataService dataService, ServiceItem serviceItem) {
-        String query = String.format(EXISTING_SERVICE_ITEM_QUERY, serviceItem.getName());
+        String query = String.format(EXISTING_SERVICE_ITEM_QUERY, escapeQueryValue(serviceItem.getName()));
         return executeQuery(dataService, query, com.intuit.ipp.data.Item.class);
     }
 
+    /**
+     * Escape a value that is placed inside single quotes in a QBO query, e.g. a last name of O'Brien
+     */
+    public static String escapeQueryValue(String value) {
+        if (value == null) {
+            return null;
+        }
+        return value.replace("\\", "\\\\").replace("'", "\\'");
+    }
+
+    private List<? extends IEntity> executeQueryForAll(DataService dataService, String query) {
+        try {
+            final QueryResult queryResult = dataService.executeQuery(query);
+            final List<? extends IEntity> entities = queryResult.getEntities();
+            return entities == null ? new ArrayList<IEntity>() : entities;
+        } catch (FMSException e) {
+            throw new RuntimeException("Failed to execute an entity query: " + query, e);
+        }
+    }
+
     private <T extends IEntity> T executeQuery(DataService dataService, String query, Class<T> qboType) {
         try {
             final QueryResult queryResult = dataService.executeQuery(query);
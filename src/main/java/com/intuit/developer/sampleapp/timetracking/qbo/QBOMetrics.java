@@ -0,0 +1,143 @@
+package com.intuit.developer.sampleapp.timetracking.qbo;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency histograms of the requests sent to QBO and of the QBOGateway operations that make them, tagged by
+ * operation, entity type, realm and outcome. A request is timed from the moment it is handed to the
+ * QBORequestExecutor until its result is returned, so it includes waiting for the rate limiter and retries.
+ * <p/>
+ * Requests and gateway operations that take longer than qbo.metrics.slowCallMillis are logged, requests with their
+ * query.
+ */
+public class QBOMetrics {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(QBOMetrics.class);
+
+    public static final String SUCCESS = "success";
+
+    //a failure that says something about the health of QBO, see QBORetryPolicy.isTransient
+    public static final String TRANSIENT_ERROR = "transientError";
+
+    public static final String ERROR = "error";
+
+    @Value("${qbo.metrics.slowCallMillis:2000}")
+    private long slowCallMillis = 2000;
+
+    private final ConcurrentMap<List<String>, LatencyHistogram> requests = new ConcurrentHashMap<>();
+
+    private final ConcurrentMap<List<String>, LatencyHistogram> gatewayOperations = new ConcurrentHashMap<>();
+
+    /**
+     * @param detail what the request was about, e.g. the query, logged with slow requests
+     */
+    public void recordRequest(String operation, String entityType, String realmId, String outcome, long nanos, String detail) {
+        histogram(requests, operation, entityType, realmId, outcome).record(nanos);
+
+        if (isSlow(nanos)) {
+            LOGGER.warn("Slow QBO request: " + operation + " of " + entityType + " for realm " + realmId + " took "
+                    + TimeUnit.NANOSECONDS.toMillis(nanos) + "ms (" + outcome + ")" + (detail != null ? ": " + detail : ""));
+        }
+    }
+
+    public void recordGatewayOperation(String operation, String entityType, String realmId, String outcome, long nanos) {
+        histogram(gatewayOperations, operation, entityType, realmId, outcome).record(nanos);
+
+        if (isSlow(nanos)) {
+            LOGGER.warn("Slow QBOGateway operation: " + operation + " of " + entityType + " for realm " + realmId + " took "
+                    + TimeUnit.NANOSECONDS.toMillis(nanos) + "ms (" + outcome + ")");
+        }
+    }
+
+    /**
+     * Time a gateway operation, call failed() when it throws and stop() in a finally block
+     */
+    public Timer startGatewayOperation(String operation, String entityType, String realmId) {
+        return new Timer(this, operation, entityType, realmId);
+    }
+
+    public List<Map<String, Object>> getRequestStatistics() {
+        return statistics(requests);
+    }
+
+    public List<Map<String, Object>> getGatewayOperationStatistics() {
+        return statistics(gatewayOperations);
+    }
+
+    public void reset() {
+        requests.clear();
+        gatewayOperations.clear();
+    }
+
+    public long getSlowCallMillis() {
+        return slowCallMillis;
+    }
+
+    private boolean isSlow(long nanos) {
+        return slowCallMillis > 0 && nanos >= TimeUnit.MILLISECONDS.toNanos(slowCallMillis);
+    }
+
+    private LatencyHistogram histogram(ConcurrentMap<List<String>, LatencyHistogram> histograms, String operation,
+                                       String entityType, String realmId, String outcome) {
+        final List<String> tags = Arrays.asList(operation, entityType, realmId, outcome);
+
+        LatencyHistogram histogram = histograms.get(tags);
+        if (histogram == null) {
+            final LatencyHistogram newHistogram = new LatencyHistogram();
+            histogram = histograms.putIfAbsent(tags, newHistogram);
+            if (histogram == null) {
+                histogram = newHistogram;
+            }
+        }
+        return histogram;
+    }
+
+    private List<Map<String, Object>> statistics(ConcurrentMap<List<String>, LatencyHistogram> histograms) {
+        final List<Map<String, Object>> statistics = new ArrayList<>();
+        for (Map.Entry<List<String>, LatencyHistogram> entry : histograms.entrySet()) {
+            final Map<String, Object> histogramStatistics = new LinkedHashMap<>();
+            histogramStatistics.put("operation", entry.getKey().get(0));
+            histogramStatistics.put("entityType", entry.getKey().get(1));
+            histogramStatistics.put("realmId", entry.getKey().get(2));
+            histogramStatistics.put("outcome", entry.getKey().get(3));
+            histogramStatistics.putAll(entry.getValue().getStatistics());
+            statistics.add(histogramStatistics);
+        }
+        return statistics;
+    }
+
+    public static class Timer {
+        private final QBOMetrics metrics;
+        private final String operation;
+        private final String entityType;
+        private final String realmId;
+        private final long started = System.nanoTime();
+        private boolean failed;
+
+        private Timer(QBOMetrics metrics, String operation, String entityType, String realmId) {
+            this.metrics = metrics;
+            this.operation = operation;
+            this.entityType = entityType;
+            this.realmId = realmId;
+        }
+
+        public void failed() {
+            failed = true;
+        }
+
+        public void stop() {
+            metrics.recordGatewayOperation(operation, entityType, realmId, failed ? ERROR : SUCCESS, System.nanoTime() - started);
+        }
+    }
+}
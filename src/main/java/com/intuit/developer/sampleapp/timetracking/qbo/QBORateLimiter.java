@@ -0,0 +1,226 @@
+package com.intuit.developer.sampleapp.timetracking.qbo;
+
+import org.springframework.beans.factory.annotation.Value;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Paces requests to QBO with a token bucket per realm, QBO throttles every realm separately.
+ * <p/>
+ * A bucket holds up to burst tokens and is refilled at requestsPerSecond. Every request takes one token; when the
+ * bucket is empty the caller waits for its token instead of being rejected, unless the wait would take longer than
+ * maxWaitMillis. The limits can be changed at runtime, for all realms or for a single realm.
+ */
+public class QBORateLimiter {
+
+    @Value("${qbo.rateLimit.requestsPerSecond:8}")
+    private double requestsPerSecond = 8;
+
+    @Value("${qbo.rateLimit.burst:10}")
+    private int burst = 10;
+
+    @Value("${qbo.rateLimit.maxWaitMillis:30000}")
+    private long maxWaitMillis = 30000;
+
+    private final ConcurrentHashMap<String, TokenBucket> buckets = new ConcurrentHashMap<>();
+
+    //realms whose limits were set explicitly and are not changed by setLimits
+    private final ConcurrentHashMap<String, Boolean> realmOverrides = new ConcurrentHashMap<>();
+
+    private final AtomicLong acquired = new AtomicLong();
+    private final AtomicLong delayed = new AtomicLong();
+    private final AtomicLong timeouts = new AtomicLong();
+    private final AtomicLong totalWaitNanos = new AtomicLong();
+
+    /**
+     * Take a token for a realm, waiting for one if the bucket is empty
+     *
+     * @throws RateLimitTimeoutException if no token becomes available within maxWaitMillis
+     */
+    public void acquire(String realmId) {
+        final TokenBucket bucket = bucket(realmId);
+        final long waitNanos = bucket.reserve(TimeUnit.MILLISECONDS.toNanos(maxWaitMillis));
+
+        if (waitNanos < 0) {
+            timeouts.incrementAndGet();
+            throw new RateLimitTimeoutException("Timed out waiting " + maxWaitMillis + "ms for a QBO request slot for realm " + realmId);
+        }
+
+        acquired.incrementAndGet();
+
+        if (waitNanos > 0) {
+            delayed.incrementAndGet();
+            totalWaitNanos.addAndGet(waitNanos);
+            try {
+                TimeUnit.NANOSECONDS.sleep(waitNanos);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("Interrupted while waiting for a QBO request slot for realm " + realmId, e);
+            }
+        }
+    }
+
+    /**
+     * Change the limits of all realms that don't have limits of their own
+     */
+    public void setLimits(double requestsPerSecond, int burst) {
+        validate(requestsPerSecond, burst);
+        this.requestsPerSecond = requestsPerSecond;
+        this.burst = burst;
+
+        for (Map.Entry<String, TokenBucket> bucket : buckets.entrySet()) {
+            if (!realmOverrides.containsKey(bucket.getKey())) {
+                bucket.getValue().setLimits(requestsPerSecond, burst);
+            }
+        }
+    }
+
+    /**
+     * Change the limits of a single realm
+     */
+    public void setRealmLimits(String realmId, double requestsPerSecond, int burst) {
+        validate(requestsPerSecond, burst);
+        realmOverrides.put(realmId, Boolean.TRUE);
+        bucket(realmId).setLimits(requestsPerSecond, burst);
+    }
+
+    public void setMaxWaitMillis(long maxWaitMillis) {
+        this.maxWaitMillis = maxWaitMillis;
+    }
+
+    public double getRequestsPerSecond() {
+        return requestsPerSecond;
+    }
+
+    public int getBurst() {
+        return burst;
+    }
+
+    public long getMaxWaitMillis() {
+        return maxWaitMillis;
+    }
+
+    public long getAcquired() {
+        return acquired.get();
+    }
+
+    /**
+     * @return the number of requests that had to wait for a token
+     */
+    public long getDelayed() {
+        return delayed.get();
+    }
+
+    public long getTimeouts() {
+        return timeouts.get();
+    }
+
+    public long getTotalWaitMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(totalWaitNanos.get());
+    }
+
+    /**
+     * @return the current state of every realm's bucket, keyed by realm id
+     */
+    public Map<String, Map<String, Object>> getBucketStatistics() {
+        final Map<String, Map<String, Object>> statistics = new TreeMap<>();
+        for (Map.Entry<String, TokenBucket> bucket : buckets.entrySet()) {
+            statistics.put(bucket.getKey(), bucket.getValue().statistics());
+        }
+        return statistics;
+    }
+
+    private TokenBucket bucket(String realmId) {
+        final String key = String.valueOf(realmId);
+        TokenBucket bucket = buckets.get(key);
+        if (bucket == null) {
+            final TokenBucket newBucket = new TokenBucket(requestsPerSecond, burst);
+            bucket = buckets.putIfAbsent(key, newBucket);
+            if (bucket == null) {
+                bucket = newBucket;
+            }
+        }
+        return bucket;
+    }
+
+    private void validate(double requestsPerSecond, int burst) {
+        if (requestsPerSecond <= 0 || burst < 1) {
+            throw new IllegalArgumentException("requestsPerSecond must be positive and burst at least 1");
+        }
+    }
+
+    public static class RateLimitTimeoutException extends RuntimeException {
+        public RateLimitTimeoutException(String message) {
+            super(message);
+        }
+    }
+
+    /**
+     * Tokens can go negative: a request that has to wait reserves its token right away and sleeps until the token
+     * would have been refilled, which keeps waiting requests in arrival order without holding the lock while sleeping.
+     */
+    private static class TokenBucket {
+        private double requestsPerSecond;
+        private int capacity;
+        private double tokens;
+        private long lastRefillNanos;
+        private long maxWaitNanos;
+        private long waits;
+
+        private TokenBucket(double requestsPerSecond, int capacity) {
+            this.requestsPerSecond = requestsPerSecond;
+            this.capacity = capacity;
+            this.tokens = capacity;
+            this.lastRefillNanos = System.nanoTime();
+        }
+
+        /**
+         * @return how long to wait for the reserved token, or -1 if that would take longer than maxWaitNanos in which
+         * case no token is reserved
+         */
+        private synchronized long reserve(long maxWaitNanos) {
+            refill();
+
+            final long waitNanos = tokens >= 1 ? 0 : (long) ((1 - tokens) / requestsPerSecond * TimeUnit.SECONDS.toNanos(1));
+            if (waitNanos > maxWaitNanos) {
+                return -1;
+            }
+
+            tokens -= 1;
+            if (waitNanos > 0) {
+                waits++;
+                this.maxWaitNanos = Math.max(this.maxWaitNanos, waitNanos);
+            }
+            return waitNanos;
+        }
+
+        private synchronized void setLimits(double requestsPerSecond, int capacity) {
+            refill();
+            this.requestsPerSecond = requestsPerSecond;
+            this.capacity = capacity;
+            tokens = Math.min(tokens, capacity);
+        }
+
+        private void refill() {
+            final long now = System.nanoTime();
+            tokens = Math.min(capacity, tokens + (now - lastRefillNanos) * requestsPerSecond / TimeUnit.SECONDS.toNanos(1));
+            lastRefillNanos = now;
+        }
+
+        private synchronized Map<String, Object> statistics() {
+            refill();
+            final Map<String, Object> statistics = new LinkedHashMap<>();
+            statistics.put("availableTokens", tokens);
+            statistics.put("capacity", capacity);
+            statistics.put("requestsPerSecond", requestsPerSecond);
+            statistics.put("waits", waits);
+            statistics.put("maxWaitMillis", TimeUnit.NANOSECONDS.toMillis(maxWaitNanos));
+            return statistics;
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package com.intuit.developer.sampleapp.timetracking.qbo;
+
+import com.intuit.ipp.exception.FMSException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Sends a request to QBO through the resilience layers every QBODataService request goes through: the rate limiter
+ * of the realm (wait for a request slot), the circuit breaker of the realm (fail fast while QBO is degraded) and the
+ * retry policy (retry transient failures with backoff). Every attempt takes its own request slot.
+ * <p/>
+ * The SDK may implement one operation on top of another (e.g. findAll with a query), a request that is made while
+ * another request is executing on the same thread is sent as is.
+ * <p/>
+ * Every request, with its waits and retries, is timed in the QBOMetrics.
+ */
+public class QBORequestExecutor {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(QBORequestExecutor.class);
+
+    private static final ThreadLocal<Boolean> IN_REQUEST = new ThreadLocal<>();
+
+    @Autowired
+    private QBORateLimiter rateLimiter;
+
+    @Autowired
+    private QBORetryPolicy retryPolicy;
+
+    @Autowired
+    private QBOCircuitBreaker circuitBreaker;
+
+    @Autowired
+    private QBOMetrics metrics;
+
+    private final AtomicLong retries = new AtomicLong();
+    private final AtomicLong retriesExhausted = new AtomicLong();
+
+    public interface Request<T> {
+        T execute() throws FMSException;
+    }
+
+    /**
+     * @param operation  a short description of the request for logging, e.g. "executeQuery"
+     * @param idempotent whether the request can safely be sent again after QBO may have processed it
+     */
+    public <T> T execute(String realmId, String operation, boolean idempotent, Request<T> request) throws FMSException {
+        return execute(realmId, operation, null, null, idempotent, request);
+    }
+
+    /**
+     * @param entityType the type of the entities the request is about, e.g. "Customer", for the metrics
+     * @param detail     what the request is about, e.g. the query, logged when the request is slow
+     */
+    public <T> T execute(String realmId, String operation, String entityType, String detail, boolean idempotent, Request<T> request) throws FMSException {
+        if (IN_REQUEST.get() != null) {
+            return request.execute();
+        }
+
+        IN_REQUEST.set(Boolean.TRUE);
+        final long started = System.nanoTime();
+        String outcome = QBOMetrics.ERROR;
+        try {
+            final T result = executeWithRetries(realmId, operation, idempotent, request);
+            outcome = QBOMetrics.SUCCESS;
+            return result;
+        } catch (FMSException e) {
+            if (retryPolicy.isTransient(e)) {
+                outcome = QBOMetrics.TRANSIENT_ERROR;
+            }
+            throw e;
+        } finally {
+            IN_REQUEST.remove();
+            metrics.recordRequest(operation, entityType, realmId, outcome, System.nanoTime() - started, detail);
+        }
+    }
+
+    private <T> T executeWithRetries(String realmId, String operation, boolean idempotent, Request<T> request) throws FMSException {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                rateLimiter.acquire(realmId);
+            } catch (QBORateLimiter.RateLimitTimeoutException e) {
+                throw new FMSException(e.getMessage(), e);
+            }
+
+            if (!circuitBreaker.allowRequest(realmId)) {
+                throw new FMSException("QBO requests for realm " + realmId + " are suspended, too many recent requests failed");
+            }
+
+            try {
+                final T result = request.execute();
+                circuitBreaker.recordSuccess(realmId);
+                return result;
+
+            } catch (FMSException e) {
+                if (retryPolicy.isTransient(e)) {
+                    circuitBreaker.recordFailure(realmId);
+                } else {
+                    circuitBreaker.recordSuccess(realmId);
+                }
+
+                if (!retryPolicy.shouldRetry(e, idempotent, attempt)) {
+                    if (attempt > 1) {
+                        retriesExhausted.incrementAndGet();
+                    }
+                    throw e;
+                }
+
+                final long backoffMillis = retryPolicy.backoffMillis(attempt);
+                LOGGER.warn(operation + " failed for realm " + realmId + " on attempt " + attempt + ", retrying in " + backoffMillis + "ms", e);
+                retries.incrementAndGet();
+                sleep(backoffMillis);
+
+            } catch (RuntimeException e) {
+                circuitBreaker.recordFailure(realmId);
+                throw e;
+            }
+        }
+    }
+
+    private void sleep(long millis) throws FMSException {
+        try {
+            TimeUnit.MILLISECONDS.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new FMSException("Interrupted while waiting to retry a QBO request", e);
+        }
+    }
+
+    public long getRetries() {
+        return retries.get();
+    }
+
+    /**
+     * @return the number of requests that were retried and still failed
+     */
+    public long getRetriesExhausted() {
+        return retriesExhausted.get();
+    }
+}
@@ -0,0 +1,99 @@
+package com.intuit.developer.sampleapp.timetracking.qbo;
+
+import com.intuit.ipp.exception.AuthenticationException;
+import com.intuit.ipp.exception.BadRequestException;
+import com.intuit.ipp.exception.FMSException;
+import com.intuit.ipp.exception.ServiceException;
+import com.intuit.ipp.exception.ValidationException;
+import org.springframework.beans.factory.annotation.Value;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.util.Locale;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Decides which failed QBO requests are retried and how long to wait before the next attempt.
+ * <p/>
+ * Throttling, connection problems and QBO service errors are transient. Authentication, validation and bad request
+ * errors are not: the same request would fail the same way again. A create is not idempotent, it is only retried when
+ * QBO certainly didn't process it (it was throttled, or the connection was never made); a query is retried on any
+ * transient error.
+ * <p/>
+ * The wait grows exponentially with every attempt and is randomized ("full jitter") so that requests that failed
+ * together don't retry together.
+ */
+public class QBORetryPolicy {
+
+    //QBO's error code for a request that exceeded the realm's throttling limits
+    private static final String THROTTLE_ERROR_CODE = "3001";
+
+    @Value("${qbo.retry.maxAttempts:4}")
+    private int maxAttempts = 4;
+
+    @Value("${qbo.retry.baseDelayMillis:200}")
+    private long baseDelayMillis = 200;
+
+    @Value("${qbo.retry.maxDelayMillis:5000}")
+    private long maxDelayMillis = 5000;
+
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    /**
+     * @return true if the failure says something about the health of QBO rather than about the request
+     */
+    public boolean isTransient(FMSException e) {
+        if (isThrottled(e) || isConnectionFailure(e)) {
+            return true;
+        }
+
+        if (e instanceof AuthenticationException || e instanceof BadRequestException || e instanceof ValidationException) {
+            return false;
+        }
+
+        return e instanceof ServiceException || hasCause(e, IOException.class);
+    }
+
+    public boolean shouldRetry(FMSException e, boolean idempotent, int attempt) {
+        if (attempt >= maxAttempts) {
+            return false;
+        }
+
+        return idempotent ? isTransient(e) : isThrottled(e) || isConnectionFailure(e);
+    }
+
+    /**
+     * @return how long to wait after the given attempt failed, a random time up to the exponential backoff
+     */
+    public long backoffMillis(int attempt) {
+        final long exponentialBackoff = Math.min(maxDelayMillis, baseDelayMillis << Math.min(attempt - 1, 20));
+        return ThreadLocalRandom.current().nextLong(exponentialBackoff + 1);
+    }
+
+    private boolean isThrottled(FMSException e) {
+        if (e.getErrorList() != null) {
+            for (com.intuit.ipp.data.Error error : e.getErrorList()) {
+                if (error.getCode() != null && error.getCode().replaceFirst("^0+", "").equals(THROTTLE_ERROR_CODE)) {
+                    return true;
+                }
+            }
+        }
+
+        return e.getMessage() != null && e.getMessage().toLowerCase(Locale.ENGLISH).contains("throttl");
+    }
+
+    private boolean isConnectionFailure(FMSException e) {
+        return hasCause(e, ConnectException.class);
+    }
+
+    private boolean hasCause(Throwable e, Class<? extends Throwable> type) {
+        for (Throwable cause = e.getCause(); cause != null; cause = cause.getCause()) {
+            if (type.isInstance(cause)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,63 @@
+package com.intuit.developer.sampleapp.timetracking.qbo;
+
+import com.intuit.ipp.util.Config;
+import org.springframework.beans.factory.annotation.Value;
+
+import javax.annotation.PostConstruct;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * How requests to QBO and QBO's responses are serialized and compressed.
+ * <p/>
+ * intuit-config.xml only sets the base URLs, so without this the SDK sends and receives uncompressed XML. JSON is
+ * considerably smaller than XML for the same entities, and both compress well, which matters for large query results
+ * and invoices with many lines.
+ * <p/>
+ * The SDK keeps its configuration per thread, so the format is applied on the thread of every request right before it
+ * is sent, see QBODataService.
+ */
+public class QBOWireFormat {
+
+    private static final List<String> SERIALIZATIONS = Arrays.asList("xml", "json");
+
+    private static final List<String> COMPRESSIONS = Arrays.asList("none", "gzip", "deflate");
+
+    //xml or json
+    @Value("${qbo.wire.serialization:json}")
+    private String serialization = "json";
+
+    //none, gzip or deflate
+    @Value("${qbo.wire.compression:gzip}")
+    private String compression = "gzip";
+
+    @PostConstruct
+    public void validate() {
+        if (!SERIALIZATIONS.contains(serialization)) {
+            throw new IllegalStateException("qbo.wire.serialization must be one of " + SERIALIZATIONS + " but is " + serialization);
+        }
+        if (!COMPRESSIONS.contains(compression)) {
+            throw new IllegalStateException("qbo.wire.compression must be one of " + COMPRESSIONS + " but is " + compression);
+        }
+    }
+
+    /**
+     * Configure the SDK on the current thread to use this format for both the request and the response
+     */
+    public void apply() {
+        Config.setProperty(Config.SERIALIZATION_REQUEST_FORMAT, serialization);
+        Config.setProperty(Config.SERIALIZATION_RESPONSE_FORMAT, serialization);
+
+        final String sdkCompression = "none".equals(compression) ? "" : compression;
+        Config.setProperty(Config.COMPRESSION_REQUEST_FORMAT, sdkCompression);
+        Config.setProperty(Config.COMPRESSION_RESPONSE_FORMAT, sdkCompression);
+    }
+
+    public String getSerialization() {
+        return serialization;
+    }
+
+    public String getCompression() {
+        return compression;
+    }
+}
@@ -0,0 +1,163 @@
+package com.intuit.developer.sampleapp.timetracking.qbo;
+
+import org.springframework.beans.factory.annotation.Value;
+
+import java.util.Iterator;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A per realm cache for QBO reference data (e.g. the id of the Net 30 term or of the service fee income account).
+ * <p/>
+ * This data rarely changes, but without a cache it is fetched again for every invoice and every service item that
+ * gets created. Entries expire after a configurable time to live and can be invalidated explicitly per realm.
+ * <p/>
+ * Concurrent misses for the same key are coalesced: only the first caller loads the value from QBO, every other
+ * caller waits for that load to finish and shares its result (or its failure). Failed loads are not cached.
+ */
+public class ReferenceDataCache {
+
+    /**
+     * Loads a reference data value from QBO on a cache miss
+     */
+    public interface Loader {
+        String load();
+    }
+
+    private static final String KEY_SEPARATOR = ":";
+
+    @Value("${qbo.referenceDataCache.ttlSeconds:3600}")
+    private long timeToLiveSeconds = 3600;
+
+    private final ConcurrentMap<String, Entry> entries = new ConcurrentHashMap<>();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong coalescedMisses = new AtomicLong();
+
+    public String get(String realmId, String key, Loader loader) {
+        final String cacheKey = realmId + KEY_SEPARATOR + key;
+
+        while (true) {
+            final Entry entry = entries.get(cacheKey);
+
+            if (entry != null && !entry.isExpired()) {
+                if (entry.isLoaded()) {
+                    hits.incrementAndGet();
+                } else {
+                    coalescedMisses.incrementAndGet();
+                }
+                return entry.await();
+            }
+
+            final Entry newEntry = new Entry(cacheKey, loader);
+            final boolean won = entry == null ? entries.putIfAbsent(cacheKey, newEntry) == null : entries.replace(cacheKey, entry, newEntry);
+
+            if (won) {
+                misses.incrementAndGet();
+                newEntry.load();
+                return newEntry.await();
+            }
+
+            //another thread started loading the same key first, loop around and wait on its entry
+        }
+    }
+
+    public void invalidate(String realmId) {
+        if (realmId == null) {
+            return;
+        }
+
+        final String prefix = realmId + KEY_SEPARATOR;
+        for (Iterator<String> iterator = entries.keySet().iterator(); iterator.hasNext(); ) {
+            if (iterator.next().startsWith(prefix)) {
+                iterator.remove();
+            }
+        }
+    }
+
+    public void invalidateAll() {
+        entries.clear();
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * @return the number of lookups that missed the cache but were served by a load already in progress
+     */
+    public long getCoalescedMisses() {
+        return coalescedMisses.get();
+    }
+
+    /**
+     * @return the fraction of lookups that did not cause a request to QBO
+     */
+    public double getHitRatio() {
+        final long served = hits.get() + coalescedMisses.get();
+        final long total = served + misses.get();
+        return total == 0 ? 0 : (double) served / total;
+    }
+
+    public int getSize() {
+        return entries.size();
+    }
+
+    private class Entry {
+        private final String cacheKey;
+        private final FutureTask<String> task;
+        private volatile long expiresAtNanos;
+
+        private Entry(String cacheKey, final Loader loader) {
+            this.cacheKey = cacheKey;
+            this.task = new FutureTask<>(new Callable<String>() {
+                @Override
+                public String call() throws Exception {
+                    final String value = loader.load();
+                    expiresAtNanos = System.nanoTime() + TimeUnit.SECONDS.toNanos(timeToLiveSeconds);
+                    return value;
+                }
+            });
+        }
+
+        private void load() {
+            task.run();
+        }
+
+        private boolean isLoaded() {
+            return task.isDone();
+        }
+
+        private boolean isExpired() {
+            //an entry that is still loading never expires, callers wait for it instead
+            return isLoaded() && System.nanoTime() - expiresAtNanos >= 0;
+        }
+
+        private String await() {
+            try {
+                return task.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("Interrupted while waiting for reference data " + cacheKey, e);
+            } catch (ExecutionException e) {
+                //don't cache failures, the next lookup should try QBO again
+                entries.remove(cacheKey, this);
+
+                if (e.getCause() instanceof RuntimeException) {
+                    throw (RuntimeException) e.getCause();
+                }
+                throw new RuntimeException("Failed to load reference data " + cacheKey, e.getCause());
+            }
+        }
+    }
+}
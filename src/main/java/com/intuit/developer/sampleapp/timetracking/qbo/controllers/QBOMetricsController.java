@@ -0,0 +1,40 @@
+package com.intuit.developer.sampleapp.timetracking.qbo.controllers;
+
+import com.intuit.developer.sampleapp.timetracking.qbo.QBOMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.ResponseBody;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A REST controller that exports the latency histograms of QBO requests and QBOGateway operations, e.g. to size rate
+ * limits and thread pools after a load test. DELETE starts over with empty histograms.
+ */
+@RestController
+@RequestMapping(value = "/qbo/metrics", produces = "application/json")
+public class QBOMetricsController {
+
+    @Autowired
+    private QBOMetrics metrics;
+
+    @RequestMapping(method = RequestMethod.GET)
+    @ResponseBody
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metricsByKind = new LinkedHashMap<>();
+        metricsByKind.put("slowCallMillis", metrics.getSlowCallMillis());
+        metricsByKind.put("requests", metrics.getRequestStatistics());
+        metricsByKind.put("gatewayOperations", metrics.getGatewayOperationStatistics());
+        return metricsByKind;
+    }
+
+    @RequestMapping(method = RequestMethod.DELETE)
+    @ResponseBody
+    public Map<String, Object> reset() {
+        metrics.reset();
+        return getMetrics();
+    }
+}
@@ -0,0 +1,51 @@
+package com.intuit.developer.sampleapp.timetracking.qbo.controllers;
+
+import com.intuit.developer.sampleapp.timetracking.qbo.QBORateLimiter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseBody;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A REST controller to adjust the QBO rate limits without a restart, e.g. after QBO has lowered the throttling limits
+ * of a realm. The current bucket levels are reported by the QBOStatisticsController.
+ */
+@RestController
+@RequestMapping(value = "/qbo/ratelimit", produces = "application/json")
+public class QBORateLimitController {
+
+    @Autowired
+    private QBORateLimiter rateLimiter;
+
+    /**
+     * Set the limits of one realm when a realmId is given, otherwise the default limits of all realms
+     */
+    @RequestMapping(method = RequestMethod.PUT)
+    @ResponseBody
+    public Map<String, Object> setLimits(@RequestParam("requestsPerSecond") double requestsPerSecond,
+                                         @RequestParam("burst") int burst,
+                                         @RequestParam(value = "realmId", required = false) String realmId,
+                                         @RequestParam(value = "maxWaitMillis", required = false) Long maxWaitMillis) {
+        if (realmId == null) {
+            rateLimiter.setLimits(requestsPerSecond, burst);
+        } else {
+            rateLimiter.setRealmLimits(realmId, requestsPerSecond, burst);
+        }
+
+        if (maxWaitMillis != null) {
+            rateLimiter.setMaxWaitMillis(maxWaitMillis);
+        }
+
+        Map<String, Object> limits = new LinkedHashMap<>();
+        limits.put("requestsPerSecond", rateLimiter.getRequestsPerSecond());
+        limits.put("burst", rateLimiter.getBurst());
+        limits.put("maxWaitMillis", rateLimiter.getMaxWaitMillis());
+        limits.put("realms", rateLimiter.getBucketStatistics());
+        return limits;
+    }
+}
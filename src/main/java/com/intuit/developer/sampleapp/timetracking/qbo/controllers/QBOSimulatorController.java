@@ -0,0 +1,94 @@
+package com.intuit.developer.sampleapp.timetracking.qbo.controllers;
+
+import com.intuit.developer.sampleapp.timetracking.qbo.simulator.QBOSimulator;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseBody;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A REST controller to change how the QBOSimulator behaves while a load test is running, e.g. to make QBO slow or
+ * start throttling halfway through a sync. Only parameters that are given are changed.
+ * <p/>
+ * Only registered when qbo.simulator.enabled is true, a deployment that talks to QBO doesn't expose it.
+ */
+@RestController
+@ConditionalOnExpression("${qbo.simulator.enabled:false}")
+@RequestMapping(value = "/qbo/simulator", produces = "application/json")
+public class QBOSimulatorController {
+
+    @Autowired
+    private QBOSimulator simulator;
+
+    @RequestMapping(method = RequestMethod.GET)
+    @ResponseBody
+    public Map<String, Object> getSettings() {
+        return settings();
+    }
+
+    @RequestMapping(method = RequestMethod.PUT)
+    @ResponseBody
+    public Map<String, Object> setSettings(@RequestParam(value = "meanLatencyMillis", required = false) Long meanLatencyMillis,
+                                           @RequestParam(value = "latencyDistribution", required = false) QBOSimulator.LatencyDistribution latencyDistribution,
+                                           @RequestParam(value = "errorRatePercent", required = false) Double errorRatePercent,
+                                           @RequestParam(value = "batchItemErrorRatePercent", required = false) Double batchItemErrorRatePercent,
+                                           @RequestParam(value = "throttleRequestsPerMinute", required = false) Integer throttleRequestsPerMinute) {
+        if (meanLatencyMillis != null || latencyDistribution != null) {
+            simulator.setLatency(meanLatencyMillis != null ? meanLatencyMillis : simulator.getMeanLatencyMillis(),
+                    latencyDistribution != null ? latencyDistribution : simulator.getLatencyDistribution());
+        }
+
+        if (errorRatePercent != null) {
+            simulator.setErrorRatePercent(errorRatePercent);
+        }
+
+        if (batchItemErrorRatePercent != null) {
+            simulator.setBatchItemErrorRatePercent(batchItemErrorRatePercent);
+        }
+
+        if (throttleRequestsPerMinute != null) {
+            simulator.setThrottleRequestsPerMinute(throttleRequestsPerMinute);
+        }
+
+        return settings();
+    }
+
+    /**
+     * Simulate an edit of an entity in QBO, so that it is pulled back into the app by the next pull sync
+     */
+    @RequestMapping(value = "/{realmId}/{entityType}/{id}/touch", method = RequestMethod.POST)
+    @ResponseBody
+    public Map<String, Object> touch(@PathVariable("realmId") String realmId,
+                                     @PathVariable("entityType") String entityType,
+                                     @PathVariable("id") String id) {
+        Map<String, Object> touched = new LinkedHashMap<>();
+        touched.put("touched", simulator.touch(realmId, entityType, id));
+        return touched;
+    }
+
+    @RequestMapping(method = RequestMethod.DELETE)
+    @ResponseBody
+    public Map<String, Object> reset() {
+        simulator.reset();
+        return settings();
+    }
+
+    private Map<String, Object> settings() {
+        Map<String, Object> settings = new LinkedHashMap<>();
+        settings.put("enabled", simulator.isEnabled());
+        settings.put("meanLatencyMillis", simulator.getMeanLatencyMillis());
+        settings.put("latencyDistribution", simulator.getLatencyDistribution());
+        settings.put("errorRatePercent", simulator.getErrorRatePercent());
+        settings.put("batchItemErrorRatePercent", simulator.getBatchItemErrorRatePercent());
+        settings.put("throttleRequestsPerMinute", simulator.getThrottleRequestsPerMinute());
+        settings.put("realms", simulator.getRealmSizes());
+        return settings;
+    }
+}
@@ -0,0 +1,156 @@
+package com.intuit.developer.sampleapp.timetracking.qbo.controllers;
+
+import com.intuit.developer.sampleapp.timetracking.qbo.DataServiceFactory;
+import com.intuit.developer.sampleapp.timetracking.qbo.QBOCircuitBreaker;
+import com.intuit.developer.sampleapp.timetracking.qbo.QBORateLimiter;
+import com.intuit.developer.sampleapp.timetracking.qbo.QBORequestExecutor;
+import com.intuit.developer.sampleapp.timetracking.qbo.ReferenceDataCache;
+import com.intuit.developer.sampleapp.timetracking.qbo.simulator.QBOSimulator;
+import com.intuit.developer.sampleapp.timetracking.sync.InvoiceSubmissionExecutor;
+import com.intuit.developer.sampleapp.timetracking.sync.OutboxDispatcher;
+import com.intuit.developer.sampleapp.timetracking.sync.PullSyncScheduler;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.ResponseBody;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A REST controller that reports counters collected by the QBO integration layer, useful when tuning cache sizes
+ * and checking how much traffic is actually going to QBO.
+ */
+@RestController
+@RequestMapping(value = "/qbo/statistics", produces = "application/json")
+public class QBOStatisticsController {
+
+    @Autowired
+    private DataServiceFactory dataServiceFactory;
+
+    @Autowired
+    private ReferenceDataCache referenceDataCache;
+
+    @Autowired
+    private QBORateLimiter rateLimiter;
+
+    @Autowired
+    private QBORequestExecutor requestExecutor;
+
+    @Autowired
+    private QBOCircuitBreaker circuitBreaker;
+
+    @Autowired
+    private OutboxDispatcher outboxDispatcher;
+
+    @Autowired
+    private InvoiceSubmissionExecutor invoiceSubmissionExecutor;
+
+    @Autowired
+    private PullSyncScheduler pullSyncScheduler;
+
+    @Autowired
+    private QBOSimulator simulator;
+
+    @RequestMapping(method = RequestMethod.GET)
+    @ResponseBody
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> statistics = new LinkedHashMap<>();
+        statistics.put("dataServiceCache", dataServiceCacheStatistics());
+        statistics.put("referenceDataCache", referenceDataCacheStatistics());
+        statistics.put("rateLimiter", rateLimiterStatistics());
+        statistics.put("retries", retryStatistics());
+        statistics.put("circuitBreaker", circuitBreakerStatistics());
+        statistics.put("outbox", outboxStatistics());
+        statistics.put("invoiceSubmission", invoiceSubmissionStatistics());
+        statistics.put("pullSync", pullSyncStatistics());
+        if (simulator.isEnabled()) {
+            statistics.put("simulator", simulatorStatistics());
+        }
+        return statistics;
+    }
+
+    private Map<String, Object> dataServiceCacheStatistics() {
+        Map<String, Object> cacheStatistics = new LinkedHashMap<>();
+        cacheStatistics.put("size", dataServiceFactory.getSize());
+        cacheStatistics.put("hits", dataServiceFactory.getHits());
+        cacheStatistics.put("misses", dataServiceFactory.getMisses());
+        cacheStatistics.put("evictions", dataServiceFactory.getEvictions());
+        return cacheStatistics;
+    }
+
+    private Map<String, Object> referenceDataCacheStatistics() {
+        Map<String, Object> cacheStatistics = new LinkedHashMap<>();
+        cacheStatistics.put("size", referenceDataCache.getSize());
+        cacheStatistics.put("hits", referenceDataCache.getHits());
+        cacheStatistics.put("misses", referenceDataCache.getMisses());
+        cacheStatistics.put("coalescedMisses", referenceDataCache.getCoalescedMisses());
+        cacheStatistics.put("hitRatio", referenceDataCache.getHitRatio());
+        return cacheStatistics;
+    }
+
+    private Map<String, Object> rateLimiterStatistics() {
+        Map<String, Object> rateLimiterStatistics = new LinkedHashMap<>();
+        rateLimiterStatistics.put("requestsPerSecond", rateLimiter.getRequestsPerSecond());
+        rateLimiterStatistics.put("burst", rateLimiter.getBurst());
+        rateLimiterStatistics.put("maxWaitMillis", rateLimiter.getMaxWaitMillis());
+        rateLimiterStatistics.put("acquired", rateLimiter.getAcquired());
+        rateLimiterStatistics.put("delayed", rateLimiter.getDelayed());
+        rateLimiterStatistics.put("timeouts", rateLimiter.getTimeouts());
+        rateLimiterStatistics.put("totalWaitMillis", rateLimiter.getTotalWaitMillis());
+        rateLimiterStatistics.put("realms", rateLimiter.getBucketStatistics());
+        return rateLimiterStatistics;
+    }
+
+    private Map<String, Object> retryStatistics() {
+        Map<String, Object> retryStatistics = new LinkedHashMap<>();
+        retryStatistics.put("retries", requestExecutor.getRetries());
+        retryStatistics.put("retriesExhausted", requestExecutor.getRetriesExhausted());
+        return retryStatistics;
+    }
+
+    private Map<String, Object> circuitBreakerStatistics() {
+        Map<String, Object> circuitBreakerStatistics = new LinkedHashMap<>();
+        circuitBreakerStatistics.put("opened", circuitBreaker.getOpened());
+        circuitBreakerStatistics.put("closed", circuitBreaker.getClosed());
+        circuitBreakerStatistics.put("rejected", circuitBreaker.getRejected());
+        circuitBreakerStatistics.put("realms", circuitBreaker.getBreakerStatistics());
+        return circuitBreakerStatistics;
+    }
+
+    private Map<String, Object> outboxStatistics() {
+        Map<String, Object> outboxStatistics = new LinkedHashMap<>();
+        outboxStatistics.put("pending", outboxDispatcher.getPending());
+        outboxStatistics.put("dispatched", outboxDispatcher.getDispatched());
+        outboxStatistics.put("failed", outboxDispatcher.getFailed());
+        return outboxStatistics;
+    }
+
+    private Map<String, Object> invoiceSubmissionStatistics() {
+        Map<String, Object> invoiceSubmissionStatistics = new LinkedHashMap<>();
+        invoiceSubmissionStatistics.put("inFlight", invoiceSubmissionExecutor.getInFlight());
+        invoiceSubmissionStatistics.put("billed", invoiceSubmissionExecutor.getBilled());
+        invoiceSubmissionStatistics.put("failed", invoiceSubmissionExecutor.getFailed());
+        return invoiceSubmissionStatistics;
+    }
+
+    private Map<String, Object> pullSyncStatistics() {
+        Map<String, Object> pullSyncStatistics = new LinkedHashMap<>();
+        pullSyncStatistics.put("pulls", pullSyncScheduler.getPulls());
+        pullSyncStatistics.put("failedPulls", pullSyncScheduler.getFailedPulls());
+        pullSyncStatistics.put("appliedChanges", pullSyncScheduler.getAppliedChanges());
+        pullSyncStatistics.put("ignoredChanges", pullSyncScheduler.getIgnoredChanges());
+        return pullSyncStatistics;
+    }
+
+    private Map<String, Object> simulatorStatistics() {
+        Map<String, Object> simulatorStatistics = new LinkedHashMap<>();
+        simulatorStatistics.put("requests", simulator.getRequests());
+        simulatorStatistics.put("simulatedErrors", simulator.getSimulatedErrors());
+        simulatorStatistics.put("throttled", simulator.getThrottled());
+        simulatorStatistics.put("totalLatencyMillis", simulator.getTotalLatencyMillis());
+        simulatorStatistics.put("realms", simulator.getRealmSizes());
+        return simulatorStatistics;
+    }
+}
@@ -0,0 +1,348 @@
+package com.intuit.developer.sampleapp.timetracking.qbo.simulator;
+
+import com.intuit.ipp.core.IEntity;
+import com.intuit.ipp.data.BatchItemRequest;
+import com.intuit.ipp.data.Fault;
+import com.intuit.ipp.data.IntuitEntity;
+import com.intuit.ipp.data.OperationEnum;
+import com.intuit.ipp.exception.FMSException;
+import com.intuit.ipp.exception.ServiceException;
+import com.intuit.ipp.services.BatchOperation;
+import com.intuit.ipp.services.CDCQueryResult;
+import com.intuit.ipp.services.QueryResult;
+import org.joda.time.format.ISODateTimeFormat;
+import org.springframework.beans.factory.annotation.Value;
+
+import java.lang.reflect.Method;
+import java.net.SocketTimeoutException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * An in-process stand-in for QBO, so that sync, time entry and invoice throughput can be measured without a QBO
+ * sandbox or network access. When qbo.simulator.enabled is set the DataServiceFactory hands out SimulatedDataServices,
+ * which answer from here instead of calling QBO; the rate limiter, circuit breaker and retries still apply.
+ * <p/>
+ * Every realm gets its own in-memory entity store, seeded with the Net 30 term and the service fee income account the
+ * app looks up. Adds (with or without a request id), queries, findAll, batches of creates and queries, and change data
+ * capture queries are supported.
+ * <p/>
+ * To reproduce a slow or unhealthy QBO every request is delayed by a latency drawn from the configured distribution,
+ * fails with a transient service error at errorRatePercent, and is throttled once a realm has received
+ * throttle.requestsPerMinute requests in the current minute. Batch items fail on their own at batchItemErrorRatePercent.
+ * All of these can be changed at runtime through the QBOSimulatorController.
+ */
+public class QBOSimulator {
+
+    public enum LatencyDistribution {
+        //always the mean latency
+        Fixed,
+        //evenly spread between no latency and twice the mean
+        Uniform,
+        //mostly fast with a long tail of slow requests, the closest to a real network service
+        Exponential
+    }
+
+    //QBO's error code for a request that exceeded the realm's throttling limits
+    private static final String THROTTLE_ERROR_CODE = "3001";
+
+    @Value("${qbo.simulator.enabled:false}")
+    private boolean enabled = false;
+
+    @Value("${qbo.simulator.latency.meanMillis:0}")
+    private volatile long meanLatencyMillis = 0;
+
+    @Value("${qbo.simulator.latency.distribution:Exponential}")
+    private volatile LatencyDistribution latencyDistribution = LatencyDistribution.Exponential;
+
+    @Value("${qbo.simulator.errorRatePercent:0}")
+    private volatile double errorRatePercent = 0;
+
+    @Value("${qbo.simulator.batchItemErrorRatePercent:0}")
+    private volatile double batchItemErrorRatePercent = 0;
+
+    //0 disables throttling, QBO itself allows 500 requests per minute per realm
+    @Value("${qbo.simulator.throttle.requestsPerMinute:0}")
+    private volatile int throttleRequestsPerMinute = 0;
+
+    private final ConcurrentHashMap<String, SimulatedRealm> realms = new ConcurrentHashMap<>();
+
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong simulatedErrors = new AtomicLong();
+    private final AtomicLong throttled = new AtomicLong();
+    private final AtomicLong totalLatencyMillis = new AtomicLong();
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public <T extends IEntity> T add(String realmId, T entity) throws FMSException {
+        beforeRequest(realmId);
+        return realm(realmId).add(entity);
+    }
+
+    /**
+     * Like QBO, a request id that was seen before returns the entity that was created for it instead of a new one
+     */
+    public <T extends IEntity> T add(String realmId, T entity, String requestId) throws FMSException {
+        beforeRequest(realmId);
+        return realm(realmId).add(entity, requestId);
+    }
+
+    public QueryResult executeQuery(String realmId, String query) throws FMSException {
+        beforeRequest(realmId);
+        return realm(realmId).query(query);
+    }
+
+    public <T extends IEntity> List<T> findAll(String realmId, T entity) throws FMSException {
+        beforeRequest(realmId);
+        return realm(realmId).findAll(entity);
+    }
+
+    public List<CDCQueryResult> executeCDCQuery(String realmId, List<? extends IEntity> entities, String changedSince) throws FMSException {
+        beforeRequest(realmId);
+
+        final Date since = ISODateTimeFormat.dateTimeParser().parseDateTime(changedSince).toDate();
+        final Map<String, QueryResult> queryResults = new LinkedHashMap<>();
+        for (IEntity entity : entities) {
+            final String entityType = entity.getClass().getSimpleName();
+            final List<IntuitEntity> changed = realm(realmId).findChanged(entityType, since);
+
+            final QueryResult queryResult = new QueryResult();
+            queryResult.setEntities(changed);
+            queryResult.setTotalCount(changed.size());
+            queryResults.put(entityType, queryResult);
+        }
+
+        final CDCQueryResult cdcQueryResult = new CDCQueryResult();
+        cdcQueryResult.setQueryResults(queryResults);
+        return Arrays.asList(cdcQueryResult);
+    }
+
+    /**
+     * Answer every item of the batch, a whole batch counts as a single request against the throttling limit
+     */
+    public void executeBatch(String realmId, BatchOperation batchOperation) throws FMSException {
+        executeBatch(realmId, batchOperation, null);
+    }
+
+    /**
+     * Like QBO, a batch whose request id was seen before returns the entities that were created for it instead of new
+     * ones
+     */
+    public void executeBatch(String realmId, BatchOperation batchOperation, String requestId) throws FMSException {
+        beforeRequest(realmId);
+
+        final SimulatedRealm realm = realm(realmId);
+        final BatchResults results = new BatchResults(batchOperation);
+        for (BatchItemRequest item : results.getItems()) {
+            if (ThreadLocalRandom.current().nextDouble(100) < batchItemErrorRatePercent) {
+                results.fault(item.getBId(), fault("ValidationFault", "6000", "Simulated business validation error"));
+            } else if (item.getQuery() != null) {
+                results.queryResult(item.getBId(), realm.query(item.getQuery()));
+            } else if (item.getOperation() == OperationEnum.CREATE && item.getIntuitObject() != null) {
+                final IEntity entity = item.getIntuitObject().getValue();
+                results.entity(item.getBId(), requestId != null ? realm.add(entity, requestId + "-" + item.getBId()) : realm.add(entity));
+            } else {
+                results.fault(item.getBId(), fault("ValidationFault", "4000", "The simulator doesn't support this batch operation"));
+            }
+        }
+    }
+
+    /**
+     * Simulate an edit made in QBO, so that the entity is picked up by the next pull sync
+     *
+     * @return false if the realm has no entity of that type and id
+     */
+    public boolean touch(String realmId, String entityType, String id) {
+        return realm(realmId).touch(entityType, id);
+    }
+
+    /**
+     * Forget every simulated realm and its entities
+     */
+    public void reset() {
+        realms.clear();
+    }
+
+    public void setLatency(long meanLatencyMillis, LatencyDistribution latencyDistribution) {
+        this.meanLatencyMillis = meanLatencyMillis;
+        this.latencyDistribution = latencyDistribution;
+    }
+
+    public void setErrorRatePercent(double errorRatePercent) {
+        this.errorRatePercent = errorRatePercent;
+    }
+
+    public void setBatchItemErrorRatePercent(double batchItemErrorRatePercent) {
+        this.batchItemErrorRatePercent = batchItemErrorRatePercent;
+    }
+
+    public void setThrottleRequestsPerMinute(int throttleRequestsPerMinute) {
+        this.throttleRequestsPerMinute = throttleRequestsPerMinute;
+    }
+
+    public long getMeanLatencyMillis() {
+        return meanLatencyMillis;
+    }
+
+    public LatencyDistribution getLatencyDistribution() {
+        return latencyDistribution;
+    }
+
+    public double getErrorRatePercent() {
+        return errorRatePercent;
+    }
+
+    public double getBatchItemErrorRatePercent() {
+        return batchItemErrorRatePercent;
+    }
+
+    public int getThrottleRequestsPerMinute() {
+        return throttleRequestsPerMinute;
+    }
+
+    public long getRequests() {
+        return requests.get();
+    }
+
+    public long getSimulatedErrors() {
+        return simulatedErrors.get();
+    }
+
+    public long getThrottled() {
+        return throttled.get();
+    }
+
+    public long getTotalLatencyMillis() {
+        return totalLatencyMillis.get();
+    }
+
+    /**
+     * @return the number of entities in every simulated realm
+     */
+    public Map<String, Integer> getRealmSizes() {
+        final Map<String, Integer> sizes = new LinkedHashMap<>();
+        for (Map.Entry<String, SimulatedRealm> realm : realms.entrySet()) {
+            sizes.put(realm.getKey(), realm.getValue().size());
+        }
+        return sizes;
+    }
+
+    private void beforeRequest(String realmId) throws FMSException {
+        requests.incrementAndGet();
+
+        final int requestsPerMinute = throttleRequestsPerMinute;
+        if (requestsPerMinute > 0 && !realm(realmId).tryAcquireRequest(requestsPerMinute, System.currentTimeMillis())) {
+            throttled.incrementAndGet();
+            //worded like QBO's throttling fault, which the QBORetryPolicy recognizes
+            throw new ServiceException("Simulated throttling: message=ThrottleExceeded; errorCode=" + THROTTLE_ERROR_CODE);
+        }
+
+        sleep(latencyMillis());
+
+        if (ThreadLocalRandom.current().nextDouble(100) < errorRatePercent) {
+            simulatedErrors.incrementAndGet();
+            throw new ServiceException("Simulated QBO service error", new SocketTimeoutException("Read timed out"));
+        }
+    }
+
+    long latencyMillis() {
+        final long mean = meanLatencyMillis;
+        if (mean <= 0) {
+            return 0;
+        }
+
+        switch (latencyDistribution) {
+            case Fixed:
+                return mean;
+            case Uniform:
+                return ThreadLocalRandom.current().nextLong(2 * mean + 1);
+            default:
+                return (long) (-mean * Math.log(1 - ThreadLocalRandom.current().nextDouble()));
+        }
+    }
+
+    private void sleep(long millis) {
+        if (millis <= 0) {
+            return;
+        }
+
+        totalLatencyMillis.addAndGet(millis);
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private SimulatedRealm realm(String realmId) {
+        SimulatedRealm realm = realms.get(realmId);
+        if (realm == null) {
+            final SimulatedRealm newRealm = new SimulatedRealm();
+            realm = realms.putIfAbsent(realmId, newRealm);
+            if (realm == null) {
+                realm = newRealm;
+            }
+        }
+        return realm;
+    }
+
+    private static Fault fault(String type, String code, String message) {
+        final com.intuit.ipp.data.Error error = new com.intuit.ipp.data.Error();
+        error.setCode(code);
+        error.setMessage(message);
+        error.setDetail(message);
+
+        final Fault fault = new Fault();
+        fault.setType(type);
+        fault.setError(new ArrayList<>(Arrays.asList(error)));
+        return fault;
+    }
+
+    /**
+     * Access to the requests and results of a BatchOperation. The SDK only fills them in from a QBO response, so
+     * the simulator reaches the maps the DataService normally writes to.
+     */
+    private static class BatchResults {
+        private final BatchOperation batchOperation;
+
+        private BatchResults(BatchOperation batchOperation) {
+            this.batchOperation = batchOperation;
+        }
+
+        private List<BatchItemRequest> getItems() {
+            return invoke("getBatchItemRequests");
+        }
+
+        private void entity(String bId, IEntity entity) {
+            this.<Map<String, IEntity>>invoke("getEntityResult").put(bId, entity);
+        }
+
+        private void queryResult(String bId, QueryResult queryResult) {
+            this.<Map<String, QueryResult>>invoke("getQueryResult").put(bId, queryResult);
+        }
+
+        private void fault(String bId, Fault fault) {
+            this.<Map<String, Fault>>invoke("getFaultResult").put(bId, fault);
+        }
+
+        @SuppressWarnings("unchecked")
+        private <T> T invoke(String methodName) {
+            try {
+                final Method method = BatchOperation.class.getDeclaredMethod(methodName);
+                method.setAccessible(true);
+                return (T) method.invoke(batchOperation);
+            } catch (ReflectiveOperationException e) {
+                throw new RuntimeException("This version of the QBO SDK's BatchOperation can't be simulated", e);
+            }
+        }
+    }
+}
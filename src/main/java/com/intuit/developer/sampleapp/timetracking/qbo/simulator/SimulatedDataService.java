@@ -0,0 +1,61 @@
+package com.intuit.developer.sampleapp.timetracking.qbo.simulator;
+
+import com.intuit.developer.sampleapp.timetracking.qbo.QBODataService;
+import com.intuit.developer.sampleapp.timetracking.qbo.QBORequestExecutor;
+import com.intuit.ipp.core.Context;
+import com.intuit.ipp.core.IEntity;
+import com.intuit.ipp.exception.FMSException;
+import com.intuit.ipp.services.BatchOperation;
+import com.intuit.ipp.services.CDCQueryResult;
+import com.intuit.ipp.services.QueryResult;
+
+import java.util.List;
+
+/**
+ * A QBODataService whose requests are answered by the QBOSimulator instead of QBO. Requests still go through the
+ * QBORequestExecutor, so rate limiting, the circuit breaker and retries behave as they do against QBO.
+ */
+public class SimulatedDataService extends QBODataService {
+
+    private final QBOSimulator simulator;
+
+    public SimulatedDataService(Context context, String realmId, QBORequestExecutor requestExecutor, QBOSimulator simulator) {
+        super(context, realmId, requestExecutor);
+        this.simulator = simulator;
+    }
+
+    @Override
+    protected <T extends IEntity> T sendAdd(T entity) throws FMSException {
+        return simulator.add(getRealmId(), entity);
+    }
+
+    @Override
+    protected <T extends IEntity> T sendAdd(T entity, String requestId) throws FMSException {
+        return simulator.add(getRealmId(), entity, requestId);
+    }
+
+    @Override
+    protected QueryResult sendQuery(String query) throws FMSException {
+        return simulator.executeQuery(getRealmId(), query);
+    }
+
+    @Override
+    protected <T extends IEntity> List<T> sendFindAll(T entity) throws FMSException {
+        return simulator.findAll(getRealmId(), entity);
+    }
+
+    @Override
+    protected List<CDCQueryResult> sendCDCQuery(List<? extends IEntity> entities, String changedSince) throws FMSException {
+        return simulator.executeCDCQuery(getRealmId(), entities, changedSince);
+    }
+
+    @Override
+    protected void sendBatch(BatchOperation batchOperation) throws FMSException {
+        simulator.executeBatch(getRealmId(), batchOperation);
+    }
+
+    @Override
+    protected void sendBatch(BatchOperation batchOperation, String requestId) throws FMSException {
+        simulator.executeBatch(getRealmId(), batchOperation, requestId);
+    }
+}
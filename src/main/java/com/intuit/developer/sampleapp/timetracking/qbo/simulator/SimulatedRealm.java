@@ -0,0 +1,285 @@
+package com.intuit.developer.sampleapp.timetracking.qbo.simulator;
+
+import com.intuit.ipp.core.IEntity;
+import com.intuit.ipp.data.Account;
+import com.intuit.ipp.data.AccountSubTypeEnum;
+import com.intuit.ipp.data.AccountTypeEnum;
+import com.intuit.ipp.data.IntuitEntity;
+import com.intuit.ipp.data.ModificationMetaData;
+import com.intuit.ipp.data.Term;
+import com.intuit.ipp.exception.FMSException;
+import com.intuit.ipp.services.QueryResult;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * The entities of one simulated QBO realm, kept in memory per entity type in the order they were created.
+ * <p/>
+ * Queries understand the subset of the QBO query language the app uses: select * from an entity, optionally with
+ * property = value conditions joined by "and", a startposition and a maxresults.
+ */
+class SimulatedRealm {
+
+    private static final Pattern QUERY = Pattern.compile(
+            "select\\s+\\*\\s+from\\s+(\\w+)(?:\\s+where\\s+(.+?))?(?:\\s+startposition\\s+(\\d+))?(?:\\s+maxresults\\s+(\\d+))?\\s*",
+            Pattern.CASE_INSENSITIVE | Pattern.DOTALL);
+
+    private static final Pattern CONDITION = Pattern.compile(
+            "\\G\\s*(?:and\\s+)?(\\w+)\\s*=\\s*('(?:[^'\\\\]|\\\\.)*'|[\\w.-]+)\\s*",
+            Pattern.CASE_INSENSITIVE);
+
+    //QBO returns at most this many entities per query
+    private static final int MAX_RESULTS = 1000;
+
+    private final Map<String, Map<String, IntuitEntity>> entitiesByType = new LinkedHashMap<>();
+
+    private final Map<String, IntuitEntity> entitiesByRequestId = new HashMap<>();
+
+    private long nextId = 1;
+
+    private long windowStart;
+
+    private int requestsInWindow;
+
+    SimulatedRealm() {
+        //reference data every QBO company has
+        final Term net30 = new Term();
+        net30.setName("Net 30");
+        net30.setType("STANDARD");
+        net30.setDueDays(30);
+        net30.setActive(true);
+        store(net30, new Date());
+
+        final Account services = new Account();
+        services.setName("Services");
+        services.setAccountType(AccountTypeEnum.INCOME);
+        services.setAccountSubType(AccountSubTypeEnum.SERVICE_FEE_INCOME.value());
+        services.setActive(true);
+        store(services, new Date());
+    }
+
+    /**
+     * Count a request against the throttling limit of the realm
+     *
+     * @return false if the realm already received requestsPerMinute requests in the current minute
+     */
+    synchronized boolean tryAcquireRequest(int requestsPerMinute, long now) {
+        if (now - windowStart >= 60000) {
+            windowStart = now;
+            requestsInWindow = 0;
+        }
+
+        if (requestsInWindow >= requestsPerMinute) {
+            return false;
+        }
+
+        requestsInWindow++;
+        return true;
+    }
+
+    synchronized <T extends IEntity> T add(T entity) {
+        store((IntuitEntity) entity, new Date());
+        return entity;
+    }
+
+    @SuppressWarnings("unchecked")
+    synchronized <T extends IEntity> T add(T entity, String requestId) {
+        final IntuitEntity created = entitiesByRequestId.get(requestId);
+        if (created != null) {
+            return (T) created;
+        }
+
+        add(entity);
+        entitiesByRequestId.put(requestId, (IntuitEntity) entity);
+        return entity;
+    }
+
+    synchronized QueryResult query(String query) throws FMSException {
+        final Matcher matcher = QUERY.matcher(query.trim());
+        if (!matcher.matches()) {
+            throw new FMSException("The simulator doesn't support the query: " + query);
+        }
+
+        final Map<String, String> conditions = parseConditions(matcher.group(2), query);
+        final int startPosition = matcher.group(3) == null ? 1 : Integer.parseInt(matcher.group(3));
+        final int maxResults = matcher.group(4) == null ? MAX_RESULTS : Math.min(Integer.parseInt(matcher.group(4)), MAX_RESULTS);
+
+        final List<IntuitEntity> matching = new ArrayList<>();
+        for (IntuitEntity entity : entitiesOfType(matcher.group(1))) {
+            if (matches(entity, conditions)) {
+                matching.add(entity);
+            }
+        }
+
+        final List<IntuitEntity> page = matching.subList(Math.min(Math.max(startPosition, 1) - 1, matching.size()),
+                Math.min(Math.max(startPosition, 1) - 1 + maxResults, matching.size()));
+
+        final QueryResult queryResult = new QueryResult();
+        queryResult.setEntities(new ArrayList<>(page));
+        queryResult.setStartPosition(startPosition);
+        queryResult.setMaxResults(page.size());
+        queryResult.setTotalCount(matching.size());
+        return queryResult;
+    }
+
+    @SuppressWarnings("unchecked")
+    synchronized <T extends IEntity> List<T> findAll(T entity) {
+        final List<T> all = new ArrayList<>();
+        for (IntuitEntity stored : entitiesOfType(entity.getClass().getSimpleName())) {
+            all.add((T) stored);
+        }
+        return all.subList(0, Math.min(all.size(), MAX_RESULTS));
+    }
+
+    /**
+     * @return the entities of the given type that were created or updated at or after changedSince
+     */
+    synchronized List<IntuitEntity> findChanged(String entityType, Date changedSince) {
+        final List<IntuitEntity> changed = new ArrayList<>();
+        for (IntuitEntity entity : entitiesOfType(entityType)) {
+            if (!entity.getMetaData().getLastUpdatedTime().before(changedSince)) {
+                changed.add(entity);
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * Simulate an edit made in QBO, the entity is returned by change data capture queries from now on
+     */
+    synchronized boolean touch(String entityType, String id) {
+        final Map<String, IntuitEntity> entities = entitiesByType.get(entityType.toLowerCase(Locale.ENGLISH));
+        final IntuitEntity entity = entities == null ? null : entities.get(id);
+        if (entity == null) {
+            return false;
+        }
+
+        entity.getMetaData().setLastUpdatedTime(new Date());
+        entity.setSyncToken(String.valueOf(Integer.parseInt(entity.getSyncToken()) + 1));
+        return true;
+    }
+
+    synchronized int size() {
+        int size = 0;
+        for (Map<String, IntuitEntity> entities : entitiesByType.values()) {
+            size += entities.size();
+        }
+        return size;
+    }
+
+    private void store(IntuitEntity entity, Date now) {
+        final String id = String.valueOf(nextId++);
+        entity.setId(id);
+        entity.setSyncToken("0");
+
+        final ModificationMetaData metaData = new ModificationMetaData();
+        metaData.setCreateTime(now);
+        metaData.setLastUpdatedTime(now);
+        entity.setMetaData(metaData);
+
+        //like QBO, entities are active unless they are created inactive
+        final Method getActive = getter(entity, "active");
+        if (getActive != null && read(entity, getActive) == null) {
+            try {
+                entity.getClass().getMethod("setActive", Boolean.class).invoke(entity, Boolean.TRUE);
+            } catch (ReflectiveOperationException e) {
+                throw new RuntimeException("Could not activate a simulated " + entity.getClass().getSimpleName(), e);
+            }
+        }
+
+        final String entityType = entity.getClass().getSimpleName().toLowerCase(Locale.ENGLISH);
+        Map<String, IntuitEntity> entities = entitiesByType.get(entityType);
+        if (entities == null) {
+            entities = new LinkedHashMap<>();
+            entitiesByType.put(entityType, entities);
+        }
+        entities.put(id, entity);
+    }
+
+    private List<IntuitEntity> entitiesOfType(String entityType) {
+        final Map<String, IntuitEntity> entities = entitiesByType.get(entityType.toLowerCase(Locale.ENGLISH));
+        return entities == null ? new ArrayList<IntuitEntity>() : new ArrayList<>(entities.values());
+    }
+
+    private Map<String, String> parseConditions(String whereClause, String query) throws FMSException {
+        final Map<String, String> conditions = new LinkedHashMap<>();
+        if (whereClause == null) {
+            return conditions;
+        }
+
+        final Matcher matcher = CONDITION.matcher(whereClause);
+        int end = 0;
+        while (end < whereClause.length() && matcher.find()) {
+            conditions.put(matcher.group(1), unquote(matcher.group(2)));
+            end = matcher.end();
+        }
+
+        if (end < whereClause.length()) {
+            throw new FMSException("The simulator doesn't support the conditions of the query: " + query);
+        }
+        return conditions;
+    }
+
+    private String unquote(String value) {
+        if (!value.startsWith("'")) {
+            return value;
+        }
+        return value.substring(1, value.length() - 1).replaceAll("\\\\(.)", "$1");
+    }
+
+    private boolean matches(IntuitEntity entity, Map<String, String> conditions) throws FMSException {
+        for (Map.Entry<String, String> condition : conditions.entrySet()) {
+            final Method getter = getter(entity, condition.getKey());
+            if (getter == null) {
+                throw new FMSException("Property " + condition.getKey() + " is not valid for " + entity.getClass().getSimpleName());
+            }
+
+            final Object value = read(entity, getter);
+            if (value == null || !condition.getValue().equalsIgnoreCase(queryValue(value))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return the value as it is written in a query, enums of the QBO data model are written as their value()
+     */
+    private String queryValue(Object value) {
+        if (value instanceof Enum) {
+            try {
+                return String.valueOf(value.getClass().getMethod("value").invoke(value));
+            } catch (ReflectiveOperationException e) {
+                return ((Enum) value).name();
+            }
+        }
+        return String.valueOf(value);
+    }
+
+    private Method getter(Object entity, String property) {
+        for (Method method : entity.getClass().getMethods()) {
+            if (method.getParameterTypes().length == 0
+                    && (method.getName().equalsIgnoreCase("get" + property) || method.getName().equalsIgnoreCase("is" + property))) {
+                return method;
+            }
+        }
+        return null;
+    }
+
+    private Object read(Object entity, Method getter) {
+        try {
+            return getter.invoke(entity);
+        } catch (ReflectiveOperationException e) {
+            throw new RuntimeException("Could not read " + getter.getName() + " of a simulated " + entity.getClass().getSimpleName(), e);
+        }
+    }
+}
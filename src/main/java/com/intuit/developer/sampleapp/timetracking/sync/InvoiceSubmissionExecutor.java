@@ -0,0 +1,249 @@
+package com.intuit.developer.sampleapp.timetracking.sync;
+
+import com.intuit.developer.sampleapp.timetracking.domain.Invoice;
+import com.intuit.developer.sampleapp.timetracking.domain.InvoiceStatus;
+import com.intuit.developer.sampleapp.timetracking.qbo.QBOGateway;
+import com.intuit.developer.sampleapp.timetracking.repository.InvoiceRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.event.ContextRefreshedEvent;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Submits invoices to QBO on a pool of background threads, so that billing an invoice doesn't hold on to the request
+ * thread while its terms are looked up and it is created in QBO.
+ * <p/>
+ * A submitted invoice is Submitting until it is Billed or Failed, clients poll the invoice for its status. How many
+ * invoices are pushed to one company's realm at the same time is capped by invoice.submission.realmConcurrency, the
+ * company's other invoices wait in a queue of their own instead of on a pool thread, so that a company that bills many
+ * invoices at once doesn't hold up the invoices of other companies.
+ * Invoices that were still being submitted when the app was stopped are queued again once the application context
+ * has started.
+ */
+public class InvoiceSubmissionExecutor implements ApplicationListener<ContextRefreshedEvent> {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(InvoiceSubmissionExecutor.class);
+
+    @Autowired
+    private InvoiceRepository invoiceRepository;
+
+    @Autowired
+    private QBOGateway qboGateway;
+
+    @Value("${invoice.submission.threads:4}")
+    private int threads = 4;
+
+    @Value("${invoice.submission.queueCapacity:1000}")
+    private int queueCapacity = 1000;
+
+    @Value("${invoice.submission.realmConcurrency:2}")
+    private int realmConcurrency = 2;
+
+    private ThreadPoolExecutor executor;
+
+    private final ConcurrentHashMap<Long, RealmQueue> realmQueues = new ConcurrentHashMap<>();
+
+    //invoices that are queued or being submitted, an invoice that is billed again in the meantime is not queued twice
+    private final Set<Long> inFlight = Collections.newSetFromMap(new ConcurrentHashMap<Long, Boolean>());
+
+    private final AtomicBoolean interruptedSubmissionsResumed = new AtomicBoolean();
+
+    private final AtomicLong billed = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+
+    @PostConstruct
+    public void start() {
+        executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<Runnable>(queueCapacity));
+    }
+
+    @PreDestroy
+    public void stop() {
+        //invoices that are interrupted here stay Submitting in the database and are resubmitted on the next start
+        executor.shutdownNow();
+    }
+
+    @Override
+    public void onApplicationEvent(ContextRefreshedEvent event) {
+        if (interruptedSubmissionsResumed.compareAndSet(false, true)) {
+            resumeInterruptedSubmissions();
+        }
+    }
+
+    /**
+     * Mark the invoice as Submitting and queue it
+     */
+    public void submit(Invoice invoice) {
+        invoice.setStatus(InvoiceStatus.Submitting);
+        invoice.setSubmissionError(null);
+        invoiceRepository.save(invoice);
+        enqueue(invoice);
+    }
+
+    void resumeInterruptedSubmissions() {
+        final List<Invoice> interrupted = invoiceRepository.findByStatusInOrderByIdAsc(Arrays.asList(InvoiceStatus.ReadyToBeBilled, InvoiceStatus.Submitting));
+
+        for (Invoice invoice : interrupted) {
+            LOGGER.info("Resuming the submission of invoice " + invoice.getId());
+            submit(invoice);
+        }
+    }
+
+    private void enqueue(Invoice invoice) {
+        final long invoiceId = invoice.getId();
+        if (!inFlight.add(invoiceId)) {
+            return;
+        }
+
+        final RealmQueue realm = realmQueue(invoice.getCompany().getId());
+        if (realm.admit(invoice)) {
+            execute(invoice, realm);
+        }
+    }
+
+    private void execute(final Invoice invoice, final RealmQueue realm) {
+        final long invoiceId = invoice.getId();
+
+        try {
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        runSubmission(invoiceId);
+                    } finally {
+                        inFlight.remove(invoiceId);
+                        executeNext(realm);
+                    }
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            inFlight.remove(invoiceId);
+            if (!executor.isShutdown()) {
+                fail(invoice, "Too many invoices are being submitted, try again later");
+                executeNext(realm);
+            }
+        }
+    }
+
+    private void executeNext(RealmQueue realm) {
+        final Invoice next = realm.next();
+        if (next != null) {
+            //at the back of the pool's queue, behind the invoices of other companies
+            execute(next, realm);
+        }
+    }
+
+    void runSubmission(long invoiceId) {
+        final Invoice invoice = invoiceRepository.findOneForSubmission(invoiceId);
+        if (invoice == null) {
+            LOGGER.warn("Invoice " + invoiceId + " no longer exists");
+            return;
+        }
+
+        if (invoice.getQboId() != null) {
+            //created in QBO before the app was stopped
+            invoice.setStatus(InvoiceStatus.Billed);
+            invoiceRepository.save(invoice);
+            return;
+        }
+
+        try {
+            qboGateway.createInvoiceInQBO(invoice);
+            billed.incrementAndGet();
+        } catch (RuntimeException e) {
+            LOGGER.error("Submitting invoice " + invoiceId + " to QBO failed", e);
+            fail(invoice, e.getMessage());
+        }
+    }
+
+    private void fail(Invoice invoice, String message) {
+        failed.incrementAndGet();
+        invoice.setStatus(InvoiceStatus.Failed);
+        invoice.setSubmissionError(message);
+        invoiceRepository.save(invoice);
+    }
+
+    private RealmQueue realmQueue(long companyId) {
+        RealmQueue realm = realmQueues.get(companyId);
+        if (realm == null) {
+            final RealmQueue newRealm = new RealmQueue(realmConcurrency);
+            realm = realmQueues.putIfAbsent(companyId, newRealm);
+            if (realm == null) {
+                realm = newRealm;
+            }
+        }
+        return realm;
+    }
+
+    /**
+     * @return the number of invoices that are queued or being submitted
+     */
+    public int getInFlight() {
+        return inFlight.size();
+    }
+
+    public long getBilled() {
+        return billed.get();
+    }
+
+    public long getFailed() {
+        return failed.get();
+    }
+
+    /**
+     * The invoices of one company's realm that are being submitted and the ones that wait for them to finish
+     */
+    private static class RealmQueue {
+        private final int concurrency;
+
+        private int running;
+
+        private final Queue<Invoice> pending = new ArrayDeque<>();
+
+        private RealmQueue(int concurrency) {
+            this.concurrency = concurrency;
+        }
+
+        /**
+         * @return true if the invoice can be submitted now, otherwise it waits until a running one has finished
+         */
+        synchronized boolean admit(Invoice invoice) {
+            if (running < concurrency) {
+                running++;
+                return true;
+            }
+            pending.add(invoice);
+            return false;
+        }
+
+        /**
+         * Called when a running invoice has finished
+         *
+         * @return the invoice to submit in its place, null if none is waiting
+         */
+        synchronized Invoice next() {
+            final Invoice next = pending.poll();
+            if (next == null) {
+                running--;
+            }
+            return next;
+        }
+    }
+}
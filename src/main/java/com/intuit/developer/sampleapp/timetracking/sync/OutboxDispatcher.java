@@ -0,0 +1,230 @@
+package com.intuit.developer.sampleapp.timetracking.sync;
+
+import com.intuit.developer.sampleapp.timetracking.domain.Company;
+import com.intuit.developer.sampleapp.timetracking.domain.OutboxEntry;
+import com.intuit.developer.sampleapp.timetracking.domain.TimeActivity;
+import com.intuit.developer.sampleapp.timetracking.qbo.BatchSyncResult;
+import com.intuit.developer.sampleapp.timetracking.qbo.QBOGateway;
+import com.intuit.developer.sampleapp.timetracking.repository.CompanyRepository;
+import com.intuit.developer.sampleapp.timetracking.repository.OutboxEntryRepository;
+import com.intuit.developer.sampleapp.timetracking.repository.TimeActivityRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Drains the outbox: pushes the time activities that were saved since the last run to QBO in batches, one company
+ * at a time and oldest first within a company.
+ * <p/>
+ * The outbox is checked every outbox.dispatcher.intervalMillis, and right away when dispatchSoon() is called after a
+ * time activity was created. A push that fails is tried again later with exponential backoff, a time activity that
+ * can't be pushed yet (e.g. its employee is not in QBO) doesn't hold up the ones behind it. Entries of companies that
+ * are not connected to QBO wait until they are.
+ */
+public class OutboxDispatcher {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(OutboxDispatcher.class);
+
+    @Autowired
+    private OutboxEntryRepository outboxEntryRepository;
+
+    @Autowired
+    private CompanyRepository companyRepository;
+
+    @Autowired
+    private TimeActivityRepository timeActivityRepository;
+
+    @Autowired
+    private QBOGateway qboGateway;
+
+    @Value("${outbox.dispatcher.intervalMillis:1000}")
+    private long intervalMillis = 1000;
+
+    @Value("${outbox.dispatcher.batchSize:100}")
+    private int batchSize = 100;
+
+    @Value("${outbox.dispatcher.retryDelayMillis:5000}")
+    private long retryDelayMillis = 5000;
+
+    @Value("${outbox.dispatcher.maxRetryDelayMillis:600000}")
+    private long maxRetryDelayMillis = 600000;
+
+    private ScheduledExecutorService scheduler;
+
+    private final AtomicBoolean dispatchPending = new AtomicBoolean();
+
+    private final ConcurrentHashMap<Long, Object> companyLocks = new ConcurrentHashMap<>();
+
+    private final AtomicLong dispatched = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+
+    @PostConstruct
+    public void start() {
+        scheduler = Executors.newSingleThreadScheduledExecutor();
+        scheduler.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                dispatch();
+            }
+        }, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        //entries that were not pushed yet stay in the outbox and are pushed after the next start
+        scheduler.shutdownNow();
+    }
+
+    /**
+     * Drain the outbox now instead of waiting for the next scheduled run, calls that come in while a run is already
+     * waiting to start are folded into it
+     */
+    public void dispatchSoon() {
+        if (!dispatchPending.compareAndSet(false, true)) {
+            return;
+        }
+
+        try {
+            scheduler.execute(new Runnable() {
+                @Override
+                public void run() {
+                    dispatchPending.set(false);
+                    dispatch();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            //shutting down
+            dispatchPending.set(false);
+        }
+    }
+
+    /**
+     * Time activities of a company are only pushed to QBO while holding this lock, so that the outbox and a sync job
+     * never push the same time activity twice
+     */
+    public Object lockFor(long companyId) {
+        Object lock = companyLocks.get(companyId);
+        if (lock == null) {
+            final Object newLock = new Object();
+            lock = companyLocks.putIfAbsent(companyId, newLock);
+            if (lock == null) {
+                lock = newLock;
+            }
+        }
+        return lock;
+    }
+
+    void dispatch() {
+        for (Long companyId : outboxEntryRepository.findCompanyIds()) {
+            try {
+                dispatchCompany(companyId);
+            } catch (RuntimeException e) {
+                //don't let one company stop the others
+                LOGGER.error("Dispatching the outbox of company " + companyId + " failed", e);
+            }
+        }
+    }
+
+    private void dispatchCompany(long companyId) {
+        final Company company = companyRepository.findOne(companyId);
+        if (company == null) {
+            LOGGER.warn("Dropping the outbox entries of company " + companyId + ", it no longer exists");
+            outboxEntryRepository.delete(outboxEntryRepository.findByCompanyId(companyId));
+            return;
+        }
+
+        if (!company.isConnectedToQbo()) {
+            return;
+        }
+
+        synchronized (lockFor(companyId)) {
+            List<OutboxEntry> entries;
+            do {
+                entries = outboxEntryRepository.findByCompanyIdAndNextAttemptDateLessThanEqualOrderByIdAsc(companyId, new Date(), new PageRequest(0, batchSize));
+                dispatchBatch(company, entries);
+            } while (entries.size() == batchSize);
+        }
+    }
+
+    private void dispatchBatch(Company company, List<OutboxEntry> entries) {
+        final List<OutboxEntry> pushedEntries = new ArrayList<>();
+        final List<TimeActivity> timeActivities = new ArrayList<>();
+
+        for (OutboxEntry entry : entries) {
+            final TimeActivity timeActivity = timeActivityRepository.findOne(entry.getEntityId());
+            if (timeActivity == null || timeActivity.getQboId() != null) {
+                //deleted, or already pushed by a sync job
+                outboxEntryRepository.delete(entry);
+            } else {
+                pushedEntries.add(entry);
+                timeActivities.add(timeActivity);
+            }
+        }
+
+        if (timeActivities.isEmpty()) {
+            return;
+        }
+
+        String error;
+        try {
+            final BatchSyncResult result = qboGateway.createTimeActivitiesInQBO(company, timeActivities, null);
+            error = result.hasFailures() ? result.getFailures().toString() : null;
+        } catch (RuntimeException e) {
+            LOGGER.warn("Pushing " + timeActivities.size() + " time activities of company " + company.getId() + " to QBO failed", e);
+            error = e.getMessage();
+        }
+
+        for (int i = 0; i < pushedEntries.size(); i++) {
+            final OutboxEntry entry = pushedEntries.get(i);
+            if (timeActivities.get(i).getQboId() != null) {
+                outboxEntryRepository.delete(entry);
+                dispatched.incrementAndGet();
+            } else {
+                entry.retryLater(error, new Date(System.currentTimeMillis() + retryDelayMillis(entry.getAttempts() + 1)));
+                outboxEntryRepository.save(entry);
+                failed.incrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * @return the delay before the given attempt, doubling with every failed attempt up to maxRetryDelayMillis
+     */
+    long retryDelayMillis(int attempt) {
+        final int doublings = Math.min(attempt - 1, 30);
+        return Math.min(maxRetryDelayMillis, retryDelayMillis << doublings);
+    }
+
+    /**
+     * @return the number of entities that were pushed from the outbox
+     */
+    public long getDispatched() {
+        return dispatched.get();
+    }
+
+    /**
+     * @return the number of failed pushes, an entity is counted once for every attempt
+     */
+    public long getFailed() {
+        return failed.get();
+    }
+
+    public long getPending() {
+        return outboxEntryRepository.count();
+    }
+}
@@ -0,0 +1,294 @@
+package com.intuit.developer.sampleapp.timetracking.sync;
+
+import com.intuit.developer.sampleapp.timetracking.domain.Company;
+import com.intuit.developer.sampleapp.timetracking.domain.Customer;
+import com.intuit.developer.sampleapp.timetracking.domain.Employee;
+import com.intuit.developer.sampleapp.timetracking.domain.PullSyncWatermark;
+import com.intuit.developer.sampleapp.timetracking.domain.ServiceItem;
+import com.intuit.developer.sampleapp.timetracking.mappers.CustomerMapper;
+import com.intuit.developer.sampleapp.timetracking.mappers.EmployeeMapper;
+import com.intuit.developer.sampleapp.timetracking.mappers.ServiceItemMapper;
+import com.intuit.developer.sampleapp.timetracking.qbo.QBOGateway;
+import com.intuit.developer.sampleapp.timetracking.repository.*;
+import com.intuit.ipp.data.EntityStatusEnum;
+import com.intuit.ipp.data.IntuitEntity;
+import com.intuit.ipp.data.Item;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Pulls the customers, employees and service items that were edited in QBO back into the app, so that our copies
+ * don't go stale.
+ * <p/>
+ * Every pullSync.intervalMillis the QBO ChangeDataCapture endpoint is called once for every company that is connected
+ * to QBO, with the PullSyncWatermark of the company. Up to pullSync.threads companies are pulled at the same time.
+ * Changes are matched to our entities by qboId, entities that only exist in QBO are not imported and entities that
+ * were deleted in QBO are left alone because time activities and invoices may still refer to them.
+ * <p/>
+ * Each pull re-reads the last pullSync.overlapMillis before the watermark, applying a change twice is harmless and
+ * it covers clock differences with QBO. The first pull of a company only records the watermark. When QBO cuts off the
+ * changes of a type at the most it returns, the watermark is only advanced as far as the changes that came back and
+ * the rest are pulled right away.
+ */
+public class PullSyncScheduler {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(PullSyncScheduler.class);
+
+    //QBO doesn't return changes that are older than this
+    private static final long MAX_LOOKBACK_MILLIS = TimeUnit.DAYS.toMillis(30);
+
+    @Autowired
+    private PullSyncWatermarkRepository watermarkRepository;
+
+    @Autowired
+    private CompanyRepository companyRepository;
+
+    @Autowired
+    private CustomerRepository customerRepository;
+
+    @Autowired
+    private EmployeeRepository employeeRepository;
+
+    @Autowired
+    private ServiceItemRepository serviceItemRepository;
+
+    @Autowired
+    private QBOGateway qboGateway;
+
+    @Value("${pullSync.enabled:true}")
+    private boolean enabled = true;
+
+    @Value("${pullSync.intervalMillis:300000}")
+    private long intervalMillis = 300000;
+
+    @Value("${pullSync.threads:4}")
+    private int threads = 4;
+
+    @Value("${pullSync.overlapMillis:60000}")
+    private long overlapMillis = 60000;
+
+    private ScheduledExecutorService scheduler;
+
+    private ExecutorService pullExecutor;
+
+    private final AtomicLong pulls = new AtomicLong();
+    private final AtomicLong failedPulls = new AtomicLong();
+    private final AtomicLong appliedChanges = new AtomicLong();
+    private final AtomicLong ignoredChanges = new AtomicLong();
+
+    @PostConstruct
+    public void start() {
+        pullExecutor = Executors.newFixedThreadPool(threads);
+        scheduler = Executors.newSingleThreadScheduledExecutor();
+
+        if (enabled) {
+            scheduler.scheduleWithFixedDelay(new Runnable() {
+                @Override
+                public void run() {
+                    pullAll();
+                }
+            }, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        scheduler.shutdownNow();
+        pullExecutor.shutdownNow();
+    }
+
+    /**
+     * Pull the changes of every connected company, returns once all of them are done so runs never overlap
+     */
+    void pullAll() {
+        final List<Callable<Void>> tasks = new ArrayList<>();
+        for (final Company company : companyRepository.findByConnectedToQboTrue()) {
+            tasks.add(new Callable<Void>() {
+                @Override
+                public Void call() {
+                    try {
+                        pull(company);
+                    } catch (RuntimeException e) {
+                        //don't let one company stop the others
+                        LOGGER.error("Pulling changes from QBO for company " + company.getId() + " failed", e);
+                    }
+                    return null;
+                }
+            });
+        }
+
+        try {
+            pullExecutor.invokeAll(tasks);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    void pull(Company company) {
+        final Date pullStarted = new Date();
+
+        PullSyncWatermark watermark = watermarkRepository.findByCompanyId(company.getId());
+        if (watermark == null) {
+            watermarkRepository.save(new PullSyncWatermark(company.getId(), pullStarted));
+            return;
+        }
+
+        long changedSince = watermark.getChangedSince().getTime() - overlapMillis;
+        if (changedSince < pullStarted.getTime() - MAX_LOOKBACK_MILLIS) {
+            LOGGER.warn("Changes made in QBO for company " + company.getId() + " before the last 30 days can't be pulled, a full sync may be needed");
+            changedSince = pullStarted.getTime() - MAX_LOOKBACK_MILLIS;
+        }
+
+        pulls.incrementAndGet();
+        try {
+            Date pulledUpTo = pullChanges(company, new Date(changedSince));
+            while (pulledUpTo != null) {
+                if (pulledUpTo.getTime() <= changedSince) {
+                    LOGGER.warn("More than " + QBOGateway.MAX_CHANGED_ENTITIES_PER_TYPE + " entities of one type were changed in QBO for company " + company.getId() + " at " + pulledUpTo + ", some of them were not pulled and a full sync may be needed");
+                    break;
+                }
+
+                //QBO returned as many changes of a type as it returns at most, the ones after the newest of them are
+                //pulled next, starting right at it since its time is QBO's own
+                watermark.advance(pulledUpTo);
+                watermarkRepository.save(watermark);
+
+                changedSince = pulledUpTo.getTime();
+                pulledUpTo = pullChanges(company, pulledUpTo);
+            }
+        } catch (RuntimeException e) {
+            failedPulls.incrementAndGet();
+            watermark.fail(e.getMessage());
+            watermarkRepository.save(watermark);
+            throw e;
+        }
+
+        watermark.advance(pullStarted);
+        watermarkRepository.save(watermark);
+    }
+
+    /**
+     * Apply the changes made in QBO since changedSince. QBO returns the oldest changes first and at most
+     * MAX_CHANGED_ENTITIES_PER_TYPE of each type, when a type is cut off at that many the changes were only pulled up to
+     * the newest LastUpdatedTime received for it.
+     *
+     * @return how far changes were pulled when a type was cut off, null if all changes were pulled
+     */
+    private Date pullChanges(Company company, Date changedSince) {
+        final Map<Class<?>, Integer> counts = new HashMap<>();
+        final Map<Class<?>, Date> newestChanges = new HashMap<>();
+
+        for (IntuitEntity changedEntity : qboGateway.findChangedEntities(company, changedSince)) {
+            if (apply(company, changedEntity)) {
+                appliedChanges.incrementAndGet();
+            } else {
+                ignoredChanges.incrementAndGet();
+            }
+
+            final Class<?> type = changedEntity.getClass();
+            final Integer count = counts.get(type);
+            counts.put(type, count == null ? 1 : count + 1);
+
+            final Date lastUpdated = changedEntity.getMetaData() != null ? changedEntity.getMetaData().getLastUpdatedTime() : null;
+            final Date newest = newestChanges.get(type);
+            if (lastUpdated != null && (newest == null || lastUpdated.after(newest))) {
+                newestChanges.put(type, lastUpdated);
+            }
+        }
+
+        Date pulledUpTo = null;
+        for (Map.Entry<Class<?>, Integer> count : counts.entrySet()) {
+            if (count.getValue() < QBOGateway.MAX_CHANGED_ENTITIES_PER_TYPE) {
+                continue;
+            }
+
+            Date newest = newestChanges.get(count.getKey());
+            if (newest == null) {
+                newest = changedSince;
+            }
+            if (pulledUpTo == null || newest.before(pulledUpTo)) {
+                pulledUpTo = newest;
+            }
+        }
+        return pulledUpTo;
+    }
+
+    /**
+     * @return false if the change doesn't apply to any of our entities
+     */
+    private boolean apply(Company company, IntuitEntity changedEntity) {
+        if (changedEntity.getStatus() == EntityStatusEnum.DELETED) {
+            return false;
+        }
+
+        if (changedEntity instanceof com.intuit.ipp.data.Customer) {
+            final Customer customer = customerRepository.findByCompany_IdAndQboId(company.getId(), changedEntity.getId());
+            if (customer == null) {
+                return false;
+            }
+            CustomerMapper.applyQBOObject(customer, (com.intuit.ipp.data.Customer) changedEntity);
+            customerRepository.save(customer);
+            return true;
+        }
+
+        if (changedEntity instanceof com.intuit.ipp.data.Employee) {
+            final Employee employee = employeeRepository.findByCompany_IdAndQboId(company.getId(), changedEntity.getId());
+            if (employee == null) {
+                return false;
+            }
+            EmployeeMapper.applyQBOObject(employee, (com.intuit.ipp.data.Employee) changedEntity);
+            employeeRepository.save(employee);
+            return true;
+        }
+
+        if (changedEntity instanceof Item) {
+            final ServiceItem serviceItem = serviceItemRepository.findByCompany_IdAndQboId(company.getId(), changedEntity.getId());
+            if (serviceItem == null) {
+                return false;
+            }
+            ServiceItemMapper.applyQBOObject(serviceItem, (Item) changedEntity);
+            serviceItemRepository.save(serviceItem);
+            return true;
+        }
+
+        return false;
+    }
+
+    public long getPulls() {
+        return pulls.get();
+    }
+
+    public long getFailedPulls() {
+        return failedPulls.get();
+    }
+
+    /**
+     * @return the number of changes that were copied onto our entities
+     */
+    public long getAppliedChanges() {
+        return appliedChanges.get();
+    }
+
+    /**
+     * @return the number of changes to entities we don't have, or that were deleted in QBO
+     */
+    public long getIgnoredChanges() {
+        return ignoredChanges.get();
+    }
+}
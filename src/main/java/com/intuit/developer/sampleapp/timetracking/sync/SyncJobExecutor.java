@@ -0,0 +1,539 @@
+package com.intuit.developer.sampleapp.timetracking.sync;
+
+import com.intuit.developer.sampleapp.timetracking.controllers.SyncRequest;
+import com.intuit.developer.sampleapp.timetracking.domain.Company;
+import com.intuit.developer.sampleapp.timetracking.domain.Customer;
+import com.intuit.developer.sampleapp.timetracking.domain.Employee;
+import com.intuit.developer.sampleapp.timetracking.domain.ServiceItem;
+import com.intuit.developer.sampleapp.timetracking.domain.SyncJob;
+import com.intuit.developer.sampleapp.timetracking.domain.SyncJobStatus;
+import com.intuit.developer.sampleapp.timetracking.domain.TimeActivity;
+import com.intuit.developer.sampleapp.timetracking.qbo.BatchSyncListener;
+import com.intuit.developer.sampleapp.timetracking.qbo.BatchSyncResult;
+import com.intuit.developer.sampleapp.timetracking.qbo.EntityPages;
+import com.intuit.developer.sampleapp.timetracking.qbo.QBOGateway;
+import com.intuit.developer.sampleapp.timetracking.repository.*;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Runs SyncJobs on a bounded pool of background threads so that a sync request doesn't hold on to a request thread
+ * while every entity is pushed to QBO.
+ * <p/>
+ * When the queue is full new jobs are failed right away instead of piling up. Jobs that were still queued or running
+ * when the app was stopped are queued again once the application context has started; re-running a sync is safe
+ * because entities that already exist in QBO are matched by name instead of being created again.
+ * <p/>
+ * Time activities are pushed by the OutboxDispatcher as they are created, a job for all entity types pushes the ones
+ * that are still pending, e.g. because their employee was not in QBO yet.
+ * <p/>
+ * A job for all entity types runs its stages as a SyncTaskGraph on a separate pool. How many stages run against one
+ * company's realm at the same time, across all jobs, is capped by sync.executor.realmConcurrency.
+ * <p/>
+ * Only entities that are not in QBO yet are synced. They are read and pushed sync.pageSize at a time, ordered by id
+ * and starting after the last id of the previous page, so memory use doesn't grow with the size of the company. Stages
+ * run outside of a transaction, so the entities of a page are detached once it has been pushed and nothing piles up
+ * in a persistence context.
+ */
+public class SyncJobExecutor implements ApplicationListener<ContextRefreshedEvent> {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(SyncJobExecutor.class);
+
+    //stage names, the entity stages are named after their SyncRequest.EntityType
+    private static final String EMPLOYEES = "Employee";
+    private static final String CUSTOMERS = "Customer";
+    private static final String SERVICE_ITEMS = "ServiceItem";
+    private static final String TIME_ACTIVITIES = "TimeActivity";
+
+    @Autowired
+    private SyncJobRepository syncJobRepository;
+
+    @Autowired
+    private CompanyRepository companyRepository;
+
+    @Autowired
+    private EmployeeRepository employeeRepository;
+
+    @Autowired
+    private CustomerRepository customerRepository;
+
+    @Autowired
+    private ServiceItemRepository serviceItemRepository;
+
+    @Autowired
+    private TimeActivityRepository timeActivityRepository;
+
+    @Autowired
+    private QBOGateway qboGateway;
+
+    @Autowired
+    private OutboxDispatcher outboxDispatcher;
+
+    @Value("${sync.executor.threads:2}")
+    private int threads = 2;
+
+    @Value("${sync.executor.queueCapacity:100}")
+    private int queueCapacity = 100;
+
+    @Value("${sync.executor.realmConcurrency:3}")
+    private int realmConcurrency = 3;
+
+    @Value("${sync.pageSize:500}")
+    private int pageSize = 500;
+
+    private ThreadPoolExecutor executor;
+
+    private ExecutorService stageExecutor;
+
+    private final ConcurrentHashMap<Long, Semaphore> realmPermits = new ConcurrentHashMap<>();
+
+    private final AtomicBoolean interruptedJobsResumed = new AtomicBoolean();
+
+    @PostConstruct
+    public void start() {
+        executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<Runnable>(queueCapacity));
+        stageExecutor = Executors.newFixedThreadPool(threads * realmConcurrency);
+    }
+
+    @PreDestroy
+    public void stop() {
+        //jobs that are interrupted here stay Running in the database and are resumed on the next start
+        executor.shutdownNow();
+        stageExecutor.shutdownNow();
+    }
+
+    @Override
+    public void onApplicationEvent(ContextRefreshedEvent event) {
+        if (interruptedJobsResumed.compareAndSet(false, true)) {
+            resumeInterruptedJobs();
+        }
+    }
+
+    /**
+     * Persist a new job and queue it
+     *
+     * @return the job, which has already failed if the queue is full
+     */
+    public SyncJob submit(long companyId, SyncRequest.EntityType entityType) {
+        final SyncJob job = syncJobRepository.save(new SyncJob(companyId, entityType.name()));
+        enqueue(job);
+        return job;
+    }
+
+    void resumeInterruptedJobs() {
+        final List<SyncJob> interruptedJobs = syncJobRepository.findByStatusInOrderByIdAsc(Arrays.asList(SyncJobStatus.Queued, SyncJobStatus.Running));
+
+        for (SyncJob job : interruptedJobs) {
+            LOGGER.info("Resuming sync job " + job.getId() + " for company " + job.getCompanyId());
+            job.requeue();
+            syncJobRepository.save(job);
+            enqueue(job);
+        }
+    }
+
+    private void enqueue(final SyncJob job) {
+        final long jobId = job.getId();
+        try {
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    runJob(jobId);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            job.fail("Too many sync jobs are queued, try again later");
+            syncJobRepository.save(job);
+        }
+    }
+
+    void runJob(long jobId) {
+        final SyncJob job = syncJobRepository.findOne(jobId);
+        if (job == null) {
+            LOGGER.warn("Sync job " + jobId + " no longer exists");
+            return;
+        }
+
+        try {
+            final SyncRequest.EntityType entityType = SyncRequest.EntityType.valueOf(job.getEntityType());
+            final Company company = companyRepository.findOne(job.getCompanyId());
+
+            if (entityType == SyncRequest.EntityType.All) {
+                syncAll(job, company);
+            } else {
+                syncOne(job, company, entityType);
+            }
+
+        } catch (RuntimeException e) {
+            LOGGER.error("Sync job " + jobId + " failed", e);
+            job.fail(e.getMessage());
+            syncJobRepository.save(job);
+        }
+    }
+
+    private void syncOne(SyncJob job, Company company, SyncRequest.EntityType entityType) {
+        final Stage<?> stage = stage(entityType.name());
+        startJob(job, stage.count(company));
+
+        final BatchSyncResult result = runStage(company, stage, new JobProgress(job));
+
+        markSynced(job.getCompanyId(), Collections.singletonMap(entityType.name(), result));
+
+        job.updateProgress(result.getSyncedCount() + result.getFailedCount(), result.getFailedCount());
+        job.complete(message(entityType.name() + " objects", result));
+        syncJobRepository.save(job);
+    }
+
+    /**
+     * Employees, customers and service items don't depend on each other and are synced in parallel, time activities
+     * reference all three and are pushed once they are in QBO.
+     */
+    private void syncAll(SyncJob job, final Company company) {
+        final List<Stage<?>> stages = new ArrayList<>();
+        for (String name : Arrays.asList(EMPLOYEES, CUSTOMERS, SERVICE_ITEMS, TIME_ACTIVITIES)) {
+            stages.add(stage(name));
+        }
+
+        int total = 0;
+        for (Stage<?> stage : stages) {
+            total += stage.count(company);
+        }
+        startJob(job, total);
+
+        final JobProgress progress = new JobProgress(job);
+        final Map<String, BatchSyncResult> results = new ConcurrentHashMap<>();
+
+        final SyncTaskGraph graph = new SyncTaskGraph();
+        for (final Stage<?> stage : stages) {
+            final Runnable task = new Runnable() {
+                @Override
+                public void run() {
+                    results.put(stage.name, runStage(company, stage, progress));
+                }
+            };
+
+            if (stage.name.equals(TIME_ACTIVITIES)) {
+                graph.add(stage.name, task, EMPLOYEES, CUSTOMERS, SERVICE_ITEMS);
+            } else {
+                graph.add(stage.name, task);
+            }
+        }
+
+        graph.run(stageExecutor);
+
+        markSynced(job.getCompanyId(), results);
+
+        final BatchSyncResult result = BatchSyncResult.combine(results.values());
+        job.updateProgress(result.getSyncedCount() + result.getFailedCount(), result.getFailedCount());
+
+        final StringBuilder message = new StringBuilder(message("objects", result));
+        for (Map.Entry<String, String> failure : graph.getFailures().entrySet()) {
+            message.append("; ").append(failure.getKey()).append(" sync failed: ").append(failure.getValue());
+        }
+        for (String skipped : graph.getSkipped()) {
+            message.append("; ").append(skipped).append(" sync skipped");
+        }
+
+        if (graph.getFailures().isEmpty()) {
+            job.complete(message.toString());
+        } else {
+            job.fail(message.toString());
+        }
+        syncJobRepository.save(job);
+    }
+
+    /**
+     * Run a stage once a permit for the company is available, which caps how many requests are made to one realm at
+     * the same time no matter how many jobs are running for it
+     */
+    private BatchSyncResult runStage(Company company, Stage<?> stage, JobProgress progress) {
+        final Semaphore permits = realmPermits(company.getId());
+        try {
+            permits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting to sync " + stage.name + " objects", e);
+        }
+
+        try {
+            return stage.run(company, pageSize, progress.listenerFor(stage.name));
+        } finally {
+            permits.release();
+        }
+    }
+
+    private Semaphore realmPermits(long companyId) {
+        Semaphore permits = realmPermits.get(companyId);
+        if (permits == null) {
+            final Semaphore newPermits = new Semaphore(realmConcurrency);
+            permits = realmPermits.putIfAbsent(companyId, newPermits);
+            if (permits == null) {
+                permits = newPermits;
+            }
+        }
+        return permits;
+    }
+
+    private Stage<?> stage(String name) {
+        switch (name) {
+            case EMPLOYEES:
+                return new Stage<Employee>(name) {
+                    @Override
+                    long countUnsynced(Company company) {
+                        return employeeRepository.countByCompany_IdAndQboIdIsNull(company.getId());
+                    }
+
+                    @Override
+                    List<Employee> loadUnsynced(Company company, long afterId, Pageable pageable) {
+                        return employeeRepository.findUnsyncedPage(company.getId(), afterId, pageable);
+                    }
+
+                    @Override
+                    long id(Employee employee) {
+                        return employee.getId();
+                    }
+
+                    @Override
+                    BatchSyncResult push(Company company, EntityPages<Employee> employees, BatchSyncListener listener) {
+                        return qboGateway.createEmployeesInQBO(company, employees, listener);
+                    }
+                };
+            case CUSTOMERS:
+                return new Stage<Customer>(name) {
+                    @Override
+                    long countUnsynced(Company company) {
+                        return customerRepository.countByCompany_IdAndQboIdIsNull(company.getId());
+                    }
+
+                    @Override
+                    List<Customer> loadUnsynced(Company company, long afterId, Pageable pageable) {
+                        return customerRepository.findUnsyncedPage(company.getId(), afterId, pageable);
+                    }
+
+                    @Override
+                    long id(Customer customer) {
+                        return customer.getId();
+                    }
+
+                    @Override
+                    BatchSyncResult push(Company company, EntityPages<Customer> customers, BatchSyncListener listener) {
+                        return qboGateway.createCustomersInQBO(company, customers, listener);
+                    }
+                };
+            case SERVICE_ITEMS:
+                return new Stage<ServiceItem>(name) {
+                    @Override
+                    long countUnsynced(Company company) {
+                        return serviceItemRepository.countByCompany_IdAndQboIdIsNull(company.getId());
+                    }
+
+                    @Override
+                    List<ServiceItem> loadUnsynced(Company company, long afterId, Pageable pageable) {
+                        return serviceItemRepository.findUnsyncedPage(company.getId(), afterId, pageable);
+                    }
+
+                    @Override
+                    long id(ServiceItem serviceItem) {
+                        return serviceItem.getId();
+                    }
+
+                    @Override
+                    BatchSyncResult push(Company company, EntityPages<ServiceItem> serviceItems, BatchSyncListener listener) {
+                        return qboGateway.createItemsInQBO(company, serviceItems, listener);
+                    }
+                };
+            case TIME_ACTIVITIES:
+                return new Stage<TimeActivity>(name) {
+                    @Override
+                    long countUnsynced(Company company) {
+                        return timeActivityRepository.countByCompany_IdAndQboIdIsNull(company.getId());
+                    }
+
+                    @Override
+                    List<TimeActivity> loadUnsynced(Company company, long afterId, Pageable pageable) {
+                        return timeActivityRepository.findUnsyncedPage(company.getId(), afterId, pageable);
+                    }
+
+                    @Override
+                    long id(TimeActivity timeActivity) {
+                        return timeActivity.getId();
+                    }
+
+                    @Override
+                    BatchSyncResult run(Company company, int pageSize, BatchSyncListener listener) {
+                        //the pages are read while pushing, after the employees, customers and service items were synced
+                        synchronized (outboxDispatcher.lockFor(company.getId())) {
+                            return super.run(company, pageSize, listener);
+                        }
+                    }
+
+                    @Override
+                    BatchSyncResult push(Company company, EntityPages<TimeActivity> timeActivities, BatchSyncListener listener) {
+                        return qboGateway.createTimeActivitiesInQBO(company, timeActivities, listener);
+                    }
+                };
+            default:
+                throw new IllegalArgumentException("Unsupported entity type " + name);
+        }
+    }
+
+    private void startJob(SyncJob job, int total) {
+        job.start(total);
+        syncJobRepository.save(job);
+    }
+
+    /**
+     * Flag the entity types whose sync had no failures, done once per job so parallel stages don't overwrite each
+     * other's flags
+     */
+    private void markSynced(long companyId, Map<String, BatchSyncResult> results) {
+        final Company company = companyRepository.findOne(companyId);
+
+        for (Map.Entry<String, BatchSyncResult> result : results.entrySet()) {
+            final boolean synced = !result.getValue().hasFailures();
+            switch (result.getKey()) {
+                case EMPLOYEES:
+                    company.setEmployeesSynced(synced);
+                    break;
+                case CUSTOMERS:
+                    company.setCustomersSynced(synced);
+                    break;
+                case SERVICE_ITEMS:
+                    company.setServiceItemsSynced(synced);
+                    break;
+            }
+        }
+
+        companyRepository.save(company);
+    }
+
+    private String message(String synced, BatchSyncResult result) {
+        StringBuilder message = new StringBuilder("Synced ")
+                .append(result.getSyncedCount())
+                .append(" ")
+                .append(synced)
+                .append(" to QBO");
+
+        if (result.hasFailures()) {
+            message.append(", ").append(result.getFailedCount()).append(" failed: ").append(result.getFailures());
+        }
+
+        return message.toString();
+    }
+
+    /**
+     * Reading and pushing the entities of one type that are not in QBO yet, a page at a time
+     */
+    private abstract static class Stage<T> {
+        private final String name;
+
+        private Stage(String name) {
+            this.name = name;
+        }
+
+        abstract long countUnsynced(Company company);
+
+        /**
+         * @return the first page of entities that are not in QBO yet with an id greater than afterId, in id order
+         */
+        abstract List<T> loadUnsynced(Company company, long afterId, Pageable pageable);
+
+        abstract long id(T entity);
+
+        abstract BatchSyncResult push(Company company, EntityPages<T> entities, BatchSyncListener listener);
+
+        /**
+         * @return the number of entities to sync
+         */
+        int count(Company company) {
+            return (int) countUnsynced(company);
+        }
+
+        BatchSyncResult run(Company company, int pageSize, BatchSyncListener listener) {
+            return push(company, pages(company, pageSize), listener);
+        }
+
+        /**
+         * Pages by id rather than by offset: pushed entities stop matching the query, and entities that failed to push
+         * still match it, so an offset would skip some and a fixed first page might never end
+         */
+        private EntityPages<T> pages(final Company company, final int pageSize) {
+            return new EntityPages<T>() {
+                private long afterId = 0;
+                private boolean last;
+
+                @Override
+                public List<T> next() {
+                    if (last) {
+                        return Collections.emptyList();
+                    }
+
+                    final List<T> page = loadUnsynced(company, afterId, new PageRequest(0, pageSize));
+                    last = page.size() < pageSize;
+                    if (!page.isEmpty()) {
+                        afterId = id(page.get(page.size() - 1));
+                    }
+                    return page;
+                }
+            };
+        }
+    }
+
+    /**
+     * Adds up the progress of the stages of a job, stages report from their own threads
+     */
+    private class JobProgress {
+        private final SyncJob job;
+        private final Map<String, int[]> processedAndFailedByStage = new HashMap<>();
+
+        private JobProgress(SyncJob job) {
+            this.job = job;
+        }
+
+        private BatchSyncListener listenerFor(final String stageName) {
+            return new BatchSyncListener() {
+                @Override
+                public void progress(BatchSyncResult resultSoFar) {
+                    update(stageName, resultSoFar.getSyncedCount() + resultSoFar.getFailedCount(), resultSoFar.getFailedCount());
+                }
+            };
+        }
+
+        private synchronized void update(String stageName, int processed, int failed) {
+            processedAndFailedByStage.put(stageName, new int[]{processed, failed});
+
+            int totalProcessed = 0;
+            int totalFailed = 0;
+            for (int[] processedAndFailed : processedAndFailedByStage.values()) {
+                totalProcessed += processedAndFailed[0];
+                totalFailed += processedAndFailed[1];
+            }
+
+            job.updateProgress(totalProcessed, totalFailed);
+            syncJobRepository.save(job);
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package com.intuit.developer.sampleapp.timetracking.sync;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorCompletionService;
+
+/**
+ * A small dependency graph of sync tasks.
+ * <p/>
+ * Every task whose dependencies have completed is handed to the executor straight away, so independent tasks run in
+ * parallel and a task only waits for what it actually depends on. A task that fails doesn't stop the tasks that don't
+ * depend on it, but every task downstream of it is skipped.
+ */
+public class SyncTaskGraph {
+
+    private final Map<String, Runnable> tasks = new LinkedHashMap<>();
+
+    private final Map<String, List<String>> dependencies = new LinkedHashMap<>();
+
+    private final Set<String> completed = new LinkedHashSet<>();
+
+    private final Map<String, String> failures = new LinkedHashMap<>();
+
+    private final Set<String> skipped = new LinkedHashSet<>();
+
+    /**
+     * Add a task, the tasks it depends on must have been added already which keeps the graph free of cycles
+     */
+    public void add(String name, Runnable task, String... dependsOn) {
+        if (tasks.containsKey(name)) {
+            throw new IllegalArgumentException("Task " + name + " was already added");
+        }
+        for (String dependency : dependsOn) {
+            if (!tasks.containsKey(dependency)) {
+                throw new IllegalArgumentException("Task " + name + " depends on unknown task " + dependency);
+            }
+        }
+
+        tasks.put(name, task);
+        dependencies.put(name, Arrays.asList(dependsOn));
+    }
+
+    /**
+     * Run all tasks on the executor, blocking until every task has completed, failed or been skipped
+     */
+    public void run(Executor executor) {
+        final CompletionService<String> completionService = new ExecutorCompletionService<>(executor);
+        final Set<String> waiting = new LinkedHashSet<>(tasks.keySet());
+        final Map<String, Task> running = new LinkedHashMap<>();
+
+        while (!waiting.isEmpty() || !running.isEmpty()) {
+            for (String name : new ArrayList<>(waiting)) {
+                if (hasFailedDependency(name)) {
+                    waiting.remove(name);
+                    skipped.add(name);
+                } else if (completed.containsAll(dependencies.get(name))) {
+                    waiting.remove(name);
+                    final Task task = new Task(name, tasks.get(name));
+                    running.put(name, task);
+                    completionService.submit(task);
+                }
+            }
+
+            if (running.isEmpty()) {
+                //nothing left that can run
+                break;
+            }
+
+            final String finished = takeFinished(completionService, running);
+            running.remove(finished);
+        }
+    }
+
+    private boolean hasFailedDependency(String name) {
+        for (String dependency : dependencies.get(name)) {
+            if (failures.containsKey(dependency) || skipped.contains(dependency)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private String takeFinished(CompletionService<String> completionService, Map<String, Task> running) {
+        try {
+            final String name = completionService.take().get();
+            completed.add(name);
+            return name;
+
+        } catch (ExecutionException e) {
+            final TaskFailedException failure = (TaskFailedException) e.getCause();
+            final Throwable cause = failure.getCause();
+            failures.put(failure.taskName, cause.getMessage() != null ? cause.getMessage() : cause.toString());
+            return failure.taskName;
+
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting for sync tasks " + running.keySet(), e);
+        }
+    }
+
+    public Set<String> getCompleted() {
+        return Collections.unmodifiableSet(completed);
+    }
+
+    /**
+     * @return failure reasons keyed by the name of the task that failed
+     */
+    public Map<String, String> getFailures() {
+        return Collections.unmodifiableMap(failures);
+    }
+
+    /**
+     * @return the tasks that didn't run because a task they depend on failed
+     */
+    public Set<String> getSkipped() {
+        return Collections.unmodifiableSet(skipped);
+    }
+
+    private static class Task implements Callable<String> {
+        private final String name;
+        private final Runnable runnable;
+
+        private Task(String name, Runnable runnable) {
+            this.name = name;
+            this.runnable = runnable;
+        }
+
+        @Override
+        public String call() {
+            try {
+                runnable.run();
+                return name;
+            } catch (Throwable e) {
+                //errors too, so that whatever a task throws is recorded as the failure of that task
+                throw new TaskFailedException(name, e);
+            }
+        }
+    }
+
+    private static class TaskFailedException extends RuntimeException {
+        private final String taskName;
+
+        private TaskFailedException(String taskName, Throwable cause) {
+            super(cause);
+            this.taskName = taskName;
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.intuit.developer.sampleapp.timetracking.test.integration;
+
+import com.intuit.developer.sampleapp.timetracking.Application;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.IntegrationTest;
+import org.springframework.boot.test.SpringApplicationConfiguration;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.test.context.web.WebAppConfiguration;
+
+import javax.sql.DataSource;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * The lookups that run on every time entry, invoice list and OAuth callback use the indexes declared on the entities,
+ * checked against the query plans of the HSQLDB database that the schema is generated into
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+@SpringApplicationConfiguration(classes = Application.class)
+@WebAppConfiguration
+@IntegrationTest
+public class IndexIntegrationTests {
+
+    @Autowired
+    DataSource dataSource;
+
+    private JdbcTemplate jdbcTemplate;
+
+    @Before
+    public void setUp() throws Exception {
+        jdbcTemplate = new JdbcTemplate(dataSource);
+    }
+
+    @Test
+    public void testPendingInvoiceOfCustomer() throws Exception {
+        assertUsesIndex("select * from invoice where customer_fk = 1 and status = 0", "IDX_INVOICE_CUSTOMER_STATUS");
+    }
+
+    @Test
+    public void testInvoicesOfCompanyByStatus() throws Exception {
+        assertUsesIndex("select * from invoice where company_fk = 1 and status = 0", "IDX_INVOICE_COMPANY_STATUS");
+    }
+
+    @Test
+    public void testTimeActivitiesOfCompanyByDate() throws Exception {
+        assertUsesIndex("select * from time_activity where company_fk = 1 and activity_date >= DATE '2014-01-01' order by activity_date",
+                "IDX_TIME_ACTIVITY_COMPANY_ACTIVITY_DATE");
+    }
+
+    @Test
+    public void testTimeActivitiesOfInvoice() throws Exception {
+        //HSQLDB may back the foreign key with its own index on the same column
+        assertUsesIndex("select * from time_activity where invoice_fk = 1", "IDX_TIME_ACTIVITY_INVOICE", "SYS_IDX_FK");
+    }
+
+    @Test
+    public void testUnsyncedTimeActivities() throws Exception {
+        assertUsesIndex("select * from time_activity where company_fk = 1 and qbo_id is null and id > 0 order by id",
+                "IDX_TIME_ACTIVITY_COMPANY_QBO_ID");
+    }
+
+    @Test
+    public void testCompanyByRequestToken() throws Exception {
+        assertUsesIndex("select * from company where request_token = 'token'", "IDX_COMPANY_REQUEST_TOKEN");
+    }
+
+    @Test
+    public void testEntitiesByQboId() throws Exception {
+        assertUsesIndex("select * from employee where company_fk = 1 and qbo_id = '1'", "IDX_EMPLOYEE_COMPANY_QBO_ID");
+        assertUsesIndex("select * from customer where company_fk = 1 and qbo_id = '1'", "IDX_CUSTOMER_COMPANY_QBO_ID");
+        assertUsesIndex("select * from service_item where company_fk = 1 and qbo_id = '1'", "IDX_SERVICE_ITEM_COMPANY_QBO_ID");
+    }
+
+    private void assertUsesIndex(String sql, String... indexNames) {
+        final List<String> planLines = jdbcTemplate.queryForList("explain plan for " + sql, String.class);
+
+        final StringBuilder plan = new StringBuilder();
+        for (String line : planLines) {
+            plan.append(line).append('\n');
+        }
+
+        boolean usesIndex = false;
+        for (String indexName : indexNames) {
+            usesIndex |= plan.indexOf("index=" + indexName) >= 0;
+        }
+
+        assertTrue(sql + " does not use " + Arrays.toString(indexNames) + ":\n" + plan, usesIndex);
+    }
+}
@@ -0,0 +1,164 @@
+package com.intuit.developer.sampleapp.timetracking.test.integration;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.intuit.developer.sampleapp.timetracking.Application;
+import com.intuit.developer.sampleapp.timetracking.domain.*;
+import com.intuit.developer.sampleapp.timetracking.repository.*;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.joda.money.Money;
+import org.joda.time.LocalDate;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.IntegrationTest;
+import org.springframework.boot.test.SpringApplicationConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.test.context.web.WebAppConfiguration;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+import javax.persistence.EntityManagerFactory;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * The invoice list only reads the invoice rows and their customers, the time activities of an invoice are fetched when
+ * it is expanded
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+@SpringApplicationConfiguration(classes = Application.class)
+@WebAppConfiguration
+@IntegrationTest
+public class InvoiceSummaryIntegrationTests {
+
+    @Autowired
+    WebApplicationContext webApplicationContext;
+
+    @Autowired
+    EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    CompanyRepository companyRepository;
+
+    @Autowired
+    EmployeeRepository employeeRepository;
+
+    @Autowired
+    CustomerRepository customerRepository;
+
+    @Autowired
+    ServiceItemRepository serviceItemRepository;
+
+    @Autowired
+    TimeActivityRepository timeActivityRepository;
+
+    @Autowired
+    InvoiceRepository invoiceRepository;
+
+    @Autowired
+    OutboxEntryRepository outboxEntryRepository;
+
+    private MockMvc mockMvc;
+
+    private Statistics statistics;
+
+    private Company company;
+    private Employee employee;
+    private Customer customer;
+    private ServiceItem serviceItem;
+    private Invoice invoice;
+    private TimeActivity timeActivity;
+
+    @Before
+    public void setUp() throws Exception {
+        mockMvc = MockMvcBuilders.webAppContextSetup(webApplicationContext).build();
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+
+        company = companyRepository.save(new Company("Invoice Summary Test Company"));
+
+        employee = new Employee("Jane", "Doe", "jane@example.com", "555-555-5555");
+        employee.setCompany(company);
+        employee = employeeRepository.save(employee);
+
+        customer = new Customer("John", "Doe", "john@example.com", "555-555-5556");
+        customer.setCompany(company);
+        customer = customerRepository.save(customer);
+
+        serviceItem = new ServiceItem("Research", "Research", Money.parse("USD 100.00"));
+        serviceItem.setCompany(company);
+        serviceItem = serviceItemRepository.save(serviceItem);
+
+        timeActivity = new TimeActivity();
+        timeActivity.setCompany(company);
+        timeActivity.setEmployee(employee);
+        timeActivity.setCustomer(customer);
+        timeActivity.setServiceItem(serviceItem);
+        timeActivity.setDate(new LocalDate(2014, 9, 2));
+        timeActivity.setMinutes(90);
+
+        //the way TimeActivityEventHandler adds a time activity to the customer's pending invoice
+        invoice = new Invoice();
+        invoice.setCompany(company);
+        invoice.setCustomer(customer);
+        invoice.setStatus(InvoiceStatus.Pending);
+        invoice.addTimeActivity(timeActivity);
+        invoice = invoiceRepository.save(invoice);
+        timeActivity = timeActivityRepository.save(timeActivity);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        statistics.setStatisticsEnabled(false);
+
+        outboxEntryRepository.delete(outboxEntryRepository.findByCompanyId(company.getId()));
+        timeActivityRepository.delete(timeActivity.getId());
+        invoiceRepository.delete(invoice.getId());
+        serviceItemRepository.delete(serviceItem);
+        customerRepository.delete(customer);
+        employeeRepository.delete(employee);
+        companyRepository.delete(company);
+    }
+
+    @Test
+    public void testInvoiceList_DoesNotLoadTimeActivities() throws Exception {
+        statistics.setStatisticsEnabled(true);
+        statistics.clear();
+
+        final String json = mockMvc.perform(get("/invoices/search/findSummariesByCompany")
+                .param("companyId", String.valueOf(company.getId()))
+                .param("projection", "summary"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+
+        assertEquals("time activities loaded", 0, statistics.getEntityStatistics(TimeActivity.class.getName()).getLoadCount());
+        assertEquals("time activity collections loaded", 0,
+                statistics.getCollectionStatistics(Invoice.class.getName() + ".timeActivities").getLoadCount());
+
+        final JsonNode summary = new ObjectMapper().readTree(json).path("_embedded").path("invoices").path(0).path("summary");
+        assertEquals("time activity count", 1, summary.path("timeActivityCount").asInt());
+        assertEquals("total minutes", 90, summary.path("totalMinutes").asInt());
+        assertFalse("time activities are not in the summary", summary.has("timeActivities"));
+    }
+
+    @Test
+    public void testExpandInvoice_FetchesItsTimeActivities() throws Exception {
+        final String json = mockMvc.perform(get("/timeActivities/search/findByInvoice")
+                .param("invoiceId", String.valueOf(invoice.getId()))
+                .param("projection", "summary"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+
+        final JsonNode timeActivities = new ObjectMapper().readTree(json).path("_embedded").path("timeActivities");
+        assertEquals("time activities", 1, timeActivities.size());
+        assertEquals("employee", "Jane", timeActivities.path(0).path("employee").path("firstName").asText());
+        assertEquals("service item", "Research", timeActivities.path(0).path("serviceItem").path("name").asText());
+    }
+}
@@ -0,0 +1,169 @@
+package com.intuit.developer.sampleapp.timetracking.test.integration;
+
+import com.intuit.developer.sampleapp.timetracking.Application;
+import com.intuit.developer.sampleapp.timetracking.domain.Company;
+import com.intuit.developer.sampleapp.timetracking.domain.Customer;
+import com.intuit.developer.sampleapp.timetracking.domain.Employee;
+import com.intuit.developer.sampleapp.timetracking.domain.ServiceItem;
+import com.intuit.developer.sampleapp.timetracking.repository.*;
+import org.joda.money.Money;
+import org.joda.time.LocalDate;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.IntegrationTest;
+import org.springframework.boot.test.SpringApplicationConfiguration;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.test.context.web.WebAppConfiguration;
+
+import javax.sql.DataSource;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectOutputStream;
+import java.sql.Date;
+import java.util.Map;
+
+import static junit.framework.Assert.assertEquals;
+
+/**
+ * Rows that were stored before a column was replaced only have the legacy column, the migration fills in the new
+ * columns in the database
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+@SpringApplicationConfiguration(classes = Application.class)
+@WebAppConfiguration
+@IntegrationTest
+public class LegacyColumnMigrationIntegrationTests {
+
+    //well clear of the ids the sequence hands out
+    private static final long LEGACY_ID = 900001L;
+
+    @Autowired
+    DataSource dataSource;
+
+    @Autowired
+    LegacyColumnMigration legacyColumnMigration;
+
+    @Autowired
+    CompanyRepository companyRepository;
+
+    @Autowired
+    EmployeeRepository employeeRepository;
+
+    @Autowired
+    CustomerRepository customerRepository;
+
+    @Autowired
+    ServiceItemRepository serviceItemRepository;
+
+    private JdbcTemplate jdbcTemplate;
+
+    private Company company;
+
+    @Before
+    public void setUp() throws Exception {
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        company = companyRepository.save(new Company("Legacy Column Test Company"));
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        jdbcTemplate.update("delete from time_activity where company_fk = ?", company.getId());
+        jdbcTemplate.update("delete from invoice where company_fk = ?", company.getId());
+        jdbcTemplate.update("delete from service_item where company_fk = ?", company.getId());
+        jdbcTemplate.update("delete from customer where company_fk = ?", company.getId());
+        jdbcTemplate.update("delete from employee where company_fk = ?", company.getId());
+        companyRepository.delete(company);
+    }
+
+    @Test
+    public void testMigrate_ServiceItemRate() throws Exception {
+        jdbcTemplate.update("insert into service_item (id, name, description, rate, company_fk) values (?, ?, ?, ?, ?)",
+                LEGACY_ID, "Legacy Research", "Research", "USD 12.50", company.getId());
+
+        legacyColumnMigration.migrate();
+
+        final Map<String, Object> row = jdbcTemplate.queryForMap("select rate_minor, rate_currency from service_item where id = ?", LEGACY_ID);
+        assertEquals("rate minor", 1250L, ((Number) row.get("RATE_MINOR")).longValue());
+        assertEquals("rate currency", "USD", row.get("RATE_CURRENCY"));
+    }
+
+    @Test
+    public void testMigrate_TimeActivityDate() throws Exception {
+        final Employee employee = new Employee("Jane", "Doe", "jane@example.com", "555-555-5555");
+        employee.setCompany(company);
+        employeeRepository.save(employee);
+
+        final Customer customer = new Customer("John", "Doe", "john@example.com", "555-555-5556");
+        customer.setCompany(company);
+        customerRepository.save(customer);
+
+        final ServiceItem serviceItem = new ServiceItem("Legacy Filing", "Filing", Money.parse("USD 100.00"));
+        serviceItem.setCompany(company);
+        serviceItemRepository.save(serviceItem);
+
+        jdbcTemplate.update("insert into time_activity (id, minutes, date, item_fk, employee_fk, customer_fk, company_fk) values (?, ?, ?, ?, ?, ?, ?)",
+                LEGACY_ID, 90, serialize(new LocalDate(2014, 9, 2)), serviceItem.getId(), employee.getId(), customer.getId(), company.getId());
+
+        legacyColumnMigration.migrate();
+
+        final Map<String, Object> row = jdbcTemplate.queryForMap("select activity_date, rate_currency from time_activity where id = ?", LEGACY_ID);
+        assertEquals("activity date", Date.valueOf("2014-09-02"), row.get("ACTIVITY_DATE"));
+        //only the date is written, the time activity is still billed at the service item's current rate
+        assertEquals("rate currency", null, row.get("RATE_CURRENCY"));
+    }
+
+    @Test
+    public void testMigrate_InvoiceDates() throws Exception {
+        final Customer customer = new Customer("John", "Doe", "john@example.com", "555-555-5556");
+        customer.setCompany(company);
+        customerRepository.save(customer);
+
+        jdbcTemplate.update("insert into invoice (id, customer_fk, company_fk, time_activity_count, min_date, max_date) values (?, ?, ?, ?, ?, ?)",
+                LEGACY_ID, customer.getId(), company.getId(), 2, serialize(new LocalDate(2014, 9, 2)), serialize(new LocalDate(2014, 9, 5)));
+
+        legacyColumnMigration.migrate();
+
+        final Map<String, Object> row = jdbcTemplate.queryForMap("select min_activity_date, max_activity_date from invoice where id = ?", LEGACY_ID);
+        assertEquals("min date", Date.valueOf("2014-09-02"), row.get("MIN_ACTIVITY_DATE"));
+        assertEquals("max date", Date.valueOf("2014-09-05"), row.get("MAX_ACTIVITY_DATE"));
+    }
+
+    @Test
+    public void testMigrate_InvoiceTotalCurrency() throws Exception {
+        final Employee employee = new Employee("Jane", "Doe", "jane@example.com", "555-555-5555");
+        employee.setCompany(company);
+        employeeRepository.save(employee);
+
+        final Customer customer = new Customer("John", "Doe", "john@example.com", "555-555-5556");
+        customer.setCompany(company);
+        customerRepository.save(customer);
+
+        final ServiceItem serviceItem = new ServiceItem("Legacy Translation", "Translation", Money.parse("EUR 80.00"));
+        serviceItem.setCompany(company);
+        serviceItemRepository.save(serviceItem);
+
+        jdbcTemplate.update("insert into invoice (id, customer_fk, company_fk, time_activity_count, total_amount_minor, total_minutes) values (?, ?, ?, ?, ?, ?)",
+                LEGACY_ID, customer.getId(), company.getId(), 1, 8000, 60);
+        jdbcTemplate.update("insert into time_activity (id, minutes, activity_date, item_fk, employee_fk, customer_fk, company_fk, invoice_fk) values (?, ?, ?, ?, ?, ?, ?, ?)",
+                LEGACY_ID, 60, Date.valueOf("2014-09-02"), serviceItem.getId(), employee.getId(), customer.getId(), company.getId(), LEGACY_ID);
+
+        legacyColumnMigration.migrate();
+
+        assertEquals("total currency", "EUR",
+                jdbcTemplate.queryForObject("select total_amount_currency from invoice where id = ?", String.class, LEGACY_ID));
+    }
+
+    /**
+     * A LocalDate the way Hibernate stores a Serializable that has no converter
+     */
+    private byte[] serialize(LocalDate date) throws Exception {
+        final ByteArrayOutputStream serialized = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(serialized)) {
+            out.writeObject(date);
+        }
+        return serialized.toByteArray();
+    }
+}
@@ -0,0 +1,33 @@
+package com.intuit.developer.sampleapp.timetracking.test.integration;
+
+import com.intuit.developer.sampleapp.timetracking.Application;
+import com.intuit.developer.sampleapp.timetracking.qbo.controllers.QBOSimulatorController;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.IntegrationTest;
+import org.springframework.boot.test.SpringApplicationConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.test.context.web.WebAppConfiguration;
+import org.springframework.web.context.WebApplicationContext;
+
+import static junit.framework.Assert.assertTrue;
+
+/**
+ * The simulator is disabled in application.properties, so its controller must not be registered
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+@SpringApplicationConfiguration(classes = Application.class)
+@WebAppConfiguration
+@IntegrationTest
+public class QBOSimulatorControllerIntegrationTests {
+
+    @Autowired
+    WebApplicationContext webApplicationContext;
+
+    @Test
+    public void testControllerIsNotRegisteredWhenSimulatorIsDisabled() throws Exception {
+        assertTrue("simulator controller registered",
+                webApplicationContext.getBeansOfType(QBOSimulatorController.class).isEmpty());
+    }
+}
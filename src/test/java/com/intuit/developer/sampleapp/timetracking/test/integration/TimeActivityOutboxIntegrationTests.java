@@ -0,0 +1,168 @@
+package com.intuit.developer.sampleapp.timetracking.test.integration;
+
+import com.intuit.developer.sampleapp.timetracking.Application;
+import com.intuit.developer.sampleapp.timetracking.domain.*;
+import com.intuit.developer.sampleapp.timetracking.repository.*;
+import org.joda.money.Money;
+import org.joda.time.LocalDate;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.IntegrationTest;
+import org.springframework.boot.test.SpringApplicationConfiguration;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.test.context.web.WebAppConfiguration;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionCallbackWithoutResult;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.context.WebApplicationContext;
+
+import java.util.List;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertNull;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Spring Data REST saves time activities through TimeActivityRepositoryImpl, which writes the outbox entry in the
+ * same transaction as the time activity
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+@SpringApplicationConfiguration(classes = Application.class)
+@WebAppConfiguration
+@IntegrationTest
+public class TimeActivityOutboxIntegrationTests {
+
+    @Autowired
+    WebApplicationContext webApplicationContext;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @Autowired
+    CompanyRepository companyRepository;
+
+    @Autowired
+    EmployeeRepository employeeRepository;
+
+    @Autowired
+    CustomerRepository customerRepository;
+
+    @Autowired
+    ServiceItemRepository serviceItemRepository;
+
+    @Autowired
+    TimeActivityRepository timeActivityRepository;
+
+    @Autowired
+    InvoiceRepository invoiceRepository;
+
+    @Autowired
+    OutboxEntryRepository outboxEntryRepository;
+
+    private MockMvc mockMvc;
+
+    private Company company;
+    private Employee employee;
+    private Customer customer;
+    private ServiceItem serviceItem;
+
+    @Before
+    public void setUp() throws Exception {
+        mockMvc = MockMvcBuilders.webAppContextSetup(webApplicationContext).build();
+
+        //not connected to QBO, so the dispatcher leaves the outbox entries alone
+        company = companyRepository.save(new Company("Outbox Test Company"));
+
+        employee = new Employee("Jane", "Doe", "jane@example.com", "555-555-5555");
+        employee.setCompany(company);
+        employee = employeeRepository.save(employee);
+
+        customer = new Customer("John", "Doe", "john@example.com", "555-555-5556");
+        customer.setCompany(company);
+        customer = customerRepository.save(customer);
+
+        serviceItem = new ServiceItem("Research", "Research", Money.parse("USD 100.00"));
+        serviceItem.setCompany(company);
+        serviceItem = serviceItemRepository.save(serviceItem);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        outboxEntryRepository.delete(outboxEntryRepository.findByCompanyId(company.getId()));
+        for (TimeActivity timeActivity : timeActivityRepository.findAll()) {
+            if (timeActivity.getCompany().getId() == company.getId()) {
+                timeActivityRepository.delete(timeActivity);
+            }
+        }
+        for (Invoice invoice : invoiceRepository.findAll()) {
+            if (invoice.getCompany().getId() == company.getId()) {
+                invoiceRepository.delete(invoice);
+            }
+        }
+        serviceItemRepository.delete(serviceItem);
+        customerRepository.delete(customer);
+        employeeRepository.delete(employee);
+        companyRepository.delete(company);
+    }
+
+    @Test
+    public void testPostTimeActivity_WritesOutboxEntry() throws Exception {
+        final String json = "{" +
+                "\"minutes\": 90," +
+                "\"date\": \"2014-09-02\"," +
+                "\"description\": \"Research\"," +
+                "\"serviceItem\": \"http://localhost/serviceItems/" + serviceItem.getId() + "\"," +
+                "\"employee\": \"http://localhost/employees/" + employee.getId() + "\"," +
+                "\"customer\": \"http://localhost/customers/" + customer.getId() + "\"," +
+                "\"company\": \"http://localhost/companies/" + company.getId() + "\"" +
+                "}";
+
+        final MvcResult result = mockMvc.perform(post("/timeActivities").contentType(MediaType.APPLICATION_JSON).content(json))
+                .andExpect(status().isCreated())
+                .andReturn();
+
+        final String location = result.getResponse().getHeader("Location");
+        final long timeActivityId = Long.parseLong(location.substring(location.lastIndexOf('/') + 1));
+
+        final List<OutboxEntry> entries = outboxEntryRepository.findByCompanyId(company.getId());
+        assertEquals("outbox entries", 1, entries.size());
+        assertEquals("entity type", "TimeActivity", entries.get(0).getEntityType());
+        assertEquals("entity id", timeActivityId, entries.get(0).getEntityId());
+    }
+
+    @Test
+    public void testSaveTimeActivity_OutboxEntryRollsBackWithIt() throws Exception {
+        final long[] timeActivityId = new long[1];
+
+        new TransactionTemplate(transactionManager).execute(new TransactionCallbackWithoutResult() {
+            @Override
+            protected void doInTransactionWithoutResult(TransactionStatus status) {
+                final TimeActivity timeActivity = new TimeActivity();
+                timeActivity.setCompany(company);
+                timeActivity.setEmployee(employee);
+                timeActivity.setCustomer(customer);
+                timeActivity.setServiceItem(serviceItem);
+                timeActivity.setDate(new LocalDate(2014, 9, 2));
+                timeActivity.setMinutes(60);
+                timeActivityId[0] = timeActivityRepository.save(timeActivity).getId();
+
+                //the entry is visible inside the transaction that saved the time activity
+                assertEquals("outbox entries", 1, outboxEntryRepository.findByCompanyId(company.getId()).size());
+
+                status.setRollbackOnly();
+            }
+        });
+
+        assertNull("time activity", timeActivityRepository.findOne(timeActivityId[0]));
+        assertEquals("outbox entries", 0, outboxEntryRepository.findByCompanyId(company.getId()).size());
+    }
+}
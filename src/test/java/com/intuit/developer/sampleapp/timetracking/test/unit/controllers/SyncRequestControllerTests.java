@@ -3,22 +3,21 @@ package com.intuit.developer.sampleapp.timetracking.test.unit.controllers;
 
 import com.intuit.developer.sampleapp.timetracking.controllers.SyncRequest;
 import com.intuit.developer.sampleapp.timetracking.controllers.SyncRequestController;
-import com.intuit.developer.sampleapp.timetracking.domain.Company;
-import com.intuit.developer.sampleapp.timetracking.domain.Customer;
-import com.intuit.developer.sampleapp.timetracking.domain.Employee;
-import com.intuit.developer.sampleapp.timetracking.domain.ServiceItem;
-import com.intuit.developer.sampleapp.timetracking.qbo.QBOGateway;
-import com.intuit.developer.sampleapp.timetracking.repository.CompanyRepository;
+import com.intuit.developer.sampleapp.timetracking.domain.SyncJob;
+import com.intuit.developer.sampleapp.timetracking.repository.SyncJobRepository;
+import com.intuit.developer.sampleapp.timetracking.sync.SyncJobExecutor;
+import mockit.Deencapsulation;
 import mockit.Injectable;
 import mockit.NonStrictExpectations;
 import mockit.Tested;
 import mockit.Verifications;
 import mockit.integration.junit4.JMockit;
-import org.joda.money.Money;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 
+import static junit.framework.Assert.assertEquals;
 import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertSame;
 import static junit.framework.Assert.assertTrue;
 
 /**
@@ -30,107 +29,81 @@ public class SyncRequestControllerTests {
     SyncRequestController controller;
 
     @Injectable
-    QBOGateway mockedQBOGateway;
+    SyncJobExecutor syncJobExecutor;
 
     @Injectable
-    CompanyRepository companyRepository;
+    SyncJobRepository syncJobRepository;
 
     @Test
     public void testCustomerSync() {
-        final Customer customer = new Customer("firstName", "lastName", "emailAddress", "phoneNumber");
-        final Company company = new Company("accessToken", "accessTokenSecret", "1234567");
-        company.addCustomer(customer);
+        final SyncJob job = new SyncJob(1234L, SyncRequest.EntityType.Customer.name());
+        Deencapsulation.setField(job, "id", 42L);
 
         SyncRequest syncRequest = new SyncRequest();
         syncRequest.setCompanyId("1234");
         syncRequest.setType(SyncRequest.EntityType.Customer);
 
         new NonStrictExpectations() {{
-            companyRepository.findOne(anyLong);
-            result = company;
+            syncJobExecutor.submit(1234L, SyncRequest.EntityType.Customer);
+            result = job;
         }};
 
         SyncRequest syncRequestReturn = controller.createSyncRequest(syncRequest);
         assertTrue(syncRequestReturn.isSuccessful());
-        assertTrue(company.isCustomersSynced());
-        assertFalse(company.isServiceItemsSynced());
-        assertFalse(company.isEmployeesSynced());
+        assertEquals("job id", Long.valueOf(42L), syncRequestReturn.getJobId());
 
         new Verifications() {{
-            mockedQBOGateway.createCustomerInQBO(withSameInstance(customer));
-            times = 1;
-            mockedQBOGateway.createItemInQBO(withInstanceOf(ServiceItem.class));
-            times = 0;
-            mockedQBOGateway.createEmployeeInQBO(withInstanceOf(Employee.class));
-            times = 0;
-            companyRepository.save(withSameInstance(company));
+            syncJobExecutor.submit(1234L, SyncRequest.EntityType.Customer);
             times = 1;
         }};
     }
 
     @Test
-    public void testServiceItemSync() {
-        final ServiceItem serviceItem = new ServiceItem("name", "description", Money.parse("USD 1"));
-        final Company company = new Company("accessToken", "accessTokenSecret", "1234567");
-        company.addServiceItem(serviceItem);
+    public void testSync_QueueFull() {
+        final SyncJob job = new SyncJob(1234L, SyncRequest.EntityType.Employee.name());
+        job.fail("Too many sync jobs are queued, try again later");
 
         SyncRequest syncRequest = new SyncRequest();
         syncRequest.setCompanyId("1234");
-        syncRequest.setType(SyncRequest.EntityType.ServiceItem);
+        syncRequest.setType(SyncRequest.EntityType.Employee);
 
         new NonStrictExpectations() {{
-            companyRepository.findOne(anyLong);
-            result = company;
+            syncJobExecutor.submit(anyLong, SyncRequest.EntityType.Employee);
+            result = job;
         }};
 
         SyncRequest syncRequestReturn = controller.createSyncRequest(syncRequest);
-        assertTrue(syncRequestReturn.isSuccessful());
-        assertTrue(company.isServiceItemsSynced());
-        assertFalse(company.isCustomersSynced());
-        assertFalse(company.isEmployeesSynced());
-
-        new Verifications() {{
-            mockedQBOGateway.createItemInQBO(withSameInstance(serviceItem));
-            times = 1;
-            mockedQBOGateway.createCustomerInQBO(withInstanceOf(Customer.class));
-            times = 0;
-            mockedQBOGateway.createEmployeeInQBO(withInstanceOf(Employee.class));
-            times = 0;
-            companyRepository.save(withSameInstance(company));
-            times = 1;
-        }};
+        assertFalse(syncRequestReturn.isSuccessful());
+        assertEquals("Too many sync jobs are queued, try again later", syncRequestReturn.getMessage());
     }
 
     @Test
-    public void testEmployeeSync() {
-        final Employee employee = new Employee("name", "description", "email@something.com", "916-333-5555");
-        final Company company = new Company("accessToken", "accessTokenSecret", "1234567");
-        company.addEmployee(employee);
-
-        SyncRequest syncRequest = new SyncRequest();
-        syncRequest.setCompanyId("1234");
-        syncRequest.setType(SyncRequest.EntityType.Employee);
+    public void testGetSyncJob() {
+        final SyncJob job = new SyncJob(1234L, SyncRequest.EntityType.ServiceItem.name());
 
         new NonStrictExpectations() {{
-            companyRepository.findOne(anyLong);
-            result = company;
+            syncJobRepository.findOne(42L);
+            result = job;
         }};
 
-        SyncRequest syncRequestReturn = controller.createSyncRequest(syncRequest);
-        assertTrue(syncRequestReturn.isSuccessful());
-        assertTrue(company.isEmployeesSynced());
-        assertFalse(company.isCustomersSynced());
-        assertFalse(company.isServiceItemsSynced());
+        assertSame(job, controller.getSyncJob(42L));
+    }
 
-        new Verifications() {{
-            mockedQBOGateway.createEmployeeInQBO(withSameInstance(employee));
-            times = 1;
-            mockedQBOGateway.createCustomerInQBO(withInstanceOf(Customer.class));
-            times = 0;
-            mockedQBOGateway.createItemInQBO(withInstanceOf(ServiceItem.class));
-            times = 0;
-            companyRepository.save(withSameInstance(company));
-            times = 1;
+    @Test
+    public void testGetSyncJob_NotFound() {
+        new NonStrictExpectations() {{
+            syncJobRepository.findOne(42L);
+            result = null;
         }};
+
+        boolean exceptionThrown = false;
+        try {
+            controller.getSyncJob(42L);
+        } catch (SyncRequestController.SyncJobNotFoundException e) {
+            exceptionThrown = true;
+            assertEquals("Could not find a sync job with an id of 42", e.getMessage());
+        }
+
+        assertTrue("exception was not thrown", exceptionThrown);
     }
 }
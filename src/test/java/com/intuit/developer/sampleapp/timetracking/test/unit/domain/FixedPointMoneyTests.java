@@ -0,0 +1,70 @@
+package com.intuit.developer.sampleapp.timetracking.test.unit.domain;
+
+import com.intuit.developer.sampleapp.timetracking.domain.FixedPointMoney;
+import com.intuit.developer.sampleapp.timetracking.domain.ServiceItem;
+import com.intuit.developer.sampleapp.timetracking.domain.TimeActivity;
+import org.joda.money.Money;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+
+import static junit.framework.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class FixedPointMoneyTests {
+
+    @Test
+    public void testAmountForMinutes() throws Exception {
+        assertEquals("an hour", 10000, FixedPointMoney.amountForMinutes(10000, 60));
+        assertEquals("an hour and a half", 15000, FixedPointMoney.amountForMinutes(10000, 90));
+        assertEquals("no minutes", 0, FixedPointMoney.amountForMinutes(10000, 0));
+    }
+
+    @Test
+    public void testAmountForMinutes_RoundsHalfUp() throws Exception {
+        //$0.50 an hour for 1 minute is 0.8333 cents
+        assertEquals("rounds up", 1, FixedPointMoney.amountForMinutes(50, 1));
+        //$0.30 an hour for 1 minute is exactly half a cent
+        assertEquals("half rounds up", 1, FixedPointMoney.amountForMinutes(30, 1));
+        //$0.29 an hour for 1 minute is 0.4833 cents
+        assertEquals("rounds down", 0, FixedPointMoney.amountForMinutes(29, 1));
+        assertEquals("half rounds away from zero", -1, FixedPointMoney.amountForMinutes(-30, 1));
+    }
+
+    @Test
+    public void testAmountForMinutes_Exact() throws Exception {
+        //$50.25 an hour for 20 minutes is $16.75 exactly, a third of an hour can't be represented as a double
+        assertEquals("a third of an hour", 1675, FixedPointMoney.amountForMinutes(5025, 20));
+    }
+
+    @Test
+    public void testAmountForMinutes_Overflow() throws Exception {
+        boolean exceptionThrown = false;
+        try {
+            FixedPointMoney.amountForMinutes(Long.MAX_VALUE / 2, 60);
+        } catch (ArithmeticException e) {
+            exceptionThrown = true;
+        }
+
+        assertTrue("exception was not thrown", exceptionThrown);
+    }
+
+    @Test
+    public void testTimeActivityAmount() throws Exception {
+        final TimeActivity timeActivity = new TimeActivity();
+        timeActivity.setServiceItem(new ServiceItem("Research", "Research", Money.parse("USD 100.00")));
+        timeActivity.setMinutes(20);
+
+        assertEquals("amount minor", 3333, timeActivity.getAmountMinor());
+        assertEquals("amount", Money.parse("USD 33.33"), timeActivity.getAmount());
+        assertEquals("hours", 0, new BigDecimal("0.3333333333333333").compareTo(timeActivity.getHours()));
+    }
+
+    @Test
+    public void testServiceItemRate() throws Exception {
+        final ServiceItem serviceItem = new ServiceItem();
+        serviceItem.setRate(Money.parse("USD 110.50"));
+
+        assertEquals("rate", Money.parse("USD 110.50"), serviceItem.getRate());
+    }
+}
@@ -0,0 +1,193 @@
+package com.intuit.developer.sampleapp.timetracking.test.unit.domain;
+
+import com.intuit.developer.sampleapp.timetracking.domain.Employee;
+import com.intuit.developer.sampleapp.timetracking.domain.Invoice;
+import com.intuit.developer.sampleapp.timetracking.domain.InvoiceSummary;
+import com.intuit.developer.sampleapp.timetracking.domain.ServiceItem;
+import com.intuit.developer.sampleapp.timetracking.domain.TimeActivity;
+import org.joda.money.Money;
+import org.joda.time.LocalDate;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertNull;
+import static junit.framework.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class InvoiceTests {
+
+    private final Employee washington = new Employee("George", "Washington", "gwashington@example.com", "916-222-3333");
+
+    private final Employee adams = new Employee("John", "Adams", "jadams@example.com", "916-222-4444");
+
+    private final ServiceItem research = new ServiceItem("Research", "Research", Money.parse("USD 100.00"));
+
+    private final ServiceItem deposition = new ServiceItem("Deposition", "Deposition", Money.parse("USD 50.00"));
+
+    @Test
+    public void testGetTimeActivities_InvoiceOrder() throws Exception {
+        final TimeActivity washingtonResearch = timeActivity(washington, research, "2014-09-12");
+        final TimeActivity adamsResearch = timeActivity(adams, research, "2014-09-12");
+        final TimeActivity adamsDeposition = timeActivity(adams, deposition, "2014-09-12");
+        final TimeActivity washingtonEarlier = timeActivity(washington, research, "2014-09-11");
+
+        final Invoice invoice = new Invoice();
+        invoice.addTimeActivity(washingtonResearch);
+        invoice.addTimeActivity(adamsResearch);
+        invoice.addTimeActivity(adamsDeposition);
+        invoice.addTimeActivity(washingtonEarlier);
+
+        assertEquals("by date, employee and service item",
+                Arrays.asList(washingtonEarlier, adamsDeposition, adamsResearch, washingtonResearch), invoice.getTimeActivities());
+    }
+
+    @Test
+    public void testGetTimeActivities_AddKeepsOrder() throws Exception {
+        final TimeActivity first = timeActivity(washington, research, "2014-09-11");
+        final TimeActivity last = timeActivity(washington, research, "2014-09-13");
+
+        final Invoice invoice = new Invoice();
+        invoice.addTimeActivity(first);
+        invoice.addTimeActivity(last);
+
+        final List<TimeActivity> timeActivities = invoice.getTimeActivities();
+        assertSame("the sorted time activities are reused", timeActivities, invoice.getTimeActivities());
+
+        final TimeActivity middle = timeActivity(adams, research, "2014-09-12");
+        final TimeActivity sameAsFirst = timeActivity(washington, research, "2014-09-11");
+        invoice.addTimeActivity(middle);
+        invoice.addTimeActivity(sameAsFirst);
+
+        //time activities that sort the same are all on the invoice, in the order they were added
+        assertEquals("sorted", Arrays.asList(first, sameAsFirst, middle, last), invoice.getTimeActivities());
+    }
+
+    @Test
+    public void testGetTimeActivities_IsUnmodifiable() throws Exception {
+        final Invoice invoice = new Invoice();
+        invoice.addTimeActivity(timeActivity(washington, research, "2014-09-11"));
+
+        boolean exceptionThrown = false;
+        try {
+            invoice.getTimeActivities().clear();
+        } catch (UnsupportedOperationException e) {
+            exceptionThrown = true;
+        }
+
+        assertTrue("exception was not thrown", exceptionThrown);
+        assertEquals("time activities", 1, invoice.getTimeActivities().size());
+    }
+
+    @Test
+    public void testSummary_TotalsKeptAsTimeActivitiesAreAdded() throws Exception {
+        final Invoice invoice = new Invoice();
+        invoice.addTimeActivity(timeActivity(washington, research, "2014-09-12"));
+        invoice.addTimeActivity(timeActivity(adams, deposition, "2014-09-11"));
+        invoice.addTimeActivity(timeActivity(adams, research, "2014-09-13"));
+
+        final InvoiceSummary summary = invoice.getSummary();
+
+        assertEquals("total amount", Money.parse("USD 250.00"), summary.getTotalAmount());
+        assertEquals("time activity count", 3, summary.getTimeActivityCount());
+        assertEquals("total minutes", 180, summary.getTotalMinutes());
+        assertEquals("min date", LocalDate.parse("2014-09-11"), summary.getMinDate());
+        assertEquals("max date", LocalDate.parse("2014-09-13"), summary.getMaxDate());
+    }
+
+    @Test
+    public void testSummary_NoTimeActivities() throws Exception {
+        final InvoiceSummary summary = new Invoice().getSummary();
+
+        assertEquals("total amount", Money.parse("USD 0.00"), summary.getTotalAmount());
+        assertEquals("time activity count", 0, summary.getTimeActivityCount());
+        assertNull("min date", summary.getMinDate());
+        assertNull("max date", summary.getMaxDate());
+    }
+
+    @Test
+    public void testSummary_TotalInTheCurrencyOfTheRates() throws Exception {
+        final ServiceItem translation = new ServiceItem("Translation", "Translation", Money.parse("EUR 80.00"));
+
+        final Invoice invoice = new Invoice();
+        invoice.addTimeActivity(timeActivity(washington, translation, "2014-09-11"));
+        invoice.addTimeActivity(timeActivity(adams, translation, "2014-09-12"));
+
+        assertEquals("total amount", Money.parse("EUR 160.00"), invoice.getSummary().getTotalAmount());
+
+        invoice.recalculateTotals();
+
+        assertEquals("total amount recalculated", Money.parse("EUR 160.00"), invoice.getSummary().getTotalAmount());
+    }
+
+    @Test
+    public void testRemoveTimeActivity() throws Exception {
+        final TimeActivity first = timeActivity(washington, research, "2014-09-11");
+        final TimeActivity middle = timeActivity(adams, deposition, "2014-09-12");
+        final TimeActivity last = timeActivity(adams, research, "2014-09-13");
+
+        final Invoice invoice = new Invoice();
+        invoice.addTimeActivity(first);
+        invoice.addTimeActivity(middle);
+        invoice.addTimeActivity(last);
+        invoice.getTimeActivities();
+
+        invoice.removeTimeActivity(last);
+
+        final InvoiceSummary summary = invoice.getSummary();
+        assertEquals("total amount", Money.parse("USD 150.00"), summary.getTotalAmount());
+        assertEquals("time activity count", 2, summary.getTimeActivityCount());
+        assertEquals("total minutes", 120, summary.getTotalMinutes());
+        assertEquals("max date moves back", LocalDate.parse("2014-09-12"), summary.getMaxDate());
+        assertEquals("time activities", Arrays.asList(first, middle), invoice.getTimeActivities());
+        assertNull("no longer on the invoice", last.getInvoice());
+    }
+
+    @Test
+    public void testRecalculateTotals_TimeActivityChanged() throws Exception {
+        final TimeActivity timeActivity = timeActivity(washington, research, "2014-09-11");
+
+        final Invoice invoice = new Invoice();
+        invoice.addTimeActivity(timeActivity);
+        invoice.addTimeActivity(timeActivity(adams, deposition, "2014-09-12"));
+
+        timeActivity.setMinutes(90);
+        timeActivity.setDate(LocalDate.parse("2014-09-13"));
+        invoice.recalculateTotals();
+
+        final InvoiceSummary summary = invoice.getSummary();
+        assertEquals("total amount", Money.parse("USD 200.00"), summary.getTotalAmount());
+        assertEquals("total minutes", 150, summary.getTotalMinutes());
+        assertEquals("min date", LocalDate.parse("2014-09-12"), summary.getMinDate());
+        assertEquals("max date", LocalDate.parse("2014-09-13"), summary.getMaxDate());
+    }
+
+    @Test
+    public void testSummary_RateChangedAfterEntry() throws Exception {
+        final ServiceItem consulting = new ServiceItem("Consulting", "Consulting", Money.parse("USD 100.00"));
+
+        final Invoice invoice = new Invoice();
+        final TimeActivity timeActivity = timeActivity(washington, consulting, "2014-09-11");
+        invoice.addTimeActivity(timeActivity);
+
+        consulting.setRate(Money.parse("USD 150.00"));
+        invoice.recalculateTotals();
+
+        assertEquals("entered rate", Money.parse("USD 100.00"), timeActivity.getRate());
+        assertEquals("total amount", Money.parse("USD 100.00"), invoice.getSummary().getTotalAmount());
+
+        timeActivity.setMinutes(90);
+        assertEquals("amount at the entered rate", Money.parse("USD 150.00"), timeActivity.getAmount());
+    }
+
+    private TimeActivity timeActivity(Employee employee, ServiceItem serviceItem, String date) {
+        final TimeActivity timeActivity = new TimeActivity();
+        timeActivity.setEmployee(employee);
+        timeActivity.setServiceItem(serviceItem);
+        timeActivity.setDate(LocalDate.parse(date));
+        timeActivity.setMinutes(60);
+        return timeActivity;
+    }
+}
@@ -0,0 +1,62 @@
+package com.intuit.developer.sampleapp.timetracking.test.unit.domain;
+
+import com.intuit.developer.sampleapp.timetracking.domain.ServiceItem;
+import com.intuit.developer.sampleapp.timetracking.domain.TimeActivity;
+import org.joda.money.Money;
+import org.junit.Test;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertNull;
+
+public class TimeActivityTests {
+
+    @Test
+    public void testGettersDontSnapshotRate() throws Exception {
+        final ServiceItem research = new ServiceItem("Research", "Research", Money.parse("USD 100.00"));
+
+        final TimeActivity timeActivity = new TimeActivity();
+        timeActivity.setServiceItem(research);
+        timeActivity.setMinutes(90);
+
+        assertEquals("rate", Money.parse("USD 100.00"), timeActivity.getRate());
+        assertEquals("amount", Money.parse("USD 150.00"), timeActivity.getAmount());
+
+        //reading the rate didn't store it, the time activity is still billed at the service item's rate
+        research.setRate(Money.parse("USD 200.00"));
+        assertEquals("rate", Money.parse("USD 200.00"), timeActivity.getRate());
+        assertEquals("amount minor", 30000, timeActivity.getAmountMinor());
+    }
+
+    @Test
+    public void testSnapshotRate() throws Exception {
+        final ServiceItem research = new ServiceItem("Research", "Research", Money.parse("USD 100.00"));
+
+        final TimeActivity timeActivity = new TimeActivity();
+        timeActivity.setServiceItem(research);
+        timeActivity.setMinutes(90);
+        timeActivity.snapshotRate();
+
+        research.setRate(Money.parse("USD 200.00"));
+        assertEquals("entered rate", Money.parse("USD 100.00"), timeActivity.getRate());
+        assertEquals("amount at the entered rate", Money.parse("USD 150.00"), timeActivity.getAmount());
+
+        timeActivity.setMinutes(30);
+        assertEquals("amount of the new minutes at the entered rate", Money.parse("USD 50.00"), timeActivity.getAmount());
+
+        //a different service item is billed at its own rate
+        timeActivity.setServiceItem(new ServiceItem("Deposition", "Deposition", Money.parse("USD 50.00")));
+        assertEquals("rate of the new service item", Money.parse("USD 50.00"), timeActivity.getRate());
+    }
+
+    @Test
+    public void testServiceItemWithoutRate() throws Exception {
+        final TimeActivity timeActivity = new TimeActivity();
+        timeActivity.setServiceItem(new ServiceItem());
+        timeActivity.setMinutes(90);
+        timeActivity.snapshotRate();
+
+        assertNull("rate", timeActivity.getRate());
+        assertNull("amount", timeActivity.getAmount());
+        assertEquals("amount minor", 0, timeActivity.getAmountMinor());
+    }
+}
@@ -3,7 +3,7 @@ package com.intuit.developer.sampleapp.timetracking.test.unit.handlers;
 import com.intuit.developer.sampleapp.timetracking.domain.Invoice;
 import com.intuit.developer.sampleapp.timetracking.domain.InvoiceStatus;
 import com.intuit.developer.sampleapp.timetracking.handlers.InvoiceEventHandler;
-import com.intuit.developer.sampleapp.timetracking.qbo.QBOGateway;
+import com.intuit.developer.sampleapp.timetracking.sync.InvoiceSubmissionExecutor;
 import mockit.Injectable;
 import mockit.Tested;
 import mockit.Verifications;
@@ -17,7 +17,7 @@ import org.junit.Test;
  */
 public class InvoiceEventHandlerTests {
     @Injectable
-    QBOGateway qboGateway;
+    InvoiceSubmissionExecutor invoiceSubmissionExecutor;
 
     @Tested
     InvoiceEventHandler invoiceEventHandler;
@@ -32,7 +32,7 @@ public class InvoiceEventHandlerTests {
         invoiceEventHandler.handleAfterSave(invoice);
 
         new Verifications() {{
-            qboGateway.createInvoiceInQBO(invoice);
+            invoiceSubmissionExecutor.submit(invoice);
             times = 1;
         }};
     }
@@ -46,7 +46,7 @@ public class InvoiceEventHandlerTests {
         invoiceEventHandler.handleAfterSave(invoice);
 
         new Verifications() {{
-            qboGateway.createInvoiceInQBO(invoice);
+            invoiceSubmissionExecutor.submit(invoice);
             times = 0;
         }};
     }
@@ -2,8 +2,8 @@ package com.intuit.developer.sampleapp.timetracking.test.unit.handlers;
 
 import com.intuit.developer.sampleapp.timetracking.domain.*;
 import com.intuit.developer.sampleapp.timetracking.handlers.TimeActivityEventHandler;
-import com.intuit.developer.sampleapp.timetracking.qbo.QBOGateway;
 import com.intuit.developer.sampleapp.timetracking.repository.InvoiceRepository;
+import com.intuit.developer.sampleapp.timetracking.sync.OutboxDispatcher;
 import mockit.*;
 import mockit.integration.junit4.JMockit;
 import org.junit.Test;
@@ -28,7 +28,7 @@ public class TimeActivityEventHandlerTests {
     TimeActivityEventHandler timeActivityHandler;
 
     @Injectable
-    QBOGateway qboGateway;
+    OutboxDispatcher outboxDispatcher;
 
     @Injectable
     InvoiceRepository invoiceRepository;
@@ -48,7 +48,7 @@ public class TimeActivityEventHandlerTests {
         timeActivityHandler.handleAfterCreate(timeActivity);
 
         new Verifications() {{
-            qboGateway.createTimeActivityInQBO(timeActivity);
+            outboxDispatcher.dispatchSoon();
         }};
     }
 
@@ -155,4 +155,48 @@ public class TimeActivityEventHandlerTests {
         assertTrue("expected exception not thrown", exceptionThrown);
 
     }
+
+    @Test
+    public void testHandleAfterSave_RecalculatesInvoiceTotals(@Mocked final Invoice invoice) throws Exception {
+        final TimeActivity timeActivity = new TimeActivity();
+        timeActivity.setInvoice(invoice);
+
+        new NonStrictExpectations() {{
+            invoice.getId();
+            result = 42L;
+
+            invoiceRepository.findOneForSubmission(42L);
+            result = invoice;
+        }};
+
+        timeActivityHandler.handleAfterSave(timeActivity);
+
+        new Verifications() {{
+            invoice.recalculateTotals();
+            invoiceRepository.save(invoice);
+        }};
+    }
+
+    @Test
+    public void testHandleBeforeDelete_RemovedFromInvoice(@Mocked final Invoice invoice) throws Exception {
+        final TimeActivity timeActivity = new TimeActivity();
+        timeActivity.setInvoice(invoice);
+
+        timeActivityHandler.handleBeforeDelete(timeActivity);
+
+        new Verifications() {{
+            invoice.removeTimeActivity(timeActivity);
+            invoiceRepository.save(invoice);
+        }};
+    }
+
+    @Test
+    public void testHandleBeforeDelete_NoInvoice() throws Exception {
+        timeActivityHandler.handleBeforeDelete(new TimeActivity());
+
+        new Verifications() {{
+            invoiceRepository.save((Invoice) any);
+            times = 0;
+        }};
+    }
 }
@@ -2,10 +2,12 @@ package com.intuit.developer.sampleapp.timetracking.test.unit.mappers;
 
 import com.intuit.developer.sampleapp.timetracking.domain.Customer;
 import com.intuit.developer.sampleapp.timetracking.mappers.CustomerMapper;
+import com.intuit.ipp.data.EmailAddress;
 import org.junit.Test;
 
 import static junit.framework.Assert.assertEquals;
 import static junit.framework.Assert.assertNotNull;
+import static junit.framework.Assert.assertNull;
 
 /**
  * Created with IntelliJ IDEA.
@@ -39,4 +41,23 @@ public class CustomerMapperTests {
         assertEquals("phoneNumber", phoneNumber, customer.getPrimaryPhone().getFreeFormNumber());
 
     }
+
+    @Test
+    public void testApplyQBOObject() throws Exception {
+        Customer domain = new Customer("Robert", "Oppenheimer", "jroppenheimer@manhatten.com", "916-123-4567");
+
+        final com.intuit.ipp.data.Customer customer = new com.intuit.ipp.data.Customer();
+        customer.setGivenName("J. Robert");
+        customer.setFamilyName("Oppenheimer");
+        final EmailAddress emailAddress = new EmailAddress();
+        emailAddress.setAddress("oppie@losalamos.gov");
+        customer.setPrimaryEmailAddr(emailAddress);
+
+        CustomerMapper.applyQBOObject(domain, customer);
+
+        assertEquals("firstName", "J. Robert", domain.getFirstName());
+        assertEquals("lastName", "Oppenheimer", domain.getLastName());
+        assertEquals("emailAddress", "oppie@losalamos.gov", domain.getEmailAddress());
+        assertNull("phone number was removed in QBO", domain.getPhoneNumber());
+    }
 }
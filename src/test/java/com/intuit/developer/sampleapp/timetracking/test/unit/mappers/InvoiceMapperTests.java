@@ -10,6 +10,7 @@ import org.joda.time.LocalDate;
 import org.junit.Test;
 
 import java.math.BigDecimal;
+import java.math.RoundingMode;
 import java.util.List;
 
 import static junit.framework.Assert.assertEquals;
@@ -107,6 +108,215 @@ public class InvoiceMapperTests {
         }
     }
 
+    @Test
+    public void testDomainToQBOMapping_PerServiceItem() throws Exception {
+        final Invoice domainInvoice = buildAggregatedInvoice(InvoiceLineAggregation.PerServiceItem);
+
+        final List<Line> invoiceLines = InvoiceMapper.buildQBOObject(domainInvoice).getLine();
+        assertEquals("number of invoice lines", 2, invoiceLines.size());
+
+        assertAggregatedInvoiceLine(invoiceLines.get(0), 1, "Research, 2014-09-11 to 2014-09-12",
+                new BigDecimal("275.00"), new BigDecimal("2.75"), "1234");
+        assertAggregatedInvoiceLine(invoiceLines.get(1), 2, "Deposition on 2014-09-12",
+                new BigDecimal("25.00"), new BigDecimal("0.5"), "4321");
+    }
+
+    @Test
+    public void testDomainToQBOMapping_PerEmployeeAndServiceItem() throws Exception {
+        final Invoice domainInvoice = buildAggregatedInvoice(InvoiceLineAggregation.PerEmployeeAndServiceItem);
+
+        final List<Line> invoiceLines = InvoiceMapper.buildQBOObject(domainInvoice).getLine();
+        assertEquals("number of invoice lines", 3, invoiceLines.size());
+
+        assertAggregatedInvoiceLine(invoiceLines.get(0), 1, "John Adams - Research on 2014-09-11",
+                new BigDecimal("50.00"), new BigDecimal("0.5"), "1234");
+        assertAggregatedInvoiceLine(invoiceLines.get(1), 2, "George Washington - Research, 2014-09-11 to 2014-09-12",
+                new BigDecimal("225.00"), new BigDecimal("2.25"), "1234");
+        assertAggregatedInvoiceLine(invoiceLines.get(2), 3, "John Adams - Deposition on 2014-09-12",
+                new BigDecimal("25.00"), new BigDecimal("0.5"), "4321");
+    }
+
+    @Test
+    public void testDomainToQBOMapping_PerDayAndServiceItem() throws Exception {
+        final Invoice domainInvoice = buildAggregatedInvoice(InvoiceLineAggregation.PerDayAndServiceItem);
+
+        final List<Line> invoiceLines = InvoiceMapper.buildQBOObject(domainInvoice).getLine();
+        assertEquals("number of invoice lines", 3, invoiceLines.size());
+
+        assertAggregatedInvoiceLine(invoiceLines.get(0), 1, "Research on 2014-09-11",
+                new BigDecimal("200.00"), new BigDecimal("2"), "1234");
+        assertAggregatedInvoiceLine(invoiceLines.get(1), 2, "Deposition on 2014-09-12",
+                new BigDecimal("25.00"), new BigDecimal("0.5"), "4321");
+        assertAggregatedInvoiceLine(invoiceLines.get(2), 3, "Research on 2014-09-12",
+                new BigDecimal("75.00"), new BigDecimal("0.75"), "1234");
+    }
+
+    @Test
+    public void testDomainToQBOMapping_PerServiceItem_AmountsDontAddUp() throws Exception {
+        Company company = new Company();
+        company.setInvoiceLineAggregation(InvoiceLineAggregation.PerServiceItem);
+
+        Customer domainCustomer = new Customer();
+        domainCustomer.setQboId("2222");
+
+        final Invoice cheapInvoice = new Invoice();
+        cheapInvoice.setCompany(company);
+        cheapInvoice.setCustomer(domainCustomer);
+
+        ServiceItem filing = new ServiceItem();
+        filing.setName("Filing");
+        filing.setQboId("5678");
+        filing.setRate(Money.parse("USD 1.00"));
+
+        ServiceItem copying = new ServiceItem();
+        copying.setName("Copying");
+        copying.setQboId("8765");
+        copying.setRate(Money.parse("USD 1.00"));
+
+        final Employee adams = new Employee("John", "Adams", null, null);
+
+        //20 minutes at $1.00 an hour is 0.33 each, 0.99 together, but an hour at $1.00 is 1.00
+        cheapInvoice.addTimeActivity(buildTimeActivity(cheapInvoice.getCustomer(), adams, filing, 20, "2014-09-11"));
+        cheapInvoice.addTimeActivity(buildTimeActivity(cheapInvoice.getCustomer(), adams, filing, 20, "2014-09-12"));
+        cheapInvoice.addTimeActivity(buildTimeActivity(cheapInvoice.getCustomer(), adams, filing, 20, "2014-09-13"));
+        //30 minutes at $1.00 an hour is exactly 0.50, these still share a line
+        cheapInvoice.addTimeActivity(buildTimeActivity(cheapInvoice.getCustomer(), adams, copying, 30, "2014-09-11"));
+        cheapInvoice.addTimeActivity(buildTimeActivity(cheapInvoice.getCustomer(), adams, copying, 30, "2014-09-12"));
+
+        final List<Line> invoiceLines = InvoiceMapper.buildQBOObject(cheapInvoice).getLine();
+        assertEquals("number of invoice lines", 3, invoiceLines.size());
+
+        //the filing line is priced at an hour, the cent it is over the time activities is taken off on a line of its own
+        assertAggregatedInvoiceLine(invoiceLines.get(0), 1, "Filing, 2014-09-11 to 2014-09-13",
+                new BigDecimal("1.00"), new BigDecimal("1"), "5678");
+        assertAggregatedInvoiceLine(invoiceLines.get(1), 2, "Rounding adjustment, Filing, 2014-09-11 to 2014-09-13",
+                new BigDecimal("-0.01"), new BigDecimal("1"), "5678");
+        assertAggregatedInvoiceLine(invoiceLines.get(2), 3, "Copying, 2014-09-11 to 2014-09-12",
+                new BigDecimal("1.00"), new BigDecimal("1"), "8765");
+
+        BigDecimal total = BigDecimal.ZERO;
+        for (Line invoiceLine : invoiceLines) {
+            final SalesItemLineDetail detail = invoiceLine.getSalesItemLineDetail();
+            assertEquals("amount is unit price times quantity", detail.getUnitPrice().multiply(detail.getQty()).setScale(2, RoundingMode.HALF_UP), invoiceLine.getAmount());
+            total = total.add(invoiceLine.getAmount());
+        }
+        assertEquals("total of the time activities", new BigDecimal("1.99"), total);
+    }
+
+    @Test
+    public void testDomainToQBOMapping_PerServiceItem_ManyDriftingTimeActivities() throws Exception {
+        Company company = new Company();
+        company.setInvoiceLineAggregation(InvoiceLineAggregation.PerServiceItem);
+
+        Customer domainCustomer = new Customer();
+        domainCustomer.setQboId("2222");
+
+        final Invoice invoice = new Invoice();
+        invoice.setCompany(company);
+        invoice.setCustomer(domainCustomer);
+
+        ServiceItem consulting = new ServiceItem();
+        consulting.setName("Consulting");
+        consulting.setQboId("1111");
+        consulting.setRate(Money.parse("USD 175.00"));
+
+        final Employee adams = new Employee("John", "Adams", null, null);
+
+        //20 minutes at $175.00 an hour is 58.33 each, 1749.90 for all 30, but 10 hours are 1750.00
+        for (int day = 1; day <= 30; day++) {
+            invoice.addTimeActivity(buildTimeActivity(domainCustomer, adams, consulting, 20, String.format("2014-09-%02d", day)));
+        }
+
+        final List<Line> invoiceLines = InvoiceMapper.buildQBOObject(invoice).getLine();
+        assertEquals("number of invoice lines", 2, invoiceLines.size());
+
+        assertAggregatedInvoiceLine(invoiceLines.get(0), 1, "Consulting, 2014-09-01 to 2014-09-30",
+                new BigDecimal("1750.00"), new BigDecimal("10"), "1111");
+        assertAggregatedInvoiceLine(invoiceLines.get(1), 2, "Rounding adjustment, Consulting, 2014-09-01 to 2014-09-30",
+                new BigDecimal("-0.10"), new BigDecimal("1"), "1111");
+        assertEquals("total of the time activities", new BigDecimal("1749.90"),
+                invoiceLines.get(0).getAmount().add(invoiceLines.get(1).getAmount()));
+    }
+
+    @Test
+    public void testDomainToQBOMapping_RateChangedAfterEntry() throws Exception {
+        final Invoice domainInvoice = buildAggregatedInvoice(InvoiceLineAggregation.PerServiceItem);
+        final ServiceItem research = domainInvoice.getTimeActivities().get(0).getServiceItem();
+
+        research.setRate(Money.parse("USD 200.00"));
+        final TimeActivity enteredAfterChange = buildTimeActivity(domainInvoice.getCustomer(), new Employee("John", "Adams", null, null),
+                research, 60, "2014-09-13");
+        domainInvoice.addTimeActivity(enteredAfterChange);
+
+        final List<Line> invoiceLines = InvoiceMapper.buildQBOObject(domainInvoice).getLine();
+        assertEquals("number of invoice lines", 3, invoiceLines.size());
+
+        //the time activities entered before the change stay at the old rate, on their own line
+        assertAggregatedInvoiceLine(invoiceLines.get(0), 1, "Research, 2014-09-11 to 2014-09-12",
+                new BigDecimal("275.00"), new BigDecimal("2.75"), "1234");
+        assertEquals("old rate", new BigDecimal("100.00"), invoiceLines.get(0).getSalesItemLineDetail().getUnitPrice());
+        assertAggregatedInvoiceLine(invoiceLines.get(2), 3, "Research on 2014-09-13",
+                new BigDecimal("200.00"), new BigDecimal("1"), "1234");
+        assertEquals("new rate", new BigDecimal("200.00"), invoiceLines.get(2).getSalesItemLineDetail().getUnitPrice());
+    }
+
+    private Invoice buildAggregatedInvoice(InvoiceLineAggregation aggregation) {
+        Company company = new Company();
+        company.setInvoiceLineAggregation(aggregation);
+
+        Customer domainCustomer = new Customer();
+        domainCustomer.setQboId("2222");
+
+        Invoice domainInvoice = new Invoice();
+        domainInvoice.setCompany(company);
+        domainInvoice.setCustomer(domainCustomer);
+
+        ServiceItem research = new ServiceItem();
+        research.setName("Research");
+        research.setQboId("1234");
+        research.setRate(Money.parse("USD 100.00"));
+
+        ServiceItem deposition = new ServiceItem();
+        deposition.setName("Deposition");
+        deposition.setQboId("4321");
+        deposition.setRate(Money.parse("USD 50.00"));
+
+        Employee washington = new Employee();
+        washington.setFirstName("George");
+        washington.setLastName("Washington");
+
+        Employee adams = new Employee();
+        adams.setFirstName("John");
+        adams.setLastName("Adams");
+
+        domainInvoice.addTimeActivity(buildTimeActivity(domainCustomer, washington, research, 90, "2014-09-11"));
+        domainInvoice.addTimeActivity(buildTimeActivity(domainCustomer, adams, research, 30, "2014-09-11"));
+        domainInvoice.addTimeActivity(buildTimeActivity(domainCustomer, washington, research, 45, "2014-09-12"));
+        domainInvoice.addTimeActivity(buildTimeActivity(domainCustomer, adams, deposition, 30, "2014-09-12"));
+
+        return domainInvoice;
+    }
+
+    private TimeActivity buildTimeActivity(Customer customer, Employee employee, ServiceItem serviceItem, int minutes, String date) {
+        TimeActivity timeActivity = new TimeActivity();
+        timeActivity.setCustomer(customer);
+        timeActivity.setEmployee(employee);
+        timeActivity.setServiceItem(serviceItem);
+        timeActivity.setMinutes(minutes);
+        timeActivity.setDate(LocalDate.parse(date));
+        return timeActivity;
+    }
+
+    private void assertAggregatedInvoiceLine(Line invoiceLine, int lineNum, String description, BigDecimal amount, BigDecimal quantity, String serviceItemQboId) {
+        assertEquals("line num", lineNum, invoiceLine.getLineNum().intValue());
+        assertEquals("description", description, invoiceLine.getDescription());
+        assertEquals("amount", amount, invoiceLine.getAmount());
+
+        final SalesItemLineDetail salesItemLineDetail = invoiceLine.getSalesItemLineDetail();
+        assertEquals("quantity", 0, quantity.compareTo(salesItemLineDetail.getQty()));
+        assertEquals("service item qbo id", serviceItemQboId, salesItemLineDetail.getItemRef().getValue());
+    }
+
     private void assertInvoiceLine(Line invoiceLine, BigDecimal amount, Employee employee, String date, BigDecimal quantity, ServiceItem serviceItem) {
         assertEquals("amount", amount, invoiceLine.getAmount());
         assertEquals("description", employee.getFirstName() + " " + employee.getLastName() + " on " + date, invoiceLine.getDescription());
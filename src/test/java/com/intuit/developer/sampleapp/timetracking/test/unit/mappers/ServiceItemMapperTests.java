@@ -5,6 +5,8 @@ import com.intuit.developer.sampleapp.timetracking.mappers.ServiceItemMapper;
 import org.joda.money.Money;
 import org.junit.Test;
 
+import java.math.BigDecimal;
+
 import static junit.framework.Assert.assertEquals;
 import static junit.framework.Assert.assertNotNull;
 
@@ -36,4 +38,20 @@ public class ServiceItemMapperTests {
         assertEquals("rate", rate, item.getUnitPrice().toString());
 
     }
+
+    @Test
+    public void testApplyQBOObject() throws Exception {
+        ServiceItem domain = new ServiceItem("foo", "A really good description", Money.parse("USD 100.25"));
+
+        final com.intuit.ipp.data.Item item = new com.intuit.ipp.data.Item();
+        item.setName("bar");
+        item.setDescription("An even better description");
+        item.setUnitPrice(new BigDecimal("110.5"));
+
+        ServiceItemMapper.applyQBOObject(domain, item);
+
+        assertEquals("name", "bar", domain.getName());
+        assertEquals("description", "An even better description", domain.getDescription());
+        assertEquals("rate", Money.parse("USD 110.50"), domain.getRate());
+    }
 }
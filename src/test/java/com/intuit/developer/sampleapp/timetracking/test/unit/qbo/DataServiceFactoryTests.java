@@ -3,20 +3,23 @@ package com.intuit.developer.sampleapp.timetracking.test.unit.qbo;
 import com.intuit.developer.sampleapp.timetracking.domain.AppInfo;
 import com.intuit.developer.sampleapp.timetracking.domain.Company;
 import com.intuit.developer.sampleapp.timetracking.qbo.DataServiceFactory;
+import com.intuit.developer.sampleapp.timetracking.qbo.QBODataService;
+import com.intuit.developer.sampleapp.timetracking.qbo.QBORequestExecutor;
+import com.intuit.developer.sampleapp.timetracking.qbo.QBOWireFormat;
+import com.intuit.developer.sampleapp.timetracking.qbo.simulator.QBOSimulator;
+import com.intuit.developer.sampleapp.timetracking.qbo.simulator.SimulatedDataService;
 import com.intuit.developer.sampleapp.timetracking.repository.AppInfoRepository;
 import com.intuit.ipp.core.Context;
 import com.intuit.ipp.core.ServiceType;
 import com.intuit.ipp.security.OAuthAuthorizer;
 import com.intuit.ipp.services.DataService;
-import mockit.Expectations;
-import mockit.Injectable;
-import mockit.Mocked;
-import mockit.Tested;
+import mockit.*;
 import mockit.integration.junit4.JMockit;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 
 import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertSame;
 import static junit.framework.Assert.assertTrue;
 
 /**
@@ -34,8 +37,17 @@ public class DataServiceFactoryTests {
     @Injectable
     AppInfoRepository appInfoRepository;
 
+    @Injectable
+    QBORequestExecutor requestExecutor;
+
+    @Injectable
+    QBOSimulator simulator;
+
+    @Injectable
+    QBOWireFormat wireFormat;
+
     @Mocked
-    DataService dataService;
+    QBODataService dataService;
 
     @Mocked
     OAuthAuthorizer oAuthAuthorizer;
@@ -71,10 +83,138 @@ public class DataServiceFactoryTests {
             new Context(oAuthAuthorizer, ServiceType.QBO, realmId);
             result = context;
 
-            new DataService(context);
+            new QBODataService(context, realmId, requestExecutor, wireFormat);
+        }};
+
+        dataServiceFactory.getDataService(c);
+    }
+
+    @Test
+    public void testGetDataService_ReusesCachedInstance() throws Exception {
+        final AppInfo appInfo = new AppInfo("appToken", "consumerKey", "consumerSecret");
+        final Company c = connectedCompany("1234567", "accessToken", "accessTokenSecret");
+
+        new NonStrictExpectations() {{
+            appInfoRepository.getFirst();
+            result = appInfo;
+        }};
+
+        final DataService first = dataServiceFactory.getDataService(c);
+        final DataService second = dataServiceFactory.getDataService(c);
+
+        assertSame("cached data service", first, second);
+        assertEquals("hits", 1, dataServiceFactory.getHits());
+        assertEquals("misses", 1, dataServiceFactory.getMisses());
+
+        new Verifications() {{
+            appInfoRepository.getFirst();
+            times = 1;
+            new QBODataService((Context) any, anyString, (QBORequestExecutor) any, (QBOWireFormat) any);
+            times = 1;
+        }};
+    }
+
+    @Test
+    public void testGetDataService_RotatedTokensAreNotServedFromCache() throws Exception {
+        final AppInfo appInfo = new AppInfo("appToken", "consumerKey", "consumerSecret");
+        final Company c = connectedCompany("1234567", "accessToken", "accessTokenSecret");
+
+        new NonStrictExpectations() {{
+            appInfoRepository.getFirst();
+            result = appInfo;
         }};
 
         dataServiceFactory.getDataService(c);
+
+        c.setAccessToken("newAccessToken");
+        c.setAccessTokenSecret("newAccessTokenSecret");
+
+        dataServiceFactory.getDataService(c);
+
+        assertEquals("hits", 0, dataServiceFactory.getHits());
+        assertEquals("misses", 2, dataServiceFactory.getMisses());
+
+        new Verifications() {{
+            new OAuthAuthorizer("consumerKey", "consumerSecret", "newAccessToken", "newAccessTokenSecret");
+            times = 1;
+        }};
+    }
+
+    @Test
+    public void testInvalidate() throws Exception {
+        final AppInfo appInfo = new AppInfo("appToken", "consumerKey", "consumerSecret");
+        final Company c = connectedCompany("1234567", "accessToken", "accessTokenSecret");
+
+        new NonStrictExpectations() {{
+            appInfoRepository.getFirst();
+            result = appInfo;
+        }};
+
+        dataServiceFactory.getDataService(c);
+        dataServiceFactory.invalidate("1234567");
+        dataServiceFactory.getDataService(c);
+
+        assertEquals("hits", 0, dataServiceFactory.getHits());
+        assertEquals("misses", 2, dataServiceFactory.getMisses());
+    }
+
+    @Test
+    public void testLeastRecentlyUsedRealmIsEvicted() throws Exception {
+        final AppInfo appInfo = new AppInfo("appToken", "consumerKey", "consumerSecret");
+
+        new NonStrictExpectations() {{
+            appInfoRepository.getFirst();
+            result = appInfo;
+        }};
+
+        Deencapsulation.setField(dataServiceFactory, "maxCacheSize", 2);
+
+        final Company first = connectedCompany("1", "accessToken1", "accessTokenSecret1");
+        final Company second = connectedCompany("2", "accessToken2", "accessTokenSecret2");
+        final Company third = connectedCompany("3", "accessToken3", "accessTokenSecret3");
+
+        dataServiceFactory.getDataService(first);
+        dataServiceFactory.getDataService(second);
+        dataServiceFactory.getDataService(first); //second is now the least recently used
+        dataServiceFactory.getDataService(third);
+
+        assertEquals("evictions", 1, dataServiceFactory.getEvictions());
+        assertEquals("size", 2, dataServiceFactory.getSize());
+
+        dataServiceFactory.getDataService(first);
+        assertEquals("hits", 2, dataServiceFactory.getHits());
+
+        dataServiceFactory.getDataService(second);
+        assertEquals("misses", 4, dataServiceFactory.getMisses());
+    }
+
+    @Test
+    public void testGetDataService_Simulated(@Mocked final SimulatedDataService simulatedDataService) throws Exception {
+        final Company c = connectedCompany("1234567", "accessToken", "accessTokenSecret");
+
+        new NonStrictExpectations() {{
+            simulator.isEnabled();
+            result = true;
+        }};
+
+        dataServiceFactory.getDataService(c);
+
+        new Verifications() {{
+            appInfoRepository.getFirst();
+            times = 0;
+            new SimulatedDataService((Context) any, "1234567", requestExecutor, simulator);
+            times = 1;
+        }};
+    }
+
+    private Company connectedCompany(String realmId, String accessToken, String accessTokenSecret) {
+        Company c = new Company();
+        c.setName("The Federalists");
+        c.setConnectedToQbo(true);
+        c.setAccessToken(accessToken);
+        c.setAccessTokenSecret(accessTokenSecret);
+        c.setQboId(realmId);
+        return c;
     }
 
     @Test
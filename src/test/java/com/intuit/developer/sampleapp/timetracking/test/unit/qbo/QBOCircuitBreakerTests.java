@@ -0,0 +1,80 @@
+package com.intuit.developer.sampleapp.timetracking.test.unit.qbo;
+
+import com.intuit.developer.sampleapp.timetracking.qbo.QBOCircuitBreaker;
+import mockit.Deencapsulation;
+import org.junit.Test;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class QBOCircuitBreakerTests {
+
+    @Test
+    public void testOpensWhenFailureRateIsReached() throws Exception {
+        final QBOCircuitBreaker circuitBreaker = new QBOCircuitBreaker();
+
+        //9 failures out of 9 is not enough, 10 requests are needed before the breaker judges
+        for (int i = 0; i < 9; i++) {
+            circuitBreaker.recordFailure("realm1");
+        }
+        assertEquals("state", QBOCircuitBreaker.State.Closed, circuitBreaker.getState("realm1"));
+
+        circuitBreaker.recordFailure("realm1");
+        assertEquals("state", QBOCircuitBreaker.State.Open, circuitBreaker.getState("realm1"));
+        assertFalse(circuitBreaker.allowRequest("realm1"));
+        assertEquals("rejected", 1, circuitBreaker.getRejected());
+        assertEquals("opened", 1, circuitBreaker.getOpened());
+    }
+
+    @Test
+    public void testStaysClosedBelowFailureRate() throws Exception {
+        final QBOCircuitBreaker circuitBreaker = new QBOCircuitBreaker();
+
+        for (int i = 0; i < 30; i++) {
+            if (i % 3 == 0) {
+                circuitBreaker.recordFailure("realm1");
+            } else {
+                circuitBreaker.recordSuccess("realm1");
+            }
+        }
+
+        assertEquals("state", QBOCircuitBreaker.State.Closed, circuitBreaker.getState("realm1"));
+        assertTrue(circuitBreaker.allowRequest("realm1"));
+    }
+
+    @Test
+    public void testHalfOpenTrialClosesBreaker() throws Exception {
+        final QBOCircuitBreaker circuitBreaker = openBreaker();
+        Deencapsulation.setField(circuitBreaker, "openMillis", 0L);
+
+        assertTrue("trial request", circuitBreaker.allowRequest("realm1"));
+        assertFalse("only one trial request at a time", circuitBreaker.allowRequest("realm1"));
+
+        circuitBreaker.recordSuccess("realm1");
+
+        assertEquals("state", QBOCircuitBreaker.State.Closed, circuitBreaker.getState("realm1"));
+        assertTrue(circuitBreaker.allowRequest("realm1"));
+        assertEquals("closed", 1, circuitBreaker.getClosed());
+    }
+
+    @Test
+    public void testFailedTrialReopensBreaker() throws Exception {
+        final QBOCircuitBreaker circuitBreaker = openBreaker();
+        Deencapsulation.setField(circuitBreaker, "openMillis", 0L);
+
+        assertTrue("trial request", circuitBreaker.allowRequest("realm1"));
+        circuitBreaker.recordFailure("realm1");
+
+        assertEquals("state", QBOCircuitBreaker.State.Open, circuitBreaker.getState("realm1"));
+        assertEquals("opened", 2, circuitBreaker.getOpened());
+    }
+
+    private QBOCircuitBreaker openBreaker() {
+        final QBOCircuitBreaker circuitBreaker = new QBOCircuitBreaker();
+        for (int i = 0; i < 10; i++) {
+            circuitBreaker.recordFailure("realm1");
+        }
+        return circuitBreaker;
+    }
+}
@@ -2,13 +2,21 @@ package com.intuit.developer.sampleapp.timetracking.test.unit.qbo;
 
 import com.intuit.developer.sampleapp.timetracking.domain.*;
 import com.intuit.developer.sampleapp.timetracking.mappers.*;
+import com.intuit.developer.sampleapp.timetracking.qbo.BatchSyncResult;
 import com.intuit.developer.sampleapp.timetracking.qbo.DataServiceFactory;
+import com.intuit.developer.sampleapp.timetracking.qbo.QBODataService;
 import com.intuit.developer.sampleapp.timetracking.qbo.QBOGateway;
+import com.intuit.developer.sampleapp.timetracking.qbo.QBOMetrics;
+import com.intuit.developer.sampleapp.timetracking.qbo.ReferenceDataCache;
 import com.intuit.developer.sampleapp.timetracking.repository.*;
 import com.intuit.ipp.core.IEntity;
 import com.intuit.ipp.data.Account;
+import com.intuit.ipp.data.Fault;
+import com.intuit.ipp.data.Line;
+import com.intuit.ipp.data.OperationEnum;
 import com.intuit.ipp.data.Term;
-import com.intuit.ipp.services.DataService;
+import com.intuit.ipp.exception.FMSException;
+import com.intuit.ipp.services.BatchOperation;
 import com.intuit.ipp.services.QueryResult;
 import mockit.*;
 import mockit.integration.junit4.JMockit;
@@ -16,6 +24,7 @@ import org.joda.money.Money;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 
+import java.math.BigInteger;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
@@ -40,13 +49,17 @@ public class QBOGatewayTests {
     DataServiceFactory dataServiceFactory;
 
     @Mocked
-    DataService dataService;
+    QBODataService dataService;
+
+    @Injectable
+    QBOMetrics metrics;
 
 
     @Test
     public void testCreateEmployeeInQBO_NoMatchFound(@Mocked final EmployeeMapper mapper,
                                                      @Injectable final EmployeeRepository repository,
                                                      @Mocked final QueryResult queryResult) throws Exception {
+        Deencapsulation.setField(qboGateway, "reconcile", true);
 
         final String firstName = "First";
         final String lastName = "Last";
@@ -73,7 +86,7 @@ public class QBOGatewayTests {
             dataService.executeQuery(anyString);
             result = queryResult;
 
-            dataService.add(mappedQboObject);
+            dataService.add(mappedQboObject, anyString);
             result = returnedQboObject;
 
 
@@ -87,13 +100,88 @@ public class QBOGatewayTests {
 
         new Verifications() {{
             dataService.executeQuery(expectedQuery);
-            dataService.add(mappedQboObject);
+            dataService.add(mappedQboObject, anyString);
+            repository.save(employee);
+        }};
+    }
+
+    @Test
+    public void testCreateEmployeeInQBO_CreatesWithRequestId(@Mocked final EmployeeMapper mapper,
+                                                             @Injectable final EmployeeRepository repository) throws Exception {
+        final Employee employee = new Employee("First", "Last", "first.last@gmail.com", "916-222-3333");
+
+        final Company c = new Company();
+        c.setName("The Federalists");
+        c.addEmployee(employee);
+
+        final com.intuit.ipp.data.Employee returnedQboObject = new com.intuit.ipp.data.Employee();
+        returnedQboObject.setId("987654321");
+
+        final com.intuit.ipp.data.Employee mappedQboObject = new com.intuit.ipp.data.Employee();
+
+        new NonStrictExpectations() {{
+            dataServiceFactory.getDataService(c);
+            result = dataService;
+
+            EmployeeMapper.buildQBOObject(employee);
+            result = mappedQboObject;
+
+            dataService.add(mappedQboObject, anyString);
+            result = returnedQboObject;
+        }};
+
+        qboGateway.createEmployeeInQBO(employee);
+
+        assertEquals("qboId  was not updated", "987654321", employee.getQboId());
+        assertTrue("request id", employee.getQboRequestId() != null);
+
+        new Verifications() {{
+            //without reconciliation there is no query before the create
+            dataService.executeQuery(anyString);
+            times = 0;
+            dataService.add(mappedQboObject, employee.getQboRequestId());
+            //the request id is saved before the create, and the qboId after it
             repository.save(employee);
+            times = 2;
+        }};
+    }
+
+    @Test
+    public void testCreateCustomerInQBO_RequestIdIsAssignedOnce(@Mocked final CustomerMapper mapper,
+                                                                @Injectable final CustomerRepository repository) throws Exception {
+        //a customer gets its request id when it is first created in QBO
+        final Customer customer = new Customer("First", "Last", "first.last@gmail.com", "916-222-3333");
+
+        final Company c = new Company();
+        c.setName("The Federalists");
+        c.addCustomer(customer);
+
+        final com.intuit.ipp.data.Customer returnedQboObject = new com.intuit.ipp.data.Customer();
+        returnedQboObject.setId("987654321");
+
+        new NonStrictExpectations() {{
+            dataServiceFactory.getDataService(c);
+            result = dataService;
+
+            dataService.add((com.intuit.ipp.data.Customer) any, anyString);
+            result = returnedQboObject;
+        }};
+
+        qboGateway.createCustomerInQBO(customer);
+
+        assertTrue("request id", customer.getQboRequestId() != null);
+
+        new Verifications() {{
+            dataService.add((com.intuit.ipp.data.Customer) any, customer.getQboRequestId());
+            //the request id is saved before the create, and the qboId after it
+            repository.save(customer);
+            times = 2;
         }};
     }
 
     @Test
     public void testCreateEmployeeInQBO_MatchFound(@Injectable final EmployeeRepository repository) throws Exception {
+        Deencapsulation.setField(qboGateway, "reconcile", true);
 
         final String firstName = "First";
         final String lastName = "Last";
@@ -127,7 +215,7 @@ public class QBOGatewayTests {
         qboGateway.createEmployeeInQBO(employee);
 
         new Verifications() {{
-            dataService.add(withAny(new com.intuit.ipp.data.Employee()));
+            dataService.add(withAny(new com.intuit.ipp.data.Employee()), anyString);
             times = 0;
             repository.save(employee);
         }};
@@ -139,6 +227,7 @@ public class QBOGatewayTests {
     public void testCreateCustomerInQBO_NoMatchFound(@Mocked final CustomerMapper mapper,
                                                      @Injectable final CustomerRepository repository,
                                                      @Mocked final QueryResult queryResult) throws Exception {
+        Deencapsulation.setField(qboGateway, "reconcile", true);
 
         String firstName = "First";
         String lastName = "Last";
@@ -167,7 +256,7 @@ public class QBOGatewayTests {
             dataService.executeQuery(anyString);
             result = queryResult;
 
-            dataService.add(mappedQboObject);
+            dataService.add(mappedQboObject, anyString);
             result = returnedQboObject;
 
             repository.save(domainEntity);
@@ -179,13 +268,14 @@ public class QBOGatewayTests {
 
         new Verifications() {{
             dataService.executeQuery(expectedQuery);
-            dataService.add(mappedQboObject);
+            dataService.add(mappedQboObject, anyString);
             repository.save(domainEntity);
         }};
     }
 
     @Test
     public void testCreateCustomerInQBO_MatchFound(@Injectable final CustomerRepository repository) throws Exception {
+        Deencapsulation.setField(qboGateway, "reconcile", true);
 
         final String firstName = "First";
         final String lastName = "Last";
@@ -219,7 +309,7 @@ public class QBOGatewayTests {
         qboGateway.createCustomerInQBO(customer);
 
         new Verifications() {{
-            dataService.add(withAny(new com.intuit.ipp.data.Customer()));
+            dataService.add(withAny(new com.intuit.ipp.data.Customer()), anyString);
             times = 0;
             repository.save(customer);
         }};
@@ -232,6 +322,7 @@ public class QBOGatewayTests {
                                                         @Injectable final ServiceItemRepository repository,
                                                         @Mocked final QueryResult accountQueryResult,
                                                         @Mocked final QueryResult itemQueryResult) throws Exception {
+        Deencapsulation.setField(qboGateway, "reconcile", true);
 
         final String name = "Research";
         final String description = "Reading a lot";
@@ -255,6 +346,8 @@ public class QBOGatewayTests {
 
         final String expectedItemQuery = String.format(QBOGateway.EXISTING_SERVICE_ITEM_QUERY, name);
 
+        Deencapsulation.setField(qboGateway, "referenceDataCache", new ReferenceDataCache());
+
         new NonStrictExpectations() {{
             dataServiceFactory.getDataService(c);
             result = dataService;
@@ -271,7 +364,7 @@ public class QBOGatewayTests {
             accountQueryResult.getEntities();
             result = list;
 
-            dataService.add(mappedQboObject);
+            dataService.add(mappedQboObject, anyString);
             result = returnedQboObject;
 
         }};
@@ -283,7 +376,7 @@ public class QBOGatewayTests {
 
         new Verifications() {{
             dataService.executeQuery(expectedItemQuery);
-            dataService.add(mappedQboObject);
+            dataService.add(mappedQboObject, anyString);
             repository.save(domainEntity);
         }};
     }
@@ -305,6 +398,8 @@ public class QBOGatewayTests {
 
         final String expectedItemQuery = String.format(QBOGateway.EXISTING_SERVICE_ITEM_QUERY, serviceName);
 
+        Deencapsulation.setField(qboGateway, "referenceDataCache", new ReferenceDataCache());
+
         new NonStrictExpectations() {{
             dataServiceFactory.getDataService(c);
             result = dataService;
@@ -334,7 +429,7 @@ public class QBOGatewayTests {
         assertTrue("exception not thrown", exceptionThrown);
 
         new Verifications() {{
-            dataService.add(mappedQboObject);
+            dataService.add(mappedQboObject, anyString);
             times = 0;
             repository.save(domainEntity);
             times = 0;
@@ -343,6 +438,7 @@ public class QBOGatewayTests {
 
     @Test
     public void testCreateServiceItemInQBO_MatchFound(@Injectable final ServiceItemRepository repository) throws Exception {
+        Deencapsulation.setField(qboGateway, "reconcile", true);
 
         final String name = "name";
         final String description = "description";
@@ -375,7 +471,7 @@ public class QBOGatewayTests {
         qboGateway.createItemInQBO(serviceItem);
 
         new Verifications() {{
-            dataService.add(withAny(new com.intuit.ipp.data.Item()));
+            dataService.add(withAny(new com.intuit.ipp.data.Item()), anyString);
             times = 0;
             repository.save(serviceItem);
         }};
@@ -384,6 +480,271 @@ public class QBOGatewayTests {
     }
 
 
+    @Test
+    public void testCreateCustomersInQBO_Batch(@Injectable final CustomerRepository repository,
+                                               @Mocked final BatchOperation batchOperation) throws Exception {
+        Deencapsulation.setField(qboGateway, "reconcile", true);
+
+        final Customer existingCustomer = new Customer("Existing", "Customer", "existing@example.com", "916-111-1111");
+        final Customer newCustomer = new Customer("New", "Customer", "new@example.com", "916-222-2222");
+        final Customer duplicateCustomer = new Customer("Duplicate", "Customer", "duplicate@example.com", "916-333-3333");
+
+        final Company c = new Company();
+        c.setName("The Federalists");
+        c.addCustomer(existingCustomer);
+        c.addCustomer(newCustomer);
+        c.addCustomer(duplicateCustomer);
+
+        //QBO names are matched case insensitively
+        final com.intuit.ipp.data.Customer existingQboObject = new com.intuit.ipp.data.Customer();
+        existingQboObject.setId("1");
+        existingQboObject.setGivenName("existing");
+        existingQboObject.setFamilyName("CUSTOMER");
+        final QueryResult activeCustomers = new QueryResult();
+        activeCustomers.setEntities(Arrays.asList(existingQboObject));
+
+        final com.intuit.ipp.data.Customer createdQboObject = new com.intuit.ipp.data.Customer();
+        createdQboObject.setId("2");
+
+        final Fault fault = new Fault();
+        final com.intuit.ipp.data.Error error = new com.intuit.ipp.data.Error();
+        error.setMessage("Duplicate Name Exists Error");
+        fault.getError().add(error);
+
+        final String expectedQuery = String.format(QBOGateway.ACTIVE_CUSTOMERS_QUERY, 1, QBOGateway.ACTIVE_ENTITIES_PAGE_SIZE);
+
+        new NonStrictExpectations() {{
+            dataServiceFactory.getDataService(c);
+            result = dataService;
+
+            dataService.executeQuery(expectedQuery);
+            result = activeCustomers;
+
+            batchOperation.getEntity("create0");
+            result = createdQboObject;
+
+            batchOperation.isFault("create1");
+            result = true;
+
+            batchOperation.getFault("create1");
+            result = fault;
+        }};
+
+        final BatchSyncResult result = qboGateway.createCustomersInQBO(c, c.getCustomers());
+
+        assertEquals("synced", 2, result.getSyncedCount());
+        assertEquals("failed", 1, result.getFailedCount());
+        assertEquals("failure reason", "Duplicate Name Exists Error", result.getFailures().get("Customer Duplicate Customer"));
+        assertEquals("existing qbo id", "1", existingCustomer.getQboId());
+        assertEquals("created qbo id", "2", newCustomer.getQboId());
+        assertEquals("failed qbo id", null, duplicateCustomer.getQboId());
+
+        new Verifications() {{
+            //a single page of active customers, no per customer queries
+            dataService.executeQuery(anyString);
+            times = 1;
+            //one batch creates every customer that doesn't exist yet
+            dataService.executeBatch((BatchOperation) any, anyString);
+            times = 1;
+            batchOperation.addEntity(withAny(new com.intuit.ipp.data.Customer()), OperationEnum.CREATE, anyString);
+            times = 2;
+            dataService.add(withAny(new com.intuit.ipp.data.Customer()));
+            times = 0;
+            repository.save(Arrays.asList(existingCustomer));
+            repository.save(Arrays.asList(newCustomer));
+        }};
+    }
+
+    @Test
+    public void testCreateItemsInQBO_ExistingItemsArePaged(@Injectable final ServiceItemRepository repository,
+                                                           @Mocked final BatchOperation batchOperation) throws Exception {
+        Deencapsulation.setField(qboGateway, "reconcile", true);
+        final ServiceItem serviceItem = new ServiceItem("Research", "Reading large ponderous tomes", Money.parse("USD 50.00"));
+
+        final Company c = new Company();
+        c.setName("The Federalists");
+        c.addServiceItem(serviceItem);
+
+        final List<IEntity> firstPage = new ArrayList<>();
+        for (int i = 0; i < QBOGateway.ACTIVE_ENTITIES_PAGE_SIZE; i++) {
+            final com.intuit.ipp.data.Item item = new com.intuit.ipp.data.Item();
+            item.setId("" + i);
+            item.setName("Item " + i);
+            firstPage.add(item);
+        }
+        final QueryResult firstPageResult = new QueryResult();
+        firstPageResult.setEntities(firstPage);
+
+        final com.intuit.ipp.data.Item research = new com.intuit.ipp.data.Item();
+        research.setId("1234");
+        research.setName("Research");
+        final QueryResult secondPageResult = new QueryResult();
+        secondPageResult.setEntities(Arrays.asList(research));
+
+        final String firstPageQuery = String.format(QBOGateway.ACTIVE_SERVICE_ITEMS_QUERY, 1, QBOGateway.ACTIVE_ENTITIES_PAGE_SIZE);
+        final String secondPageQuery = String.format(QBOGateway.ACTIVE_SERVICE_ITEMS_QUERY, QBOGateway.ACTIVE_ENTITIES_PAGE_SIZE + 1, QBOGateway.ACTIVE_ENTITIES_PAGE_SIZE);
+
+        new NonStrictExpectations() {{
+            dataServiceFactory.getDataService(c);
+            result = dataService;
+
+            dataService.executeQuery(firstPageQuery);
+            result = firstPageResult;
+
+            dataService.executeQuery(secondPageQuery);
+            result = secondPageResult;
+        }};
+
+        final BatchSyncResult result = qboGateway.createItemsInQBO(c, c.getServiceItems());
+
+        assertEquals("synced", 1, result.getSyncedCount());
+        assertEquals("qbo id", "1234", serviceItem.getQboId());
+
+        new Verifications() {{
+            dataService.executeQuery(anyString);
+            times = 2;
+            dataService.executeBatch((BatchOperation) any, anyString);
+            times = 0;
+        }};
+    }
+
+    @Test
+    public void testCreateEmployeesInQBO_BatchRequestFails(@Injectable final EmployeeRepository repository,
+                                                          @Mocked final BatchOperation batchOperation,
+                                                          @Mocked final QueryResult noActiveEmployees) throws Exception {
+
+        final Company c = new Company();
+        c.setName("The Federalists");
+
+        final List<Employee> employees = new ArrayList<>();
+        for (int i = 0; i < QBOGateway.MAX_BATCH_SIZE + 1; i++) {
+            final Employee employee = new Employee("First" + i, "Last", "first.last@gmail.com", "916-222-3333");
+            c.addEmployee(employee);
+            employees.add(employee);
+        }
+
+        final com.intuit.ipp.data.Employee createdQboObject = new com.intuit.ipp.data.Employee();
+        createdQboObject.setId("1");
+
+        new NonStrictExpectations() {{
+            dataServiceFactory.getDataService(c);
+            result = dataService;
+
+            dataService.executeQuery(anyString);
+            result = noActiveEmployees;
+
+            //the first chunk fails as a whole, the second one succeeds
+            dataService.executeBatch((BatchOperation) any, anyString);
+            result = new Delegate() {
+                int calls;
+
+                void executeBatch(BatchOperation batchOperation, String requestId) throws FMSException {
+                    if (calls++ == 0) {
+                        throw new FMSException("Service unavailable");
+                    }
+                }
+            };
+
+            batchOperation.getEntity(anyString);
+            result = createdQboObject;
+        }};
+
+        final BatchSyncResult result = qboGateway.createEmployeesInQBO(c, employees);
+
+        assertEquals("synced", 1, result.getSyncedCount());
+        assertEquals("failed", QBOGateway.MAX_BATCH_SIZE, result.getFailedCount());
+        assertEquals("qbo id of employee in the first chunk", null, employees.get(0).getQboId());
+        assertEquals("qbo id of employee in the second chunk", "1", employees.get(QBOGateway.MAX_BATCH_SIZE).getQboId());
+    }
+
+    @Test
+    public void testCreateEmployeesInQBO_RetriedChunkHasSameRequestId(@Injectable final EmployeeRepository repository,
+                                                                      @Mocked final BatchOperation batchOperation) throws Exception {
+        final Company c = new Company();
+        c.setName("The Federalists");
+
+        final Employee first = new Employee("First", "Last", "first.last@gmail.com", "916-222-3333");
+        final Employee second = new Employee("Second", "Last", "second.last@gmail.com", "916-222-3334");
+        c.addEmployee(first);
+        c.addEmployee(second);
+
+        final com.intuit.ipp.data.Employee createdQboObject = new com.intuit.ipp.data.Employee();
+        createdQboObject.setId("1");
+
+        final List<String> requestIds = new ArrayList<>();
+
+        new NonStrictExpectations() {{
+            dataServiceFactory.getDataService(c);
+            result = dataService;
+
+            batchOperation.getEntity(anyString);
+            result = createdQboObject;
+
+            //the first batch request fails as a whole, it is sent again by the next sync
+            dataService.executeBatch((BatchOperation) any, anyString);
+            result = new Delegate() {
+                void executeBatch(BatchOperation batchOperation, String requestId) throws FMSException {
+                    requestIds.add(requestId);
+                    if (requestIds.size() == 1) {
+                        throw new FMSException("Service unavailable");
+                    }
+                }
+            };
+        }};
+
+        final BatchSyncResult failedResult = qboGateway.createEmployeesInQBO(c, Arrays.asList(first, second));
+        assertEquals("failed", 2, failedResult.getFailedCount());
+        assertTrue("request id", first.getQboRequestId() != null);
+
+        final String firstRequestId = first.getQboRequestId();
+        qboGateway.createEmployeesInQBO(c, Arrays.asList(first, second));
+
+        assertEquals("batch requests", 2, requestIds.size());
+        assertEquals("batch request id", requestIds.get(0), requestIds.get(1));
+        assertEquals("entity request id", firstRequestId, first.getQboRequestId());
+
+        new Verifications() {{
+            //without reconciliation the active employees are not loaded
+            dataService.executeQuery(anyString);
+            times = 0;
+            //once when the request ids are assigned, once when the employees are synced
+            repository.save(Arrays.asList(first, second));
+            times = 2;
+        }};
+    }
+
+    @Test
+    public void testCreateEmployeeInQBO_NameIsEscaped(@Mocked final EmployeeMapper mapper,
+                                                      @Injectable final EmployeeRepository repository,
+                                                      @Mocked final QueryResult queryResult) throws Exception {
+        Deencapsulation.setField(qboGateway, "reconcile", true);
+        final Employee employee = new Employee("Conan", "O'Brien", "conan@example.com", "916-222-3333");
+
+        final Company c = new Company();
+        c.setName("The Federalists");
+        c.addEmployee(employee);
+
+        final com.intuit.ipp.data.Employee returnedQboObject = new com.intuit.ipp.data.Employee();
+        returnedQboObject.setId("987654321");
+
+        new NonStrictExpectations() {{
+            dataServiceFactory.getDataService(c);
+            result = dataService;
+
+            dataService.executeQuery(anyString);
+            result = queryResult;
+
+            dataService.add((com.intuit.ipp.data.Employee) any, anyString);
+            result = returnedQboObject;
+        }};
+
+        qboGateway.createEmployeeInQBO(employee);
+
+        new Verifications() {{
+            dataService.executeQuery("select * from employee where active = true and givenName = 'Conan' and familyName = 'O\\'Brien'");
+        }};
+    }
+
     @Test
     public void testCreateTimeActivityInQBO(@Mocked final TimeActivityMapper mapper,
                                             @Injectable final TimeActivityRepository repository) throws Exception {
@@ -423,6 +784,66 @@ public class QBOGatewayTests {
 
     }
 
+    @Test
+    public void testCreateTimeActivitiesInQBO_Batch(@Mocked final TimeActivityMapper mapper,
+                                                    @Injectable final TimeActivityRepository repository,
+                                                    @Mocked final BatchOperation batchOperation) throws Exception {
+        final Company c = new Company();
+        c.setName("A good company");
+
+        final Employee syncedEmployee = new Employee("Synced", "Employee", "synced@example.com", "916-111-1111");
+        syncedEmployee.setQboId("11");
+        final Employee unsyncedEmployee = new Employee("Unsynced", "Employee", "unsynced@example.com", "916-222-2222");
+
+        final Customer customer = new Customer("A", "Customer", "customer@example.com", "916-333-3333");
+        customer.setQboId("22");
+
+        final ServiceItem serviceItem = new ServiceItem("Research", "Research", Money.parse("USD 100"));
+        serviceItem.setQboId("33");
+
+        final TimeActivity pushable = timeActivity(c, syncedEmployee, customer, serviceItem);
+        final TimeActivity notPushable = timeActivity(c, unsyncedEmployee, customer, serviceItem);
+
+        final com.intuit.ipp.data.TimeActivity createdQboObject = new com.intuit.ipp.data.TimeActivity();
+        createdQboObject.setId("44");
+
+        new NonStrictExpectations() {{
+            dataServiceFactory.getDataService(c);
+            result = dataService;
+
+            TimeActivityMapper.buildQBOObject((TimeActivity) any);
+            result = new com.intuit.ipp.data.TimeActivity();
+
+            batchOperation.getEntity("create0");
+            result = createdQboObject;
+        }};
+
+        final BatchSyncResult result = qboGateway.createTimeActivitiesInQBO(c, Arrays.asList(pushable, notPushable), null);
+
+        assertEquals("synced", 1, result.getSyncedCount());
+        assertEquals("failed", 1, result.getFailedCount());
+        assertEquals("pushed qbo id", "44", pushable.getQboId());
+        assertEquals("pending qbo id", null, notPushable.getQboId());
+
+        new Verifications() {{
+            dataService.executeBatch((BatchOperation) any);
+            times = 1;
+            batchOperation.addEntity(withAny(new com.intuit.ipp.data.TimeActivity()), OperationEnum.CREATE, anyString);
+            times = 1;
+            repository.save(Arrays.asList(pushable));
+        }};
+    }
+
+    private TimeActivity timeActivity(Company company, Employee employee, Customer customer, ServiceItem serviceItem) {
+        final TimeActivity timeActivity = new TimeActivity();
+        timeActivity.setCompany(company);
+        timeActivity.setEmployee(employee);
+        timeActivity.setCustomer(customer);
+        timeActivity.setServiceItem(serviceItem);
+        timeActivity.setMinutes(90);
+        return timeActivity;
+    }
+
     @Test
     public void testCreateInvoiceInQBO(@Mocked final InvoiceMapper mapper,
                                        @Injectable final InvoiceRepository repository) throws Exception {
@@ -453,6 +874,8 @@ public class QBOGatewayTests {
         net30.setDueDays(30);
         terms.add(net30);
 
+        Deencapsulation.setField(qboGateway, "referenceDataCache", new ReferenceDataCache());
+
         new NonStrictExpectations() {{
             dataServiceFactory.getDataService(c);
             result = dataService;
@@ -463,7 +886,7 @@ public class QBOGatewayTests {
             dataService.findAll((Term) any);
             result = terms;
 
-            dataService.add(mappedQboObject);
+            dataService.add(mappedQboObject, anyString);
             result = returnedQboObject;
 
         }};
@@ -471,7 +894,9 @@ public class QBOGatewayTests {
         qboGateway.createInvoiceInQBO(domainEntity);
 
         new Verifications() {{
-            dataService.add(mappedQboObject);
+            dataService.add(mappedQboObject, domainEntity.getQboRequestId());
+            dataService.add((com.intuit.ipp.data.Invoice) any);
+            times = 0;
             repository.save(domainEntity);
         }};
 
@@ -481,4 +906,257 @@ public class QBOGatewayTests {
 
 
     }
+
+    @Test
+    public void testCreateInvoiceInQBO_TermIsCached(@Mocked final InvoiceMapper mapper,
+                                                    @Injectable final InvoiceRepository repository) throws Exception {
+        final Company c = new Company();
+        c.setName("A good company");
+        c.setQboId("1234567");
+
+        final Invoice firstInvoice = new Invoice();
+        firstInvoice.setCompany(c);
+        final Invoice secondInvoice = new Invoice();
+        secondInvoice.setCompany(c);
+
+        final com.intuit.ipp.data.Invoice returnedQboObject = new com.intuit.ipp.data.Invoice();
+        returnedQboObject.setId("987654321");
+
+        final List<Term> terms = new ArrayList<>();
+        final Term net30 = new Term();
+        net30.setId("1234");
+        net30.setType("STANDARD");
+        net30.setDueDays(30);
+        terms.add(net30);
+
+        final ReferenceDataCache referenceDataCache = new ReferenceDataCache();
+        Deencapsulation.setField(qboGateway, "referenceDataCache", referenceDataCache);
+
+        new NonStrictExpectations() {{
+            dataServiceFactory.getDataService(c);
+            result = dataService;
+
+            InvoiceMapper.buildQBOObject((Invoice) any);
+            result = new com.intuit.ipp.data.Invoice();
+
+            dataService.findAll((Term) any);
+            result = terms;
+
+            dataService.add(withAny(new com.intuit.ipp.data.Invoice()), anyString);
+            result = returnedQboObject;
+        }};
+
+        qboGateway.createInvoiceInQBO(firstInvoice);
+        qboGateway.createInvoiceInQBO(secondInvoice);
+
+        assertEquals("hits", 1, referenceDataCache.getHits());
+        assertEquals("misses", 1, referenceDataCache.getMisses());
+
+        new Verifications() {{
+            dataService.findAll((Term) any);
+            times = 1;
+        }};
+    }
+
+    @Test
+    public void testCreateInvoiceInQBO_ResumedSubmissionReusesRequestId(@Mocked final InvoiceMapper mapper,
+                                                                        @Injectable final InvoiceRepository repository) throws Exception {
+        final Company c = new Company();
+        c.setName("A good company");
+
+        final Invoice domainEntity = new Invoice();
+        domainEntity.setCompany(c);
+        domainEntity.setStatus(InvoiceStatus.Submitting);
+
+        final List<Term> terms = new ArrayList<>();
+        final Term net30 = new Term();
+        net30.setId("1234");
+        net30.setType("STANDARD");
+        net30.setDueDays(30);
+        terms.add(net30);
+
+        Deencapsulation.setField(qboGateway, "referenceDataCache", new ReferenceDataCache());
+
+        final com.intuit.ipp.data.Invoice returnedQboObject = new com.intuit.ipp.data.Invoice();
+        returnedQboObject.setId("987654321");
+
+        final List<String> requestIds = new ArrayList<>();
+
+        new NonStrictExpectations() {{
+            dataServiceFactory.getDataService(c);
+            result = dataService;
+
+            InvoiceMapper.buildQBOObject(domainEntity);
+            result = new com.intuit.ipp.data.Invoice();
+
+            dataService.findAll((Term) any);
+            result = terms;
+
+            dataService.add((com.intuit.ipp.data.Invoice) any, anyString);
+            result = new Delegate() {
+                com.intuit.ipp.data.Invoice add(com.intuit.ipp.data.Invoice invoice, String requestId) {
+                    requestIds.add(requestId);
+                    return returnedQboObject;
+                }
+            };
+
+            //the request id is saved, then the app is stopped after the invoice was created in QBO, before it was saved
+            repository.save(domainEntity);
+            result = domainEntity;
+            result = new RuntimeException("app stopped");
+            result = domainEntity;
+        }};
+
+        boolean exceptionThrown = false;
+        try {
+            qboGateway.createInvoiceInQBO(domainEntity);
+        } catch (RuntimeException e) {
+            exceptionThrown = true;
+        }
+        assertTrue("exception was not thrown", exceptionThrown);
+
+        //the invoice is still Submitting in the database and is submitted again on the next start
+        domainEntity.setQboId(null);
+        domainEntity.setStatus(InvoiceStatus.Submitting);
+        qboGateway.createInvoiceInQBO(domainEntity);
+
+        assertEquals("creates sent", 2, requestIds.size());
+        assertEquals("request id", domainEntity.getQboRequestId(), requestIds.get(0));
+        assertEquals("request id is reused", requestIds.get(0), requestIds.get(1));
+        assertEquals("qbo id", "987654321", domainEntity.getQboId());
+        assertEquals("status", InvoiceStatus.Billed, domainEntity.getStatus());
+    }
+
+    @Test
+    public void testCreateInvoiceInQBO_SplitIntoParts(@Mocked final InvoiceMapper mapper,
+                                                      @Injectable final InvoiceRepository repository) throws Exception {
+        final Company c = new Company();
+        c.setName("A good company");
+
+        final Invoice domainEntity = new Invoice();
+        domainEntity.setCompany(c);
+
+        final com.intuit.ipp.data.Invoice mappedQboObject = invoiceWithLines(5);
+
+        final List<Term> terms = new ArrayList<>();
+        final Term net30 = new Term();
+        net30.setId("1234");
+        net30.setType("STANDARD");
+        net30.setDueDays(30);
+        terms.add(net30);
+
+        Deencapsulation.setField(qboGateway, "referenceDataCache", new ReferenceDataCache());
+        Deencapsulation.setField(qboGateway, "invoiceMaxLines", 2);
+
+        final List<com.intuit.ipp.data.Invoice> parts = new ArrayList<>();
+        final List<String> requestIds = new ArrayList<>();
+
+        new NonStrictExpectations() {{
+            dataServiceFactory.getDataService(c);
+            result = dataService;
+
+            InvoiceMapper.buildQBOObject(domainEntity);
+            result = mappedQboObject;
+
+            dataService.findAll((Term) any);
+            result = terms;
+
+            dataService.add((com.intuit.ipp.data.Invoice) any, anyString);
+            result = new Delegate() {
+                com.intuit.ipp.data.Invoice add(com.intuit.ipp.data.Invoice part, String requestId) {
+                    parts.add(part);
+                    requestIds.add(requestId);
+
+                    final com.intuit.ipp.data.Invoice returned = new com.intuit.ipp.data.Invoice();
+                    returned.setId("qbo-" + requestId.substring(requestId.lastIndexOf('-') + 1));
+                    return returned;
+                }
+            };
+        }};
+
+        qboGateway.createInvoiceInQBO(domainEntity);
+
+        assertEquals("parts", 3, parts.size());
+        assertEquals("lines of the first part", 2, parts.get(0).getLine().size());
+        assertEquals("lines of the last part", 1, parts.get(2).getLine().size());
+        assertEquals("lines stay in order", "line 3", parts.get(1).getLine().get(0).getDescription());
+        assertEquals("lines are renumbered per part", 1, parts.get(1).getLine().get(0).getLineNum().intValue());
+        assertEquals("terms qbo id", "1234", parts.get(2).getSalesTermRef().getValue());
+        assertEquals("request id", domainEntity.getQboRequestId() + "-1", requestIds.get(1));
+
+        assertEquals("part qbo ids", Arrays.asList("qbo-0", "qbo-1", "qbo-2"), domainEntity.getQboPartIds());
+        assertEquals("qbo id", "qbo-0", domainEntity.getQboId());
+        assertEquals("status", InvoiceStatus.Billed, domainEntity.getStatus());
+
+        new Verifications() {{
+            dataService.add((com.intuit.ipp.data.Invoice) any);
+            times = 0;
+            //once for the request id, once per part and once when the invoice is billed
+            repository.save(domainEntity);
+            times = 5;
+        }};
+    }
+
+    @Test
+    public void testCreateInvoiceInQBO_ResumesWithMissingPart(@Mocked final InvoiceMapper mapper,
+                                                              @Injectable final InvoiceRepository repository) throws Exception {
+        final Company c = new Company();
+        c.setName("A good company");
+
+        final Invoice domainEntity = new Invoice();
+        domainEntity.setCompany(c);
+        //the first part was created before the submission was interrupted
+        domainEntity.setQboRequestId("request-id");
+        domainEntity.addQboPartId("qbo-0");
+
+        final List<Term> terms = new ArrayList<>();
+        final Term net30 = new Term();
+        net30.setId("1234");
+        net30.setType("STANDARD");
+        net30.setDueDays(30);
+        terms.add(net30);
+
+        Deencapsulation.setField(qboGateway, "referenceDataCache", new ReferenceDataCache());
+        Deencapsulation.setField(qboGateway, "invoiceMaxLines", 2);
+
+        final com.intuit.ipp.data.Invoice returnedQboObject = new com.intuit.ipp.data.Invoice();
+        returnedQboObject.setId("qbo-1");
+
+        new NonStrictExpectations() {{
+            dataServiceFactory.getDataService(c);
+            result = dataService;
+
+            InvoiceMapper.buildQBOObject(domainEntity);
+            result = invoiceWithLines(4);
+
+            dataService.findAll((Term) any);
+            result = terms;
+
+            dataService.add((com.intuit.ipp.data.Invoice) any, anyString);
+            result = returnedQboObject;
+        }};
+
+        qboGateway.createInvoiceInQBO(domainEntity);
+
+        assertEquals("part qbo ids", Arrays.asList("qbo-0", "qbo-1"), domainEntity.getQboPartIds());
+        assertEquals("qbo id", "qbo-0", domainEntity.getQboId());
+
+        new Verifications() {{
+            dataService.add((com.intuit.ipp.data.Invoice) any, domainEntity.getQboRequestId() + "-1");
+            times = 1;
+            dataService.add((com.intuit.ipp.data.Invoice) any, domainEntity.getQboRequestId() + "-0");
+            times = 0;
+        }};
+    }
+
+    private com.intuit.ipp.data.Invoice invoiceWithLines(int numberOfLines) {
+        final com.intuit.ipp.data.Invoice qboInvoice = new com.intuit.ipp.data.Invoice();
+        for (int i = 1; i <= numberOfLines; i++) {
+            final Line line = new Line();
+            line.setLineNum(BigInteger.valueOf(i));
+            line.setDescription("line " + i);
+            qboInvoice.getLine().add(line);
+        }
+        return qboInvoice;
+    }
 }
@@ -0,0 +1,54 @@
+package com.intuit.developer.sampleapp.timetracking.test.unit.qbo;
+
+import com.intuit.developer.sampleapp.timetracking.qbo.LatencyHistogram;
+import com.intuit.developer.sampleapp.timetracking.qbo.QBOMetrics;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static junit.framework.Assert.assertEquals;
+
+public class QBOMetricsTests {
+
+    private final QBOMetrics metrics = new QBOMetrics();
+
+    @Test
+    public void testHistogramPercentiles() throws Exception {
+        final LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 0; i < 98; i++) {
+            histogram.record(TimeUnit.MILLISECONDS.toNanos(3));
+        }
+        histogram.record(TimeUnit.MILLISECONDS.toNanos(400));
+        histogram.record(TimeUnit.MILLISECONDS.toNanos(40000));
+
+        assertEquals("count", 100, histogram.getCount());
+        assertEquals("p50 is the upper bound of its bucket", 5.0, histogram.getPercentileMillis(50));
+        assertEquals("p99", 500.0, histogram.getPercentileMillis(99));
+        assertEquals("p100 is the maximum", 40000.0, histogram.getPercentileMillis(100));
+        assertEquals("max", 40000.0, histogram.getMaxMillis());
+    }
+
+    @Test
+    public void testGatewayOperationsAreTaggedByOutcome() throws Exception {
+        metrics.startGatewayOperation("createInvoiceInQBO", "Invoice", "1234567").stop();
+
+        final QBOMetrics.Timer failing = metrics.startGatewayOperation("createInvoiceInQBO", "Invoice", "1234567");
+        failing.failed();
+        failing.stop();
+
+        metrics.startGatewayOperation("createInvoiceInQBO", "Invoice", "1234567").stop();
+
+        final List<Map<String, Object>> operations = metrics.getGatewayOperationStatistics();
+        assertEquals("histograms", 2, operations.size());
+
+        for (Map<String, Object> operation : operations) {
+            assertEquals("count of " + operation.get("outcome"),
+                    QBOMetrics.SUCCESS.equals(operation.get("outcome")) ? 2L : 1L, operation.get("count"));
+        }
+
+        metrics.reset();
+        assertEquals("reset", 0, metrics.getGatewayOperationStatistics().size());
+    }
+}
@@ -0,0 +1,90 @@
+package com.intuit.developer.sampleapp.timetracking.test.unit.qbo;
+
+import com.intuit.developer.sampleapp.timetracking.qbo.QBORateLimiter;
+import org.junit.Test;
+
+import java.util.Map;
+
+import static junit.framework.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class QBORateLimiterTests {
+
+    @Test
+    public void testAcquire_BurstIsNotDelayed() throws Exception {
+        final QBORateLimiter rateLimiter = new QBORateLimiter();
+        rateLimiter.setLimits(1, 3);
+
+        rateLimiter.acquire("realm1");
+        rateLimiter.acquire("realm1");
+        rateLimiter.acquire("realm1");
+
+        assertEquals("acquired", 3, rateLimiter.getAcquired());
+        assertEquals("delayed", 0, rateLimiter.getDelayed());
+    }
+
+    @Test
+    public void testAcquire_WaitsForToken() throws Exception {
+        final QBORateLimiter rateLimiter = new QBORateLimiter();
+        rateLimiter.setLimits(20, 1);
+
+        final long start = System.nanoTime();
+        rateLimiter.acquire("realm1");
+        rateLimiter.acquire("realm1");
+        final long elapsedMillis = (System.nanoTime() - start) / 1000000;
+
+        //the second request waits for the bucket to refill, 1/20th of a second
+        assertTrue("waited " + elapsedMillis + "ms", elapsedMillis >= 40);
+        assertEquals("delayed", 1, rateLimiter.getDelayed());
+    }
+
+    @Test
+    public void testAcquire_RealmsHaveSeparateBuckets() throws Exception {
+        final QBORateLimiter rateLimiter = new QBORateLimiter();
+        rateLimiter.setLimits(1, 1);
+
+        rateLimiter.acquire("realm1");
+        rateLimiter.acquire("realm2");
+
+        assertEquals("delayed", 0, rateLimiter.getDelayed());
+        assertEquals("buckets", 2, rateLimiter.getBucketStatistics().size());
+    }
+
+    @Test
+    public void testAcquire_TimesOut() throws Exception {
+        final QBORateLimiter rateLimiter = new QBORateLimiter();
+        rateLimiter.setLimits(0.1, 1);
+        rateLimiter.setMaxWaitMillis(100);
+
+        rateLimiter.acquire("realm1");
+
+        boolean exceptionThrown = false;
+        try {
+            rateLimiter.acquire("realm1");
+        } catch (QBORateLimiter.RateLimitTimeoutException e) {
+            exceptionThrown = true;
+            assertEquals("Timed out waiting 100ms for a QBO request slot for realm realm1", e.getMessage());
+        }
+
+        assertTrue("exception was not thrown", exceptionThrown);
+        assertEquals("timeouts", 1, rateLimiter.getTimeouts());
+    }
+
+    @Test
+    public void testSetRealmLimits() throws Exception {
+        final QBORateLimiter rateLimiter = new QBORateLimiter();
+        rateLimiter.setRealmLimits("realm1", 2, 5);
+        rateLimiter.acquire("realm2");
+
+        //changing the defaults doesn't touch realms with limits of their own
+        rateLimiter.setLimits(4, 7);
+
+        final Map<String, Object> realm1 = rateLimiter.getBucketStatistics().get("realm1");
+        final Map<String, Object> realm2 = rateLimiter.getBucketStatistics().get("realm2");
+
+        assertEquals("realm1 capacity", 5, realm1.get("capacity"));
+        assertEquals("realm1 rate", 2.0, realm1.get("requestsPerSecond"));
+        assertEquals("realm2 capacity", 7, realm2.get("capacity"));
+        assertEquals("realm2 rate", 4.0, realm2.get("requestsPerSecond"));
+    }
+}
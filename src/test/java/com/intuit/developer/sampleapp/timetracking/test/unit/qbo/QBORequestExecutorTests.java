@@ -0,0 +1,208 @@
+package com.intuit.developer.sampleapp.timetracking.test.unit.qbo;
+
+import com.intuit.developer.sampleapp.timetracking.qbo.QBOCircuitBreaker;
+import com.intuit.developer.sampleapp.timetracking.qbo.QBOMetrics;
+import com.intuit.developer.sampleapp.timetracking.qbo.QBORateLimiter;
+import com.intuit.developer.sampleapp.timetracking.qbo.QBORequestExecutor;
+import com.intuit.developer.sampleapp.timetracking.qbo.QBORetryPolicy;
+import com.intuit.ipp.exception.FMSException;
+import mockit.Deencapsulation;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.net.ConnectException;
+import java.net.SocketTimeoutException;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static junit.framework.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class QBORequestExecutorTests {
+
+    private QBORequestExecutor requestExecutor;
+
+    private QBOCircuitBreaker circuitBreaker;
+
+    private QBOMetrics metrics;
+
+    @Before
+    public void setUp() {
+        final QBORateLimiter rateLimiter = new QBORateLimiter();
+        rateLimiter.setLimits(1000, 1000);
+
+        final QBORetryPolicy retryPolicy = new QBORetryPolicy();
+        Deencapsulation.setField(retryPolicy, "baseDelayMillis", 1L);
+
+        circuitBreaker = new QBOCircuitBreaker();
+
+        requestExecutor = new QBORequestExecutor();
+        Deencapsulation.setField(requestExecutor, "rateLimiter", rateLimiter);
+        Deencapsulation.setField(requestExecutor, "retryPolicy", retryPolicy);
+        Deencapsulation.setField(requestExecutor, "circuitBreaker", circuitBreaker);
+
+        metrics = new QBOMetrics();
+        Deencapsulation.setField(requestExecutor, "metrics", metrics);
+    }
+
+    @Test
+    public void testExecute_TransientQueryFailureIsRetried() throws Exception {
+        final FailingRequest request = new FailingRequest(2, new FMSException("Read timed out", new SocketTimeoutException()));
+
+        assertEquals("result", "1234", requestExecutor.execute("realm1", "executeQuery", true, request));
+        assertEquals("attempts", 3, request.attempts.get());
+        assertEquals("retries", 2, requestExecutor.getRetries());
+    }
+
+    @Test
+    public void testExecute_RetriesAreExhausted() throws Exception {
+        final FailingRequest request = new FailingRequest(10, new FMSException("Read timed out", new SocketTimeoutException()));
+
+        boolean exceptionThrown = false;
+        try {
+            requestExecutor.execute("realm1", "executeQuery", true, request);
+        } catch (FMSException e) {
+            exceptionThrown = true;
+        }
+
+        assertTrue("exception was not thrown", exceptionThrown);
+        assertEquals("attempts", 4, request.attempts.get());
+        assertEquals("retries exhausted", 1, requestExecutor.getRetriesExhausted());
+    }
+
+    @Test
+    public void testExecute_CreateIsNotRetriedAfterTimeout() throws Exception {
+        //QBO may have created the entity before the response timed out
+        final FailingRequest request = new FailingRequest(1, new FMSException("Read timed out", new SocketTimeoutException()));
+
+        boolean exceptionThrown = false;
+        try {
+            requestExecutor.execute("realm1", "add", false, request);
+        } catch (FMSException e) {
+            exceptionThrown = true;
+        }
+
+        assertTrue("exception was not thrown", exceptionThrown);
+        assertEquals("attempts", 1, request.attempts.get());
+    }
+
+    @Test
+    public void testExecute_CreateIsRetriedWhenNotSent() throws Exception {
+        final FailingRequest request = new FailingRequest(1, new FMSException("Connection refused", new ConnectException()));
+
+        assertEquals("result", "1234", requestExecutor.execute("realm1", "add", false, request));
+        assertEquals("attempts", 2, request.attempts.get());
+    }
+
+    @Test
+    public void testExecute_FatalFailureIsNotRetried() throws Exception {
+        final FailingRequest request = new FailingRequest(1, new FMSException("Invalid query"));
+
+        boolean exceptionThrown = false;
+        try {
+            requestExecutor.execute("realm1", "executeQuery", true, request);
+        } catch (FMSException e) {
+            exceptionThrown = true;
+            assertEquals("Invalid query", e.getMessage());
+        }
+
+        assertTrue("exception was not thrown", exceptionThrown);
+        assertEquals("attempts", 1, request.attempts.get());
+        assertEquals("fatal errors don't trip the breaker", QBOCircuitBreaker.State.Closed, circuitBreaker.getState("realm1"));
+    }
+
+    @Test
+    public void testExecute_OpenBreakerRejectsRequests() throws Exception {
+        Deencapsulation.setField(circuitBreaker, "minimumRequests", 4);
+
+        final FailingRequest failing = new FailingRequest(100, new FMSException("Service unavailable", new SocketTimeoutException()));
+        try {
+            requestExecutor.execute("realm1", "executeQuery", true, failing);
+        } catch (FMSException e) {
+            //4 failed attempts
+        }
+
+        assertEquals("state", QBOCircuitBreaker.State.Open, circuitBreaker.getState("realm1"));
+
+        final FailingRequest healthy = new FailingRequest(0, null);
+        boolean exceptionThrown = false;
+        try {
+            requestExecutor.execute("realm1", "executeQuery", true, healthy);
+        } catch (FMSException e) {
+            exceptionThrown = true;
+            assertEquals("QBO requests for realm realm1 are suspended, too many recent requests failed", e.getMessage());
+        }
+
+        assertTrue("exception was not thrown", exceptionThrown);
+        assertEquals("not sent", 0, healthy.attempts.get());
+        assertEquals("other realms are not affected", "1234", requestExecutor.execute("realm2", "executeQuery", true, healthy));
+    }
+
+    @Test
+    public void testExecute_NestedRequestIsSentAsIs() throws Exception {
+        final FailingRequest inner = new FailingRequest(0, null);
+
+        requestExecutor.execute("realm1", "findAll", true, new QBORequestExecutor.Request<String>() {
+            @Override
+            public String execute() throws FMSException {
+                return requestExecutor.execute("realm1", "executeQuery", true, inner);
+            }
+        });
+
+        assertEquals("attempts", 1, inner.attempts.get());
+        assertEquals("breaker outcomes", 1, circuitBreaker.getBreakerStatistics().get("realm1").get("recentRequests"));
+    }
+
+    @Test
+    public void testExecute_RequestsAreTimed() throws Exception {
+        requestExecutor.execute("realm1", "executeQuery", "Customer", "select * from customer", true, new FailingRequest(1,
+                new FMSException("Read timed out", new SocketTimeoutException())));
+
+        try {
+            requestExecutor.execute("realm1", "executeQuery", "Customer", "select * from customer", true, new FailingRequest(1,
+                    new FMSException("Invalid query")));
+        } catch (FMSException e) {
+            //not retried
+        }
+
+        final List<Map<String, Object>> requests = metrics.getRequestStatistics();
+        assertEquals("histograms", 2, requests.size());
+
+        for (Map<String, Object> request : requests) {
+            assertEquals("operation", "executeQuery", request.get("operation"));
+            assertEquals("entity type", "Customer", request.get("entityType"));
+            assertEquals("realm", "realm1", request.get("realmId"));
+            //a retried request is timed once
+            assertEquals("count", 1L, request.get("count"));
+        }
+
+        final Set<Object> outcomes = new HashSet<>();
+        for (Map<String, Object> request : requests) {
+            outcomes.add(request.get("outcome"));
+        }
+        assertEquals("outcomes", new HashSet<Object>(Arrays.asList(QBOMetrics.SUCCESS, QBOMetrics.ERROR)), outcomes);
+    }
+
+    private static class FailingRequest implements QBORequestExecutor.Request<String> {
+        private final AtomicInteger attempts = new AtomicInteger();
+        private final int failures;
+        private final FMSException failure;
+
+        private FailingRequest(int failures, FMSException failure) {
+            this.failures = failures;
+            this.failure = failure;
+        }
+
+        @Override
+        public String execute() throws FMSException {
+            if (attempts.incrementAndGet() <= failures) {
+                throw failure;
+            }
+            return "1234";
+        }
+    }
+}
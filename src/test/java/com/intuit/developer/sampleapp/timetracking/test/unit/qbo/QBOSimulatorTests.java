@@ -0,0 +1,170 @@
+package com.intuit.developer.sampleapp.timetracking.test.unit.qbo;
+
+import com.intuit.developer.sampleapp.timetracking.qbo.QBOGateway;
+import com.intuit.developer.sampleapp.timetracking.qbo.simulator.QBOSimulator;
+import com.intuit.ipp.core.IEntity;
+import com.intuit.ipp.data.Account;
+import com.intuit.ipp.data.AccountTypeEnum;
+import com.intuit.ipp.data.Customer;
+import com.intuit.ipp.data.Term;
+import com.intuit.ipp.exception.FMSException;
+import com.intuit.ipp.services.CDCQueryResult;
+import com.intuit.ipp.services.QueryResult;
+import org.joda.time.format.ISODateTimeFormat;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+public class QBOSimulatorTests {
+
+    private final QBOSimulator simulator = new QBOSimulator();
+
+    @Test
+    public void testAddAndQuery() throws Exception {
+        final Customer added = simulator.add("1234567", customer("Robert", "O'Hara"));
+        simulator.add("1234567", customer("Enrico", "Fermi"));
+
+        assertNotNull("id", added.getId());
+        assertEquals("active by default", Boolean.TRUE, added.isActive());
+
+        final QueryResult queryResult = simulator.executeQuery("1234567",
+                "select * from customer where active = true and givenName = 'Robert' and familyName = 'O\\'Hara'");
+
+        assertEquals("matching customers", 1, queryResult.getEntities().size());
+        assertEquals("customer", added.getId(), ((Customer) queryResult.getEntities().get(0)).getId());
+
+        //realms don't see each other's entities
+        assertEquals("other realm", 0, simulator.executeQuery("7654321", "select * from customer").getEntities().size());
+    }
+
+    @Test
+    public void testAddWithRequestId() throws Exception {
+        final Customer first = simulator.add("1234567", customer("Robert", "Oppenheimer"), "request-1");
+        final Customer retried = simulator.add("1234567", customer("Robert", "Oppenheimer"), "request-1");
+
+        assertEquals("the retried create returns the customer of the first one", first.getId(), retried.getId());
+        assertEquals("customers", 1, simulator.executeQuery("1234567", "select * from customer").getEntities().size());
+    }
+
+    @Test
+    public void testQueryPages() throws Exception {
+        for (int i = 0; i < 5; i++) {
+            simulator.add("1234567", customer("Customer", String.valueOf(i)));
+        }
+
+        final QueryResult queryResult = simulator.executeQuery("1234567",
+                "select * from customer where active = true startposition 3 maxresults 2");
+
+        assertEquals("page size", 2, queryResult.getEntities().size());
+        assertEquals("first of the page", "2", ((Customer) queryResult.getEntities().get(0)).getFamilyName());
+        assertEquals("total count", 5, queryResult.getTotalCount().intValue());
+    }
+
+    @Test
+    public void testReferenceDataIsSeeded() throws Exception {
+        final QueryResult accounts = simulator.executeQuery("1234567",
+                String.format(QBOGateway.INCOME_ACCOUNT_QUERY, AccountTypeEnum.INCOME.value(), "ServiceFeeIncome"));
+        assertEquals("income account", 1, accounts.getEntities().size());
+        assertTrue(accounts.getEntities().get(0) instanceof Account);
+
+        final List<Term> terms = simulator.findAll("1234567", new Term());
+        assertEquals("terms", 1, terms.size());
+        assertEquals("due days", 30, terms.get(0).getDueDays().intValue());
+        assertEquals("type", "STANDARD", terms.get(0).getType());
+    }
+
+    @Test
+    public void testUnsupportedQuery() throws Exception {
+        boolean exceptionThrown = false;
+        try {
+            simulator.executeQuery("1234567", "select count(*) from customer");
+        } catch (FMSException e) {
+            exceptionThrown = true;
+        }
+
+        assertTrue("exception was not thrown", exceptionThrown);
+    }
+
+    @Test
+    public void testExecuteCDCQuery() throws Exception {
+        final Customer unchanged = simulator.add("1234567", customer("Enrico", "Fermi"));
+        final Customer edited = simulator.add("1234567", customer("Robert", "Oppenheimer"));
+        Thread.sleep(5);
+        final Date changedSince = new Date();
+
+        assertTrue("touched", simulator.touch("1234567", "Customer", edited.getId()));
+
+        final List<CDCQueryResult> cdcQueryResults = simulator.executeCDCQuery("1234567",
+                Arrays.<IEntity>asList(new Customer()), ISODateTimeFormat.dateTime().print(changedSince.getTime()));
+
+        final List<? extends IEntity> changed = cdcQueryResults.get(0).getQueryResults().get("Customer").getEntities();
+        assertEquals("changed customers", 1, changed.size());
+        assertEquals("changed customer", edited.getId(), ((Customer) changed.get(0)).getId());
+        assertEquals("sync token", "1", edited.getSyncToken());
+        assertEquals("unchanged sync token", "0", unchanged.getSyncToken());
+    }
+
+    @Test
+    public void testThrottling() throws Exception {
+        simulator.setThrottleRequestsPerMinute(2);
+
+        simulator.executeQuery("1234567", "select * from customer");
+        simulator.executeQuery("1234567", "select * from customer");
+
+        boolean throttled = false;
+        try {
+            simulator.executeQuery("1234567", "select * from customer");
+        } catch (FMSException e) {
+            throttled = true;
+            assertTrue("message", e.getMessage().contains("ThrottleExceeded"));
+        }
+
+        assertTrue("request was not throttled", throttled);
+        assertEquals("throttled", 1, simulator.getThrottled());
+
+        //the limit is per realm
+        simulator.executeQuery("7654321", "select * from customer");
+    }
+
+    @Test
+    public void testSimulatedErrors() throws Exception {
+        simulator.setErrorRatePercent(100);
+
+        boolean exceptionThrown = false;
+        try {
+            simulator.add("1234567", customer("Robert", "Oppenheimer"));
+        } catch (FMSException e) {
+            exceptionThrown = true;
+        }
+
+        assertTrue("exception was not thrown", exceptionThrown);
+        assertEquals("simulated errors", 1, simulator.getSimulatedErrors());
+
+        simulator.setErrorRatePercent(0);
+        assertEquals("nothing was stored", 0, simulator.executeQuery("1234567", "select * from customer").getEntities().size());
+    }
+
+    @Test
+    public void testFixedLatency() throws Exception {
+        simulator.setLatency(20, QBOSimulator.LatencyDistribution.Fixed);
+
+        final long started = System.currentTimeMillis();
+        simulator.executeQuery("1234567", "select * from customer");
+
+        assertTrue("request was delayed", System.currentTimeMillis() - started >= 20);
+        assertEquals("total latency", 20, simulator.getTotalLatencyMillis());
+    }
+
+    private Customer customer(String givenName, String familyName) {
+        final Customer customer = new Customer();
+        customer.setGivenName(givenName);
+        customer.setFamilyName(familyName);
+        return customer;
+    }
+}
@@ -0,0 +1,60 @@
+package com.intuit.developer.sampleapp.timetracking.test.unit.qbo;
+
+import com.intuit.developer.sampleapp.timetracking.qbo.QBOWireFormat;
+import com.intuit.ipp.util.Config;
+import mockit.Deencapsulation;
+import mockit.Mocked;
+import mockit.Verifications;
+import mockit.integration.junit4.JMockit;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static org.junit.Assert.assertTrue;
+
+@RunWith(JMockit.class)
+public class QBOWireFormatTests {
+
+    @Test
+    public void testApply(@Mocked final Config config) throws Exception {
+        final QBOWireFormat wireFormat = new QBOWireFormat();
+
+        wireFormat.apply();
+
+        new Verifications() {{
+            Config.setProperty(Config.SERIALIZATION_REQUEST_FORMAT, "json");
+            Config.setProperty(Config.SERIALIZATION_RESPONSE_FORMAT, "json");
+            Config.setProperty(Config.COMPRESSION_REQUEST_FORMAT, "gzip");
+            Config.setProperty(Config.COMPRESSION_RESPONSE_FORMAT, "gzip");
+        }};
+    }
+
+    @Test
+    public void testApply_Uncompressed(@Mocked final Config config) throws Exception {
+        final QBOWireFormat wireFormat = new QBOWireFormat();
+        Deencapsulation.setField(wireFormat, "serialization", "xml");
+        Deencapsulation.setField(wireFormat, "compression", "none");
+
+        wireFormat.apply();
+
+        new Verifications() {{
+            Config.setProperty(Config.SERIALIZATION_REQUEST_FORMAT, "xml");
+            Config.setProperty(Config.COMPRESSION_REQUEST_FORMAT, "");
+            Config.setProperty(Config.COMPRESSION_RESPONSE_FORMAT, "");
+        }};
+    }
+
+    @Test
+    public void testValidate_UnknownCompression() throws Exception {
+        final QBOWireFormat wireFormat = new QBOWireFormat();
+        Deencapsulation.setField(wireFormat, "compression", "zip");
+
+        boolean exceptionThrown = false;
+        try {
+            wireFormat.validate();
+        } catch (IllegalStateException e) {
+            exceptionThrown = true;
+        }
+
+        assertTrue("exception was not thrown", exceptionThrown);
+    }
+}
@@ -0,0 +1,162 @@
+package com.intuit.developer.sampleapp.timetracking.test.unit.qbo;
+
+import com.intuit.developer.sampleapp.timetracking.qbo.ReferenceDataCache;
+import mockit.Deencapsulation;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static junit.framework.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ReferenceDataCacheTests {
+
+    @Test
+    public void testGet_LoadsOncePerRealmAndKey() throws Exception {
+        final ReferenceDataCache cache = new ReferenceDataCache();
+        final CountingLoader loader = new CountingLoader("1234");
+
+        assertEquals("1234", cache.get("realm1", "term:STANDARD:30", loader));
+        assertEquals("1234", cache.get("realm1", "term:STANDARD:30", loader));
+        assertEquals("1234", cache.get("realm2", "term:STANDARD:30", loader));
+
+        assertEquals("loads", 2, loader.loads.get());
+        assertEquals("hits", 1, cache.getHits());
+        assertEquals("misses", 2, cache.getMisses());
+    }
+
+    @Test
+    public void testGet_ExpiredEntryIsReloaded() throws Exception {
+        final ReferenceDataCache cache = new ReferenceDataCache();
+        Deencapsulation.setField(cache, "timeToLiveSeconds", 0L);
+        final CountingLoader loader = new CountingLoader("1234");
+
+        cache.get("realm1", "term:STANDARD:30", loader);
+        cache.get("realm1", "term:STANDARD:30", loader);
+
+        assertEquals("loads", 2, loader.loads.get());
+    }
+
+    @Test
+    public void testInvalidate() throws Exception {
+        final ReferenceDataCache cache = new ReferenceDataCache();
+        final CountingLoader loader = new CountingLoader("1234");
+
+        cache.get("realm1", "term:STANDARD:30", loader);
+        cache.get("realm2", "term:STANDARD:30", loader);
+
+        cache.invalidate("realm1");
+
+        cache.get("realm1", "term:STANDARD:30", loader);
+        cache.get("realm2", "term:STANDARD:30", loader);
+
+        assertEquals("loads", 3, loader.loads.get());
+    }
+
+    @Test
+    public void testGet_FailuresAreNotCached() throws Exception {
+        final ReferenceDataCache cache = new ReferenceDataCache();
+        final AtomicInteger attempts = new AtomicInteger();
+
+        final ReferenceDataCache.Loader failingOnceLoader = new ReferenceDataCache.Loader() {
+            @Override
+            public String load() {
+                if (attempts.incrementAndGet() == 1) {
+                    throw new RuntimeException("QBO is down");
+                }
+                return "1234";
+            }
+        };
+
+        boolean exceptionThrown = false;
+        try {
+            cache.get("realm1", "term:STANDARD:30", failingOnceLoader);
+        } catch (RuntimeException e) {
+            exceptionThrown = true;
+            assertEquals("QBO is down", e.getMessage());
+        }
+
+        assertTrue("exception was not thrown", exceptionThrown);
+        assertEquals("1234", cache.get("realm1", "term:STANDARD:30", failingOnceLoader));
+    }
+
+    @Test
+    public void testGet_ConcurrentMissesAreCoalesced() throws Exception {
+        final ReferenceDataCache cache = new ReferenceDataCache();
+        final CountDownLatch loadStarted = new CountDownLatch(1);
+        final CountDownLatch releaseLoad = new CountDownLatch(1);
+        final AtomicInteger loads = new AtomicInteger();
+
+        final ReferenceDataCache.Loader slowLoader = new ReferenceDataCache.Loader() {
+            @Override
+            public String load() {
+                loads.incrementAndGet();
+                loadStarted.countDown();
+                try {
+                    releaseLoad.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    throw new RuntimeException(e);
+                }
+                return "1234";
+            }
+        };
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            Future<String> first = executor.submit(new CacheLookup(cache, slowLoader));
+            loadStarted.await(5, TimeUnit.SECONDS);
+
+            Future<String> second = executor.submit(new CacheLookup(cache, slowLoader));
+            Future<String> third = executor.submit(new CacheLookup(cache, slowLoader));
+
+            //give the waiting lookups a chance to find the in flight load
+            Thread.sleep(100);
+            releaseLoad.countDown();
+
+            assertEquals("1234", first.get(5, TimeUnit.SECONDS));
+            assertEquals("1234", second.get(5, TimeUnit.SECONDS));
+            assertEquals("1234", third.get(5, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals("loads", 1, loads.get());
+        assertEquals("misses", 1, cache.getMisses());
+        assertEquals("coalesced misses", 2, cache.getCoalescedMisses());
+    }
+
+    private static class CountingLoader implements ReferenceDataCache.Loader {
+        private final AtomicInteger loads = new AtomicInteger();
+        private final String value;
+
+        private CountingLoader(String value) {
+            this.value = value;
+        }
+
+        @Override
+        public String load() {
+            loads.incrementAndGet();
+            return value;
+        }
+    }
+
+    private static class CacheLookup implements java.util.concurrent.Callable<String> {
+        private final ReferenceDataCache cache;
+        private final ReferenceDataCache.Loader loader;
+
+        private CacheLookup(ReferenceDataCache cache, ReferenceDataCache.Loader loader) {
+            this.cache = cache;
+            this.loader = loader;
+        }
+
+        @Override
+        public String call() throws Exception {
+            return cache.get("realm1", "term:STANDARD:30", loader);
+        }
+    }
+}
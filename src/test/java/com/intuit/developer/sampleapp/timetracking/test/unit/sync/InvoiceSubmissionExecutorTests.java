@@ -0,0 +1,190 @@
+package com.intuit.developer.sampleapp.timetracking.test.unit.sync;
+
+import com.intuit.developer.sampleapp.timetracking.domain.Company;
+import com.intuit.developer.sampleapp.timetracking.domain.Invoice;
+import com.intuit.developer.sampleapp.timetracking.domain.InvoiceStatus;
+import com.intuit.developer.sampleapp.timetracking.qbo.QBOGateway;
+import com.intuit.developer.sampleapp.timetracking.repository.InvoiceRepository;
+import com.intuit.developer.sampleapp.timetracking.sync.InvoiceSubmissionExecutor;
+import mockit.*;
+import mockit.integration.junit4.JMockit;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ThreadPoolExecutor;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertNull;
+
+@RunWith(JMockit.class)
+public class InvoiceSubmissionExecutorTests {
+
+    @Tested
+    InvoiceSubmissionExecutor invoiceSubmissionExecutor;
+
+    @Injectable
+    InvoiceRepository invoiceRepository;
+
+    @Injectable
+    QBOGateway qboGateway;
+
+    @Test
+    public void testSubmit(@Mocked final ThreadPoolExecutor threadPoolExecutor) throws Exception {
+        final Invoice invoice = invoice(InvoiceStatus.ReadyToBeBilled);
+        invoice.setSubmissionError("a previous failure");
+
+        invoiceSubmissionExecutor.start();
+        invoiceSubmissionExecutor.submit(invoice);
+
+        assertEquals("status", InvoiceStatus.Submitting, invoice.getStatus());
+        assertNull("submission error", invoice.getSubmissionError());
+        assertEquals("in flight", 1, invoiceSubmissionExecutor.getInFlight());
+
+        //submitting the invoice again while it is queued doesn't queue it twice
+        invoiceSubmissionExecutor.submit(invoice);
+
+        new Verifications() {{
+            invoiceRepository.save(invoice);
+            threadPoolExecutor.execute((Runnable) any);
+            times = 1;
+            qboGateway.createInvoiceInQBO((Invoice) any);
+            times = 0;
+        }};
+    }
+
+    @Test
+    public void testSubmit_RealmConcurrency(@Mocked final ThreadPoolExecutor threadPoolExecutor) throws Exception {
+        final Company bigCompany = new Company("1234567", "accessToken", "accessTokenSecret");
+        Deencapsulation.setField(bigCompany, "id", 1L);
+        final Company otherCompany = new Company("7654321", "accessToken", "accessTokenSecret");
+        Deencapsulation.setField(otherCompany, "id", 2L);
+
+        invoiceSubmissionExecutor.start();
+        for (long id = 1; id <= 3; id++) {
+            invoiceSubmissionExecutor.submit(invoice(bigCompany, id));
+        }
+        invoiceSubmissionExecutor.submit(invoice(otherCompany, 4L));
+
+        //two of the big company's invoices run, the third waits without taking a pool thread
+        final List<Runnable> submissions = new ArrayList<>();
+        new Verifications() {{
+            threadPoolExecutor.execute(withCapture(submissions));
+        }};
+        assertEquals("executed", 3, submissions.size());
+        assertEquals("in flight", 4, invoiceSubmissionExecutor.getInFlight());
+
+        //the waiting invoice is executed once one of its company's invoices has finished
+        submissions.get(0).run();
+
+        assertEquals("in flight", 3, invoiceSubmissionExecutor.getInFlight());
+        new Verifications() {{
+            threadPoolExecutor.execute((Runnable) any);
+            times = 4;
+        }};
+    }
+
+    @Test
+    public void testRunSubmission() throws Exception {
+        final Invoice invoice = invoice(InvoiceStatus.Submitting);
+
+        new NonStrictExpectations() {{
+            invoiceRepository.findOneForSubmission(42L);
+            result = invoice;
+        }};
+
+        Deencapsulation.invoke(invoiceSubmissionExecutor, "runSubmission", 42L);
+
+        assertEquals("billed", 1, invoiceSubmissionExecutor.getBilled());
+
+        new Verifications() {{
+            qboGateway.createInvoiceInQBO(invoice);
+            times = 1;
+        }};
+    }
+
+    @Test
+    public void testRunSubmission_QBOFails() throws Exception {
+        final Invoice invoice = invoice(InvoiceStatus.Submitting);
+
+        new NonStrictExpectations() {{
+            invoiceRepository.findOneForSubmission(42L);
+            result = invoice;
+
+            qboGateway.createInvoiceInQBO(invoice);
+            result = new RuntimeException("Service unavailable");
+        }};
+
+        Deencapsulation.invoke(invoiceSubmissionExecutor, "runSubmission", 42L);
+
+        assertEquals("status", InvoiceStatus.Failed, invoice.getStatus());
+        assertEquals("submission error", "Service unavailable", invoice.getSubmissionError());
+        assertEquals("failed", 1, invoiceSubmissionExecutor.getFailed());
+
+        new Verifications() {{
+            invoiceRepository.save(invoice);
+            times = 1;
+        }};
+    }
+
+    @Test
+    public void testRunSubmission_AlreadyInQBO() throws Exception {
+        final Invoice invoice = invoice(InvoiceStatus.Submitting);
+        invoice.setQboId("123");
+
+        new NonStrictExpectations() {{
+            invoiceRepository.findOneForSubmission(42L);
+            result = invoice;
+        }};
+
+        Deencapsulation.invoke(invoiceSubmissionExecutor, "runSubmission", 42L);
+
+        assertEquals("status", InvoiceStatus.Billed, invoice.getStatus());
+
+        new Verifications() {{
+            qboGateway.createInvoiceInQBO((Invoice) any);
+            times = 0;
+        }};
+    }
+
+    @Test
+    public void testResumeInterruptedSubmissions(@Mocked final ThreadPoolExecutor threadPoolExecutor) throws Exception {
+        final Invoice submitting = invoice(InvoiceStatus.Submitting);
+        Deencapsulation.setField(submitting, "id", 1L);
+        final Invoice readyToBeBilled = invoice(InvoiceStatus.ReadyToBeBilled);
+        Deencapsulation.setField(readyToBeBilled, "id", 2L);
+
+        new NonStrictExpectations() {{
+            invoiceRepository.findByStatusInOrderByIdAsc((Collection<InvoiceStatus>) any);
+            result = Arrays.asList(submitting, readyToBeBilled);
+        }};
+
+        invoiceSubmissionExecutor.start();
+        Deencapsulation.invoke(invoiceSubmissionExecutor, "resumeInterruptedSubmissions");
+
+        assertEquals("status", InvoiceStatus.Submitting, readyToBeBilled.getStatus());
+
+        new Verifications() {{
+            threadPoolExecutor.execute((Runnable) any);
+            times = 2;
+        }};
+    }
+
+    private Invoice invoice(Company company, long id) {
+        final Invoice invoice = new Invoice();
+        invoice.setCompany(company);
+        invoice.setStatus(InvoiceStatus.ReadyToBeBilled);
+        Deencapsulation.setField(invoice, "id", id);
+        return invoice;
+    }
+
+    private Invoice invoice(InvoiceStatus status) {
+        final Invoice invoice = new Invoice();
+        invoice.setCompany(new Company("1234567", "accessToken", "accessTokenSecret"));
+        invoice.setStatus(status);
+        return invoice;
+    }
+}
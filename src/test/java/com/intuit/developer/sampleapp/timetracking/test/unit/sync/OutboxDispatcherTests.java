@@ -0,0 +1,170 @@
+package com.intuit.developer.sampleapp.timetracking.test.unit.sync;
+
+import com.intuit.developer.sampleapp.timetracking.domain.Company;
+import com.intuit.developer.sampleapp.timetracking.domain.OutboxEntry;
+import com.intuit.developer.sampleapp.timetracking.domain.TimeActivity;
+import com.intuit.developer.sampleapp.timetracking.qbo.BatchSyncListener;
+import com.intuit.developer.sampleapp.timetracking.qbo.BatchSyncResult;
+import com.intuit.developer.sampleapp.timetracking.qbo.QBOGateway;
+import com.intuit.developer.sampleapp.timetracking.repository.CompanyRepository;
+import com.intuit.developer.sampleapp.timetracking.repository.OutboxEntryRepository;
+import com.intuit.developer.sampleapp.timetracking.repository.TimeActivityRepository;
+import com.intuit.developer.sampleapp.timetracking.sync.OutboxDispatcher;
+import mockit.*;
+import mockit.integration.junit4.JMockit;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.data.domain.Pageable;
+
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+import static junit.framework.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(JMockit.class)
+public class OutboxDispatcherTests {
+
+    @Tested
+    OutboxDispatcher outboxDispatcher;
+
+    @Injectable
+    OutboxEntryRepository outboxEntryRepository;
+
+    @Injectable
+    CompanyRepository companyRepository;
+
+    @Injectable
+    TimeActivityRepository timeActivityRepository;
+
+    @Injectable
+    QBOGateway qboGateway;
+
+    @Test
+    public void testDispatch_PushesPendingTimeActivities() throws Exception {
+        final Company company = new Company("1234567", "accessToken", "accessTokenSecret");
+
+        final OutboxEntry pushedEntry = new OutboxEntry(1234L, "TimeActivity", 1L);
+        final OutboxEntry failedEntry = new OutboxEntry(1234L, "TimeActivity", 2L);
+        final OutboxEntry alreadySyncedEntry = new OutboxEntry(1234L, "TimeActivity", 3L);
+
+        final TimeActivity pushed = new TimeActivity();
+        final TimeActivity failed = new TimeActivity();
+        final TimeActivity alreadySynced = new TimeActivity();
+        alreadySynced.setQboId("99");
+
+        new NonStrictExpectations() {{
+            outboxEntryRepository.findCompanyIds();
+            result = Arrays.asList(1234L);
+
+            companyRepository.findOne(1234L);
+            result = company;
+
+            outboxEntryRepository.findByCompanyIdAndNextAttemptDateLessThanEqualOrderByIdAsc(1234L, (Date) any, (Pageable) any);
+            result = Arrays.asList(pushedEntry, failedEntry, alreadySyncedEntry);
+
+            timeActivityRepository.findOne(1L);
+            result = pushed;
+            timeActivityRepository.findOne(2L);
+            result = failed;
+            timeActivityRepository.findOne(3L);
+            result = alreadySynced;
+
+            qboGateway.createTimeActivitiesInQBO(company, (List<TimeActivity>) any, (BatchSyncListener) any);
+            result = new Delegate<BatchSyncResult>() {
+                BatchSyncResult createTimeActivitiesInQBO(Company company, List<TimeActivity> timeActivities, BatchSyncListener listener) {
+                    assertEquals("time activities that still need a push, oldest first", Arrays.asList(pushed, failed), timeActivities);
+                    pushed.setQboId("100");
+                    return new BatchSyncResult();
+                }
+            };
+        }};
+
+        Deencapsulation.invoke(outboxDispatcher, "dispatch");
+
+        assertEquals("dispatched", 1, outboxDispatcher.getDispatched());
+        assertEquals("failed", 1, outboxDispatcher.getFailed());
+        assertEquals("attempts", 1, failedEntry.getAttempts());
+        assertTrue("retried later", failedEntry.getNextAttemptDate().after(new Date()));
+
+        new Verifications() {{
+            outboxEntryRepository.delete(pushedEntry);
+            times = 1;
+            outboxEntryRepository.delete(alreadySyncedEntry);
+            times = 1;
+            outboxEntryRepository.delete(failedEntry);
+            times = 0;
+            outboxEntryRepository.save(failedEntry);
+            times = 1;
+        }};
+    }
+
+    @Test
+    public void testDispatch_QBOFailureKeepsEntries() throws Exception {
+        final Company company = new Company("1234567", "accessToken", "accessTokenSecret");
+
+        final OutboxEntry entry = new OutboxEntry(1234L, "TimeActivity", 1L);
+
+        new NonStrictExpectations() {{
+            outboxEntryRepository.findCompanyIds();
+            result = Arrays.asList(1234L);
+
+            companyRepository.findOne(1234L);
+            result = company;
+
+            outboxEntryRepository.findByCompanyIdAndNextAttemptDateLessThanEqualOrderByIdAsc(1234L, (Date) any, (Pageable) any);
+            result = Arrays.asList(entry);
+
+            timeActivityRepository.findOne(1L);
+            result = new TimeActivity();
+
+            qboGateway.createTimeActivitiesInQBO(company, (List<TimeActivity>) any, (BatchSyncListener) any);
+            result = new RuntimeException("Service unavailable");
+        }};
+
+        Deencapsulation.invoke(outboxDispatcher, "dispatch");
+
+        assertEquals("attempts", 1, entry.getAttempts());
+        assertEquals("last error", "Service unavailable", entry.getLastError());
+
+        new Verifications() {{
+            outboxEntryRepository.delete(entry);
+            times = 0;
+            outboxEntryRepository.save(entry);
+            times = 1;
+        }};
+    }
+
+    @Test
+    public void testDispatch_CompanyNotConnected() throws Exception {
+        final Company company = new Company("company name");
+
+        new NonStrictExpectations() {{
+            outboxEntryRepository.findCompanyIds();
+            result = Arrays.asList(1234L);
+
+            companyRepository.findOne(1234L);
+            result = company;
+        }};
+
+        Deencapsulation.invoke(outboxDispatcher, "dispatch");
+
+        new Verifications() {{
+            qboGateway.createTimeActivitiesInQBO((Company) any, (List<TimeActivity>) any, (BatchSyncListener) any);
+            times = 0;
+        }};
+    }
+
+    @Test
+    public void testRetryDelayMillis() throws Exception {
+        assertEquals(5000L, retryDelayMillis(1));
+        assertEquals(10000L, retryDelayMillis(2));
+        assertEquals(40000L, retryDelayMillis(4));
+        assertEquals("capped", 600000L, retryDelayMillis(20));
+    }
+
+    private long retryDelayMillis(int attempt) {
+        return Deencapsulation.invoke(outboxDispatcher, "retryDelayMillis", attempt);
+    }
+}
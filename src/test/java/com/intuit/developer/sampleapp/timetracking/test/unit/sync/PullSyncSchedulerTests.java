@@ -0,0 +1,229 @@
+package com.intuit.developer.sampleapp.timetracking.test.unit.sync;
+
+import com.intuit.developer.sampleapp.timetracking.domain.Company;
+import com.intuit.developer.sampleapp.timetracking.domain.Customer;
+import com.intuit.developer.sampleapp.timetracking.domain.PullSyncWatermark;
+import com.intuit.developer.sampleapp.timetracking.qbo.QBOGateway;
+import com.intuit.developer.sampleapp.timetracking.repository.*;
+import com.intuit.developer.sampleapp.timetracking.sync.PullSyncScheduler;
+import com.intuit.ipp.data.EntityStatusEnum;
+import com.intuit.ipp.data.IntuitEntity;
+import com.intuit.ipp.data.ModificationMetaData;
+import mockit.*;
+import mockit.integration.junit4.JMockit;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(JMockit.class)
+public class PullSyncSchedulerTests {
+
+    @Tested
+    PullSyncScheduler pullSyncScheduler;
+
+    @Injectable
+    PullSyncWatermarkRepository watermarkRepository;
+
+    @Injectable
+    CompanyRepository companyRepository;
+
+    @Injectable
+    CustomerRepository customerRepository;
+
+    @Injectable
+    EmployeeRepository employeeRepository;
+
+    @Injectable
+    ServiceItemRepository serviceItemRepository;
+
+    @Injectable
+    QBOGateway qboGateway;
+
+    @Test
+    public void testPull_FirstPullOnlyRecordsWatermark() throws Exception {
+        final Company company = new Company("1234567", "accessToken", "accessTokenSecret");
+
+        new NonStrictExpectations() {{
+            watermarkRepository.findByCompanyId(anyLong);
+            result = null;
+        }};
+
+        Deencapsulation.invoke(pullSyncScheduler, "pull", company);
+
+        new Verifications() {{
+            watermarkRepository.save((PullSyncWatermark) any);
+            times = 1;
+            qboGateway.findChangedEntities((Company) any, (Date) any);
+            times = 0;
+        }};
+    }
+
+    @Test
+    public void testPull_AppliesChanges() throws Exception {
+        final Company company = new Company("1234567", "accessToken", "accessTokenSecret");
+        final Date lastPull = new Date(System.currentTimeMillis() - 300000);
+        final PullSyncWatermark watermark = new PullSyncWatermark(0, lastPull);
+
+        final Customer customer = new Customer("Robert", "Oppenheimer", "jroppenheimer@manhatten.com", "916-123-4567");
+
+        final com.intuit.ipp.data.Customer changedCustomer = new com.intuit.ipp.data.Customer();
+        changedCustomer.setId("1");
+        changedCustomer.setGivenName("J. Robert");
+        changedCustomer.setFamilyName("Oppenheimer");
+
+        final com.intuit.ipp.data.Customer unknownCustomer = new com.intuit.ipp.data.Customer();
+        unknownCustomer.setId("2");
+
+        final com.intuit.ipp.data.Employee deletedEmployee = new com.intuit.ipp.data.Employee();
+        deletedEmployee.setId("3");
+        deletedEmployee.setStatus(EntityStatusEnum.DELETED);
+
+        final Date beforePull = new Date();
+
+        new NonStrictExpectations() {{
+            watermarkRepository.findByCompanyId(anyLong);
+            result = watermark;
+
+            qboGateway.findChangedEntities(company, (Date) any);
+            result = Arrays.<IntuitEntity>asList(changedCustomer, unknownCustomer, deletedEmployee);
+
+            customerRepository.findByCompany_IdAndQboId(anyLong, "1");
+            result = customer;
+
+            customerRepository.findByCompany_IdAndQboId(anyLong, "2");
+            result = null;
+        }};
+
+        Deencapsulation.invoke(pullSyncScheduler, "pull", company);
+
+        assertEquals("firstName", "J. Robert", customer.getFirstName());
+        assertEquals("applied", 1, pullSyncScheduler.getAppliedChanges());
+        assertEquals("ignored", 2, pullSyncScheduler.getIgnoredChanges());
+        assertTrue("watermark advanced", !watermark.getChangedSince().before(beforePull));
+
+        new Verifications() {{
+            Date changedSince;
+            qboGateway.findChangedEntities(company, changedSince = withCapture());
+            assertEquals("changes since the last pull minus the overlap", lastPull.getTime() - 60000, changedSince.getTime());
+
+            customerRepository.save(customer);
+            times = 1;
+            employeeRepository.findByCompany_IdAndQboId(anyLong, anyString);
+            times = 0;
+            watermarkRepository.save(watermark);
+        }};
+    }
+
+    @Test
+    public void testPull_FullPageOfChangesPullsAgain() throws Exception {
+        final Company company = new Company("1234567", "accessToken", "accessTokenSecret");
+        final Date lastPull = new Date(System.currentTimeMillis() - 300000);
+        final PullSyncWatermark watermark = new PullSyncWatermark(0, lastPull);
+
+        //QBO cut the changed customers off at the most it returns, the newest of them was changed a minute ago
+        final Date newestChange = new Date(System.currentTimeMillis() - 60000);
+        final List<IntuitEntity> fullPage = new ArrayList<>();
+        for (int i = 0; i < QBOGateway.MAX_CHANGED_ENTITIES_PER_TYPE; i++) {
+            final com.intuit.ipp.data.Customer changedCustomer = new com.intuit.ipp.data.Customer();
+            changedCustomer.setId(String.valueOf(i));
+            final ModificationMetaData metaData = new ModificationMetaData();
+            metaData.setLastUpdatedTime(new Date(newestChange.getTime() - QBOGateway.MAX_CHANGED_ENTITIES_PER_TYPE + i + 1));
+            changedCustomer.setMetaData(metaData);
+            fullPage.add(changedCustomer);
+        }
+
+        final Date beforePull = new Date();
+
+        new NonStrictExpectations() {{
+            watermarkRepository.findByCompanyId(anyLong);
+            result = watermark;
+
+            qboGateway.findChangedEntities(company, (Date) any);
+            result = fullPage;
+            result = Collections.emptyList();
+        }};
+
+        Deencapsulation.invoke(pullSyncScheduler, "pull", company);
+
+        assertTrue("watermark advanced", !watermark.getChangedSince().before(beforePull));
+
+        new Verifications() {{
+            final List<Date> changedSince = new ArrayList<>();
+            qboGateway.findChangedEntities(company, withCapture(changedSince));
+            times = 2;
+
+            assertEquals("changes since the last pull minus the overlap", lastPull.getTime() - 60000, changedSince.get(0).getTime());
+            assertEquals("changes since the newest change of the full page", newestChange, changedSince.get(1));
+        }};
+    }
+
+    @Test
+    public void testPull_FailureKeepsWatermark() throws Exception {
+        final Company company = new Company("1234567", "accessToken", "accessTokenSecret");
+        final Date lastPull = new Date(System.currentTimeMillis() - 300000);
+        final PullSyncWatermark watermark = new PullSyncWatermark(0, lastPull);
+
+        new NonStrictExpectations() {{
+            watermarkRepository.findByCompanyId(anyLong);
+            result = watermark;
+
+            qboGateway.findChangedEntities(company, (Date) any);
+            result = new RuntimeException("Service unavailable");
+        }};
+
+        boolean exceptionThrown = false;
+        try {
+            Deencapsulation.invoke(pullSyncScheduler, "pull", company);
+        } catch (RuntimeException e) {
+            exceptionThrown = true;
+        }
+
+        assertTrue("exception was not thrown", exceptionThrown);
+        assertEquals("watermark", lastPull, watermark.getChangedSince());
+        assertEquals("last error", "Service unavailable", watermark.getLastError());
+        assertNull("last pulled", watermark.getLastPulledDate());
+        assertEquals("failed pulls", 1, pullSyncScheduler.getFailedPulls());
+    }
+
+    @Test
+    public void testPullAll(@Mocked final PullSyncWatermark watermark) throws Exception {
+        final Company company1 = new Company("1234567", "accessToken", "accessTokenSecret");
+        final Company company2 = new Company("7654321", "accessToken", "accessTokenSecret");
+
+        new NonStrictExpectations() {{
+            companyRepository.findByConnectedToQboTrue();
+            result = Arrays.asList(company1, company2);
+
+            watermarkRepository.findByCompanyId(anyLong);
+            result = watermark;
+
+            watermark.getChangedSince();
+            result = new Date();
+
+            qboGateway.findChangedEntities(company1, (Date) any);
+            result = new RuntimeException("Service unavailable");
+        }};
+
+        pullSyncScheduler.start();
+        try {
+            Deencapsulation.invoke(pullSyncScheduler, "pullAll");
+        } finally {
+            pullSyncScheduler.stop();
+        }
+
+        new Verifications() {{
+            //a failing company doesn't stop the others
+            qboGateway.findChangedEntities(company2, (Date) any);
+            times = 1;
+        }};
+    }
+}
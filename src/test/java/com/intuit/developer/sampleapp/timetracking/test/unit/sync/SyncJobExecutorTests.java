@@ -0,0 +1,346 @@
+package com.intuit.developer.sampleapp.timetracking.test.unit.sync;
+
+import com.intuit.developer.sampleapp.timetracking.controllers.SyncRequest;
+import com.intuit.developer.sampleapp.timetracking.domain.*;
+import com.intuit.developer.sampleapp.timetracking.qbo.BatchSyncListener;
+import com.intuit.developer.sampleapp.timetracking.qbo.BatchSyncResult;
+import com.intuit.developer.sampleapp.timetracking.qbo.EntityPages;
+import com.intuit.developer.sampleapp.timetracking.qbo.QBOGateway;
+import com.intuit.developer.sampleapp.timetracking.repository.*;
+import com.intuit.developer.sampleapp.timetracking.sync.OutboxDispatcher;
+import com.intuit.developer.sampleapp.timetracking.sync.SyncJobExecutor;
+import mockit.*;
+import mockit.integration.junit4.JMockit;
+import org.joda.money.Money;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.data.domain.Pageable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertTrue;
+
+@RunWith(JMockit.class)
+public class SyncJobExecutorTests {
+
+    @Tested
+    SyncJobExecutor syncJobExecutor;
+
+    @Injectable
+    SyncJobRepository syncJobRepository;
+
+    @Injectable
+    CompanyRepository companyRepository;
+
+    @Injectable
+    EmployeeRepository employeeRepository;
+
+    @Injectable
+    CustomerRepository customerRepository;
+
+    @Injectable
+    ServiceItemRepository serviceItemRepository;
+
+    @Injectable
+    TimeActivityRepository timeActivityRepository;
+
+    @Injectable
+    QBOGateway qboGateway;
+
+    @Injectable
+    OutboxDispatcher outboxDispatcher;
+
+    @Test
+    public void testRunJob_Customers() throws Exception {
+        final Company company = new Company("1234567", "accessToken", "accessTokenSecret");
+        final Customer customer = new Customer("firstName", "lastName", "emailAddress", "phoneNumber");
+        company.addCustomer(customer);
+
+        final SyncJob job = new SyncJob(1234L, SyncRequest.EntityType.Customer.name());
+
+        new NonStrictExpectations() {{
+            syncJobRepository.findOne(42L);
+            result = job;
+
+            companyRepository.findOne(1234L);
+            result = company;
+
+            customerRepository.countByCompany_IdAndQboIdIsNull((Long) any);
+            result = 1L;
+
+            qboGateway.createCustomersInQBO(company, (EntityPages<Customer>) any, (BatchSyncListener) any);
+            result = new BatchSyncResult();
+        }};
+
+        Deencapsulation.invoke(syncJobExecutor, "runJob", 42L);
+
+        assertEquals("status", SyncJobStatus.Completed, job.getStatus());
+        assertEquals("total", 1, job.getTotal());
+        assertEquals("message", "Synced 0 Customer objects to QBO", job.getMessage());
+        assertTrue(company.isCustomersSynced());
+        assertFalse(company.isServiceItemsSynced());
+        assertFalse(company.isEmployeesSynced());
+
+        new Verifications() {{
+            qboGateway.createCustomersInQBO(company, (EntityPages<Customer>) any, (BatchSyncListener) any);
+            times = 1;
+            qboGateway.createItemsInQBO((Company) any, (EntityPages<ServiceItem>) any, (BatchSyncListener) any);
+            times = 0;
+            qboGateway.createEmployeesInQBO((Company) any, (EntityPages<Employee>) any, (BatchSyncListener) any);
+            times = 0;
+            companyRepository.save(withSameInstance(company));
+            times = 1;
+        }};
+    }
+
+    @Test
+    public void testRunJob_ServiceItemsWithFailures(@Mocked final BatchSyncResult batchSyncResult) throws Exception {
+        final Company company = new Company("1234567", "accessToken", "accessTokenSecret");
+        final ServiceItem serviceItem = new ServiceItem("name", "description", Money.parse("USD 1"));
+        company.addServiceItem(serviceItem);
+
+        final SyncJob job = new SyncJob(1234L, SyncRequest.EntityType.ServiceItem.name());
+
+        new NonStrictExpectations() {{
+            syncJobRepository.findOne(42L);
+            result = job;
+
+            companyRepository.findOne(1234L);
+            result = company;
+
+            serviceItemRepository.countByCompany_IdAndQboIdIsNull((Long) any);
+            result = 1L;
+
+            qboGateway.createItemsInQBO(company, (EntityPages<ServiceItem>) any, (BatchSyncListener) any);
+            result = batchSyncResult;
+
+            batchSyncResult.hasFailures();
+            result = true;
+
+            batchSyncResult.getFailedCount();
+            result = 1;
+        }};
+
+        Deencapsulation.invoke(syncJobExecutor, "runJob", 42L);
+
+        assertEquals("status", SyncJobStatus.Completed, job.getStatus());
+        assertEquals("processed", 1, job.getProcessed());
+        assertEquals("failed", 1, job.getFailed());
+        assertFalse("a sync with failures can be retried", company.isServiceItemsSynced());
+    }
+
+    @Test
+    public void testRunJob_SyncThrows() throws Exception {
+        final Company company = new Company("1234567", "accessToken", "accessTokenSecret");
+        final SyncJob job = new SyncJob(1234L, SyncRequest.EntityType.Employee.name());
+
+        new NonStrictExpectations() {{
+            syncJobRepository.findOne(42L);
+            result = job;
+
+            companyRepository.findOne(1234L);
+            result = company;
+
+            qboGateway.createEmployeesInQBO((Company) any, (EntityPages<Employee>) any, (BatchSyncListener) any);
+            result = new RuntimeException("Company is not connected to QBO: Your Law Firm");
+        }};
+
+        Deencapsulation.invoke(syncJobExecutor, "runJob", 42L);
+
+        assertEquals("status", SyncJobStatus.Failed, job.getStatus());
+        assertEquals("message", "Company is not connected to QBO: Your Law Firm", job.getMessage());
+        assertFalse(company.isEmployeesSynced());
+    }
+
+    @Test
+    public void testRunJob_All() throws Exception {
+        final Company company = new Company("1234567", "accessToken", "accessTokenSecret");
+
+        final SyncJob job = new SyncJob(1234L, SyncRequest.EntityType.All.name());
+
+        new NonStrictExpectations() {{
+            syncJobRepository.findOne(42L);
+            result = job;
+
+            companyRepository.findOne(1234L);
+            result = company;
+
+            employeeRepository.countByCompany_IdAndQboIdIsNull((Long) any);
+            result = 1L;
+
+            customerRepository.countByCompany_IdAndQboIdIsNull((Long) any);
+            result = 1L;
+
+            serviceItemRepository.countByCompany_IdAndQboIdIsNull((Long) any);
+            result = 0L;
+
+            timeActivityRepository.countByCompany_IdAndQboIdIsNull((Long) any);
+            result = 2L;
+
+            outboxDispatcher.lockFor(anyLong);
+            result = new Object();
+
+            qboGateway.createEmployeesInQBO(company, (EntityPages<Employee>) any, (BatchSyncListener) any);
+            result = new BatchSyncResult();
+
+            qboGateway.createCustomersInQBO(company, (EntityPages<Customer>) any, (BatchSyncListener) any);
+            result = new BatchSyncResult();
+
+            qboGateway.createItemsInQBO(company, (EntityPages<ServiceItem>) any, (BatchSyncListener) any);
+            result = new BatchSyncResult();
+
+            qboGateway.createTimeActivitiesInQBO(company, (EntityPages<TimeActivity>) any, (BatchSyncListener) any);
+            result = new BatchSyncResult();
+        }};
+
+        syncJobExecutor.start();
+        try {
+            Deencapsulation.invoke(syncJobExecutor, "runJob", 42L);
+        } finally {
+            syncJobExecutor.stop();
+        }
+
+        assertEquals("status", SyncJobStatus.Completed, job.getStatus());
+        assertEquals("total", 4, job.getTotal());
+        assertTrue(company.isEmployeesSynced());
+        assertTrue(company.isCustomersSynced());
+        assertTrue(company.isServiceItemsSynced());
+
+        new Verifications() {{
+            qboGateway.createTimeActivitiesInQBO(company, (EntityPages<TimeActivity>) any, (BatchSyncListener) any);
+            times = 1;
+            //the flags of all entity types are saved together
+            companyRepository.save(withSameInstance(company));
+            times = 1;
+        }};
+    }
+
+    @Test
+    public void testRunJob_AllSkipsTimeActivitiesWhenAStageFails() throws Exception {
+        final Company company = new Company("1234567", "accessToken", "accessTokenSecret");
+        final SyncJob job = new SyncJob(1234L, SyncRequest.EntityType.All.name());
+
+        new NonStrictExpectations() {{
+            syncJobRepository.findOne(42L);
+            result = job;
+
+            companyRepository.findOne(1234L);
+            result = company;
+
+            qboGateway.createEmployeesInQBO((Company) any, (EntityPages<Employee>) any, (BatchSyncListener) any);
+            result = new RuntimeException("Service unavailable");
+
+            qboGateway.createCustomersInQBO((Company) any, (EntityPages<Customer>) any, (BatchSyncListener) any);
+            result = new BatchSyncResult();
+
+            qboGateway.createItemsInQBO((Company) any, (EntityPages<ServiceItem>) any, (BatchSyncListener) any);
+            result = new BatchSyncResult();
+        }};
+
+        syncJobExecutor.start();
+        try {
+            Deencapsulation.invoke(syncJobExecutor, "runJob", 42L);
+        } finally {
+            syncJobExecutor.stop();
+        }
+
+        assertEquals("status", SyncJobStatus.Failed, job.getStatus());
+        assertEquals("message", "Synced 0 objects to QBO; Employee sync failed: Service unavailable; TimeActivity sync skipped", job.getMessage());
+        assertFalse(company.isEmployeesSynced());
+        assertTrue(company.isCustomersSynced());
+
+        new Verifications() {{
+            qboGateway.createTimeActivitiesInQBO((Company) any, (EntityPages<TimeActivity>) any, (BatchSyncListener) any);
+            times = 0;
+        }};
+    }
+
+    @Test
+    public void testRunJob_PagesThroughUnsyncedEntities() throws Exception {
+        final Company company = new Company("1234567", "accessToken", "accessTokenSecret");
+        final List<Employee> unsynced = new ArrayList<>();
+        for (long id = 1; id <= 5; id++) {
+            final Employee employee = new Employee("Employee", "Number " + id, "emailAddress", "phoneNumber");
+            Deencapsulation.setField(employee, "id", id);
+            unsynced.add(employee);
+        }
+
+        final SyncJob job = new SyncJob(1234L, SyncRequest.EntityType.Employee.name());
+        Deencapsulation.setField(syncJobExecutor, "pageSize", 2);
+
+        final List<Integer> pageSizes = new ArrayList<>();
+
+        new NonStrictExpectations() {{
+            syncJobRepository.findOne(42L);
+            result = job;
+
+            companyRepository.findOne(1234L);
+            result = company;
+
+            employeeRepository.countByCompany_IdAndQboIdIsNull((Long) any);
+            result = 5L;
+
+            employeeRepository.findUnsyncedPage((Long) any, anyLong, (Pageable) any);
+            result = new Delegate() {
+                List<Employee> findUnsyncedPage(Long companyId, long afterId, Pageable pageable) {
+                    final List<Employee> page = new ArrayList<>();
+                    for (Employee employee : unsynced) {
+                        if (employee.getId() > afterId && page.size() < pageable.getPageSize()) {
+                            page.add(employee);
+                        }
+                    }
+                    return page;
+                }
+            };
+
+            qboGateway.createEmployeesInQBO(company, (EntityPages<Employee>) any, (BatchSyncListener) any);
+            result = new Delegate() {
+                BatchSyncResult createEmployeesInQBO(Company company, EntityPages<Employee> pages, BatchSyncListener listener) {
+                    for (List<Employee> page = pages.next(); !page.isEmpty(); page = pages.next()) {
+                        pageSizes.add(page.size());
+                    }
+                    return new BatchSyncResult();
+                }
+            };
+        }};
+
+        Deencapsulation.invoke(syncJobExecutor, "runJob", 42L);
+
+        assertEquals("status", SyncJobStatus.Completed, job.getStatus());
+        assertEquals("total", 5, job.getTotal());
+        assertEquals("pages", Arrays.asList(2, 2, 1), pageSizes);
+
+        new Verifications() {{
+            employeeRepository.findUnsyncedPage((Long) any, anyLong, (Pageable) any);
+            times = 3;
+        }};
+    }
+
+    @Test
+    public void testResumeInterruptedJobs(@Mocked final java.util.concurrent.ThreadPoolExecutor threadPoolExecutor) throws Exception {
+        final SyncJob queuedJob = new SyncJob(1234L, SyncRequest.EntityType.Employee.name());
+        final SyncJob runningJob = new SyncJob(1234L, SyncRequest.EntityType.Customer.name());
+        runningJob.start(100);
+
+        new NonStrictExpectations() {{
+            syncJobRepository.findByStatusInOrderByIdAsc((Collection<SyncJobStatus>) any);
+            result = Arrays.asList(queuedJob, runningJob);
+        }};
+
+        syncJobExecutor.start();
+        Deencapsulation.invoke(syncJobExecutor, "resumeInterruptedJobs");
+
+        assertEquals("queued job status", SyncJobStatus.Queued, queuedJob.getStatus());
+        assertEquals("running job status", SyncJobStatus.Queued, runningJob.getStatus());
+
+        new Verifications() {{
+            threadPoolExecutor.execute((Runnable) any);
+            times = 2;
+        }};
+    }
+}
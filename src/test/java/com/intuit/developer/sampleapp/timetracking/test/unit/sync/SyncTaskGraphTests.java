@@ -0,0 +1,148 @@
+package com.intuit.developer.sampleapp.timetracking.test.unit.sync;
+
+import com.intuit.developer.sampleapp.timetracking.sync.SyncTaskGraph;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static junit.framework.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class SyncTaskGraphTests {
+
+    @Test
+    public void testRun_IndependentTasksRunInParallel() throws Exception {
+        final SyncTaskGraph graph = new SyncTaskGraph();
+        final List<String> order = new CopyOnWriteArrayList<>();
+
+        //each of the independent tasks waits for the other two, which only works if they run at the same time
+        final CountDownLatch allStarted = new CountDownLatch(3);
+
+        graph.add("Employee", new AwaitingTask("Employee", allStarted, order));
+        graph.add("Customer", new AwaitingTask("Customer", allStarted, order));
+        graph.add("ServiceItem", new AwaitingTask("ServiceItem", allStarted, order));
+        graph.add("TimeActivity", new RecordingTask("TimeActivity", order), "Employee", "Customer", "ServiceItem");
+
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        try {
+            graph.run(executor);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals("tasks", 4, order.size());
+        assertEquals("dependent task runs last", "TimeActivity", order.get(3));
+        assertEquals("completed", 4, graph.getCompleted().size());
+        assertTrue(graph.getFailures().isEmpty());
+    }
+
+    @Test
+    public void testRun_DependentsOfFailedTaskAreSkipped() throws Exception {
+        final SyncTaskGraph graph = new SyncTaskGraph();
+        final List<String> order = new CopyOnWriteArrayList<>();
+
+        graph.add("Employee", new Runnable() {
+            @Override
+            public void run() {
+                throw new RuntimeException("Company is not connected to QBO");
+            }
+        });
+        graph.add("Customer", new RecordingTask("Customer", order));
+        graph.add("TimeActivity", new RecordingTask("TimeActivity", order), "Employee", "Customer");
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            graph.run(executor);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals("ran", Arrays.asList("Customer"), order);
+        assertEquals("failures", Collections.singletonMap("Employee", "Company is not connected to QBO"), graph.getFailures());
+        assertEquals("skipped", Collections.singleton("TimeActivity"), graph.getSkipped());
+    }
+
+    @Test
+    public void testRun_ErrorInTaskIsRecordedAsItsFailure() throws Exception {
+        final SyncTaskGraph graph = new SyncTaskGraph();
+        final List<String> order = new CopyOnWriteArrayList<>();
+
+        graph.add("Employee", new Runnable() {
+            @Override
+            public void run() {
+                throw new AssertionError();
+            }
+        });
+        graph.add("TimeActivity", new RecordingTask("TimeActivity", order), "Employee");
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            graph.run(executor);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertTrue("ran", order.isEmpty());
+        assertEquals("failures", Collections.singletonMap("Employee", "java.lang.AssertionError"), graph.getFailures());
+        assertEquals("skipped", Collections.singleton("TimeActivity"), graph.getSkipped());
+    }
+
+    @Test
+    public void testAdd_UnknownDependency() throws Exception {
+        final SyncTaskGraph graph = new SyncTaskGraph();
+
+        boolean exceptionThrown = false;
+        try {
+            graph.add("TimeActivity", new RecordingTask("TimeActivity", null), "Employee");
+        } catch (IllegalArgumentException e) {
+            exceptionThrown = true;
+            assertEquals("Task TimeActivity depends on unknown task Employee", e.getMessage());
+        }
+
+        assertTrue("exception was not thrown", exceptionThrown);
+    }
+
+    private static class RecordingTask implements Runnable {
+        private final String name;
+        private final List<String> order;
+
+        private RecordingTask(String name, List<String> order) {
+            this.name = name;
+            this.order = order;
+        }
+
+        @Override
+        public void run() {
+            order.add(name);
+        }
+    }
+
+    private static class AwaitingTask extends RecordingTask {
+        private final CountDownLatch allStarted;
+
+        private AwaitingTask(String name, CountDownLatch allStarted, List<String> order) {
+            super(name, order);
+            this.allStarted = allStarted;
+        }
+
+        @Override
+        public void run() {
+            allStarted.countDown();
+            try {
+                if (!allStarted.await(5, TimeUnit.SECONDS)) {
+                    throw new RuntimeException("tasks did not run in parallel");
+                }
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+            super.run();
+        }
+    }
+}